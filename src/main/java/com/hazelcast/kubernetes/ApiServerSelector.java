@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Chooses the Kubernetes API server a REST call is sent to.
+ * <p>
+ * Each API server keeps an exponentially weighted moving average (EWMA) of its response latency and of its error rate. The
+ * candidates are ordered by the resulting score, so that a slow or failing API server (for example during a control-plane
+ * upgrade) is avoided as long as the others are healthy. Both averages are forgotten over time, so a recovered API server
+ * gets back into the rotation: only the called API servers get new samples, so the latency of an API server which was slow
+ * once would otherwise keep it out of the rotation forever, while its decaying estimate eventually gets it a probing call.
+ */
+final class ApiServerSelector {
+    /**
+     * Weight of the newest sample in the moving averages.
+     */
+    static final double EWMA_ALPHA = 0.3;
+
+    /**
+     * Latency penalty (in milliseconds) added to the score of an API server which failed every recent call.
+     */
+    static final long ERROR_PENALTY_MS = 10000L;
+
+    /**
+     * Time after which the error rate of an API server is halved when it is not called.
+     */
+    static final long ERROR_HALF_LIFE_MS = 30000L;
+
+    /**
+     * Time after which the latency estimate of an API server is halved when it is not called.
+     */
+    static final long LATENCY_HALF_LIFE_MS = 60000L;
+
+    private final List<ApiServer> apiServers = new ArrayList<ApiServer>();
+
+    ApiServerSelector(List<String> urls) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("At least one Kubernetes API server URL is required");
+        }
+        for (String url : urls) {
+            apiServers.add(new ApiServer(url));
+        }
+    }
+
+    /**
+     * Returns the API server URLs ordered from the best to the worst one. Servers with equal scores keep the configured order.
+     */
+    List<String> candidates() {
+        return candidates(System.currentTimeMillis());
+    }
+
+    List<String> candidates(long nowMs) {
+        // scores are taken upfront, so that the concurrent calls cannot change them while sorting
+        final double[] scores = new double[apiServers.size()];
+        List<Integer> indexes = new ArrayList<Integer>();
+        for (int i = 0; i < apiServers.size(); i++) {
+            scores[i] = apiServers.get(i).score(nowMs);
+            indexes.add(i);
+        }
+        Collections.sort(indexes, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                return Double.compare(scores[i1], scores[i2]);
+            }
+        });
+        List<String> result = new ArrayList<String>();
+        for (int index : indexes) {
+            result.add(apiServers.get(index).url);
+        }
+        return result;
+    }
+
+    List<String> urls() {
+        List<String> result = new ArrayList<String>();
+        for (ApiServer apiServer : apiServers) {
+            result.add(apiServer.url);
+        }
+        return result;
+    }
+
+    void recordSuccess(String url, long latencyMs) {
+        recordSuccess(url, latencyMs, System.currentTimeMillis());
+    }
+
+    void recordSuccess(String url, long latencyMs, long nowMs) {
+        apiServer(url).recordSuccess(latencyMs, nowMs);
+    }
+
+    void recordFailure(String url) {
+        apiServer(url).recordFailure(System.currentTimeMillis());
+    }
+
+    private ApiServer apiServer(String url) {
+        for (ApiServer apiServer : apiServers) {
+            if (apiServer.url.equals(url)) {
+                return apiServer;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown Kubernetes API server: %s", url));
+    }
+
+    private static final class ApiServer {
+        private final String url;
+        private double latencyMs;
+        private double errorRate;
+        private long lastUpdateMs;
+        private boolean sampled;
+
+        private ApiServer(String url) {
+            this.url = url;
+        }
+
+        private synchronized void recordSuccess(long latency, long nowMs) {
+            latencyMs = sampled ? ewma(decayedLatencyMs(nowMs), latency) : latency;
+            errorRate = ewma(decayedErrorRate(nowMs), 0);
+            lastUpdateMs = nowMs;
+            sampled = true;
+        }
+
+        private synchronized void recordFailure(long nowMs) {
+            latencyMs = decayedLatencyMs(nowMs);
+            errorRate = ewma(decayedErrorRate(nowMs), 1);
+            lastUpdateMs = nowMs;
+        }
+
+        private synchronized double score(long nowMs) {
+            return decayedLatencyMs(nowMs) + decayedErrorRate(nowMs) * ERROR_PENALTY_MS;
+        }
+
+        private double decayedLatencyMs(long nowMs) {
+            return latencyMs * decay(nowMs, LATENCY_HALF_LIFE_MS);
+        }
+
+        private double decayedErrorRate(long nowMs) {
+            return errorRate * decay(nowMs, ERROR_HALF_LIFE_MS);
+        }
+
+        private double decay(long nowMs, long halfLifeMs) {
+            long elapsedMs = Math.max(0, nowMs - lastUpdateMs);
+            return Math.pow(2, -(double) elapsedMs / halfLifeMs);
+        }
+
+        private static double ewma(double average, double sample) {
+            return EWMA_ALPHA * sample + (1 - EWMA_ALPHA) * average;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Decorates an {@link EndpointResolver} so that each lookup is compared with the previous one.
+ * <p>
+ * Unchanged members are returned as the same {@link DiscoveryNode} instances as before and, if nothing changed at all, the
+ * previous list itself is returned, so the work done with the result is proportional to the churn and not to the cluster
+ * size. The change set of a lookup is available with {@link #resolveDelta()} and every change is passed to the
+ * {@link MembershipEventPublisher}.
+ */
+final class DiffingEndpointResolver
+        extends EndpointResolver {
+    private final EndpointResolver delegate;
+    private final MembershipEventPublisher publisher;
+
+    private List<DiscoveryNode> lastMembers = Collections.emptyList();
+
+    DiffingEndpointResolver(ILogger logger, EndpointResolver delegate, MembershipEventPublisher publisher) {
+        super(logger);
+        this.delegate = delegate;
+        this.publisher = publisher;
+    }
+
+    @Override
+    List<DiscoveryNode> resolve() {
+        return resolveDelta().getMembers();
+    }
+
+    /**
+     * Resolves the endpoints and returns the difference to the previous lookup.
+     */
+    MembershipDelta resolveDelta() {
+        return update(delegate.resolve());
+    }
+
+    @Override
+    void start() {
+        delegate.start();
+    }
+
+    @Override
+    void destroy() {
+        delegate.destroy();
+    }
+
+    private MembershipDelta update(List<DiscoveryNode> nodes) {
+        MembershipDelta delta;
+        synchronized (this) {
+            delta = MembershipDelta.between(lastMembers, nodes);
+            if (delta.getMembers() == lastMembers) {
+                return delta;
+            }
+            lastMembers = delta.getMembers();
+        }
+        if (logger.isFineEnabled()) {
+            logger.fine(String.format("Discovered members changed, added: %s, removed: %s, changed: %s", delta.getAdded(),
+                    delta.getRemoved(), delta.getChanged()));
+        }
+        publisher.observe(delta.getMembers());
+        return delta;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small, process-wide pool of daemon threads used to run discovery work off the Hazelcast discovery and join threads.
+ * <p>
+ * The scheduler only fires timers, all blocking work (REST calls, DNS lookups) is handed over to the bounded worker pool.
+ * Work which other tasks wait for (the nested lookups and the DNS over TCP fallback) runs on the separate lookup pool, so
+ * that it can never be queued behind the tasks waiting for it. Idle threads time out, so the plugin does not keep any
+ * threads alive when it is not used.
+ */
+final class DiscoveryExecutor {
+    private static final int SCHEDULER_THREADS = 1;
+    private static final int WORKER_THREADS = 8;
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private DiscoveryExecutor() {
+    }
+
+    static ScheduledExecutorService scheduler() {
+        return Holder.SCHEDULER;
+    }
+
+    static ExecutorService workers() {
+        return Holder.WORKERS;
+    }
+
+    /**
+     * Pool for the lookups fanned out by a task which waits for them (e.g. merging or hedging resolvers) and for the DNS
+     * over TCP fallback. Its tasks may wait for each other, so it is not bounded: a new thread is started whenever all
+     * threads are busy, which keeps the lookups from starving each other. The number of threads is bounded in practice by
+     * the number of concurrent lookups.
+     */
+    static ExecutorService lookups() {
+        return Holder.LOOKUPS;
+    }
+
+    /**
+     * Runs {@code task} on a worker thread after {@code delayMs} milliseconds.
+     */
+    static ScheduledFuture<?> schedule(final Runnable task, long delayMs) {
+        return scheduler().schedule(new Runnable() {
+            @Override
+            public void run() {
+                workers().execute(task);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static final class Holder {
+        private static final ScheduledExecutorService SCHEDULER = createScheduler();
+        private static final ExecutorService WORKERS = createPool(WORKER_THREADS, "hz.kubernetes.discovery.worker");
+        private static final ExecutorService LOOKUPS = createUnboundedPool("hz.kubernetes.discovery.lookup");
+
+        private Holder() {
+        }
+
+        private static ScheduledExecutorService createScheduler() {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(SCHEDULER_THREADS,
+                    new DaemonThreadFactory("hz.kubernetes.discovery.scheduler"));
+            scheduler.setRemoveOnCancelPolicy(true);
+            scheduler.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            scheduler.allowCoreThreadTimeOut(true);
+            return scheduler;
+        }
+
+        private static ExecutorService createPool(int threads, String namePrefix) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new DaemonThreadFactory(namePrefix));
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+
+        private static ExecutorService createUnboundedPool(String namePrefix) {
+            return new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new SynchronousQueue<Runnable>(), new DaemonThreadFactory(namePrefix));
+        }
+    }
+
+    private static final class DaemonThreadFactory
+            implements ThreadFactory {
+        private final String namePrefix;
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        private DaemonThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
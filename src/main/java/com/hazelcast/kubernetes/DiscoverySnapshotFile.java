@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.internal.json.Json;
+import com.hazelcast.internal.json.JsonArray;
+import com.hazelcast.internal.json.JsonObject;
+import com.hazelcast.internal.json.JsonValue;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores the last successfully discovered members in a local file (e.g. on an {@code emptyDir} or a persistent volume).
+ * <p>
+ * After a restart (e.g. during a rolling upgrade), the stored members are used as the immediate first answer while the
+ * live lookup, which may be slow if the Kubernetes API is slow, completes in the background.
+ */
+final class DiscoverySnapshotFile {
+    private final ILogger logger;
+    private final Path path;
+    private final long maxAgeMs;
+
+    DiscoverySnapshotFile(ILogger logger, String fileName, long maxAgeMs) {
+        this.logger = logger;
+        this.path = new File(fileName).toPath();
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * Reads the stored members.
+     *
+     * @return stored members or {@code null} if the file does not exist, cannot be read, or is older than the maximum age
+     */
+    List<DiscoveryNode> load() {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            JsonObject snapshot = Json.parse(new String(Files.readAllBytes(path), StandardCharsets.UTF_8)).asObject();
+            long ageMs = System.currentTimeMillis() - snapshot.get("timestamp").asLong();
+            if (ageMs > maxAgeMs) {
+                logger.info(String.format("Ignoring discovery snapshot '%s', it is %d seconds old", path,
+                        TimeUnit.MILLISECONDS.toSeconds(ageMs)));
+                return null;
+            }
+            List<DiscoveryNode> nodes = parseNodes(snapshot.get("nodes").asArray());
+            logger.info(String.format("Loaded %d members from discovery snapshot '%s'", nodes.size(), path));
+            return nodes;
+        } catch (Exception e) {
+            logger.warning(String.format("Cannot read discovery snapshot '%s'", path), e);
+            return null;
+        }
+    }
+
+    long getMaxAgeMs() {
+        return maxAgeMs;
+    }
+
+    /**
+     * Stores the members atomically, so that a crash while writing never leaves a corrupted file behind.
+     */
+    void store(List<DiscoveryNode> nodes) {
+        JsonArray nodesJson = new JsonArray();
+        for (DiscoveryNode node : nodes) {
+            nodesJson.add(toJson(node));
+        }
+        JsonObject snapshot = new JsonObject()
+                .add("timestamp", System.currentTimeMillis())
+                .add("nodes", nodesJson);
+
+        Path tempFile = null;
+        try {
+            // the temporary file must be on the same file system as the snapshot file to be moved atomically
+            File directory = path.toFile().getAbsoluteFile().getParentFile();
+            tempFile = File.createTempFile("discovery-snapshot", ".tmp", directory).toPath();
+            Files.write(tempFile, snapshot.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warning(String.format("Cannot write discovery snapshot '%s'", path), e);
+            deleteQuietly(tempFile);
+        }
+    }
+
+    private static JsonObject toJson(DiscoveryNode node) {
+        JsonObject properties = new JsonObject();
+        for (Map.Entry<String, Object> property : node.getProperties().entrySet()) {
+            properties.add(property.getKey(), String.valueOf(property.getValue()));
+        }
+        JsonObject result = new JsonObject()
+                .add("privateAddress", toJson(node.getPrivateAddress()))
+                .add("properties", properties);
+        if (node.getPublicAddress() != null && !node.getPublicAddress().equals(node.getPrivateAddress())) {
+            result.add("publicAddress", toJson(node.getPublicAddress()));
+        }
+        return result;
+    }
+
+    private static JsonObject toJson(Address address) {
+        return new JsonObject().add("host", address.getHost()).add("port", address.getPort());
+    }
+
+    private List<DiscoveryNode> parseNodes(JsonArray nodesJson) {
+        List<DiscoveryNode> result = new ArrayList<DiscoveryNode>();
+        for (JsonValue nodeJson : nodesJson) {
+            try {
+                result.add(parseNode(nodeJson.asObject()));
+            } catch (UnknownHostException e) {
+                logger.finest(e);
+            }
+        }
+        return result;
+    }
+
+    private static DiscoveryNode parseNode(JsonObject nodeJson)
+            throws UnknownHostException {
+        Map<String, String> properties = new HashMap<String, String>();
+        for (JsonObject.Member property : nodeJson.get("properties").asObject()) {
+            properties.put(property.getName(), property.getValue().asString());
+        }
+        Address privateAddress = parseAddress(nodeJson.get("privateAddress"));
+        JsonValue publicAddressJson = nodeJson.get("publicAddress");
+        if (publicAddressJson == null) {
+            return new SimpleDiscoveryNode(privateAddress, properties);
+        }
+        return new SimpleDiscoveryNode(privateAddress, parseAddress(publicAddressJson), properties);
+    }
+
+    private static Address parseAddress(JsonValue addressJson)
+            throws UnknownHostException {
+        JsonObject address = addressJson.asObject();
+        return new Address(address.get("host").asString(), address.get("port").asInt());
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.finest(e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.config.NetworkConfig;
+import com.hazelcast.kubernetes.KubernetesConfig.DnsLookup;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Resolves the members from the address records of a headless service, which contain the IPs of all its ready pods.
+ * <p>
+ * Unlike the SRV lookup of {@link DnsEndpointResolver}, which needs another query for the address of each target, the
+ * whole lookup takes a single round trip; with both address families, the A and AAAA queries are in flight at the same
+ * time. The records do not carry any port, so all the members are expected on the same port.
+ */
+final class DnsAddressEndpointResolver
+        extends HazelcastKubernetesDiscoveryStrategy.EndpointResolver {
+
+    private final String serviceDns;
+    private final int port;
+    private final DnsClient dnsClient;
+    private final long serviceDnsTimeoutMs;
+    private final int[] types;
+
+    DnsAddressEndpointResolver(ILogger logger, String serviceDns, int port, DnsClient dnsClient, int serviceDnsTimeout,
+                               DnsLookup lookup) {
+        super(logger);
+        this.serviceDns = serviceDns;
+        this.port = port;
+        this.dnsClient = dnsClient;
+        this.serviceDnsTimeoutMs = TimeUnit.SECONDS.toMillis(serviceDnsTimeout);
+        this.types = types(lookup);
+    }
+
+    static int[] types(DnsLookup lookup) {
+        switch (lookup) {
+            case A:
+                return new int[]{DnsMessage.TYPE_A};
+            case AAAA:
+                return new int[]{DnsMessage.TYPE_AAAA};
+            case DUAL_STACK:
+                return new int[]{DnsMessage.TYPE_A, DnsMessage.TYPE_AAAA};
+            default:
+                throw new IllegalArgumentException("Not an address lookup: " + lookup);
+        }
+    }
+
+    List<DiscoveryNode> resolve() {
+        try {
+            return lookup();
+        } catch (TimeoutException e) {
+            logger.warning(String.format("DNS lookup for serviceDns '%s' failed: timed out", serviceDns));
+            return Collections.emptyList();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning(String.format("DNS lookup for serviceDns '%s' was interrupted", serviceDns));
+            return Collections.emptyList();
+        } catch (Exception e) {
+            logger.warning(String.format("DNS lookup for serviceDns '%s' failed", serviceDns), e);
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    void invalidate() {
+        dnsClient.invalidateCache();
+    }
+
+    @Override
+    void destroy() {
+        dnsClient.close();
+    }
+
+    private List<DiscoveryNode> lookup()
+            throws IOException, InterruptedException, TimeoutException {
+        Set<InetAddress> addresses = new LinkedHashSet<InetAddress>();
+        boolean notFound = true;
+        for (DnsMessage response : dnsClient.lookup(serviceDns, types, serviceDnsTimeoutMs)) {
+            notFound &= response.getRcode() == DnsMessage.RCODE_NAME_ERROR;
+            for (DnsMessage.Record record : response.getAnswers()) {
+                // the answers may also contain the CNAME chain, which is skipped while decoding
+                if (record.getAddress() != null) {
+                    addresses.add(record.getAddress());
+                }
+            }
+        }
+        if (notFound) {
+            logger.warning(String.format("DNS lookup for serviceDns '%s' failed: name not found", serviceDns));
+            return Collections.emptyList();
+        }
+        if (addresses.isEmpty()) {
+            logger.warning("Could not find any service for serviceDns '" + serviceDns + "'");
+            return Collections.emptyList();
+        }
+
+        int hazelcastPort = port > 0 ? port : NetworkConfig.DEFAULT_PORT;
+        List<DiscoveryNode> result = new ArrayList<DiscoveryNode>(addresses.size());
+        for (InetAddress address : addresses) {
+            if (logger.isFinestEnabled()) {
+                logger.finest("Found node service with address: " + address);
+            }
+            result.add(new SimpleDiscoveryNode(new Address(address, hazelcastPort)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Discovery-local cache of DNS responses which honors the TTL of the records.
+ * <p>
+ * The TTL of a response is the lowest TTL of its records, clamped to the configured minimum and maximum. Negative
+ * answers, i.e. non-existent names and names without any record of the queried type, are cached as RFC 2308 specifies:
+ * for the minimum of the SOA record of the response, at most for the configured negative TTL (which also applies if there
+ * is no SOA record), so that the names expanded with the search domains are not queried again on every lookup. Server
+ * failures, refusals and other errors are never cached, they say nothing about the name. A maximum TTL of 0 disables the
+ * cache.
+ */
+final class DnsCache {
+    private final long minTtlNanos;
+    private final long maxTtlNanos;
+    private final long negativeTtlNanos;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    DnsCache(int minTtlSeconds, int maxTtlSeconds, int negativeTtlSeconds) {
+        this.minTtlNanos = TimeUnit.SECONDS.toNanos(minTtlSeconds);
+        this.maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtlSeconds);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(Math.min(negativeTtlSeconds, maxTtlSeconds));
+    }
+
+    static DnsCache disabled() {
+        return new DnsCache(0, 0, 0);
+    }
+
+    /**
+     * @return the cached response or {@code null} if there is none or if it expired
+     */
+    DnsMessage get(String name, int type) {
+        if (maxTtlNanos == 0) {
+            return null;
+        }
+        String key = key(name, type);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAtNanos >= 0) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.response;
+    }
+
+    void put(String name, int type, DnsMessage response) {
+        // a truncated response is incomplete, so it must not be served later as the full answer
+        if (maxTtlNanos == 0 || response.isTruncated() || !isCacheable(response.getRcode())) {
+            return;
+        }
+        long ttlNanos = ttlNanos(response);
+        if (ttlNanos > 0) {
+            entries.put(key(name, type), new Entry(response, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    /**
+     * Drops all the cached responses, e.g. before a lookup is retried, so that the retry queries the nameservers again.
+     */
+    void clear() {
+        entries.clear();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static boolean isCacheable(int rcode) {
+        return rcode == DnsMessage.RCODE_NO_ERROR || rcode == DnsMessage.RCODE_NAME_ERROR;
+    }
+
+    private long ttlNanos(DnsMessage response) {
+        if (response.getRcode() == DnsMessage.RCODE_NAME_ERROR || response.getAnswers().isEmpty()) {
+            long soaTtlNanos = response.getNegativeTtl() >= 0 ? TimeUnit.SECONDS.toNanos(response.getNegativeTtl())
+                    : Long.MAX_VALUE;
+            return Math.min(negativeTtlNanos, soaTtlNanos);
+        }
+        long ttlSeconds = Long.MAX_VALUE;
+        for (DnsMessage.Record record : response.getAnswers()) {
+            ttlSeconds = Math.min(ttlSeconds, record.getTtl());
+        }
+        for (DnsMessage.Record record : response.getAdditionals()) {
+            ttlSeconds = Math.min(ttlSeconds, record.getTtl());
+        }
+        return Math.min(maxTtlNanos, Math.max(minTtlNanos, TimeUnit.SECONDS.toNanos(ttlSeconds)));
+    }
+
+    private static String key(String name, int type) {
+        return type + ":" + name.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        private final DnsMessage response;
+        private final long expiresAtNanos;
+
+        private Entry(DnsMessage response, long expiresAtNanos) {
+            this.response = response;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
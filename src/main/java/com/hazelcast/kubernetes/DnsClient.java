@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.logging.ILogger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * Small non-blocking DNS stub resolver built on a single {@link DatagramChannel}.
+ * <p>
+ * Queries are pipelined: any number of queries may be in flight at the same time and responses are matched to them by the
+ * transaction ID, so resolving many names takes about one round trip. Each query is sent to all configured nameservers
+ * and the first answer wins. Queries advertise a larger UDP payload size with EDNS0, and a truncated response is retried
+ * over TCP, so that large SRV answer sets are never silently cut. Names are expanded with the search domains according to
+ * the {@code ndots} option, like the system resolver does (see {@code resolv.conf(5)}).
+ */
+final class DnsClient {
+    static final String RESOLV_CONF = "/etc/resolv.conf";
+
+    private static final int DNS_PORT = 53;
+    private static final int DEFAULT_NDOTS = 1;
+    private static final long RETRANSMIT_INTERVAL_MS = 1000L;
+    private static final int MAX_ID = 0xFFFF;
+    private static final int RECEIVE_BUFFER_LENGTH = 65535;
+    private static final int TCP_TIMEOUT_MS = 5000;
+
+    private final ILogger logger;
+    private final List<InetSocketAddress> nameservers;
+    private final List<String> searchDomains;
+    private final int ndots;
+    private final DnsCache cache;
+
+    private final ConcurrentMap<Integer, PendingQuery> pendingQueries = new ConcurrentHashMap<Integer, PendingQuery>();
+    private final Random random = new SecureRandom();
+    private volatile DatagramChannel channel;
+    private volatile boolean closed;
+
+    DnsClient(ILogger logger, List<InetSocketAddress> nameservers, List<String> searchDomains, int ndots) {
+        this(logger, nameservers, searchDomains, ndots, DnsCache.disabled());
+    }
+
+    DnsClient(ILogger logger, List<InetSocketAddress> nameservers, List<String> searchDomains, int ndots, DnsCache cache) {
+        this.logger = logger;
+        this.nameservers = nameservers;
+        this.searchDomains = searchDomains;
+        this.ndots = ndots;
+        this.cache = cache;
+    }
+
+    /**
+     * Creates a client configured with the nameservers, search domains, and {@code ndots} of the given resolver
+     * configuration file. Falls back to a nameserver on the localhost if the file cannot be read.
+     */
+    static DnsClient fromResolvConf(ILogger logger, Path resolvConf, DnsCache cache) {
+        List<InetSocketAddress> nameservers = new ArrayList<InetSocketAddress>();
+        List<String> searchDomains = new ArrayList<String>();
+        int ndots = DEFAULT_NDOTS;
+        try {
+            for (String line : Files.readAllLines(resolvConf, StandardCharsets.UTF_8)) {
+                String[] tokens = line.trim().split("\\s+");
+                if (tokens.length < 2 || tokens[0].startsWith("#") || tokens[0].startsWith(";")) {
+                    continue;
+                }
+                if ("nameserver".equals(tokens[0])) {
+                    nameservers.add(new InetSocketAddress(InetAddress.getByName(tokens[1]), DNS_PORT));
+                } else if ("search".equals(tokens[0]) || "domain".equals(tokens[0])) {
+                    // the last search or domain line wins
+                    searchDomains.clear();
+                    searchDomains.addAll(Arrays.asList(tokens).subList(1, tokens.length));
+                } else if ("options".equals(tokens[0])) {
+                    ndots = parseNdots(tokens, ndots);
+                }
+            }
+        } catch (IOException e) {
+            logger.warning(String.format("Cannot read '%s', using the nameserver on localhost", resolvConf), e);
+        }
+        if (nameservers.isEmpty()) {
+            nameservers.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), DNS_PORT));
+        }
+        return new DnsClient(logger, nameservers, searchDomains, ndots, cache);
+    }
+
+    private static int parseNdots(String[] tokens, int defaultNdots) {
+        int ndots = defaultNdots;
+        for (int i = 1; i < tokens.length; i++) {
+            if (tokens[i].startsWith("ndots:")) {
+                try {
+                    ndots = Integer.parseInt(tokens[i].substring("ndots:".length()));
+                } catch (NumberFormatException e) {
+                    ndots = defaultNdots;
+                }
+            }
+        }
+        return ndots;
+    }
+
+    /**
+     * Resolves {@code name}, trying the names expanded with the search domains in the same order as the system resolver.
+     *
+     * @return the first response with answers, or the last response if no name has any record of the given type
+     * @throws TimeoutException if there is no answer within the timeout
+     */
+    DnsMessage lookup(String name, int type, long timeoutMs)
+            throws IOException, InterruptedException, TimeoutException {
+        return lookup(name, new int[]{type}, timeoutMs).get(0);
+    }
+
+    /**
+     * Resolves {@code name} for several record types at once: for each name expanded with the search domains, the queries
+     * of all the types are in flight at the same time.
+     *
+     * @return responses in the order of {@code types}, for the first name with any answer, or for the last name if no name
+     * has any record of the given types
+     * @throws TimeoutException if there is no answer within the timeout
+     */
+    List<DnsMessage> lookup(String name, int[] types, long timeoutMs)
+            throws IOException, InterruptedException, TimeoutException {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<DnsMessage> responses = Collections.emptyList();
+        for (String candidate : candidates(name)) {
+            List<CompletableFuture<DnsMessage>> queries = new ArrayList<CompletableFuture<DnsMessage>>(types.length);
+            for (int type : types) {
+                queries.add(query(candidate, type));
+            }
+            responses = new ArrayList<DnsMessage>(types.length);
+            boolean answered = false;
+            try {
+                for (CompletableFuture<DnsMessage> query : queries) {
+                    DnsMessage response = await(query, deadlineNanos);
+                    responses.add(response);
+                    answered |= response.getRcode() == DnsMessage.RCODE_NO_ERROR && !response.getAnswers().isEmpty();
+                }
+            } finally {
+                for (CompletableFuture<DnsMessage> query : queries) {
+                    query.cancel(false);
+                }
+            }
+            if (answered) {
+                return responses;
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Sends a query for the absolute {@code name} without waiting for the response, unless the response is cached.
+     */
+    CompletableFuture<DnsMessage> query(final String name, final int type)
+            throws IOException {
+        DnsMessage cached = cache.get(name, type);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        ensureOpen();
+        final PendingQuery query = new PendingQuery(name, type);
+        int id;
+        do {
+            id = random.nextInt(MAX_ID + 1);
+        } while (pendingQueries.putIfAbsent(id, query) != null);
+        final int queryId = id;
+        query.request = DnsMessage.encodeQuery(id, name, type);
+        query.future.whenComplete(new BiConsumer<DnsMessage, Throwable>() {
+            @Override
+            public void accept(DnsMessage message, Throwable throwable) {
+                pendingQueries.remove(queryId, query);
+                cancel(query.retransmission);
+                if (message != null) {
+                    cache.put(name, type, message);
+                }
+            }
+        });
+        send(query);
+        query.retransmission = DiscoveryExecutor.scheduler().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                send(query);
+            }
+        }, RETRANSMIT_INTERVAL_MS, RETRANSMIT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (query.future.isDone()) {
+            cancel(query.retransmission);
+        }
+        return query.future;
+    }
+
+    /**
+     * Waits for the response until the deadline; the query is cancelled if it is not answered in time.
+     */
+    static DnsMessage await(Future<DnsMessage> future, long deadlineNanos)
+            throws IOException, InterruptedException, TimeoutException {
+        try {
+            return future.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Drops the cached responses, so that the next queries are sent to the nameservers.
+     */
+    void invalidateCache() {
+        cache.clear();
+    }
+
+    void close() {
+        closed = true;
+        synchronized (this) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.finest(e);
+                }
+            }
+        }
+        for (PendingQuery query : pendingQueries.values()) {
+            query.future.completeExceptionally(new ClosedChannelException());
+        }
+    }
+
+    List<String> candidates(String name) {
+        if (name.endsWith(".")) {
+            return Collections.singletonList(name.substring(0, name.length() - 1));
+        }
+        int dots = 0;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) == '.') {
+                dots++;
+            }
+        }
+        List<String> result = new ArrayList<String>(searchDomains.size() + 1);
+        if (dots >= ndots) {
+            result.add(name);
+        }
+        for (String searchDomain : searchDomains) {
+            result.add(name + "." + searchDomain);
+        }
+        if (dots < ndots) {
+            result.add(name);
+        }
+        return result;
+    }
+
+    private synchronized void ensureOpen()
+            throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        if (channel != null) {
+            return;
+        }
+        channel = DatagramChannel.open();
+        channel.bind(null);
+        Thread receiver = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receive();
+            }
+        }, "hz.kubernetes.discovery.dns-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    private void send(PendingQuery query) {
+        for (InetSocketAddress nameserver : nameservers) {
+            try {
+                channel.send(query.request.duplicate(), nameserver);
+            } catch (IOException e) {
+                if (logger.isFinestEnabled()) {
+                    logger.finest(String.format("Cannot send DNS query for '%s' to %s", query.name, nameserver), e);
+                }
+            }
+        }
+    }
+
+    private void receive() {
+        ByteBuffer buffer = ByteBuffer.allocate(RECEIVE_BUFFER_LENGTH);
+        while (!closed) {
+            try {
+                buffer.clear();
+                SocketAddress source = channel.receive(buffer);
+                buffer.flip();
+                if (nameservers.contains(source)) {
+                    complete(DnsMessage.decode(buffer), (InetSocketAddress) source);
+                }
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (Exception e) {
+                // a malformed or unexpected message must not stop the receiver
+                logger.finest(e);
+            }
+        }
+    }
+
+    private void complete(DnsMessage response, InetSocketAddress nameserver) {
+        PendingQuery query = pendingQueries.get(response.getId());
+        if (query == null || !query.matches(response)) {
+            return;
+        }
+        if (!response.isTruncated()) {
+            query.future.complete(response);
+        } else if (query.overTcp.compareAndSet(false, true)) {
+            retryOverTcp(query, nameserver);
+        }
+    }
+
+    /**
+     * Repeats the query over TCP (RFC 7766) on a lookup thread, the receiver thread must never block. It must not run on a
+     * worker thread either, since all workers may be blocked waiting for this very query.
+     */
+    private void retryOverTcp(final PendingQuery query, final InetSocketAddress nameserver) {
+        cancel(query.retransmission);
+        if (logger.isFinestEnabled()) {
+            logger.finest(String.format("DNS response for '%s' was truncated, retrying over TCP", query.name));
+        }
+        DiscoveryExecutor.lookups().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    DnsMessage response = queryOverTcp(query, nameserver);
+                    if (query.matches(response)) {
+                        query.future.complete(response);
+                    } else {
+                        query.future.completeExceptionally(
+                                new IOException(String.format("Unexpected DNS response for '%s' over TCP", query.name)));
+                    }
+                } catch (Exception e) {
+                    query.future.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    private static DnsMessage queryOverTcp(PendingQuery query, InetSocketAddress nameserver)
+            throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(nameserver, TCP_TIMEOUT_MS);
+            socket.setSoTimeout(TCP_TIMEOUT_MS);
+            // over TCP, each message is prefixed with its length
+            ByteBuffer request = query.request.duplicate();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeShort(request.remaining());
+            out.write(request.array(), request.arrayOffset() + request.position(), request.remaining());
+            out.flush();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            byte[] response = new byte[in.readUnsignedShort()];
+            in.readFully(response);
+            return DnsMessage.decode(ByteBuffer.wrap(response));
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static void cancel(Future<?> future) {
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    private static final class PendingQuery {
+        private final String name;
+        private final int type;
+        private final CompletableFuture<DnsMessage> future = new CompletableFuture<DnsMessage>();
+        private final AtomicBoolean overTcp = new AtomicBoolean();
+        private volatile ByteBuffer request;
+        private volatile Future<?> retransmission;
+
+        private PendingQuery(String name, int type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        /**
+         * The question must match as well, so that a late response to a reused ID is not taken as the answer.
+         */
+        private boolean matches(DnsMessage response) {
+            return response.isResponse() && type == response.getQuestionType()
+                    && name.equalsIgnoreCase(response.getQuestionName());
+        }
+    }
+}
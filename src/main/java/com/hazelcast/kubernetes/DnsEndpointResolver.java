@@ -14,69 +14,74 @@
  * limitations under the License.
  */
 
+
 package com.hazelcast.kubernetes;
 
+import com.hazelcast.cluster.Address;
 import com.hazelcast.config.NetworkConfig;
-import com.hazelcast.core.HazelcastException;
 import com.hazelcast.logging.ILogger;
-import com.hazelcast.cluster.Address;
 import com.hazelcast.spi.discovery.DiscoveryNode;
 import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
 
-import javax.naming.Context;
-import javax.naming.NameNotFoundException;
-import javax.naming.NamingEnumeration;
-import javax.naming.NamingException;
-import javax.naming.directory.Attribute;
-import javax.naming.directory.Attributes;
-import javax.naming.directory.DirContext;
-import javax.naming.directory.InitialDirContext;
+import java.io.IOException;
 import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 final class DnsEndpointResolver
         extends HazelcastKubernetesDiscoveryStrategy.EndpointResolver {
+    /**
+     * Orders SRV records by priority (lowest first) and then by weight (highest first), see RFC 2782. Among equal records, the
+     * default Hazelcast port comes first, since Kubernetes gives all ports of a service the same priority and weight.
+     */
+    private static final Comparator<DnsMessage.Record> SRV_ORDER = new Comparator<DnsMessage.Record>() {
+        @Override
+        public int compare(DnsMessage.Record first, DnsMessage.Record second) {
+            if (first.getPriority() != second.getPriority()) {
+                return Integer.compare(first.getPriority(), second.getPriority());
+            }
+            if (first.getWeight() != second.getWeight()) {
+                return Integer.compare(second.getWeight(), first.getWeight());
+            }
+            return Boolean.compare(second.getPort() == NetworkConfig.DEFAULT_PORT, first.getPort() == NetworkConfig.DEFAULT_PORT);
+        }
+    };
 
     private final String serviceDns;
     private final int port;
-    private final DirContext dirContext;
+    private final DnsClient dnsClient;
+    private final long serviceDnsTimeoutMs;
 
-    DnsEndpointResolver(ILogger logger, String serviceDns, int port, DirContext dirContext) {
+    DnsEndpointResolver(ILogger logger, String serviceDns, int port, DnsClient dnsClient, int serviceDnsTimeout) {
         super(logger);
         this.serviceDns = serviceDns;
         this.port = port;
-        this.dirContext = dirContext;
-    }
-
-    DnsEndpointResolver(ILogger logger, String serviceDns, int port, int serviceDnsTimeout) {
-        this(logger, serviceDns, port, createDirContext(serviceDnsTimeout));
-
-    }
-
-    @SuppressWarnings("checkstyle:magicnumber")
-    private static DirContext createDirContext(int serviceDnsTimeout) {
-        Hashtable<String, String> env = new Hashtable<String, String>();
-        env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.dns.DnsContextFactory");
-        env.put(Context.PROVIDER_URL, "dns:");
-        env.put("com.sun.jndi.dns.timeout.initial", String.valueOf(serviceDnsTimeout * 1000L));
-        try {
-            return new InitialDirContext(env);
-        } catch (NamingException e) {
-            throw new HazelcastException("Error while initializing DirContext", e);
-        }
+        this.dnsClient = dnsClient;
+        this.serviceDnsTimeoutMs = TimeUnit.SECONDS.toMillis(serviceDnsTimeout);
     }
 
     List<DiscoveryNode> resolve() {
         try {
             return lookup();
-        } catch (NameNotFoundException e) {
-            logger.warning(String.format("DNS lookup for serviceDns '%s' failed: name not found", serviceDns));
+        } catch (TimeoutException e) {
+            logger.warning(String.format("DNS lookup for serviceDns '%s' failed: timed out", serviceDns));
+            return Collections.emptyList();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning(String.format("DNS lookup for serviceDns '%s' was interrupted", serviceDns));
             return Collections.emptyList();
         } catch (Exception e) {
             logger.warning(String.format("DNS lookup for serviceDns '%s' failed", serviceDns), e);
@@ -84,49 +89,178 @@ final class DnsEndpointResolver
         }
     }
 
+    @Override
+    void invalidate() {
+        dnsClient.invalidateCache();
+    }
+
+    @Override
+    void destroy() {
+        dnsClient.close();
+    }
+
     private List<DiscoveryNode> lookup()
-            throws NamingException, UnknownHostException {
-        Set<String> addresses = new HashSet<String>();
-        Attributes attributes = dirContext.getAttributes(serviceDns, new String[]{"SRV"});
-        Attribute srvAttribute = attributes.get("srv");
-        if (srvAttribute != null) {
-            NamingEnumeration<?> servers = srvAttribute.getAll();
-            while (servers.hasMore()) {
-                String server = (String) servers.next();
-                String serverHost = extractHost(server);
-                InetAddress address = InetAddress.getByName(serverHost);
-                if (addresses.add(address.getHostAddress()) && logger.isFinestEnabled()) {
-                    logger.finest("Found node service with address: " + address);
-                }
-            }
+            throws IOException, InterruptedException, TimeoutException {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(serviceDnsTimeoutMs);
+        DnsMessage response = dnsClient.lookup(serviceDns, DnsMessage.TYPE_SRV, serviceDnsTimeoutMs);
+        if (response.getRcode() == DnsMessage.RCODE_NAME_ERROR) {
+            logger.warning(String.format("DNS lookup for serviceDns '%s' failed: name not found", serviceDns));
+            return Collections.emptyList();
         }
 
+        List<DnsMessage.Record> srvRecords = srvRecords(response);
+        Set<String> targets = new LinkedHashSet<String>();
+        for (DnsMessage.Record record : srvRecords) {
+            targets.add(record.getTarget().toLowerCase(Locale.ROOT));
+        }
+        Collection<Address> addresses = toAddresses(srvRecords,
+                lookupTargets(targets, response.getAdditionals(), deadlineNanos));
+
         if (addresses.size() == 0) {
             logger.warning("Could not find any service for serviceDns '" + serviceDns + "'");
             return Collections.emptyList();
         }
 
         List<DiscoveryNode> result = new ArrayList<DiscoveryNode>();
-        for (String address : addresses) {
-            result.add(new SimpleDiscoveryNode(new Address(address, getHazelcastPort(port))));
+        for (Address address : addresses) {
+            result.add(new SimpleDiscoveryNode(address));
+        }
+        return result;
+    }
+
+    private static List<DnsMessage.Record> srvRecords(DnsMessage response) {
+        List<DnsMessage.Record> result = new ArrayList<DnsMessage.Record>();
+        for (DnsMessage.Record record : response.getAnswers()) {
+            if (record.getType() == DnsMessage.TYPE_SRV) {
+                result.add(record);
+            }
         }
+        Collections.sort(result, SRV_ORDER);
         return result;
     }
 
     /**
-     * Extracts host from the DNS record.
-     * <p>
-     * Sample record: "10 25 0 6235386366386436.my-release-hazelcast.default.svc.cluster.local".
+     * A service with several ports has one SRV record per port for each pod, so only the first record of each target is used.
+     * To discover a specific port, look up its SRV name, e.g. {@code _hazelcast._tcp.SERVICE-NAME.NAMESPACE.svc...}.
+     *
+     * @return unique addresses of the SRV targets, in the order of the SRV records
      */
-    private static String extractHost(String server) {
-        String host = server.split(" ")[3];
-        return host.replaceAll("\\\\.$", "");
+    private Collection<Address> toAddresses(List<DnsMessage.Record> srvRecords, Map<String, List<InetAddress>> resolved) {
+        Set<String> targets = new HashSet<String>();
+        Map<String, Address> addresses = new LinkedHashMap<String, Address>();
+        for (DnsMessage.Record record : srvRecords) {
+            String target = record.getTarget().toLowerCase(Locale.ROOT);
+            List<InetAddress> targetAddresses = resolved.get(target);
+            if (targetAddresses == null || !targets.add(target)) {
+                continue;
+            }
+            int hazelcastPort = getHazelcastPort(port, record.getPort());
+            for (InetAddress address : targetAddresses) {
+                String key = address.getHostAddress() + ":" + hazelcastPort;
+                if (!addresses.containsKey(key)) {
+                    addresses.put(key, new Address(address, hazelcastPort));
+                    if (logger.isFinestEnabled()) {
+                        logger.finest(String.format("Found node service with address: %s, port: %d", address, hazelcastPort));
+                    }
+                }
+            }
+        }
+        return addresses.values();
+    }
+
+    /**
+     * Resolves the addresses of the SRV targets. Addresses included in the additional section of the SRV response are used
+     * directly, the remaining targets are queried for A records, and the targets without any A record for AAAA records.
+     * All queries of a round are in flight at the same time, so a lookup takes about one DNS round trip per round
+     * instead of one round trip per member. Targets not resolved before the deadline are skipped.
+     *
+     * @return addresses by target
+     */
+    private Map<String, List<InetAddress>> lookupTargets(Collection<String> targets, List<DnsMessage.Record> additionals,
+                                                         long deadlineNanos)
+            throws IOException, InterruptedException {
+        Map<String, List<InetAddress>> resolved = new HashMap<String, List<InetAddress>>();
+        addAddresses(resolved, additionals);
+
+        List<String> unresolved = new ArrayList<String>();
+        for (String target : targets) {
+            if (!resolved.containsKey(target)) {
+                unresolved.add(target);
+            }
+        }
+        unresolved = queryAddresses(resolved, unresolved, DnsMessage.TYPE_A, deadlineNanos);
+        unresolved = queryAddresses(resolved, unresolved, DnsMessage.TYPE_AAAA, deadlineNanos);
+        for (String target : unresolved) {
+            logger.warning(String.format("DNS lookup for '%s' did not return any address", target));
+        }
+        return resolved;
+    }
+
+    /**
+     * Queries all {@code targets} at once.
+     *
+     * @return targets without any address record of the given type
+     */
+    private List<String> queryAddresses(Map<String, List<InetAddress>> resolved, List<String> targets, int type,
+                                        long deadlineNanos)
+            throws IOException, InterruptedException {
+        Map<String, CompletableFuture<DnsMessage>> queries = new LinkedHashMap<String, CompletableFuture<DnsMessage>>();
+        for (String target : targets) {
+            queries.put(target, dnsClient.query(target, type));
+        }
+        List<String> unresolved = new ArrayList<String>();
+        for (Map.Entry<String, CompletableFuture<DnsMessage>> query : queries.entrySet()) {
+            try {
+                // the answers may be for the canonical name of the target, so assign them to the target itself
+                addAddresses(resolved, query.getKey(), DnsClient.await(query.getValue(), deadlineNanos).getAnswers());
+            } catch (TimeoutException e) {
+                logger.warning(String.format("DNS lookup for '%s' timed out", query.getKey()));
+                continue;
+            } catch (IOException e) {
+                logger.warning(String.format("DNS lookup for '%s' failed", query.getKey()), e);
+                continue;
+            }
+            if (!resolved.containsKey(query.getKey())) {
+                unresolved.add(query.getKey());
+            }
+        }
+        return unresolved;
+    }
+
+    private static void addAddresses(Map<String, List<InetAddress>> resolved, List<DnsMessage.Record> records) {
+        for (DnsMessage.Record record : records) {
+            addAddress(resolved, record.getName().toLowerCase(Locale.ROOT), record);
+        }
+    }
+
+    private static void addAddresses(Map<String, List<InetAddress>> resolved, String target, List<DnsMessage.Record> records) {
+        for (DnsMessage.Record record : records) {
+            addAddress(resolved, target, record);
+        }
+    }
+
+    private static void addAddress(Map<String, List<InetAddress>> resolved, String name, DnsMessage.Record record) {
+        if (record.getAddress() == null) {
+            return;
+        }
+        List<InetAddress> addresses = resolved.get(name);
+        if (addresses == null) {
+            addresses = new ArrayList<InetAddress>();
+            resolved.put(name, addresses);
+        }
+        addresses.add(record.getAddress());
     }
 
-    private static int getHazelcastPort(int port) {
+    /**
+     * The configured port overrides the port of the SRV record, which is used unless it is 0.
+     */
+    private static int getHazelcastPort(int port, int srvPort) {
         if (port > 0) {
             return port;
         }
+        if (srvPort > 0) {
+            return srvPort;
+        }
         return NetworkConfig.DEFAULT_PORT;
     }
 }
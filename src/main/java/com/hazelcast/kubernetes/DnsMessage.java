@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encoder of DNS queries and decoder of DNS responses (RFC 1035), limited to the record types used for discovery.
+ * <p>
+ * Records are decoded directly from the binary message, names are decompressed without any string splitting.
+ */
+@SuppressWarnings("checkstyle:magicnumber")
+final class DnsMessage {
+    static final int TYPE_A = 1;
+    static final int TYPE_AAAA = 28;
+    static final int TYPE_SRV = 33;
+
+    static final int RCODE_NO_ERROR = 0;
+    static final int RCODE_NAME_ERROR = 3;
+
+    /**
+     * UDP payload size advertised with EDNS0 (RFC 6891). Large enough for the SRV records of a few dozen members, small
+     * enough to avoid IP fragmentation; larger responses are truncated and retried over TCP.
+     */
+    static final int EDNS_UDP_PAYLOAD_SIZE = 1232;
+
+    private static final int TYPE_SOA = 6;
+    private static final int TYPE_OPT = 41;
+    private static final int CLASS_IN = 1;
+    private static final int OPT_RECORD_LENGTH = 11;
+    private static final int HEADER_LENGTH = 12;
+    private static final int FLAG_RESPONSE = 0x8000;
+    private static final int FLAG_TRUNCATED = 0x0200;
+    private static final int FLAG_RECURSION_DESIRED = 0x0100;
+    private static final int RCODE_MASK = 0x000F;
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int POINTER_MASK = 0xC0;
+    private static final int MAX_POINTERS = 16;
+    private static final int SOA_MINIMUM_OFFSET = 16;
+
+    private final int id;
+    private final int flags;
+    private final String questionName;
+    private final int questionType;
+    private final List<Record> answers;
+    private final List<Record> additionals;
+    private final long negativeTtl;
+
+    private DnsMessage(int id, int flags, String questionName, int questionType, List<Record> answers,
+                       List<Record> additionals, long negativeTtl) {
+        this.id = id;
+        this.flags = flags;
+        this.questionName = questionName;
+        this.questionType = questionType;
+        this.answers = answers;
+        this.additionals = additionals;
+        this.negativeTtl = negativeTtl;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    boolean isResponse() {
+        return (flags & FLAG_RESPONSE) != 0;
+    }
+
+    boolean isTruncated() {
+        return (flags & FLAG_TRUNCATED) != 0;
+    }
+
+    int getRcode() {
+        return flags & RCODE_MASK;
+    }
+
+    String getQuestionName() {
+        return questionName;
+    }
+
+    int getQuestionType() {
+        return questionType;
+    }
+
+    List<Record> getAnswers() {
+        return answers;
+    }
+
+    /**
+     * @return records of the additional section, e.g. the addresses of the SRV targets
+     */
+    List<Record> getAdditionals() {
+        return additionals;
+    }
+
+    /**
+     * @return time in seconds a negative answer may be cached, i.e. the lower of the TTL and the minimum field of the SOA
+     * record in the authority section (RFC 2308), or {@code -1} if there is no SOA record
+     */
+    long getNegativeTtl() {
+        return negativeTtl;
+    }
+
+    /**
+     * Encodes a recursive query for a single question, advertising the {@link #EDNS_UDP_PAYLOAD_SIZE}.
+     *
+     * @param name absolute domain name, with or without the trailing dot
+     */
+    static ByteBuffer encodeQuery(int id, String name, int type) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + MAX_NAME_LENGTH + 2 + 4 + OPT_RECORD_LENGTH);
+        buffer.putShort((short) id);
+        buffer.putShort((short) FLAG_RECURSION_DESIRED);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 1);
+        encodeName(buffer, name);
+        buffer.putShort((short) type);
+        buffer.putShort((short) CLASS_IN);
+        // OPT pseudo-record: root name, the payload size in place of the class, no extended flags and no options
+        buffer.put((byte) 0);
+        buffer.putShort((short) TYPE_OPT);
+        buffer.putShort((short) EDNS_UDP_PAYLOAD_SIZE);
+        buffer.putInt(0);
+        buffer.putShort((short) 0);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes a response. Records of other types than A, AAAA and SRV are skipped. The records of a truncated response are
+     * incomplete, so they are dropped altogether.
+     *
+     * @throws IllegalArgumentException if the message is malformed
+     */
+    static DnsMessage decode(ByteBuffer buffer) {
+        try {
+            int id = buffer.getShort() & 0xFFFF;
+            int flags = buffer.getShort() & 0xFFFF;
+            int questionCount = buffer.getShort() & 0xFFFF;
+            int answerCount = buffer.getShort() & 0xFFFF;
+            int authorityCount = buffer.getShort() & 0xFFFF;
+            int additionalCount = buffer.getShort() & 0xFFFF;
+            String questionName = null;
+            int questionType = 0;
+            for (int i = 0; i < questionCount; i++) {
+                questionName = decodeName(buffer);
+                questionType = buffer.getShort() & 0xFFFF;
+                buffer.getShort();
+            }
+            if ((flags & FLAG_TRUNCATED) != 0) {
+                // a truncated message may end in the middle of a record
+                return new DnsMessage(id, flags, questionName, questionType, Collections.<Record>emptyList(),
+                        Collections.<Record>emptyList(), -1);
+            }
+            List<Record> answers = decodeRecords(buffer, answerCount);
+            long negativeTtl = decodeNegativeTtl(buffer, authorityCount);
+            List<Record> additionals = decodeRecords(buffer, additionalCount);
+            return new DnsMessage(id, flags, questionName, questionType, answers, additionals, negativeTtl);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Malformed DNS message", e);
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed DNS message", e);
+        }
+    }
+
+    private static List<Record> decodeRecords(ByteBuffer buffer, int count) {
+        List<Record> records = new ArrayList<Record>(count);
+        for (int i = 0; i < count && buffer.hasRemaining(); i++) {
+            String name = decodeName(buffer);
+            int type = buffer.getShort() & 0xFFFF;
+            int recordClass = buffer.getShort() & 0xFFFF;
+            long ttl = buffer.getInt() & 0xFFFFFFFFL;
+            int length = buffer.getShort() & 0xFFFF;
+            int end = buffer.position() + length;
+            if (end > buffer.limit()) {
+                throw new IllegalArgumentException("Malformed DNS record of " + name);
+            }
+            Record record = decodeRecord(buffer, name, type, recordClass, ttl, length);
+            if (record != null) {
+                records.add(record);
+            }
+            buffer.position(end);
+        }
+        return records;
+    }
+
+    /**
+     * Skips the authority section, taking the negative caching TTL from its SOA record, if any.
+     */
+    private static long decodeNegativeTtl(ByteBuffer buffer, int count) {
+        long negativeTtl = -1;
+        for (int i = 0; i < count && buffer.hasRemaining(); i++) {
+            String name = decodeName(buffer);
+            int type = buffer.getShort() & 0xFFFF;
+            buffer.getShort();
+            long ttl = buffer.getInt() & 0xFFFFFFFFL;
+            int length = buffer.getShort() & 0xFFFF;
+            int end = buffer.position() + length;
+            if (end > buffer.limit()) {
+                throw new IllegalArgumentException("Malformed DNS record of " + name);
+            }
+            if (type == TYPE_SOA) {
+                // primary nameserver and mailbox, then serial, refresh, retry and expire before the minimum
+                decodeName(buffer);
+                decodeName(buffer);
+                buffer.position(buffer.position() + SOA_MINIMUM_OFFSET);
+                negativeTtl = Math.min(ttl, buffer.getInt() & 0xFFFFFFFFL);
+            }
+            buffer.position(end);
+        }
+        return negativeTtl;
+    }
+
+    private static Record decodeRecord(ByteBuffer buffer, String name, int type, int recordClass, long ttl, int length) {
+        if (recordClass != CLASS_IN) {
+            return null;
+        }
+        if ((type == TYPE_A && length == 4) || (type == TYPE_AAAA && length == 16)) {
+            byte[] address = new byte[length];
+            buffer.get(address);
+            try {
+                return new Record(name, type, ttl, InetAddress.getByAddress(name, address), 0, 0, 0, null);
+            } catch (UnknownHostException e) {
+                // cannot happen, the address length is checked
+                throw new IllegalArgumentException(e);
+            }
+        }
+        if (type == TYPE_SRV) {
+            int priority = buffer.getShort() & 0xFFFF;
+            int weight = buffer.getShort() & 0xFFFF;
+            int port = buffer.getShort() & 0xFFFF;
+            String target = decodeName(buffer);
+            return new Record(name, type, ttl, null, priority, weight, port, target);
+        }
+        return null;
+    }
+
+    private static void encodeName(ByteBuffer buffer, String name) {
+        int labelStart = 0;
+        int length = name.endsWith(".") ? name.length() - 1 : name.length();
+        if (length > MAX_NAME_LENGTH - 2) {
+            throw new IllegalArgumentException("Domain name too long: " + name);
+        }
+        for (int i = 0; i <= length; i++) {
+            if (i == length || name.charAt(i) == '.') {
+                int labelLength = i - labelStart;
+                if (labelLength == 0 || labelLength > MAX_LABEL_LENGTH) {
+                    throw new IllegalArgumentException("Invalid domain name: " + name);
+                }
+                buffer.put((byte) labelLength);
+                for (int j = labelStart; j < i; j++) {
+                    buffer.put((byte) name.charAt(j));
+                }
+                labelStart = i + 1;
+            }
+        }
+        buffer.put((byte) 0);
+    }
+
+    /**
+     * Decodes a (possibly compressed) name and leaves the buffer positioned after it.
+     */
+    private static String decodeName(ByteBuffer buffer) {
+        StringBuilder name = new StringBuilder();
+        int position = buffer.position();
+        int end = -1;
+        int pointers = 0;
+        int length = buffer.get(position) & 0xFF;
+        while (length != 0) {
+            if ((length & POINTER_MASK) == POINTER_MASK) {
+                if (++pointers > MAX_POINTERS) {
+                    throw new IllegalArgumentException("Too many compression pointers");
+                }
+                if (end < 0) {
+                    end = position + 2;
+                }
+                position = ((length & ~POINTER_MASK) << 8) | (buffer.get(position + 1) & 0xFF);
+            } else {
+                if (name.length() > 0) {
+                    name.append('.');
+                }
+                for (int i = 1; i <= length; i++) {
+                    name.append((char) (buffer.get(position + i) & 0xFF));
+                }
+                position += length + 1;
+            }
+            length = buffer.get(position) & 0xFF;
+        }
+        buffer.position(end < 0 ? position + 1 : end);
+        return name.toString();
+    }
+
+    /**
+     * Single resource record.
+     */
+    static final class Record {
+        private final String name;
+        private final int type;
+        private final long ttl;
+        private final InetAddress address;
+        private final int priority;
+        private final int weight;
+        private final int port;
+        private final String target;
+
+        Record(String name, int type, long ttl, InetAddress address, int priority, int weight, int port, String target) {
+            this.name = name;
+            this.type = type;
+            this.ttl = ttl;
+            this.address = address;
+            this.priority = priority;
+            this.weight = weight;
+            this.port = port;
+            this.target = target;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        int getType() {
+            return type;
+        }
+
+        /**
+         * @return time to live in seconds
+         */
+        long getTtl() {
+            return ttl;
+        }
+
+        /**
+         * @return address of an A or AAAA record
+         */
+        InetAddress getAddress() {
+            return address;
+        }
+
+        int getPriority() {
+            return priority;
+        }
+
+        int getWeight() {
+            return weight;
+        }
+
+        int getPort() {
+            return port;
+        }
+
+        /**
+         * @return target host of an SRV record
+         */
+        String getTarget() {
+            return target;
+        }
+
+        @Override
+        public String toString() {
+            if (type == TYPE_SRV) {
+                return String.format("%s SRV %d %d %d %s", name, priority, weight, port, target);
+            }
+            return String.format("%s %s", name, address.getHostAddress());
+        }
+    }
+}
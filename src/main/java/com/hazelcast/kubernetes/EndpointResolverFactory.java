@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.config.NetworkConfig;
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.kubernetes.KubernetesConfig.DiscoveryMode;
+import com.hazelcast.kubernetes.KubernetesConfig.DnsLookup;
+import com.hazelcast.logging.ILogger;
+
+import java.net.UnknownHostException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Builds the {@link EndpointResolver} chain of the discovery strategy from the {@link KubernetesConfig}.
+ */
+final class EndpointResolverFactory {
+    private static final long NOT_READY_SEED_LEASE_HOLD_TIME_MS = TimeUnit.SECONDS.toMillis(60);
+
+    private EndpointResolverFactory() {
+    }
+
+    /**
+     * Builds the resolver of the configured discovery mode, decorated according to the configuration.
+     */
+    static EndpointResolver create(ILogger logger, KubernetesConfig config, KubernetesClient client,
+                                   DiscoverySnapshotFile snapshotFile, MembershipEventPublisher membershipEventPublisher) {
+        EndpointResolver endpointResolver;
+        if (DiscoveryMode.DNS_LOOKUP.equals(config.getMode())) {
+            endpointResolver = createDnsEndpointResolver(logger, config);
+        } else if (DiscoveryMode.STATEFULSET.equals(config.getMode())) {
+            endpointResolver = createStatefulSetEndpointResolver(logger, config, client);
+        } else if (DiscoveryMode.MEMBER_REGISTRY.equals(config.getMode())) {
+            endpointResolver = createMemberRegistryEndpointResolver(logger, config, client);
+        } else if (DiscoveryMode.HYBRID.equals(config.getMode())) {
+            endpointResolver = createHybridEndpointResolver(logger, config, client);
+        } else {
+            endpointResolver = createKubernetesApiEndpointResolver(logger, config, client);
+        }
+        if (config.getHeartbeatPeriod() > 0) {
+            endpointResolver = createHeartbeatEndpointResolver(logger, config, client, endpointResolver);
+        }
+        if (config.getSeedLeaseName() != null) {
+            endpointResolver = createSeedElectingEndpointResolver(logger, config, client, endpointResolver);
+        }
+        endpointResolver = new DiffingEndpointResolver(logger, endpointResolver, membershipEventPublisher);
+        if (snapshotFile != null) {
+            endpointResolver = new PersistingEndpointResolver(logger, endpointResolver, snapshotFile);
+        }
+        if (config.getDiscoveryRefreshInterval() > 0) {
+            endpointResolver = new RefreshingEndpointResolver(logger, endpointResolver,
+                    TimeUnit.SECONDS.toMillis(config.getDiscoveryRefreshInterval()),
+                    TimeUnit.SECONDS.toMillis(config.getDiscoveryMaxStaleness()), refreshRetries(config),
+                    describe(config.getMode()));
+        }
+        return endpointResolver;
+    }
+
+    /**
+     * The REST calls are already retried by the client and the DNS lookups by the {@link RetryingEndpointResolver} (if
+     * configured), so the background refresh retries only the DNS lookups which are not retried otherwise.
+     */
+    private static int refreshRetries(KubernetesConfig config) {
+        boolean dnsBased = DiscoveryMode.DNS_LOOKUP.equals(config.getMode())
+                || DiscoveryMode.STATEFULSET.equals(config.getMode());
+        if (!dnsBased || hasDnsRetries(config)) {
+            return 0;
+        }
+        return config.getKubernetesApiRetries();
+    }
+
+    private static boolean hasDnsRetries(KubernetesConfig config) {
+        return config.getServiceDnsRetries() > 0 || config.getServiceDnsMinMembers() > 0;
+    }
+
+    private static String describe(DiscoveryMode mode) {
+        if (DiscoveryMode.DNS_LOOKUP.equals(mode)) {
+            return "discover Hazelcast members using DNS lookup";
+        }
+        if (DiscoveryMode.STATEFULSET.equals(mode)) {
+            return "discover Hazelcast members of the StatefulSet";
+        }
+        if (DiscoveryMode.MEMBER_REGISTRY.equals(mode)) {
+            return "discover Hazelcast members using the member registry";
+        }
+        if (DiscoveryMode.HYBRID.equals(mode)) {
+            return "discover Hazelcast members using DNS lookup and Kubernetes API";
+        }
+        return "discover Hazelcast members using Kubernetes API";
+    }
+
+    private static EndpointResolver createHeartbeatEndpointResolver(ILogger logger, KubernetesConfig config,
+                                                                    KubernetesClient client, EndpointResolver endpointResolver) {
+        String podName;
+        String podIp;
+        try {
+            podName = HazelcastKubernetesDiscoveryStrategy.podName();
+            podIp = HazelcastKubernetesDiscoveryStrategy.podIp();
+        } catch (UnknownHostException e) {
+            logger.warning("Cannot determine the POD name and IP, the heartbeats are disabled", e);
+            return endpointResolver;
+        }
+        return new HeartbeatEndpointResolver(logger, endpointResolver, client, config.getHeartbeatLeasePrefix(), podName, podIp,
+                TimeUnit.SECONDS.toMillis(config.getHeartbeatPeriod()), config.getHeartbeatTimeout());
+    }
+
+    private static EndpointResolver createSeedElectingEndpointResolver(ILogger logger, KubernetesConfig config,
+                                                                       KubernetesClient client,
+                                                                       EndpointResolver endpointResolver) {
+        String identity;
+        String address;
+        try {
+            identity = HazelcastKubernetesDiscoveryStrategy.podName();
+            address = HazelcastKubernetesDiscoveryStrategy.podIp();
+        } catch (UnknownHostException e) {
+            logger.warning("Cannot determine the POD name and IP, the seed election is disabled", e);
+            return endpointResolver;
+        }
+        boolean readyOnly = discoversReadyMembersOnly(config);
+        long holdTimeMs = TimeUnit.SECONDS.toMillis(config.getSeedLeaseHoldTime());
+        if (!readyOnly && holdTimeMs == 0) {
+            holdTimeMs = NOT_READY_SEED_LEASE_HOLD_TIME_MS;
+        }
+        return new SeedElectingEndpointResolver(logger, endpointResolver, client, config.getSeedLeaseName(), identity,
+                address, servicePort(config), config.getSeedLeaseDuration(), holdTimeMs, readyOnly);
+    }
+
+    /**
+     * The DNS records of a headless service are published only for the ready PODs (unless the service sets
+     * {@code publishNotReadyAddresses}), the other modes return the not ready members if configured so.
+     */
+    private static boolean discoversReadyMembersOnly(KubernetesConfig config) {
+        return !config.isResolveNotReadyAddresses() || DiscoveryMode.DNS_LOOKUP.equals(config.getMode())
+                || DiscoveryMode.STATEFULSET.equals(config.getMode());
+    }
+
+    private static EndpointResolver createMemberRegistryEndpointResolver(ILogger logger, KubernetesConfig config,
+                                                                         KubernetesClient client) {
+        String podName = null;
+        String podIp = null;
+        try {
+            podName = HazelcastKubernetesDiscoveryStrategy.podName();
+            podIp = HazelcastKubernetesDiscoveryStrategy.podIp();
+        } catch (UnknownHostException e) {
+            logger.warning("Cannot determine the POD name and IP, this member does not register itself", e);
+        }
+        return new MemberRegistryEndpointResolver(logger, client, config.getMemberRegistry(), podName, podIp,
+                servicePort(config), config.isResolveNotReadyAddresses());
+    }
+
+    private static int servicePort(KubernetesConfig config) {
+        return config.getServicePort() > 0 ? config.getServicePort() : NetworkConfig.DEFAULT_PORT;
+    }
+
+    /**
+     * The hedged lookup returns the first non-empty result, which may be only a part of the members, and it is bounded by
+     * the DNS timeout, so the retries and the wait for the expected members are applied to the hedged result as a whole.
+     */
+    private static EndpointResolver createHybridEndpointResolver(ILogger logger, KubernetesConfig config,
+                                                                 KubernetesClient client) {
+        EndpointResolver endpointResolver = new HedgedEndpointResolver(logger, createDnsLookupEndpointResolver(logger, config),
+                createKubernetesApiLookupEndpointResolver(logger, config, client), config.getHybridDiscoveryDelay(),
+                config.getHybridDiscoveryDelay() + TimeUnit.SECONDS.toMillis(config.getServiceDnsTimeout()));
+        IntSupplier expectedMembers = expectedMembers(config, client);
+        if (expectedMembers != null) {
+            return new RetryingEndpointResolver(logger, endpointResolver, config.getServiceDnsRetries(), expectedMembers,
+                    TimeUnit.SECONDS.toMillis(config.getExpectedMembersTimeout()), RetryUtils.INITIAL_BACKOFF_MS);
+        }
+        return withRetries(logger, config, endpointResolver);
+    }
+
+    private static EndpointResolver createKubernetesApiEndpointResolver(ILogger logger, KubernetesConfig config,
+                                                                        KubernetesClient client) {
+        EndpointResolver endpointResolver = createKubernetesApiLookupEndpointResolver(logger, config, client);
+        IntSupplier expectedMembers = expectedMembers(config, client);
+        if (expectedMembers == null) {
+            return endpointResolver;
+        }
+        // the REST calls are already retried by the client, so only the expected members are awaited
+        return new RetryingEndpointResolver(logger, endpointResolver, 0, expectedMembers,
+                TimeUnit.SECONDS.toMillis(config.getExpectedMembersTimeout()), RetryUtils.INITIAL_BACKOFF_MS);
+    }
+
+    private static EndpointResolver createKubernetesApiLookupEndpointResolver(ILogger logger, KubernetesConfig config,
+                                                                              KubernetesClient client) {
+        return new KubernetesApiEndpointResolver(logger, config.getServiceName(), config.getServicePort(),
+                config.getServiceLabelName(), config.getServiceLabelValue(), config.getPodLabelName(), config.getPodLabelValue(),
+                config.isResolveNotReadyAddresses(), config.getDrainingPods(), client);
+    }
+
+    private static IntSupplier expectedMembers(final KubernetesConfig config, final KubernetesClient client) {
+        if (config.getExpectedMembersWorkload() != null) {
+            final String[] workload = config.getExpectedMembersWorkload().split("/");
+            return new IntSupplier() {
+                @Override
+                public int getAsInt() {
+                    return client.replicas(workload[0], workload[1]);
+                }
+            };
+        }
+        if (config.getExpectedMembers() > 0) {
+            return new IntSupplier() {
+                @Override
+                public int getAsInt() {
+                    return config.getExpectedMembers();
+                }
+            };
+        }
+        return null;
+    }
+
+    private static EndpointResolver createStatefulSetEndpointResolver(ILogger logger, KubernetesConfig config,
+                                                                      KubernetesClient client) {
+        // the pod names have only address records, so the default SRV lookup means IPv4 here
+        DnsLookup lookup = DnsLookup.SRV.equals(config.getServiceDnsLookup()) ? DnsLookup.A : config.getServiceDnsLookup();
+        String domain = String.format("%s.svc.%s", config.getNamespace(), config.getClusterDomain());
+        EndpointResolver endpointResolver = new StatefulSetEndpointResolver(logger, client, config.getStatefulSetName(),
+                config.getServiceName(), config.getStatefulSetReplicas(), domain, config.getServicePort(),
+                createDnsClient(logger, config), config.getServiceDnsTimeout(), lookup);
+        return withRetries(logger, config, endpointResolver);
+    }
+
+    private static EndpointResolver createDnsEndpointResolver(ILogger logger, KubernetesConfig config) {
+        return withRetries(logger, config, createDnsLookupEndpointResolver(logger, config));
+    }
+
+    private static EndpointResolver createDnsLookupEndpointResolver(ILogger logger, KubernetesConfig config) {
+        DnsClient dnsClient = createDnsClient(logger, config);
+        List<EndpointResolver> endpointResolvers = new ArrayList<EndpointResolver>();
+        for (String serviceDns : config.getServiceDnsNames()) {
+            if (DnsLookup.SRV.equals(config.getServiceDnsLookup())) {
+                endpointResolvers.add(new DnsEndpointResolver(logger, serviceDns, config.getServicePort(), dnsClient,
+                        config.getServiceDnsTimeout()));
+            } else {
+                endpointResolvers.add(new DnsAddressEndpointResolver(logger, serviceDns, config.getServicePort(), dnsClient,
+                        config.getServiceDnsTimeout(), config.getServiceDnsLookup()));
+            }
+        }
+        return endpointResolvers.size() == 1 ? endpointResolvers.get(0)
+                : new MergingEndpointResolver(logger, endpointResolvers,
+                        TimeUnit.SECONDS.toMillis(config.getServiceDnsTimeout()));
+    }
+
+    private static DnsClient createDnsClient(ILogger logger, KubernetesConfig config) {
+        DnsCache dnsCache = new DnsCache(config.getServiceDnsCacheMinTtl(), config.getServiceDnsCacheMaxTtl(),
+                config.getServiceDnsCacheNegativeTtl());
+        return DnsClient.fromResolvConf(logger, Paths.get(DnsClient.RESOLV_CONF), dnsCache);
+    }
+
+    private static EndpointResolver withRetries(ILogger logger, KubernetesConfig config, EndpointResolver endpointResolver) {
+        if (hasDnsRetries(config)) {
+            return new RetryingEndpointResolver(logger, endpointResolver, config.getServiceDnsRetries(),
+                    config.getServiceDnsMinMembers(), TimeUnit.SECONDS.toMillis(config.getServiceDnsMinMembersTimeout()),
+                    RetryUtils.INITIAL_BACKOFF_MS);
+        }
+        return endpointResolver;
+    }
+}
@@ -17,6 +17,7 @@
 package com.hazelcast.kubernetes;
 
 import com.hazelcast.kubernetes.KubernetesConfig.DiscoveryMode;
+import com.hazelcast.kubernetes.KubernetesConfig.DrainingPods;
 import com.hazelcast.logging.ILogger;
 import com.hazelcast.spi.discovery.AbstractDiscoveryStrategy;
 import com.hazelcast.spi.discovery.DiscoveryNode;
@@ -24,72 +25,155 @@ import com.hazelcast.spi.partitiongroup.PartitionGroupMetaData;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 final class HazelcastKubernetesDiscoveryStrategy
         extends AbstractDiscoveryStrategy {
+    private static final long ZONE_DISCOVERY_TIMEOUT_MS = 10000L;
+
     private final KubernetesClient client;
     private final EndpointResolver endpointResolver;
+    private final MembershipEventPublisher membershipEventPublisher;
+    private final KubernetesDiscoveryMetrics metrics;
     private KubernetesConfig config;
 
     private final Map<String, String> memberMetadata = new HashMap<String, String>();
 
+    private final AtomicReference<CompletableFuture<List<DiscoveryNode>>> prefetchedNodes =
+            new AtomicReference<CompletableFuture<List<DiscoveryNode>>>();
+    private final CompletableFuture<String> prefetchedZone;
+    private final List<DiscoveryNode> lastKnownNodes;
+
     HazelcastKubernetesDiscoveryStrategy(ILogger logger, Map<String, Comparable> properties) {
+        this(logger, properties, Collections.<KubernetesMembershipListener>emptyList());
+    }
+
+    HazelcastKubernetesDiscoveryStrategy(ILogger logger, Map<String, Comparable> properties,
+                                         Collection<KubernetesMembershipListener> membershipListeners) {
         super(logger, properties);
 
         config = new KubernetesConfig(properties);
         logger.info(config.toString());
 
-        client = buildKubernetesClient(config);
+        RateLimiter rateLimiter = RateLimiter.shared(config.getKubernetesApiQps(), config.getKubernetesApiBurst());
+        client = buildKubernetesClient(config, rateLimiter);
+        DiscoverySnapshotFile snapshotFile = buildSnapshotFile(logger, config);
+        lastKnownNodes = snapshotFile == null ? null : snapshotFile.load();
+        membershipEventPublisher = new MembershipEventPublisher(logger, membershipListeners,
+                config.getMembershipEventQuietPeriod(), config.getMembershipEventMaxDelay());
+        endpointResolver = EndpointResolverFactory.create(logger, config, client, snapshotFile, membershipEventPublisher);
+        metrics = new KubernetesDiscoveryMetrics(logger, membershipEventPublisher, rateLimiter);
 
-        if (DiscoveryMode.DNS_LOOKUP.equals(config.getMode())) {
-            endpointResolver = new DnsEndpointResolver(logger, config.getServiceDns(), config.getServicePort(),
-                    config.getServiceDnsTimeout());
-        } else {
-            endpointResolver = new KubernetesApiEndpointResolver(logger, config.getServiceName(), config.getServicePort(),
-                    config.getServiceLabelName(), config.getServiceLabelValue(),
-                    config.getPodLabelName(), config.getPodLabelValue(),
-                    config.isResolveNotReadyAddresses(), client);
+        logger.info("Kubernetes Discovery activated with mode: " + config.getMode().name());
+
+        // resolve the zone and the TLS context in parallel, so that the member startup finds warm results instead of
+        // performing all the lookups serially on its critical path; the endpoints are prefetched once the strategy is started
+        prefetchedZone = prefetchZone();
+    }
+
+    private static DiscoverySnapshotFile buildSnapshotFile(ILogger logger, KubernetesConfig config) {
+        if (config.getDiscoverySnapshotFile() == null) {
+            return null;
         }
+        return new DiscoverySnapshotFile(logger, config.getDiscoverySnapshotFile(),
+                TimeUnit.SECONDS.toMillis(config.getDiscoverySnapshotMaxAge()));
+    }
 
-        logger.info("Kubernetes Discovery activated with mode: " + config.getMode().name());
+    private static KubernetesClient buildKubernetesClient(KubernetesConfig config, RateLimiter rateLimiter) {
+        return new KubernetesClient(config.getNamespace(), config.getKubernetesMasterUrls(), config.getKubernetesApiToken(),
+                config.getKubernetesCaCertificate(), config.getKubernetesApiRetries(), rateLimiter,
+                config.isUseNodeNameAsExternalAddress(), !DrainingPods.INCLUDE.equals(config.getDrainingPods()),
+                config.getServicePortName());
     }
 
-    private static KubernetesClient buildKubernetesClient(KubernetesConfig config) {
-        return new KubernetesClient(config.getNamespace(), config.getKubernetesMasterUrl(), config.getKubernetesApiToken(),
-                config.getKubernetesCaCertificate(), config.getKubernetesApiRetries(), config.isUseNodeNameAsExternalAddress());
+    private void prefetchNodes() {
+        prefetchedNodes.set(CompletableFuture.supplyAsync(new Supplier<List<DiscoveryNode>>() {
+            @Override
+            public List<DiscoveryNode> get() {
+                return endpointResolver.resolve();
+            }
+        }, DiscoveryExecutor.workers()));
+    }
+
+    private CompletableFuture<String> prefetchZone() {
+        if (DiscoveryMode.DNS_LOOKUP.equals(config.getMode())) {
+            return CompletableFuture.completedFuture(discoverZone());
+        }
+        if (config.getKubernetesCaCertificate() != null) {
+            prefetchSslContext();
+        }
+        return CompletableFuture.supplyAsync(new Supplier<String>() {
+            @Override
+            public String get() {
+                return discoverZone();
+            }
+        }, DiscoveryExecutor.workers());
+    }
+
+    private void prefetchSslContext() {
+        DiscoveryExecutor.workers().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    client.prefetchSslContext();
+                } catch (Exception e) {
+                    // the error is reported by the first REST call
+                    getLogger().finest(e);
+                }
+            }
+        });
     }
 
     public void start() {
+        metrics.register();
         endpointResolver.start();
+        // the lookup may write (seed election, heartbeats), so it must not start before Hazelcast starts the strategy
+        prefetchNodes();
     }
 
     @Override
     public Map<String, String> discoverLocalMetadata() {
         if (memberMetadata.isEmpty()) {
-            memberMetadata.put(PartitionGroupMetaData.PARTITION_GROUP_ZONE, discoverZone());
+            memberMetadata.put(PartitionGroupMetaData.PARTITION_GROUP_ZONE, awaitZone());
         }
         return memberMetadata;
     }
 
+    private String awaitZone() {
+        try {
+            return prefetchedZone.get(ZONE_DISCOVERY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            getLogger().finest(e);
+        } catch (TimeoutException e) {
+            getLogger().finest(e);
+        }
+        getLogger().info("Cannot fetch the current zone in time, ZONE_AWARE feature is disabled");
+        return "unknown";
+    }
+
     /**
      * Discovers the availability zone in which the current Hazelcast member is running.
      * <p>
-     * Note: ZONE_AWARE is available only for the Kubernetes API Mode.
+     * Note: ZONE_AWARE is available only for the Kubernetes API and the hybrid Modes.
      */
     private String discoverZone() {
-        if (DiscoveryMode.KUBERNETES_API.equals(config.getMode())) {
+        if (!DiscoveryMode.DNS_LOOKUP.equals(config.getMode())) {
             try {
-                String podName = System.getenv("POD_NAME");
-                if (podName == null) {
-                    podName = System.getenv("HOSTNAME");
-                }
-                if (podName == null) {
-                    podName = InetAddress.getLocalHost().getHostName();
-                }
-                String zone = client.zone(podName);
+                String zone = client.zone(podName());
                 if (zone != null) {
                     getLogger().info(String.format("Kubernetes plugin discovered availability zone: %s", zone));
                     return zone;
@@ -103,13 +187,63 @@ final class HazelcastKubernetesDiscoveryStrategy
         return "unknown";
     }
 
+    /**
+     * Returns the name of the POD in which the current Hazelcast member is running.
+     */
+    static String podName()
+            throws UnknownHostException {
+        String podName = System.getenv("POD_NAME");
+        if (podName == null) {
+            podName = System.getenv("HOSTNAME");
+        }
+        if (podName == null) {
+            podName = InetAddress.getLocalHost().getHostName();
+        }
+        return podName;
+    }
+
+    /**
+     * Returns the IP of the POD in which the current Hazelcast member is running.
+     */
+    static String podIp()
+            throws UnknownHostException {
+        String podIp = System.getenv("POD_IP");
+        if (podIp == null) {
+            podIp = InetAddress.getLocalHost().getHostAddress();
+        }
+        return podIp;
+    }
+
     @Override
     public Iterable<DiscoveryNode> discoverNodes() {
+        CompletableFuture<List<DiscoveryNode>> prefetched = prefetchedNodes.getAndSet(null);
+        if (prefetched != null && !prefetched.isDone() && lastKnownNodes != null) {
+            // do not wait for the live lookup on a warm restart, the members stored before the restart are most likely
+            // still there; the lookup result is used by the next discovery round
+            prefetchedNodes.compareAndSet(null, prefetched);
+            getLogger().fine("Using Hazelcast members stored before the restart: " + lastKnownNodes);
+            return lastKnownNodes;
+        }
+        if (prefetched != null) {
+            try {
+                return prefetched.join();
+            } catch (CompletionException e) {
+                getLogger().finest("Prefetching Hazelcast members failed, discovering them again", e);
+            } catch (CancellationException e) {
+                getLogger().finest("Prefetching Hazelcast members was cancelled, discovering them again", e);
+            }
+        }
         return endpointResolver.resolve();
     }
 
     public void destroy() {
+        CompletableFuture<List<DiscoveryNode>> prefetched = prefetchedNodes.getAndSet(null);
+        if (prefetched != null) {
+            prefetched.cancel(false);
+        }
+        membershipEventPublisher.destroy();
         endpointResolver.destroy();
+        metrics.unregister();
     }
 
     abstract static class EndpointResolver {
@@ -124,6 +258,13 @@ final class HazelcastKubernetesDiscoveryStrategy
         void start() {
         }
 
+        /**
+         * Drops the cached lookup results, if any, so that the next {@link #resolve()} queries the source again. Called
+         * before a lookup is retried.
+         */
+        void invalidate() {
+        }
+
         void destroy() {
         }
 
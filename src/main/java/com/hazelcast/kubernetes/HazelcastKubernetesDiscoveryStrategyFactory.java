@@ -28,6 +28,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Just the factory to create the Kubernetes Discovery Strategy
@@ -53,9 +54,44 @@ public class HazelcastKubernetesDiscoveryStrategyFactory
                 KubernetesProperties.KUBERNETES_MASTER_URL,
                 KubernetesProperties.KUBERNETES_API_TOKEN,
                 KubernetesProperties.KUBERNETES_CA_CERTIFICATE,
-                KubernetesProperties.SERVICE_PORT));
+                KubernetesProperties.SERVICE_PORT,
+                KubernetesProperties.DISCOVERY_REFRESH_INTERVAL,
+                KubernetesProperties.DISCOVERY_MAX_STALENESS,
+                KubernetesProperties.DISCOVERY_SNAPSHOT_FILE,
+                KubernetesProperties.DISCOVERY_SNAPSHOT_MAX_AGE,
+                KubernetesProperties.MEMBERSHIP_EVENT_QUIET_PERIOD,
+                KubernetesProperties.MEMBERSHIP_EVENT_MAX_DELAY,
+                KubernetesProperties.SERVICE_DNS_CACHE_MIN_TTL,
+                KubernetesProperties.SERVICE_DNS_CACHE_MAX_TTL,
+                KubernetesProperties.SERVICE_DNS_CACHE_NEGATIVE_TTL,
+                KubernetesProperties.SERVICE_DNS_LOOKUP,
+                KubernetesProperties.SERVICE_DNS_RETRIES,
+                KubernetesProperties.SERVICE_DNS_MIN_MEMBERS,
+                KubernetesProperties.SERVICE_DNS_MIN_MEMBERS_TIMEOUT,
+                KubernetesProperties.HYBRID_DISCOVERY,
+                KubernetesProperties.HYBRID_DISCOVERY_DELAY,
+                KubernetesProperties.KUBERNETES_API_QPS,
+                KubernetesProperties.KUBERNETES_API_BURST,
+                KubernetesProperties.STATEFULSET_NAME,
+                KubernetesProperties.STATEFULSET_REPLICAS,
+                KubernetesProperties.CLUSTER_DOMAIN,
+                KubernetesProperties.EXPECTED_MEMBERS,
+                KubernetesProperties.EXPECTED_MEMBERS_WORKLOAD,
+                KubernetesProperties.EXPECTED_MEMBERS_TIMEOUT,
+                KubernetesProperties.SEED_LEASE_NAME,
+                KubernetesProperties.SEED_LEASE_DURATION,
+                KubernetesProperties.SEED_LEASE_HOLD_TIME,
+                KubernetesProperties.MEMBER_REGISTRY,
+                KubernetesProperties.HEARTBEAT_PERIOD,
+                KubernetesProperties.HEARTBEAT_TIMEOUT,
+                KubernetesProperties.HEARTBEAT_LEASE_PREFIX,
+                KubernetesProperties.DRAINING_PODS,
+                KubernetesProperties.SERVICE_PORT_NAME));
     }
 
+    private final Collection<KubernetesMembershipListener> membershipListeners =
+            new CopyOnWriteArrayList<KubernetesMembershipListener>();
+
     public Class<? extends DiscoveryStrategy> getDiscoveryStrategyType() {
         return HazelcastKubernetesDiscoveryStrategy.class;
     }
@@ -63,7 +99,27 @@ public class HazelcastKubernetesDiscoveryStrategyFactory
     public DiscoveryStrategy newDiscoveryStrategy(DiscoveryNode discoveryNode, ILogger logger,
                                                   Map<String, Comparable> properties) {
 
-        return new HazelcastKubernetesDiscoveryStrategy(logger, properties);
+        return new HazelcastKubernetesDiscoveryStrategy(logger, properties, membershipListeners);
+    }
+
+    /**
+     * Registers a listener notified about the changes of the discovered members. Use this factory instance in
+     * {@link com.hazelcast.config.DiscoveryStrategyConfig#DiscoveryStrategyConfig(DiscoveryStrategyFactory)} to receive the
+     * events.
+     *
+     * @param listener the listener
+     */
+    public void addMembershipListener(KubernetesMembershipListener listener) {
+        membershipListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener registered with {@link #addMembershipListener(KubernetesMembershipListener)}.
+     *
+     * @param listener the listener
+     */
+    public void removeMembershipListener(KubernetesMembershipListener listener) {
+        membershipListeners.remove(listener);
     }
 
     public Collection<PropertyDefinition> getConfigurationProperties() {
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+/**
+ * Decorates an {@link EndpointResolver} so that the discovery skips the members which stopped sending heartbeats.
+ * <p>
+ * Every member renews its own {@code coordination.k8s.io/v1} Lease, named after its POD and labeled with the Lease prefix,
+ * every heartbeat period. The readiness probes and the endpoints of a dead POD are updated only after tens of seconds, so
+ * the discovered members whose Lease has expired are removed, with a single list of the labeled Leases. The Leases expire
+ * by the local clock, counted from when this member last saw them renewed (see {@link LeaseObserver}), so the clock skew
+ * between the nodes does not matter. The members without any Lease, e.g. the ones which have just started, are kept. A
+ * member shutting down expires its Lease right away, and the Lease is owned by the POD, so Kubernetes garbage collects it
+ * together with the POD.
+ */
+final class HeartbeatEndpointResolver
+        extends EndpointResolver {
+    static final String HEARTBEAT_LABEL = "hazelcast.com/heartbeat";
+
+    private final EndpointResolver delegate;
+    private final KubernetesClient client;
+    private final String leasePrefix;
+    private final String leaseName;
+    private final String podName;
+    private final String podIp;
+    private final long periodMs;
+    private final int leaseDurationSeconds;
+    private final LeaseObserver leaseObserver = new LeaseObserver();
+
+    private Lease heldLease;
+    private String podUid;
+    private volatile boolean destroyed;
+    private volatile Future<?> heartbeat;
+
+    HeartbeatEndpointResolver(ILogger logger, EndpointResolver delegate, KubernetesClient client, String leasePrefix,
+                              String podName, String podIp, long periodMs, int leaseDurationSeconds) {
+        super(logger);
+        this.delegate = delegate;
+        this.client = client;
+        this.leasePrefix = leasePrefix;
+        this.leaseName = String.format("%s-%s", leasePrefix, podName);
+        this.podName = podName;
+        this.podIp = podIp;
+        this.periodMs = periodMs;
+        this.leaseDurationSeconds = leaseDurationSeconds;
+    }
+
+    @Override
+    List<DiscoveryNode> resolve() {
+        List<DiscoveryNode> nodes = delegate.resolve();
+        Set<String> expiredAddresses;
+        try {
+            expiredAddresses = expiredAddresses();
+        } catch (RuntimeException e) {
+            logger.fine("Cannot read the heartbeat Leases, the members are not filtered", e);
+            return nodes;
+        }
+        if (expiredAddresses.isEmpty()) {
+            return nodes;
+        }
+        List<DiscoveryNode> liveNodes = new ArrayList<DiscoveryNode>(nodes.size());
+        for (DiscoveryNode node : nodes) {
+            if (expiredAddresses.contains(node.getPrivateAddress().getHost())) {
+                logger.fine(String.format("Skipping member %s, its heartbeat Lease has expired", node.getPrivateAddress()));
+            } else {
+                liveNodes.add(node);
+            }
+        }
+        return liveNodes;
+    }
+
+    /**
+     * Returns the addresses of the expired Leases; an address reused by a live member is not expired.
+     */
+    private Set<String> expiredAddresses() {
+        Set<String> expired = new HashSet<String>();
+        Set<String> live = new HashSet<String>();
+        for (Lease lease : client.leases(String.format("%s=%s", HEARTBEAT_LABEL, leasePrefix))) {
+            if (lease.getHolderAddress() == null) {
+                continue;
+            }
+            if (leaseObserver.isHeld(lease)) {
+                live.add(lease.getHolderAddress());
+            } else {
+                expired.add(lease.getHolderAddress());
+            }
+        }
+        expired.removeAll(live);
+        return expired;
+    }
+
+    @Override
+    void start() {
+        delegate.start();
+        scheduleHeartbeat(0L);
+    }
+
+    @Override
+    void destroy() {
+        destroyed = true;
+        Future<?> scheduledHeartbeat = heartbeat;
+        if (scheduledHeartbeat != null) {
+            scheduledHeartbeat.cancel(false);
+        }
+        expire();
+        delegate.destroy();
+    }
+
+    private void scheduleHeartbeat(long delayMs) {
+        if (destroyed) {
+            return;
+        }
+        heartbeat = DiscoveryExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                beat();
+                scheduleHeartbeat(periodMs);
+            }
+        }, delayMs);
+    }
+
+    /**
+     * Renews the Lease of this member, creating or taking it over if needed.
+     */
+    synchronized void beat() {
+        if (destroyed) {
+            return;
+        }
+        long nowMs = System.currentTimeMillis();
+        try {
+            Lease renewed = heldLease == null ? null
+                    : client.updateLease(heldLease.acquire(podName, podIp, leaseDurationSeconds, nowMs));
+            heldLease = renewed != null ? renewed : acquire(nowMs);
+        } catch (RuntimeException e) {
+            // e.g. the Lease was garbage collected with the previous POD of the same name, so it is read again next time
+            logger.fine(String.format("Cannot renew the heartbeat Lease '%s'", leaseName), e);
+            heldLease = null;
+        }
+    }
+
+    private Lease acquire(long nowMs) {
+        Lease current = client.lease(leaseName);
+        if (current == null) {
+            Lease lease = Lease.create(leaseName, podName, podIp, leaseDurationSeconds, nowMs)
+                    .withLabel(HEARTBEAT_LABEL, leasePrefix);
+            return client.createLease(ownedByThisPod(lease));
+        }
+        // the Lease of a previous POD with the same name, e.g. of a restarted StatefulSet member
+        return client.updateLease(ownedByThisPod(current.acquire(podName, podIp, leaseDurationSeconds, nowMs)));
+    }
+
+    private Lease ownedByThisPod(Lease lease) {
+        if (podUid == null) {
+            try {
+                podUid = client.podUid(podName);
+            } catch (RuntimeException e) {
+                logger.fine(String.format("Cannot fetch the UID of POD %s, its heartbeat Lease is not owned by the POD", podName),
+                        e);
+                return lease;
+            }
+        }
+        return lease.withOwnerPod(podName, podUid);
+    }
+
+    private synchronized void expire() {
+        if (heldLease == null) {
+            return;
+        }
+        try {
+            client.updateLease(heldLease.expire());
+        } catch (RuntimeException e) {
+            logger.fine(String.format("Cannot expire the heartbeat Lease '%s', it expires in %d seconds", leaseName,
+                    leaseDurationSeconds), e);
+        }
+        heldLease = null;
+    }
+}
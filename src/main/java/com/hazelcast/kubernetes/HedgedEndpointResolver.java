@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Races two {@link EndpointResolver}s (the DNS lookup and the Kubernetes API) and returns the first non-empty result.
+ * <p>
+ * The secondary resolver is started only if the primary one has not returned any member within the hedging delay (or
+ * right away with no delay), so that a slow backend bounds the discovery latency only when the other one is slow as well.
+ * The losing lookup is not interrupted; it completes in the background and warms its caches (e.g. the DNS cache) for the
+ * next discovery round. If neither lookup returns any member within the timeout, no member is returned and the lookups
+ * complete in the background as well.
+ */
+final class HedgedEndpointResolver
+        extends EndpointResolver {
+    private final EndpointResolver primary;
+    private final EndpointResolver secondary;
+    private final long hedgeDelayMs;
+    private final long timeoutMs;
+
+    HedgedEndpointResolver(ILogger logger, EndpointResolver primary, EndpointResolver secondary, long hedgeDelayMs,
+                           long timeoutMs) {
+        super(logger);
+        this.primary = primary;
+        this.secondary = secondary;
+        this.hedgeDelayMs = hedgeDelayMs;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    List<DiscoveryNode> resolve() {
+        final CompletableFuture<List<DiscoveryNode>> result = new CompletableFuture<List<DiscoveryNode>>();
+        final AtomicInteger pendingLookups = new AtomicInteger(2);
+        final AtomicBoolean secondaryStarted = new AtomicBoolean();
+        final long startNanos = System.nanoTime();
+        final Runnable startSecondary = new Runnable() {
+            @Override
+            public void run() {
+                if (!result.isDone() && secondaryStarted.compareAndSet(false, true)) {
+                    lookup(secondary, "secondary", result, pendingLookups, startNanos);
+                }
+            }
+        };
+
+        Future<?> hedge = hedgeDelayMs > 0 ? DiscoveryExecutor.schedule(startSecondary, hedgeDelayMs) : null;
+        lookup(primary, "primary", result, pendingLookups, startNanos).whenComplete(
+                new BiConsumer<List<DiscoveryNode>, Throwable>() {
+                    @Override
+                    public void accept(List<DiscoveryNode> nodes, Throwable throwable) {
+                        if (nodes == null || nodes.isEmpty()) {
+                            // do not wait for the hedging delay if the primary lookup found nothing
+                            startSecondary.run();
+                        }
+                    }
+                });
+        if (hedge == null) {
+            startSecondary.run();
+        }
+        try {
+            return result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warning(String.format("Neither endpoint lookup returned any member within %d ms", timeoutMs));
+            return Collections.emptyList();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        } catch (ExecutionException e) {
+            // the result is never completed exceptionally
+            throw new IllegalStateException(e);
+        } finally {
+            if (hedge != null) {
+                hedge.cancel(false);
+            }
+        }
+    }
+
+    @Override
+    void start() {
+        primary.start();
+        secondary.start();
+    }
+
+    @Override
+    void invalidate() {
+        primary.invalidate();
+        secondary.invalidate();
+    }
+
+    @Override
+    void destroy() {
+        primary.destroy();
+        secondary.destroy();
+    }
+
+    private CompletableFuture<List<DiscoveryNode>> lookup(final EndpointResolver resolver, final String name,
+                                                          final CompletableFuture<List<DiscoveryNode>> result,
+                                                          final AtomicInteger pendingLookups, final long startNanos) {
+        return CompletableFuture.supplyAsync(new Supplier<List<DiscoveryNode>>() {
+            @Override
+            public List<DiscoveryNode> get() {
+                return resolver.resolve();
+            }
+        }, DiscoveryExecutor.lookups()).whenComplete(new BiConsumer<List<DiscoveryNode>, Throwable>() {
+            @Override
+            public void accept(List<DiscoveryNode> nodes, Throwable throwable) {
+                if (throwable != null) {
+                    logger.warning(String.format("The %s endpoint lookup failed", name), throwable);
+                }
+                if (nodes != null && !nodes.isEmpty()) {
+                    if (result.complete(nodes) && logger.isFineEnabled()) {
+                        logger.fine(String.format("The %s endpoint lookup won after %d ms", name,
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+                    }
+                } else if (pendingLookups.decrementAndGet() == 0) {
+                    result.complete(Collections.<DiscoveryNode>emptyList());
+                }
+            }
+        });
+    }
+}
@@ -18,6 +18,7 @@ package com.hazelcast.kubernetes;
 
 import com.hazelcast.config.NetworkConfig;
 import com.hazelcast.kubernetes.KubernetesClient.Endpoint;
+import com.hazelcast.kubernetes.KubernetesConfig.DrainingPods;
 import com.hazelcast.logging.ILogger;
 import com.hazelcast.cluster.Address;
 import com.hazelcast.spi.discovery.DiscoveryNode;
@@ -25,7 +26,9 @@ import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
 
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 class KubernetesApiEndpointResolver
         extends HazelcastKubernetesDiscoveryStrategy.EndpointResolver {
@@ -36,12 +39,25 @@ class KubernetesApiEndpointResolver
     private final String podLabel;
     private final String podLabelValue;
     private final Boolean resolveNotReadyAddresses;
+    private final DrainingPods drainingPods;
     private final int port;
     private final KubernetesClient client;
 
+    /**
+     * Nodes created in the last lookup, so that unchanged endpoints are not converted again.
+     */
+    private volatile Map<Endpoint, DiscoveryNode> lastNodes = new HashMap<Endpoint, DiscoveryNode>();
+
     KubernetesApiEndpointResolver(ILogger logger, String serviceName, int port,
                                   String serviceLabel, String serviceLabelValue, String podLabel, String podLabelValue,
                                   Boolean resolveNotReadyAddresses, KubernetesClient client) {
+        this(logger, serviceName, port, serviceLabel, serviceLabelValue, podLabel, podLabelValue, resolveNotReadyAddresses,
+                DrainingPods.INCLUDE, client);
+    }
+
+    KubernetesApiEndpointResolver(ILogger logger, String serviceName, int port,
+                                  String serviceLabel, String serviceLabelValue, String podLabel, String podLabelValue,
+                                  Boolean resolveNotReadyAddresses, DrainingPods drainingPods, KubernetesClient client) {
 
         super(logger);
 
@@ -52,6 +68,7 @@ class KubernetesApiEndpointResolver
         this.podLabel = podLabel;
         this.podLabelValue = podLabelValue;
         this.resolveNotReadyAddresses = resolveNotReadyAddresses;
+        this.drainingPods = drainingPods;
         this.client = client;
     }
 
@@ -71,23 +88,40 @@ class KubernetesApiEndpointResolver
     }
 
     private List<DiscoveryNode> getSimpleDiscoveryNodes(List<Endpoint> endpoints) {
+        Map<Endpoint, DiscoveryNode> previousNodes = lastNodes;
+        Map<Endpoint, DiscoveryNode> currentNodes = new HashMap<Endpoint, DiscoveryNode>();
         List<DiscoveryNode> discoveredNodes = new ArrayList<DiscoveryNode>();
+        List<DiscoveryNode> drainingNodes = new ArrayList<DiscoveryNode>();
         for (Endpoint address : endpoints) {
-            addAddress(discoveredNodes, address);
+            if (!address.isDraining() || DrainingPods.INCLUDE.equals(drainingPods)) {
+                addAddress(discoveredNodes, address, previousNodes, currentNodes);
+            } else if (DrainingPods.DEPRIORITIZE.equals(drainingPods)) {
+                addAddress(drainingNodes, address, previousNodes, currentNodes);
+            } else {
+                logger.fine(String.format("Skipping the draining POD %s", address.getPrivateAddress().getIp()));
+            }
         }
+        // the draining PODs are going away, so the other members are contacted first
+        discoveredNodes.addAll(drainingNodes);
+        lastNodes = currentNodes;
         return discoveredNodes;
     }
 
-    private void addAddress(List<DiscoveryNode> discoveredNodes, Endpoint endpoint) {
+    private void addAddress(List<DiscoveryNode> discoveredNodes, Endpoint endpoint, Map<Endpoint, DiscoveryNode> previousNodes,
+                            Map<Endpoint, DiscoveryNode> currentNodes) {
         if (Boolean.TRUE.equals(resolveNotReadyAddresses) || endpoint.isReady()) {
-            Address privateAddress = createAddress(endpoint.getPrivateAddress());
-            Address publicAddress = createAddress(endpoint.getPublicAddress());
-            discoveredNodes
-                    .add(new SimpleDiscoveryNode(privateAddress, publicAddress, endpoint.getAdditionalProperties()));
-            if (logger.isFinestEnabled()) {
-                logger.finest(String.format("Found node service with addresses (private, public): %s, %s ", privateAddress,
-                        publicAddress));
+            DiscoveryNode node = previousNodes.get(endpoint);
+            if (node == null) {
+                Address privateAddress = createAddress(endpoint.getPrivateAddress());
+                Address publicAddress = createAddress(endpoint.getPublicAddress());
+                node = new SimpleDiscoveryNode(privateAddress, publicAddress, endpoint.getAdditionalProperties());
+                if (logger.isFinestEnabled()) {
+                    logger.finest(String.format("Found node service with addresses (private, public): %s, %s ", privateAddress,
+                            publicAddress));
+                }
             }
+            currentNodes.put(endpoint, node);
+            discoveredNodes.add(node);
         }
     }
 
@@ -29,8 +29,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
@@ -42,31 +44,50 @@ import static java.util.Collections.emptyList;
  */
 @SuppressWarnings("checkstyle:methodcount")
 class KubernetesClient {
-    private static final ILogger LOGGER = Logger.getLogger(KubernetesClient.class);
-
-    private static final List<String> NON_RETRYABLE_KEYWORDS = asList(
+    static final List<String> NON_RETRYABLE_KEYWORDS = asList(
             "\"reason\":\"Forbidden\"",
             "\"reason\":\"Unauthorized\"",
             "Failure in generating SSLSocketFactory");
 
+    private static final ILogger LOGGER = Logger.getLogger(KubernetesClient.class);
+
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_CONFLICT = 409;
+    private static final int HTTP_SERVER_ERROR = 500;
+    private static final String PORT_ANNOTATION = "hazelcast.com/port";
+
     private final String namespace;
-    private final String kubernetesMaster;
+    private final ApiServerSelector apiServers;
     private final String apiToken;
     private final String caCertificate;
     private final int retries;
+    private final RateLimiter rateLimiter;
+    private final boolean detectDrainingPods;
+    private final String portName;
     private boolean useNodeNameAsExternalAddress;
 
     private boolean isNoPublicIpAlreadyLogged;
     private boolean isKnownExceptionAlreadyLogged;
+    private volatile boolean endpointSlicesAvailable = true;
 
-    KubernetesClient(String namespace, String kubernetesMaster, String apiToken, String caCertificate, int retries,
-                     boolean useNodeNameAsExternalAddress) {
+    /**
+     * @param detectDrainingPods whether the endpoints of the PODs which are terminating or run on unschedulable nodes are
+     *                           marked as draining, at the cost of up to two additional REST calls per lookup
+     * @param portName           name of the Hazelcast port among the container ports and the service ports, and of the
+     *                           Hazelcast container
+     */
+    KubernetesClient(String namespace, List<String> kubernetesMasters, String apiToken, String caCertificate, int retries,
+                     RateLimiter rateLimiter, boolean useNodeNameAsExternalAddress, boolean detectDrainingPods,
+                     String portName) {
         this.namespace = namespace;
-        this.kubernetesMaster = kubernetesMaster;
+        this.apiServers = new ApiServerSelector(kubernetesMasters);
         this.apiToken = apiToken;
         this.caCertificate = caCertificate;
         this.retries = retries;
+        this.rateLimiter = rateLimiter;
         this.useNodeNameAsExternalAddress = useNodeNameAsExternalAddress;
+        this.detectDrainingPods = detectDrainingPods;
+        this.portName = portName;
     }
 
     /**
@@ -77,8 +98,8 @@ class KubernetesClient {
      */
     List<Endpoint> endpoints() {
         try {
-            String urlString = String.format("%s/api/v1/namespaces/%s/pods", kubernetesMaster, namespace);
-            return enrichWithPublicAddresses(parsePodsList(callGet(urlString)));
+            String urlString = String.format("/api/v1/namespaces/%s/pods", namespace);
+            return enrichWithPublicAddresses(parsePodsList(callGet(urlString), drainingFilter(null)));
         } catch (RestClientException e) {
             return handleKnownException(e);
         }
@@ -96,8 +117,10 @@ class KubernetesClient {
     List<Endpoint> endpointsByServiceLabel(String serviceLabel, String serviceLabelValue) {
         try {
             String param = String.format("labelSelector=%s=%s", serviceLabel, serviceLabelValue);
-            String urlString = String.format("%s/api/v1/namespaces/%s/endpoints?%s", kubernetesMaster, namespace, param);
-            return enrichWithPublicAddresses(parseEndpointsList(callGet(urlString)));
+            String urlString = String.format("/api/v1/namespaces/%s/endpoints?%s", namespace, param);
+            // EndpointSlices carry the labels of their service
+            DrainingFilter drainingFilter = drainingFilter(String.format("%s=%s", serviceLabel, serviceLabelValue));
+            return enrichWithPublicAddresses(parseEndpointsList(callGet(urlString), drainingFilter));
         } catch (RestClientException e) {
             return handleKnownException(e);
         }
@@ -112,8 +135,9 @@ class KubernetesClient {
      */
     List<Endpoint> endpointsByName(String endpointName) {
         try {
-            String urlString = String.format("%s/api/v1/namespaces/%s/endpoints/%s", kubernetesMaster, namespace, endpointName);
-            return enrichWithPublicAddresses(parseEndpoints(callGet(urlString)));
+            String urlString = String.format("/api/v1/namespaces/%s/endpoints/%s", namespace, endpointName);
+            DrainingFilter drainingFilter = drainingFilter(String.format("kubernetes.io/service-name=%s", endpointName));
+            return enrichWithPublicAddresses(parseEndpoints(callGet(urlString), drainingFilter));
         } catch (RestClientException e) {
             return handleKnownException(e);
         }
@@ -131,8 +155,8 @@ class KubernetesClient {
     List<Endpoint> endpointsByPodLabel(String podLabel, String podLabelValue) {
         try {
             String param = String.format("labelSelector=%s=%s", podLabel, podLabelValue);
-            String urlString = String.format("%s/api/v1/namespaces/%s/pods?%s", kubernetesMaster, namespace, param);
-            return enrichWithPublicAddresses(parsePodsList(callGet(urlString)));
+            String urlString = String.format("/api/v1/namespaces/%s/pods?%s", namespace, param);
+            return enrichWithPublicAddresses(parsePodsList(callGet(urlString), drainingFilter(null)));
         } catch (RestClientException e) {
             return handleKnownException(e);
         }
@@ -150,14 +174,185 @@ class KubernetesClient {
      * @see <a href="https://kubernetes.io/docs/reference/generated/kubernetes-api/v1.11">Kubernetes Endpoint API</a>
      */
     String zone(String podName) {
-        String podUrlString = String.format("%s/api/v1/namespaces/%s/pods/%s", kubernetesMaster, namespace, podName);
+        String podUrlString = String.format("/api/v1/namespaces/%s/pods/%s", namespace, podName);
         String nodeName = extractNodeName(callGet(podUrlString));
 
-        String nodeUrlString = String.format("%s/api/v1/nodes/%s", kubernetesMaster, nodeName);
+        String nodeUrlString = String.format("/api/v1/nodes/%s", nodeName);
         return extractZone(callGet(nodeUrlString));
     }
 
-    private static List<Endpoint> parsePodsList(JsonObject podsListJson) {
+    /**
+     * Retrieves the replica count and the governing service of the StatefulSet {@code statefulSetName}.
+     *
+     * @param statefulSetName StatefulSet name
+     * @return StatefulSet specification
+     * @see <a href="https://kubernetes.io/docs/reference/generated/kubernetes-api/v1.11/#statefulset-v1-apps">StatefulSet API</a>
+     */
+    StatefulSet statefulSet(String statefulSetName) {
+        String urlString = String.format("/apis/apps/v1/namespaces/%s/statefulsets/%s", namespace, statefulSetName);
+        JsonObject spec = callGet(urlString).get("spec").asObject();
+        return new StatefulSet(spec.getInt("replicas", 1), toString(spec.get("serviceName")));
+    }
+
+    /**
+     * Retrieves the desired number of replicas of a workload, like a StatefulSet or a Deployment.
+     *
+     * @param workloadKind lowercase workload kind, e.g. {@code statefulset} or {@code deployment}
+     * @param workloadName workload name
+     * @return {@code spec.replicas} of the workload
+     */
+    int replicas(String workloadKind, String workloadName) {
+        String urlString = String.format("/apis/apps/v1/namespaces/%s/%ss/%s", namespace, workloadKind, workloadName);
+        return callGet(urlString).get("spec").asObject().getInt("replicas", 1);
+    }
+
+    /**
+     * Retrieves the Lease {@code leaseName}.
+     * <p>
+     * The Lease calls are not retried, the caller is expected to read the Lease again and decide how to continue.
+     *
+     * @return the Lease or {@code null} if it does not exist
+     * @see <a href="https://kubernetes.io/docs/reference/kubernetes-api/cluster-resources/lease-v1/">Lease API</a>
+     */
+    Lease lease(String leaseName) {
+        JsonObject leaseJson = getIfExists(leasePath(leaseName));
+        return leaseJson == null ? null : Lease.fromJson(leaseJson);
+    }
+
+    /**
+     * Creates the Lease.
+     *
+     * @return the created Lease or {@code null} if the Lease was created by someone else in the meantime
+     */
+    Lease createLease(Lease lease) {
+        String path = String.format("/apis/coordination.k8s.io/v1/namespaces/%s/leases", namespace);
+        JsonObject leaseJson = writeIfUnchanged("POST", path, lease.toJson());
+        return leaseJson == null ? null : Lease.fromJson(leaseJson);
+    }
+
+    /**
+     * Replaces the Lease, provided that it was not changed since {@code lease} was read.
+     *
+     * @return the updated Lease or {@code null} if the Lease was changed by someone else in the meantime
+     */
+    Lease updateLease(Lease lease) {
+        JsonObject leaseJson = writeIfUnchanged("PUT", leasePath(lease.getName()), lease.toJson());
+        return leaseJson == null ? null : Lease.fromJson(leaseJson);
+    }
+
+    /**
+     * Retrieves the Leases matching the label selector, e.g. {@code app=hazelcast}.
+     */
+    List<Lease> leases(String labelSelector) {
+        String urlString = String.format("/apis/coordination.k8s.io/v1/namespaces/%s/leases?labelSelector=%s", namespace,
+                labelSelector);
+        List<Lease> leases = new ArrayList<Lease>();
+        for (JsonValue item : toJsonArray(callGet(urlString).get("items"))) {
+            leases.add(Lease.fromJson(item.asObject()));
+        }
+        return leases;
+    }
+
+    private String leasePath(String leaseName) {
+        return String.format("/apis/coordination.k8s.io/v1/namespaces/%s/leases/%s", namespace, leaseName);
+    }
+
+    /**
+     * Retrieves the member registry stored in the ConfigMap {@code configMapName}.
+     * <p>
+     * Like the Lease calls, the registry calls are not retried.
+     *
+     * @return the registry or {@code null} if the ConfigMap does not exist
+     * @see <a href="https://kubernetes.io/docs/reference/kubernetes-api/config-and-storage-resources/config-map-v1/">ConfigMap
+     * API</a>
+     */
+    MemberRegistry memberRegistry(String configMapName) {
+        JsonObject configMapJson = getIfExists(configMapPath(configMapName));
+        return configMapJson == null ? null : MemberRegistry.fromJson(configMapJson);
+    }
+
+    /**
+     * Creates the ConfigMap of the member registry.
+     *
+     * @return the created registry or {@code null} if the ConfigMap was created by someone else in the meantime
+     */
+    MemberRegistry createMemberRegistry(MemberRegistry registry) {
+        String path = String.format("/api/v1/namespaces/%s/configmaps", namespace);
+        JsonObject configMapJson = writeIfUnchanged("POST", path, registry.toJson());
+        return configMapJson == null ? null : MemberRegistry.fromJson(configMapJson);
+    }
+
+    /**
+     * Replaces the ConfigMap of the member registry, provided that it was not changed since {@code registry} was read.
+     *
+     * @return the updated registry or {@code null} if the ConfigMap was changed by someone else in the meantime
+     */
+    MemberRegistry updateMemberRegistry(MemberRegistry registry) {
+        JsonObject configMapJson = writeIfUnchanged("PUT", configMapPath(registry.getName()), registry.toJson());
+        return configMapJson == null ? null : MemberRegistry.fromJson(configMapJson);
+    }
+
+    private String configMapPath(String configMapName) {
+        return String.format("/api/v1/namespaces/%s/configmaps/%s", namespace, configMapName);
+    }
+
+    /**
+     * Retrieves the UID of the POD {@code podName}.
+     */
+    String podUid(String podName) {
+        String urlString = String.format("/api/v1/namespaces/%s/pods/%s", namespace, podName);
+        return toString(callGet(urlString).get("metadata").asObject().get("uid"));
+    }
+
+    /**
+     * Checks whether all the containers of the POD {@code podName} are ready.
+     */
+    boolean podReady(String podName) {
+        String urlString = String.format("/api/v1/namespaces/%s/pods/%s", namespace, podName);
+        JsonValue status = callGet(urlString).get("status");
+        return status != null && status.isObject() && isReady(status.asObject());
+    }
+
+    private JsonObject getIfExists(String path) {
+        try {
+            return Json.parse(callWithFailover("GET", path, null)).asObject();
+        } catch (RestClientException e) {
+            if (e.getHttpErrorCode() == HTTP_NOT_FOUND) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Writes an object with optimistic concurrency.
+     *
+     * @return the written object or {@code null} if Kubernetes API rejected the write with a conflict
+     */
+    private JsonObject writeIfUnchanged(String method, String path, String body) {
+        try {
+            return Json.parse(callWithFailover(method, path, body)).asObject();
+        } catch (RestClientException e) {
+            if (e.getHttpErrorCode() == HTTP_CONFLICT) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Builds the TLS context used to connect to the Kubernetes API, so that the first REST call does not need to wait for it.
+     */
+    void prefetchSslContext() {
+        for (String url : apiServers.urls()) {
+            if (url.startsWith("https")) {
+                RestClient.sslSocketFactory(caCertificate);
+                return;
+            }
+        }
+    }
+
+    private List<Endpoint> parsePodsList(JsonObject podsListJson, DrainingFilter drainingFilter) {
         List<Endpoint> addresses = new ArrayList<Endpoint>();
 
         for (JsonValue item : toJsonArray(podsListJson.get("items"))) {
@@ -165,30 +360,151 @@ class KubernetesClient {
             String ip = toString(status.get("podIP"));
             if (ip != null) {
                 Integer port = extractContainerPort(item);
-                addresses.add(new Endpoint(new EndpointAddress(ip, port), isReady(status)));
+                boolean draining = isTerminating(item) || drainingFilter.isDraining(ip, extractNodeName(item.asObject()));
+                addresses.add(new Endpoint(new EndpointAddress(ip, port), null, isReady(status), draining,
+                        Collections.<String, String>emptyMap()));
             }
         }
         return addresses;
     }
 
-    private static Integer extractContainerPort(JsonValue podItemJson) {
+    /**
+     * Fetches what is needed to tell whether a POD is draining: the unschedulable nodes and, if {@code endpointSliceSelector}
+     * is given, the addresses of the terminating endpoints in the matching EndpointSlices. These calls are optional, a failure
+     * (e.g. a missing permission) only disables the detection, so each of them is made once, without retries. A cluster without
+     * the {@code discovery.k8s.io/v1} API is remembered and its EndpointSlices are not requested again.
+     */
+    private DrainingFilter drainingFilter(String endpointSliceSelector) {
+        if (!detectDrainingPods) {
+            return DrainingFilter.NONE;
+        }
+        Set<String> unschedulableNodes = new HashSet<String>();
+        try {
+            JsonObject nodesJson = callGetOnce("/api/v1/nodes?fieldSelector=spec.unschedulable=true");
+            for (JsonValue item : toJsonArray(nodesJson.get("items"))) {
+                unschedulableNodes.add(toString(item.asObject().get("metadata").asObject().get("name")));
+            }
+        } catch (RestClientException e) {
+            LOGGER.fine("Cannot list the unschedulable nodes: " + e.getMessage());
+        }
+        Set<String> terminatingAddresses = new HashSet<String>();
+        if (endpointSliceSelector != null && endpointSlicesAvailable) {
+            try {
+                String urlString = String.format("/apis/discovery.k8s.io/v1/namespaces/%s/endpointslices?labelSelector=%s",
+                        namespace, endpointSliceSelector);
+                terminatingAddresses.addAll(parseTerminatingAddresses(callGetOnce(urlString)));
+            } catch (RestClientException e) {
+                if (e.getHttpErrorCode() == HTTP_NOT_FOUND) {
+                    LOGGER.info("EndpointSlice API (discovery.k8s.io/v1) is not available, terminating endpoints are"
+                            + " not detected");
+                    endpointSlicesAvailable = false;
+                } else {
+                    LOGGER.fine("Cannot list the EndpointSlices: " + e.getMessage());
+                }
+            }
+        }
+        return new DrainingFilter(unschedulableNodes, terminatingAddresses);
+    }
+
+    private static Set<String> parseTerminatingAddresses(JsonObject endpointSliceListJson) {
+        Set<String> result = new HashSet<String>();
+        for (JsonValue item : toJsonArray(endpointSliceListJson.get("items"))) {
+            for (JsonValue endpoint : toJsonArray(item.asObject().get("endpoints"))) {
+                JsonValue conditions = endpoint.asObject().get("conditions");
+                if (conditions != null && !conditions.isNull() && conditions.asObject().getBoolean("terminating", false)) {
+                    for (JsonValue address : toJsonArray(endpoint.asObject().get("addresses"))) {
+                        result.add(address.asString());
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean isTerminating(JsonValue podItemJson) {
+        JsonValue metadata = podItemJson.asObject().get("metadata");
+        if (metadata == null || metadata.isNull()) {
+            return false;
+        }
+        JsonValue deletionTimestamp = metadata.asObject().get("deletionTimestamp");
+        return deletionTimestamp != null && !deletionTimestamp.isNull();
+    }
+
+    /**
+     * Detects the Hazelcast port of a POD by, in order: the {@code hazelcast.com/port} annotation, the container port named
+     * {@code portName}, the only port of the container named {@code portName}, the only port of the only container.
+     * Returns {@code null} if it is ambiguous, then the default Hazelcast port from the configuration is used.
+     */
+    private Integer extractContainerPort(JsonValue podItemJson) {
+        Integer annotatedPort = extractAnnotatedPort(podItemJson);
+        if (annotatedPort != null) {
+            return annotatedPort;
+        }
         JsonArray containers = toJsonArray(podItemJson.asObject().get("spec").asObject().get("containers"));
+        for (JsonValue container : containers) {
+            Integer namedPort = extractNamedPort(toJsonArray(container.asObject().get("ports")), "containerPort");
+            if (namedPort != null) {
+                return namedPort;
+            }
+        }
+        for (JsonValue container : containers) {
+            if (portName.equals(toString(container.asObject().get("name")))) {
+                return extractSinglePort(toJsonArray(container.asObject().get("ports")), "containerPort");
+            }
+        }
         // If multiple containers are in one POD, then use the default Hazelcast port from the configuration.
         if (containers.size() == 1) {
-            JsonValue container = containers.get(0);
-            JsonArray ports = toJsonArray(container.asObject().get("ports"));
             // If multiple ports are exposed by a container, then use the default Hazelcast port from the configuration.
-            if (ports.size() == 1) {
-                JsonValue port = ports.get(0);
-                JsonValue containerPort = port.asObject().get("containerPort");
-                if (containerPort != null && containerPort.isNumber()) {
-                    return containerPort.asInt();
-                }
+            return extractSinglePort(toJsonArray(containers.get(0).asObject().get("ports")), "containerPort");
+        }
+        return null;
+    }
+
+    private static Integer extractAnnotatedPort(JsonValue podItemJson) {
+        JsonValue metadata = podItemJson.asObject().get("metadata");
+        if (metadata == null || metadata.isNull()) {
+            return null;
+        }
+        JsonValue annotations = metadata.asObject().get("annotations");
+        if (annotations == null || annotations.isNull()) {
+            return null;
+        }
+        String port = toString(annotations.asObject().get(PORT_ANNOTATION));
+        if (port == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(port.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warning(String.format("Ignoring invalid annotation %s: %s", PORT_ANNOTATION, port));
+            return null;
+        }
+    }
+
+    private Integer extractNamedPort(JsonArray ports, String portField) {
+        for (JsonValue port : ports) {
+            if (portName.equals(toString(port.asObject().get("name")))) {
+                return extractPortNumber(port, portField);
             }
         }
         return null;
     }
 
+    private static Integer extractSinglePort(JsonArray ports, String portField) {
+        if (ports.size() == 1) {
+            return extractPortNumber(ports.get(0), portField);
+        }
+        return null;
+    }
+
+    private static Integer extractPortNumber(JsonValue portJson, String portField) {
+        JsonValue port = portJson.asObject().get(portField);
+        if (port != null && port.isNumber()) {
+            return port.asInt();
+        }
+        return null;
+    }
+
     private static boolean isReady(JsonObject podItemStatusJson) {
         for (JsonValue containerStatus : toJsonArray(podItemStatusJson.get("containerStatuses"))) {
             // If multiple containers are in one POD, then each needs to be ready.
@@ -199,43 +515,49 @@ class KubernetesClient {
         return true;
     }
 
-    private static List<Endpoint> parseEndpointsList(JsonObject endpointsListJson) {
+    private List<Endpoint> parseEndpointsList(JsonObject endpointsListJson, DrainingFilter drainingFilter) {
         List<Endpoint> endpoints = new ArrayList<Endpoint>();
         for (JsonValue item : toJsonArray(endpointsListJson.get("items"))) {
-            endpoints.addAll(parseEndpoints(item));
+            endpoints.addAll(parseEndpoints(item, drainingFilter));
         }
         return endpoints;
     }
 
-    private static List<Endpoint> parseEndpoints(JsonValue endpointItemJson) {
+    private List<Endpoint> parseEndpoints(JsonValue endpointItemJson, DrainingFilter drainingFilter) {
         List<Endpoint> addresses = new ArrayList<Endpoint>();
 
         for (JsonValue subset : toJsonArray(endpointItemJson.asObject().get("subsets"))) {
             Integer endpointPort = extractPort(subset);
             for (JsonValue address : toJsonArray(subset.asObject().get("addresses"))) {
-                addresses.add(extractEntrypointAddress(address, endpointPort, true));
+                addresses.add(extractEntrypointAddress(address, endpointPort, true, drainingFilter));
             }
             for (JsonValue address : toJsonArray(subset.asObject().get("notReadyAddresses"))) {
-                addresses.add(extractEntrypointAddress(address, endpointPort, false));
+                addresses.add(extractEntrypointAddress(address, endpointPort, false, drainingFilter));
             }
         }
         return addresses;
     }
 
-    private static Integer extractPort(JsonValue subsetJson) {
+    /**
+     * Detects the Hazelcast port of an endpoints subset by the service port named {@code portName} or, if there is only one,
+     * by the only port.
+     */
+    private Integer extractPort(JsonValue subsetJson) {
         JsonArray ports = toJsonArray(subsetJson.asObject().get("ports"));
-        if (ports.size() == 1) {
-            JsonValue port = ports.get(0);
-            return port.asObject().get("port").asInt();
+        Integer namedPort = extractNamedPort(ports, "port");
+        if (namedPort != null) {
+            return namedPort;
         }
-        return null;
+        return extractSinglePort(ports, "port");
     }
 
-    private static Endpoint extractEntrypointAddress(JsonValue endpointAddressJson, Integer endpointPort, boolean isReady) {
+    private static Endpoint extractEntrypointAddress(JsonValue endpointAddressJson, Integer endpointPort, boolean isReady,
+                                                     DrainingFilter drainingFilter) {
         String ip = endpointAddressJson.asObject().get("ip").asString();
         Integer port = extractHazelcastServicePortFrom(endpointAddressJson, endpointPort);
         Map<String, String> additionalProperties = extractAdditionalPropertiesFrom(endpointAddressJson);
-        return new Endpoint(new EndpointAddress(ip, port), isReady, additionalProperties);
+        boolean draining = drainingFilter.isDraining(ip, toString(endpointAddressJson.asObject().get("nodeName")));
+        return new Endpoint(new EndpointAddress(ip, port), null, isReady, draining, additionalProperties);
     }
 
     private static Integer extractHazelcastServicePortFrom(JsonValue endpointAddressJson, Integer endpointPort) {
@@ -296,7 +618,7 @@ class KubernetesClient {
      */
     private List<Endpoint> enrichWithPublicAddresses(List<Endpoint> endpoints) {
         try {
-            String endpointsUrl = String.format("%s/api/v1/namespaces/%s/endpoints", kubernetesMaster, namespace);
+            String endpointsUrl = String.format("/api/v1/namespaces/%s/endpoints", namespace);
             JsonObject endpointsJson = callGet(endpointsUrl);
 
             List<EndpointAddress> privateAddresses = privateAddresses(endpoints);
@@ -310,7 +632,7 @@ class KubernetesClient {
             for (Map.Entry<EndpointAddress, String> serviceEntry : services.entrySet()) {
                 EndpointAddress privateAddress = serviceEntry.getKey();
                 String service = serviceEntry.getValue();
-                String serviceUrl = String.format("%s/api/v1/namespaces/%s/services/%s", kubernetesMaster, namespace, service);
+                String serviceUrl = String.format("/api/v1/namespaces/%s/services/%s", namespace, service);
                 JsonObject serviceJson = callGet(serviceUrl);
                 try {
                     String loadBalancerIp = extractLoadBalancerIp(serviceJson);
@@ -355,13 +677,13 @@ class KubernetesClient {
         return result;
     }
 
-    private static Map<EndpointAddress, String> extractServices(JsonObject endpointsListJson,
-                                                                List<EndpointAddress> privateAddresses) {
+    private Map<EndpointAddress, String> extractServices(JsonObject endpointsListJson,
+                                                         List<EndpointAddress> privateAddresses) {
         Map<EndpointAddress, String> result = new HashMap<EndpointAddress, String>();
         Set<EndpointAddress> left = new HashSet<EndpointAddress>(privateAddresses);
         for (JsonValue item : toJsonArray(endpointsListJson.get("items"))) {
             String service = toString(item.asObject().get("metadata").asObject().get("name"));
-            List<Endpoint> endpoints = parseEndpoints(item);
+            List<Endpoint> endpoints = parseEndpoints(item, DrainingFilter.NONE);
             // Service must point to exactly one endpoint address, otherwise the public IP would be ambiguous.
             if (endpoints.size() == 1) {
                 EndpointAddress address = endpoints.get(0).getPrivateAddress();
@@ -452,7 +774,7 @@ class KubernetesClient {
             LOGGER.info("Using node name instead of public IP for node, must be available from client: " + node);
             nodeExternalAddress = node;
         } else {
-            String nodeUrl = String.format("%s/api/v1/nodes/%s", kubernetesMaster, node);
+            String nodeUrl = String.format("/api/v1/nodes/%s", node);
             nodeExternalAddress = extractNodePublicIp(callGet(nodeUrl));
         }
         return nodeExternalAddress;
@@ -474,7 +796,8 @@ class KubernetesClient {
             EndpointAddress privateAddress = endpoint.getPrivateAddress();
             EndpointAddress publicAddress = new EndpointAddress(publicIps.get(privateAddress),
                     publicPorts.get(privateAddress));
-            result.add(new Endpoint(privateAddress, publicAddress, endpoint.isReady(), endpoint.getAdditionalProperties()));
+            result.add(new Endpoint(privateAddress, publicAddress, endpoint.isReady(), endpoint.isDraining(),
+                    endpoint.getAdditionalProperties()));
         }
         return result;
     }
@@ -482,23 +805,72 @@ class KubernetesClient {
     /**
      * Makes a REST call to Kubernetes API and returns the result JSON.
      *
-     * @param urlString Kubernetes API REST endpoint
+     * @param path Kubernetes API REST endpoint path
      * @return parsed JSON
      * @throws KubernetesClientException if Kubernetes API didn't respond with 200 and a valid JSON content
      */
-    private JsonObject callGet(final String urlString) {
+    private JsonObject callGet(final String path) {
         return RetryUtils.retry(new Callable<JsonObject>() {
             @Override
             public JsonObject call() {
-                return Json
-                        .parse(RestClient.create(urlString).withHeader("Authorization", String.format("Bearer %s", apiToken))
-                                .withCaCertificates(caCertificate)
-                                .get())
-                        .asObject();
+                return Json.parse(callWithFailover("GET", path, null)).asObject();
             }
         }, retries, NON_RETRYABLE_KEYWORDS);
     }
 
+    /**
+     * Makes a single REST call to Kubernetes API, without retries, and returns the result JSON.
+     *
+     * @param path Kubernetes API REST endpoint path
+     * @return parsed JSON
+     * @throws RestClientException if Kubernetes API didn't respond with 200
+     */
+    private JsonObject callGetOnce(String path) {
+        return Json.parse(callWithFailover("GET", path, null)).asObject();
+    }
+
+    /**
+     * Sends the REST call to the best API server, failing over to the next one right away if the API server cannot be reached
+     * or responds with a server error. Client errors (like 401 or 403) are the same for all API servers, so they are not
+     * failed over. Every request sent, including the failed over ones, waits for the rate limiter.
+     */
+    private String callWithFailover(String method, String path, String body) {
+        RestClientException lastException = null;
+        for (String apiServer : apiServers.candidates()) {
+            rateLimiter.acquire();
+            long startNanos = System.nanoTime();
+            try {
+                String response = call(method, apiServer + path, body);
+                apiServers.recordSuccess(apiServer, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                return response;
+            } catch (RestClientException e) {
+                if (!isApiServerFailure(e)) {
+                    throw e;
+                }
+                apiServers.recordFailure(apiServer);
+                LOGGER.fine(String.format("Kubernetes API server %s failed, trying the next one: %s", apiServer, e.getMessage()));
+                lastException = e;
+            }
+        }
+        throw lastException;
+    }
+
+    private String call(String method, String url, String body) {
+        RestClient restClient = RestClient.create(url)
+                .withHeader("Authorization", String.format("Bearer %s", apiToken))
+                .withCaCertificates(caCertificate);
+        if (body == null) {
+            return restClient.get();
+        }
+        restClient.withHeader("Content-Type", "application/json").withBody(body);
+        return "PUT".equals(method) ? restClient.put() : restClient.post();
+    }
+
+    private static boolean isApiServerFailure(RestClientException e) {
+        // no HTTP error code means that the connection itself failed
+        return e.getHttpErrorCode() == 0 || e.getHttpErrorCode() >= HTTP_SERVER_ERROR;
+    }
+
     @SuppressWarnings("checkstyle:magicnumber")
     private List<Endpoint> handleKnownException(RestClientException e) {
         if (e.getHttpErrorCode() == 401) {
@@ -546,27 +918,22 @@ class KubernetesClient {
         private final EndpointAddress privateAddress;
         private final EndpointAddress publicAddress;
         private final boolean isReady;
+        private final boolean isDraining;
         private final Map<String, String> additionalProperties;
 
         Endpoint(EndpointAddress privateAddress, boolean isReady) {
-            this.privateAddress = privateAddress;
-            this.publicAddress = null;
-            this.isReady = isReady;
-            this.additionalProperties = Collections.emptyMap();
-        }
-
-        Endpoint(EndpointAddress privateAddress, boolean isReady, Map<String, String> additionalProperties) {
-            this.privateAddress = privateAddress;
-            this.publicAddress = null;
-            this.isReady = isReady;
-            this.additionalProperties = additionalProperties;
+            this(privateAddress, null, isReady, false, Collections.<String, String>emptyMap());
         }
 
-        Endpoint(EndpointAddress privateAddress, EndpointAddress publicAddress, boolean isReady,
+        /**
+         * @param isDraining whether the POD is terminating or runs on an unschedulable node
+         */
+        Endpoint(EndpointAddress privateAddress, EndpointAddress publicAddress, boolean isReady, boolean isDraining,
                  Map<String, String> additionalProperties) {
             this.privateAddress = privateAddress;
             this.publicAddress = publicAddress;
             this.isReady = isReady;
+            this.isDraining = isDraining;
             this.additionalProperties = additionalProperties;
         }
 
@@ -582,9 +949,55 @@ class KubernetesClient {
             return isReady;
         }
 
+        boolean isDraining() {
+            return isDraining;
+        }
+
         Map<String, String> getAdditionalProperties() {
             return additionalProperties;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            Endpoint endpoint = (Endpoint) o;
+
+            return isReady == endpoint.isReady
+                    && isDraining == endpoint.isDraining
+                    && Objects.equals(privateAddress, endpoint.privateAddress)
+                    && Objects.equals(publicAddress, endpoint.publicAddress)
+                    && Objects.equals(additionalProperties, endpoint.additionalProperties);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(privateAddress, publicAddress, isReady, isDraining, additionalProperties);
+        }
+    }
+
+    /**
+     * Tells whether a POD is draining, i.e. terminating or running on an unschedulable node.
+     */
+    private static final class DrainingFilter {
+        static final DrainingFilter NONE = new DrainingFilter(Collections.<String>emptySet(), Collections.<String>emptySet());
+
+        private final Set<String> unschedulableNodes;
+        private final Set<String> terminatingAddresses;
+
+        DrainingFilter(Set<String> unschedulableNodes, Set<String> terminatingAddresses) {
+            this.unschedulableNodes = unschedulableNodes;
+            this.terminatingAddresses = terminatingAddresses;
+        }
+
+        boolean isDraining(String ip, String nodeName) {
+            return terminatingAddresses.contains(ip) || (nodeName != null && unschedulableNodes.contains(nodeName));
+        }
     }
 
     static final class EndpointAddress {
@@ -633,4 +1046,25 @@ class KubernetesClient {
             return String.format("%s:%s", ip, port);
         }
     }
+
+    /**
+     * Result which stores the part of the StatefulSet specification needed to predict the DNS names of its pods.
+     */
+    static final class StatefulSet {
+        private final int replicas;
+        private final String serviceName;
+
+        StatefulSet(int replicas, String serviceName) {
+            this.replicas = replicas;
+            this.serviceName = serviceName;
+        }
+
+        int getReplicas() {
+            return replicas;
+        }
+
+        String getServiceName() {
+            return serviceName;
+        }
+    }
 }
@@ -27,33 +27,95 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-
+import java.util.regex.Pattern;
+
+import static com.hazelcast.kubernetes.KubernetesProperties.CLUSTER_DOMAIN;
+import static com.hazelcast.kubernetes.KubernetesProperties.DISCOVERY_MAX_STALENESS;
+import static com.hazelcast.kubernetes.KubernetesProperties.DISCOVERY_REFRESH_INTERVAL;
+import static com.hazelcast.kubernetes.KubernetesProperties.DISCOVERY_SNAPSHOT_FILE;
+import static com.hazelcast.kubernetes.KubernetesProperties.DISCOVERY_SNAPSHOT_MAX_AGE;
+import static com.hazelcast.kubernetes.KubernetesProperties.DRAINING_PODS;
+import static com.hazelcast.kubernetes.KubernetesProperties.EXPECTED_MEMBERS;
+import static com.hazelcast.kubernetes.KubernetesProperties.EXPECTED_MEMBERS_TIMEOUT;
+import static com.hazelcast.kubernetes.KubernetesProperties.EXPECTED_MEMBERS_WORKLOAD;
+import static com.hazelcast.kubernetes.KubernetesProperties.HEARTBEAT_LEASE_PREFIX;
+import static com.hazelcast.kubernetes.KubernetesProperties.HEARTBEAT_PERIOD;
+import static com.hazelcast.kubernetes.KubernetesProperties.HEARTBEAT_TIMEOUT;
+import static com.hazelcast.kubernetes.KubernetesProperties.HYBRID_DISCOVERY;
+import static com.hazelcast.kubernetes.KubernetesProperties.HYBRID_DISCOVERY_DELAY;
+import static com.hazelcast.kubernetes.KubernetesProperties.KUBERNETES_API_BURST;
+import static com.hazelcast.kubernetes.KubernetesProperties.KUBERNETES_API_QPS;
 import static com.hazelcast.kubernetes.KubernetesProperties.KUBERNETES_API_RETIRES;
 import static com.hazelcast.kubernetes.KubernetesProperties.KUBERNETES_API_TOKEN;
 import static com.hazelcast.kubernetes.KubernetesProperties.KUBERNETES_CA_CERTIFICATE;
 import static com.hazelcast.kubernetes.KubernetesProperties.KUBERNETES_MASTER_URL;
 import static com.hazelcast.kubernetes.KubernetesProperties.KUBERNETES_SYSTEM_PREFIX;
+import static com.hazelcast.kubernetes.KubernetesProperties.MEMBERSHIP_EVENT_MAX_DELAY;
+import static com.hazelcast.kubernetes.KubernetesProperties.MEMBERSHIP_EVENT_QUIET_PERIOD;
+import static com.hazelcast.kubernetes.KubernetesProperties.MEMBER_REGISTRY;
 import static com.hazelcast.kubernetes.KubernetesProperties.NAMESPACE;
 import static com.hazelcast.kubernetes.KubernetesProperties.POD_LABEL_NAME;
 import static com.hazelcast.kubernetes.KubernetesProperties.POD_LABEL_VALUE;
 import static com.hazelcast.kubernetes.KubernetesProperties.RESOLVE_NOT_READY_ADDRESSES;
+import static com.hazelcast.kubernetes.KubernetesProperties.SEED_LEASE_DURATION;
+import static com.hazelcast.kubernetes.KubernetesProperties.SEED_LEASE_HOLD_TIME;
+import static com.hazelcast.kubernetes.KubernetesProperties.SEED_LEASE_NAME;
 import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_DNS;
+import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_DNS_CACHE_MAX_TTL;
+import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_DNS_CACHE_MIN_TTL;
+import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_DNS_CACHE_NEGATIVE_TTL;
+import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_DNS_LOOKUP;
+import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_DNS_MIN_MEMBERS;
+import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_DNS_MIN_MEMBERS_TIMEOUT;
+import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_DNS_RETRIES;
 import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_DNS_TIMEOUT;
 import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_LABEL_NAME;
 import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_LABEL_VALUE;
 import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_NAME;
 import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_PORT;
+import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_PORT_NAME;
+import static com.hazelcast.kubernetes.KubernetesProperties.STATEFULSET_NAME;
+import static com.hazelcast.kubernetes.KubernetesProperties.STATEFULSET_REPLICAS;
 import static com.hazelcast.kubernetes.KubernetesProperties.USE_NODE_NAME_AS_EXTERNAL_ADDRESS;
 
 /**
  * Responsible for fetching, parsing, and validating Hazelcast Kubernetes Discovery Strategy input properties.
  */
-@SuppressWarnings({"checkstyle:npathcomplexity", "checkstyle:cyclomaticcomplexity"})
+@SuppressWarnings({"checkstyle:npathcomplexity", "checkstyle:cyclomaticcomplexity", "checkstyle:methodcount",
+        "checkstyle:executablestatementcount"})
 final class KubernetesConfig {
     private static final String DEFAULT_MASTER_URL = "https://kubernetes.default.svc";
     private static final int DEFAULT_SERVICE_DNS_TIMEOUT_SECONDS = 5;
     private static final int DEFAULT_KUBERNETES_API_RETRIES = 3;
+    private static final int DEFAULT_DISCOVERY_SNAPSHOT_MAX_AGE_SECONDS = 300;
+    private static final int DEFAULT_MEMBERSHIP_EVENT_QUIET_PERIOD_MILLIS = 1000;
+    private static final int DEFAULT_MEMBERSHIP_EVENT_MAX_DELAY_MILLIS = 10000;
+    private static final int DEFAULT_SERVICE_DNS_CACHE_MIN_TTL_SECONDS = 0;
+    private static final int DEFAULT_SERVICE_DNS_CACHE_MAX_TTL_SECONDS = 30;
+    private static final int DEFAULT_SERVICE_DNS_CACHE_NEGATIVE_TTL_SECONDS = 5;
+    private static final int DEFAULT_SERVICE_DNS_RETRIES = 0;
+    private static final int DEFAULT_SERVICE_DNS_MIN_MEMBERS = 0;
+    private static final int DEFAULT_SERVICE_DNS_MIN_MEMBERS_TIMEOUT_SECONDS = 30;
+    private static final int DEFAULT_HYBRID_DISCOVERY_DELAY_MILLIS = 0;
+    private static final int DEFAULT_KUBERNETES_API_QPS = 0;
+    private static final int DEFAULT_KUBERNETES_API_BURST = 10;
+    private static final int DEFAULT_STATEFULSET_REPLICAS = 0;
+    private static final String DEFAULT_CLUSTER_DOMAIN = "cluster.local";
+    private static final int DEFAULT_EXPECTED_MEMBERS = 0;
+    private static final int DEFAULT_EXPECTED_MEMBERS_TIMEOUT_SECONDS = 30;
+    private static final int DEFAULT_SEED_LEASE_DURATION_SECONDS = 15;
+    private static final int MIN_SEED_LEASE_DURATION_SECONDS = 3;
+    private static final int DEFAULT_SEED_LEASE_HOLD_TIME_SECONDS = 0;
+    private static final int DEFAULT_HEARTBEAT_PERIOD_SECONDS = 0;
+    private static final int DEFAULT_HEARTBEAT_TIMEOUT_SECONDS = 15;
+    private static final String DEFAULT_HEARTBEAT_LEASE_PREFIX = "hazelcast-heartbeat";
+    private static final String DEFAULT_SERVICE_PORT_NAME = "hazelcast";
+    private static final Pattern EXPECTED_MEMBERS_WORKLOAD_PATTERN = Pattern.compile("(statefulset|deployment)/[^/]+");
 
     // Parameters for DNS Lookup mode
     private final String serviceDns;
@@ -75,7 +137,40 @@ final class KubernetesConfig {
 
     // Parameters for both DNS Lookup and Kubernetes API modes
     private final int servicePort;
-
+    private final int discoveryRefreshInterval;
+    private final int discoveryMaxStaleness;
+    private final String discoverySnapshotFile;
+    private final int discoverySnapshotMaxAge;
+    private final int membershipEventQuietPeriod;
+    private final int membershipEventMaxDelay;
+    private final int serviceDnsCacheMinTtl;
+    private final int serviceDnsCacheMaxTtl;
+    private final int serviceDnsCacheNegativeTtl;
+    private final DnsLookup serviceDnsLookup;
+    private final int serviceDnsRetries;
+    private final int serviceDnsMinMembers;
+    private final int serviceDnsMinMembersTimeout;
+    private final boolean hybridDiscovery;
+    private final int hybridDiscoveryDelay;
+    private final int kubernetesApiQps;
+    private final int kubernetesApiBurst;
+    private final String statefulSetName;
+    private final int statefulSetReplicas;
+    private final String clusterDomain;
+    private final int expectedMembers;
+    private final String expectedMembersWorkload;
+    private final int expectedMembersTimeout;
+    private final String seedLeaseName;
+    private final int seedLeaseDuration;
+    private final int seedLeaseHoldTime;
+    private final String memberRegistry;
+    private final int heartbeatPeriod;
+    private final int heartbeatTimeout;
+    private final String heartbeatLeasePrefix;
+    private final DrainingPods drainingPods;
+    private final String servicePortName;
+
+    @SuppressWarnings("checkstyle:methodlength")
     KubernetesConfig(Map<String, Comparable> properties) {
         this.serviceDns = getOrNull(properties, KUBERNETES_SYSTEM_PREFIX, SERVICE_DNS);
         this.serviceDnsTimeout
@@ -95,6 +190,60 @@ final class KubernetesConfig {
         this.kubernetesCaCertificate = caCertificate(properties);
         this.servicePort = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, SERVICE_PORT, 0);
         this.namespace = getNamespaceWithFallbacks(properties, KUBERNETES_SYSTEM_PREFIX, NAMESPACE);
+        this.discoveryRefreshInterval = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, DISCOVERY_REFRESH_INTERVAL, 0);
+        this.discoveryMaxStaleness = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, DISCOVERY_MAX_STALENESS,
+                2 * discoveryRefreshInterval);
+        this.discoverySnapshotFile = getOrNull(properties, KUBERNETES_SYSTEM_PREFIX, DISCOVERY_SNAPSHOT_FILE);
+        this.discoverySnapshotMaxAge = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, DISCOVERY_SNAPSHOT_MAX_AGE,
+                DEFAULT_DISCOVERY_SNAPSHOT_MAX_AGE_SECONDS);
+        this.membershipEventQuietPeriod = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, MEMBERSHIP_EVENT_QUIET_PERIOD,
+                DEFAULT_MEMBERSHIP_EVENT_QUIET_PERIOD_MILLIS);
+        this.membershipEventMaxDelay = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, MEMBERSHIP_EVENT_MAX_DELAY,
+                DEFAULT_MEMBERSHIP_EVENT_MAX_DELAY_MILLIS);
+        this.serviceDnsCacheMinTtl = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, SERVICE_DNS_CACHE_MIN_TTL,
+                DEFAULT_SERVICE_DNS_CACHE_MIN_TTL_SECONDS);
+        this.serviceDnsCacheMaxTtl = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, SERVICE_DNS_CACHE_MAX_TTL,
+                DEFAULT_SERVICE_DNS_CACHE_MAX_TTL_SECONDS);
+        this.serviceDnsCacheNegativeTtl = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, SERVICE_DNS_CACHE_NEGATIVE_TTL,
+                DEFAULT_SERVICE_DNS_CACHE_NEGATIVE_TTL_SECONDS);
+        this.serviceDnsLookup = dnsLookup(getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, SERVICE_DNS_LOOKUP,
+                DnsLookup.SRV.name()));
+        this.serviceDnsRetries = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, SERVICE_DNS_RETRIES,
+                DEFAULT_SERVICE_DNS_RETRIES);
+        this.serviceDnsMinMembers = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, SERVICE_DNS_MIN_MEMBERS,
+                DEFAULT_SERVICE_DNS_MIN_MEMBERS);
+        this.serviceDnsMinMembersTimeout = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, SERVICE_DNS_MIN_MEMBERS_TIMEOUT,
+                DEFAULT_SERVICE_DNS_MIN_MEMBERS_TIMEOUT_SECONDS);
+        this.hybridDiscovery = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, HYBRID_DISCOVERY, false);
+        this.hybridDiscoveryDelay = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, HYBRID_DISCOVERY_DELAY,
+                DEFAULT_HYBRID_DISCOVERY_DELAY_MILLIS);
+        this.kubernetesApiQps = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, KUBERNETES_API_QPS,
+                DEFAULT_KUBERNETES_API_QPS);
+        this.kubernetesApiBurst = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, KUBERNETES_API_BURST,
+                DEFAULT_KUBERNETES_API_BURST);
+        this.statefulSetName = getOrNull(properties, KUBERNETES_SYSTEM_PREFIX, STATEFULSET_NAME);
+        this.statefulSetReplicas = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, STATEFULSET_REPLICAS,
+                DEFAULT_STATEFULSET_REPLICAS);
+        this.clusterDomain = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, CLUSTER_DOMAIN, DEFAULT_CLUSTER_DOMAIN);
+        this.expectedMembers = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, EXPECTED_MEMBERS, DEFAULT_EXPECTED_MEMBERS);
+        this.expectedMembersWorkload = getOrNull(properties, KUBERNETES_SYSTEM_PREFIX, EXPECTED_MEMBERS_WORKLOAD);
+        this.expectedMembersTimeout = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, EXPECTED_MEMBERS_TIMEOUT,
+                DEFAULT_EXPECTED_MEMBERS_TIMEOUT_SECONDS);
+        this.seedLeaseName = getOrNull(properties, KUBERNETES_SYSTEM_PREFIX, SEED_LEASE_NAME);
+        this.seedLeaseDuration = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, SEED_LEASE_DURATION,
+                DEFAULT_SEED_LEASE_DURATION_SECONDS);
+        this.seedLeaseHoldTime = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, SEED_LEASE_HOLD_TIME,
+                DEFAULT_SEED_LEASE_HOLD_TIME_SECONDS);
+        this.memberRegistry = getOrNull(properties, KUBERNETES_SYSTEM_PREFIX, MEMBER_REGISTRY);
+        this.heartbeatPeriod = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, HEARTBEAT_PERIOD,
+                DEFAULT_HEARTBEAT_PERIOD_SECONDS);
+        this.heartbeatTimeout = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, HEARTBEAT_TIMEOUT,
+                DEFAULT_HEARTBEAT_TIMEOUT_SECONDS);
+        this.heartbeatLeasePrefix = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, HEARTBEAT_LEASE_PREFIX,
+                DEFAULT_HEARTBEAT_LEASE_PREFIX);
+        this.drainingPods = drainingPods(getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, DRAINING_PODS,
+                DrainingPods.INCLUDE.name()));
+        this.servicePortName = getOrDefault(properties, KUBERNETES_SYSTEM_PREFIX, SERVICE_PORT_NAME, DEFAULT_SERVICE_PORT_NAME);
 
         validateConfig();
     }
@@ -220,8 +369,10 @@ final class KubernetesConfig {
     }
 
     private void validateConfig() {
-        if (!StringUtil.isNullOrEmptyAfterTrim(serviceDns) && (!StringUtil.isNullOrEmptyAfterTrim(serviceName)
-                || !StringUtil.isNullOrEmptyAfterTrim(serviceLabelName) || !StringUtil.isNullOrEmptyAfterTrim(podLabelName))) {
+        // the hybrid mode uses both the DNS lookup and the Kubernetes API
+        if (!hybridDiscovery && !StringUtil.isNullOrEmptyAfterTrim(serviceDns)
+                && (!StringUtil.isNullOrEmptyAfterTrim(serviceName) || !StringUtil.isNullOrEmptyAfterTrim(serviceLabelName)
+                || !StringUtil.isNullOrEmptyAfterTrim(podLabelName))) {
             throw new InvalidConfigurationException(
                     String.format("Properties '%s' and ('%s' or '%s' or %s) cannot be defined at the same time",
                             SERVICE_DNS.key(), SERVICE_NAME.key(), SERVICE_LABEL_NAME.key(), POD_LABEL_NAME.key()));
@@ -253,10 +404,122 @@ final class KubernetesConfig {
             throw new InvalidConfigurationException(
                     String.format("Property '%s' cannot be a negative number", SERVICE_PORT.key()));
         }
+        if (hybridDiscovery && StringUtil.isNullOrEmptyAfterTrim(serviceDns)) {
+            throw new InvalidConfigurationException(
+                    String.format("Property '%s' requires '%s' to be defined", HYBRID_DISCOVERY.key(), SERVICE_DNS.key()));
+        }
+        validateStatefulSetConfig();
+        validateMemberRegistryConfig();
+        if (heartbeatPeriod > 0 && heartbeatTimeout <= heartbeatPeriod) {
+            throw new InvalidConfigurationException(
+                    String.format("Property '%s' must be greater than '%s'", HEARTBEAT_TIMEOUT.key(), HEARTBEAT_PERIOD.key()));
+        }
+        validateExpectedMembersWorkload();
+        validateSeedLease();
+        validateNonNegativeProperties();
+    }
+
+    private void validateSeedLease() {
+        // the Lease is renewed every third of its duration, so a too short one only floods Kubernetes API with renewals
+        if (seedLeaseDuration < MIN_SEED_LEASE_DURATION_SECONDS) {
+            throw new InvalidConfigurationException(
+                    String.format("Property '%s' must be at least %d seconds", SEED_LEASE_DURATION.key(),
+                            MIN_SEED_LEASE_DURATION_SECONDS));
+        }
+    }
+
+    private void validateExpectedMembersWorkload() {
+        if (expectedMembersWorkload != null && !EXPECTED_MEMBERS_WORKLOAD_PATTERN.matcher(expectedMembersWorkload).matches()) {
+            throw new InvalidConfigurationException(
+                    String.format("Invalid value of '%s': '%s', expected 'statefulset/<name>' or 'deployment/<name>'",
+                            EXPECTED_MEMBERS_WORKLOAD.key(), expectedMembersWorkload));
+        }
+    }
+
+    private void validateStatefulSetConfig() {
+        if (StringUtil.isNullOrEmptyAfterTrim(statefulSetName)) {
+            return;
+        }
+        if (!StringUtil.isNullOrEmptyAfterTrim(serviceDns) || !StringUtil.isNullOrEmptyAfterTrim(serviceLabelName)
+                || !StringUtil.isNullOrEmptyAfterTrim(podLabelName)) {
+            throw new InvalidConfigurationException(
+                    String.format("Properties '%s' and ('%s' or '%s' or %s) cannot be defined at the same time",
+                            STATEFULSET_NAME.key(), SERVICE_DNS.key(), SERVICE_LABEL_NAME.key(), POD_LABEL_NAME.key()));
+        }
+    }
+
+    private void validateMemberRegistryConfig() {
+        if (StringUtil.isNullOrEmptyAfterTrim(memberRegistry)) {
+            return;
+        }
+        if (!StringUtil.isNullOrEmptyAfterTrim(serviceDns) || !StringUtil.isNullOrEmptyAfterTrim(serviceName)
+                || !StringUtil.isNullOrEmptyAfterTrim(serviceLabelName) || !StringUtil.isNullOrEmptyAfterTrim(podLabelName)
+                || !StringUtil.isNullOrEmptyAfterTrim(statefulSetName)) {
+            throw new InvalidConfigurationException(
+                    String.format("Properties '%s' and ('%s' or '%s' or '%s' or '%s' or '%s') cannot be defined at the same time",
+                            MEMBER_REGISTRY.key(), SERVICE_DNS.key(), SERVICE_NAME.key(), SERVICE_LABEL_NAME.key(),
+                            POD_LABEL_NAME.key(), STATEFULSET_NAME.key()));
+        }
+    }
+
+    private void validateNonNegativeProperties() {
+        checkNonNegative(discoveryRefreshInterval, DISCOVERY_REFRESH_INTERVAL);
+        checkNonNegative(discoveryMaxStaleness, DISCOVERY_MAX_STALENESS);
+        checkNonNegative(discoverySnapshotMaxAge, DISCOVERY_SNAPSHOT_MAX_AGE);
+        checkNonNegative(membershipEventQuietPeriod, MEMBERSHIP_EVENT_QUIET_PERIOD);
+        checkNonNegative(membershipEventMaxDelay, MEMBERSHIP_EVENT_MAX_DELAY);
+        checkNonNegative(serviceDnsCacheMinTtl, SERVICE_DNS_CACHE_MIN_TTL);
+        checkNonNegative(serviceDnsCacheMaxTtl, SERVICE_DNS_CACHE_MAX_TTL);
+        checkNonNegative(serviceDnsCacheNegativeTtl, SERVICE_DNS_CACHE_NEGATIVE_TTL);
+        checkNonNegative(serviceDnsRetries, SERVICE_DNS_RETRIES);
+        checkNonNegative(serviceDnsMinMembers, SERVICE_DNS_MIN_MEMBERS);
+        checkNonNegative(serviceDnsMinMembersTimeout, SERVICE_DNS_MIN_MEMBERS_TIMEOUT);
+        checkNonNegative(hybridDiscoveryDelay, HYBRID_DISCOVERY_DELAY);
+        checkNonNegative(kubernetesApiQps, KUBERNETES_API_QPS);
+        checkNonNegative(kubernetesApiBurst, KUBERNETES_API_BURST);
+        checkNonNegative(statefulSetReplicas, STATEFULSET_REPLICAS);
+        checkNonNegative(expectedMembers, EXPECTED_MEMBERS);
+        checkNonNegative(expectedMembersTimeout, EXPECTED_MEMBERS_TIMEOUT);
+        checkNonNegative(seedLeaseHoldTime, SEED_LEASE_HOLD_TIME);
+        checkNonNegative(heartbeatPeriod, HEARTBEAT_PERIOD);
+        checkNonNegative(heartbeatTimeout, HEARTBEAT_TIMEOUT);
+    }
+
+    private static DnsLookup dnsLookup(String value) {
+        try {
+            return DnsLookup.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidConfigurationException(
+                    String.format("Property '%s' must be one of %s, found '%s'", SERVICE_DNS_LOOKUP.key(),
+                            Arrays.toString(DnsLookup.values()), value));
+        }
+    }
+
+    private static DrainingPods drainingPods(String value) {
+        try {
+            return DrainingPods.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidConfigurationException(
+                    String.format("Property '%s' must be one of %s, found '%s'", DRAINING_PODS.key(),
+                            Arrays.toString(DrainingPods.values()), value));
+        }
+    }
+
+    private static void checkNonNegative(int value, PropertyDefinition property) {
+        if (value < 0) {
+            throw new InvalidConfigurationException(
+                    String.format("Property '%s' cannot be a negative number", property.key()));
+        }
     }
 
     DiscoveryMode getMode() {
-        if (!StringUtil.isNullOrEmptyAfterTrim(serviceDns)) {
+        if (hybridDiscovery) {
+            return DiscoveryMode.HYBRID;
+        } else if (!StringUtil.isNullOrEmptyAfterTrim(statefulSetName)) {
+            return DiscoveryMode.STATEFULSET;
+        } else if (!StringUtil.isNullOrEmptyAfterTrim(memberRegistry)) {
+            return DiscoveryMode.MEMBER_REGISTRY;
+        } else if (!StringUtil.isNullOrEmptyAfterTrim(serviceDns)) {
             return DiscoveryMode.DNS_LOOKUP;
         } else {
             return DiscoveryMode.KUBERNETES_API;
@@ -267,6 +530,13 @@ final class KubernetesConfig {
         return serviceDns;
     }
 
+    /**
+     * @return the DNS names of the comma-separated {@code service-dns} property
+     */
+    List<String> getServiceDnsNames() {
+        return splitByComma(serviceDns);
+    }
+
     int getServiceDnsTimeout() {
         return serviceDnsTimeout;
     }
@@ -307,8 +577,18 @@ final class KubernetesConfig {
         return kubernetesApiRetries;
     }
 
-    String getKubernetesMasterUrl() {
-        return kubernetesMasterUrl;
+    List<String> getKubernetesMasterUrls() {
+        return splitByComma(kubernetesMasterUrl);
+    }
+
+    private static List<String> splitByComma(String value) {
+        List<String> result = new ArrayList<String>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                result.add(item.trim());
+            }
+        }
+        return result;
     }
 
     String getKubernetesApiToken() {
@@ -323,6 +603,134 @@ final class KubernetesConfig {
         return servicePort;
     }
 
+    int getDiscoveryRefreshInterval() {
+        return discoveryRefreshInterval;
+    }
+
+    int getDiscoveryMaxStaleness() {
+        return discoveryMaxStaleness;
+    }
+
+    String getDiscoverySnapshotFile() {
+        return discoverySnapshotFile;
+    }
+
+    int getDiscoverySnapshotMaxAge() {
+        return discoverySnapshotMaxAge;
+    }
+
+    int getMembershipEventQuietPeriod() {
+        return membershipEventQuietPeriod;
+    }
+
+    int getMembershipEventMaxDelay() {
+        return membershipEventMaxDelay;
+    }
+
+    int getServiceDnsCacheMinTtl() {
+        return serviceDnsCacheMinTtl;
+    }
+
+    int getServiceDnsCacheMaxTtl() {
+        return serviceDnsCacheMaxTtl;
+    }
+
+    int getServiceDnsCacheNegativeTtl() {
+        return serviceDnsCacheNegativeTtl;
+    }
+
+    DnsLookup getServiceDnsLookup() {
+        return serviceDnsLookup;
+    }
+
+    int getServiceDnsRetries() {
+        return serviceDnsRetries;
+    }
+
+    int getServiceDnsMinMembers() {
+        return serviceDnsMinMembers;
+    }
+
+    int getServiceDnsMinMembersTimeout() {
+        return serviceDnsMinMembersTimeout;
+    }
+
+    boolean isHybridDiscovery() {
+        return hybridDiscovery;
+    }
+
+    int getHybridDiscoveryDelay() {
+        return hybridDiscoveryDelay;
+    }
+
+    int getKubernetesApiQps() {
+        return kubernetesApiQps;
+    }
+
+    int getKubernetesApiBurst() {
+        return kubernetesApiBurst;
+    }
+
+    String getStatefulSetName() {
+        return statefulSetName;
+    }
+
+    int getStatefulSetReplicas() {
+        return statefulSetReplicas;
+    }
+
+    String getClusterDomain() {
+        return clusterDomain;
+    }
+
+    int getExpectedMembers() {
+        return expectedMembers;
+    }
+
+    String getExpectedMembersWorkload() {
+        return expectedMembersWorkload;
+    }
+
+    int getExpectedMembersTimeout() {
+        return expectedMembersTimeout;
+    }
+
+    String getSeedLeaseName() {
+        return seedLeaseName;
+    }
+
+    int getSeedLeaseDuration() {
+        return seedLeaseDuration;
+    }
+
+    int getSeedLeaseHoldTime() {
+        return seedLeaseHoldTime;
+    }
+
+    String getMemberRegistry() {
+        return memberRegistry;
+    }
+
+    int getHeartbeatPeriod() {
+        return heartbeatPeriod;
+    }
+
+    int getHeartbeatTimeout() {
+        return heartbeatTimeout;
+    }
+
+    String getHeartbeatLeasePrefix() {
+        return heartbeatLeasePrefix;
+    }
+
+    DrainingPods getDrainingPods() {
+        return drainingPods;
+    }
+
+    String getServicePortName() {
+        return servicePortName;
+    }
+
     @Override
     public String toString() {
         return "Kubernetes Discovery properties: { "
@@ -338,11 +746,96 @@ final class KubernetesConfig {
                 + "resolve-not-ready-addresses: " + resolveNotReadyAddresses + ", "
                 + "use-node-name-as-external-address: " + useNodeNameAsExternalAddress + ", "
                 + "kubernetes-api-retries: " + kubernetesApiRetries + ", "
-                + "kubernetes-master: " + kubernetesMasterUrl + "}";
+                + "kubernetes-master: " + kubernetesMasterUrl + ", "
+                + "discovery-refresh-interval: " + discoveryRefreshInterval + ", "
+                + "discovery-max-staleness: " + discoveryMaxStaleness + ", "
+                + "discovery-snapshot-file: " + discoverySnapshotFile + ", "
+                + "discovery-snapshot-max-age: " + discoverySnapshotMaxAge + ", "
+                + "membership-event-quiet-period: " + membershipEventQuietPeriod + ", "
+                + "membership-event-max-delay: " + membershipEventMaxDelay + ", "
+                + "service-dns-cache-min-ttl: " + serviceDnsCacheMinTtl + ", "
+                + "service-dns-cache-max-ttl: " + serviceDnsCacheMaxTtl + ", "
+                + "service-dns-cache-negative-ttl: " + serviceDnsCacheNegativeTtl + ", "
+                + "service-dns-lookup: " + serviceDnsLookup + ", "
+                + "service-dns-retries: " + serviceDnsRetries + ", "
+                + "service-dns-min-members: " + serviceDnsMinMembers + ", "
+                + "service-dns-min-members-timeout: " + serviceDnsMinMembersTimeout + ", "
+                + "hybrid-discovery: " + hybridDiscovery + ", "
+                + "hybrid-discovery-delay: " + hybridDiscoveryDelay + ", "
+                + "kubernetes-api-qps: " + kubernetesApiQps + ", "
+                + "kubernetes-api-burst: " + kubernetesApiBurst + ", "
+                + "statefulset-name: " + statefulSetName + ", "
+                + "statefulset-replicas: " + statefulSetReplicas + ", "
+                + "cluster-domain: " + clusterDomain + ", "
+                + "expected-members: " + expectedMembers + ", "
+                + "expected-members-workload: " + expectedMembersWorkload + ", "
+                + "expected-members-timeout: " + expectedMembersTimeout + ", "
+                + "seed-lease-name: " + seedLeaseName + ", "
+                + "seed-lease-duration: " + seedLeaseDuration + ", "
+                + "seed-lease-hold-time: " + seedLeaseHoldTime + ", "
+                + "member-registry: " + memberRegistry + ", "
+                + "heartbeat-period: " + heartbeatPeriod + ", "
+                + "heartbeat-timeout: " + heartbeatTimeout + ", "
+                + "heartbeat-lease-prefix: " + heartbeatLeasePrefix + ", "
+                + "draining-pods: " + drainingPods + ", "
+                + "service-port-name: " + servicePortName + "}";
     }
 
     enum DiscoveryMode {
         DNS_LOOKUP,
-        KUBERNETES_API
+        KUBERNETES_API,
+        /**
+         * Both {@link #DNS_LOOKUP} and {@link #KUBERNETES_API}, the first lookup which finds any member wins.
+         */
+        HYBRID,
+        /**
+         * DNS lookup of the pod names of a StatefulSet, predicted from its replica count.
+         */
+        STATEFULSET,
+        /**
+         * Single GET of the ConfigMap in which the members register themselves.
+         */
+        MEMBER_REGISTRY
+    }
+
+    /**
+     * DNS records looked up in the {@link DiscoveryMode#DNS_LOOKUP} mode.
+     */
+    enum DnsLookup {
+        /**
+         * SRV records of the service, then the address records of their targets.
+         */
+        SRV,
+        /**
+         * A records of a headless service.
+         */
+        A,
+        /**
+         * AAAA records of a headless service.
+         */
+        AAAA,
+        /**
+         * A and AAAA records of a headless service, queried in parallel.
+         */
+        DUAL_STACK
+    }
+
+    /**
+     * Handling of the PODs which are terminating or run on unschedulable nodes in the {@link DiscoveryMode#KUBERNETES_API}
+     * mode. Such PODs are about to go away, so joining them only causes partition migrations which are soon reverted.
+     */
+    enum DrainingPods {
+        /**
+         * Discovered like the other PODs.
+         */
+        INCLUDE,
+        /**
+         * Discovered after all the other PODs.
+         */
+        DEPRIORITIZE,
+        /**
+         * Not discovered.
+         */
+        EXCLUDE
     }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.logging.ILogger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exposes the metrics of a discovery strategy with JMX.
+ */
+final class KubernetesDiscoveryMetrics
+        implements KubernetesDiscoveryMetricsMBean {
+    private static final AtomicInteger INSTANCE_COUNTER = new AtomicInteger();
+
+    private final ILogger logger;
+    private final MembershipEventPublisher membershipEventPublisher;
+    private final RateLimiter rateLimiter;
+
+    private ObjectName objectName;
+
+    KubernetesDiscoveryMetrics(ILogger logger, MembershipEventPublisher membershipEventPublisher, RateLimiter rateLimiter) {
+        this.logger = logger;
+        this.membershipEventPublisher = membershipEventPublisher;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public long getMembershipChangesReceived() {
+        return membershipEventPublisher.getChangesReceived();
+    }
+
+    @Override
+    public long getMembershipEventsEmitted() {
+        return membershipEventPublisher.getEventsEmitted();
+    }
+
+    @Override
+    public long getApiCallCount() {
+        return rateLimiter.getCallCount();
+    }
+
+    @Override
+    public long getApiThrottledCount() {
+        return rateLimiter.getThrottledCount();
+    }
+
+    @Override
+    public long getApiThrottledTotalWaitMs() {
+        return rateLimiter.getTotalWaitMs();
+    }
+
+    @Override
+    public long getApiThrottledMaxWaitMs() {
+        return rateLimiter.getMaxWaitMs();
+    }
+
+    @Override
+    public int getApiQueueLength() {
+        return rateLimiter.getQueueLength();
+    }
+
+    /**
+     * Registers the MBean in the platform MBean server. A failure only disables the metrics.
+     */
+    synchronized void register() {
+        try {
+            ObjectName name = new ObjectName(String.format("com.hazelcast.kubernetes:type=KubernetesDiscovery,instance=%d",
+                    INSTANCE_COUNTER.incrementAndGet()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new StandardMBean(this, KubernetesDiscoveryMetricsMBean.class), name);
+            objectName = name;
+        } catch (JMException e) {
+            logger.warning("Cannot register the Kubernetes discovery metrics", e);
+        }
+    }
+
+    synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            mBeanServer.unregisterMBean(objectName);
+        } catch (JMException e) {
+            logger.fine("Cannot unregister the Kubernetes discovery metrics: " + e.getMessage());
+        }
+        objectName = null;
+    }
+
+    synchronized ObjectName getObjectName() {
+        return objectName;
+    }
+}
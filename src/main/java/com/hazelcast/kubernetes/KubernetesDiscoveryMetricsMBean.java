@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+/**
+ * Metrics of the Kubernetes discovery, registered as a JMX MBean with the name
+ * {@code com.hazelcast.kubernetes:type=KubernetesDiscovery,instance=<n>} for each started discovery strategy.
+ */
+public interface KubernetesDiscoveryMetricsMBean {
+
+    /**
+     * @return number of membership changes observed by the lookups
+     */
+    long getMembershipChangesReceived();
+
+    /**
+     * @return number of debounced membership events emitted to the {@link KubernetesMembershipListener}s
+     */
+    long getMembershipEventsEmitted();
+
+    /**
+     * @return number of REST calls to Kubernetes API which went through the rate limiter ({@code kubernetes-api-qps}), shared by
+     * all members in the process with the same limit
+     */
+    long getApiCallCount();
+
+    /**
+     * @return number of REST calls to Kubernetes API which waited for the rate limiter
+     */
+    long getApiThrottledCount();
+
+    /**
+     * @return total time in milliseconds the REST calls to Kubernetes API waited for the rate limiter
+     */
+    long getApiThrottledTotalWaitMs();
+
+    /**
+     * @return maximum time in milliseconds a REST call to Kubernetes API waited for the rate limiter
+     */
+    long getApiThrottledMaxWaitMs();
+
+    /**
+     * @return number of REST calls to Kubernetes API currently waiting for the rate limiter
+     */
+    int getApiQueueLength();
+}
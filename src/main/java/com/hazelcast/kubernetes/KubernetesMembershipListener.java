@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+/**
+ * Listener notified when the Hazelcast members discovered in Kubernetes change.
+ * <p>
+ * Register it with {@link HazelcastKubernetesDiscoveryStrategyFactory#addMembershipListener(KubernetesMembershipListener)}.
+ * Changes are observed by every lookup, including the background refresh (see the {@code discovery-refresh-interval}
+ * property), and bursts of changes are debounced, so a rolling update results in a few events only.
+ * <p>
+ * Listeners are called on a shared discovery thread, so they should not block.
+ */
+public interface KubernetesMembershipListener {
+
+    /**
+     * Called when members were added, removed, or changed since the previous event.
+     *
+     * @param delta the change set
+     */
+    void membershipChanged(MembershipDelta delta);
+}
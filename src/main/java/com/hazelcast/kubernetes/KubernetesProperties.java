@@ -51,7 +51,8 @@ public final class KubernetesProperties {
     /**
      * <p>Configuration key: <code>service-dns</code></p>
      * Defines the DNS service lookup domain. This is defined as something similar
-     * to <code>my-svc.my-namespace.svc.cluster.local</code>.<br>
+     * to <code>my-svc.my-namespace.svc.cluster.local</code>. Several comma-separated domains are looked up concurrently
+     * and their members are merged.<br>
      * For more information please refer to the official documentation of the Kubernetes DNS addon,
      * <a href="https://github.com/kubernetes/kubernetes/tree/v1.0.6/cluster/addons/dns">here</a>.
      */
@@ -142,6 +143,238 @@ public final class KubernetesProperties {
      */
     public static final PropertyDefinition SERVICE_PORT = property("service-port", INTEGER);
 
+    /**
+     * <p>Configuration key: <code>discovery-refresh-interval</code></p>
+     * If specified with a value greater than 0, the discovered members are refreshed in the background every given number
+     * of seconds and Hazelcast is served the last refreshed result. Defaults to: 0 (members are looked up on every
+     * discovery).
+     */
+    public static final PropertyDefinition DISCOVERY_REFRESH_INTERVAL = property("discovery-refresh-interval", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>discovery-max-staleness</code></p>
+     * Defines the maximum age in seconds of the background refreshed result, an older result is refreshed synchronously.
+     * Used only together with <code>discovery-refresh-interval</code>. Defaults to: twice the refresh interval.
+     */
+    public static final PropertyDefinition DISCOVERY_MAX_STALENESS = property("discovery-max-staleness", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>discovery-snapshot-file</code></p>
+     * Defines a file (e.g. on an <code>emptyDir</code> or a persistent volume) where the last discovered members are stored.
+     * After a restart, the stored members are returned immediately while the live lookup completes in the background.
+     * Not set by default.
+     */
+    public static final PropertyDefinition DISCOVERY_SNAPSHOT_FILE = property("discovery-snapshot-file", STRING);
+
+    /**
+     * <p>Configuration key: <code>discovery-snapshot-max-age</code></p>
+     * Defines the maximum age in seconds of the stored members to be used after a restart. Defaults to: 300 secs.
+     */
+    public static final PropertyDefinition DISCOVERY_SNAPSHOT_MAX_AGE = property("discovery-snapshot-max-age", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>membership-event-quiet-period</code></p>
+     * Defines the time in milliseconds without further membership changes after which the registered
+     * {@link KubernetesMembershipListener}s are notified. Defaults to: 1000 ms.
+     */
+    public static final PropertyDefinition MEMBERSHIP_EVENT_QUIET_PERIOD = property("membership-event-quiet-period", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>membership-event-max-delay</code></p>
+     * Defines the maximum time in milliseconds between the first membership change and the notification of the registered
+     * {@link KubernetesMembershipListener}s, even if the changes continue. Defaults to: 10000 ms.
+     */
+    public static final PropertyDefinition MEMBERSHIP_EVENT_MAX_DELAY = property("membership-event-max-delay", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>service-dns-cache-min-ttl</code></p>
+     * Defines the minimum time in seconds a DNS answer is cached, regardless of its TTL. Defaults to: 0 seconds.
+     */
+    public static final PropertyDefinition SERVICE_DNS_CACHE_MIN_TTL = property("service-dns-cache-min-ttl", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>service-dns-cache-max-ttl</code></p>
+     * Defines the maximum time in seconds a DNS answer is cached, regardless of its TTL. Set to 0 to disable the cache.
+     * Defaults to: 30 seconds.
+     */
+    public static final PropertyDefinition SERVICE_DNS_CACHE_MAX_TTL = property("service-dns-cache-max-ttl", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>service-dns-cache-negative-ttl</code></p>
+     * Defines the maximum time in seconds an empty or not found DNS answer is cached; a lower SOA minimum of the answer
+     * takes precedence. Defaults to: 5 seconds.
+     */
+    public static final PropertyDefinition SERVICE_DNS_CACHE_NEGATIVE_TTL = property("service-dns-cache-negative-ttl", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>service-dns-lookup</code></p>
+     * Defines the DNS records looked up in the DNS Lookup mode: <code>SRV</code> records of the service and the address
+     * records of their targets, or the <code>A</code>, <code>AAAA</code>, or both (<code>DUAL_STACK</code>) address records of a
+     * headless service, which are resolved in a single round trip. Defaults to: <code>SRV</code>.
+     */
+    public static final PropertyDefinition SERVICE_DNS_LOOKUP = property("service-dns-lookup", STRING);
+
+    /**
+     * <p>Configuration key: <code>service-dns-retries</code></p>
+     * Defines the number of retries, with an exponential backoff, of a DNS lookup which fails or does not find any member.
+     * Defaults to: 0.
+     */
+    public static final PropertyDefinition SERVICE_DNS_RETRIES = property("service-dns-retries", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>service-dns-min-members</code></p>
+     * Defines the minimum number of members the DNS lookups must discover before the member starts, until the
+     * <code>service-dns-min-members-timeout</code> elapses. Defaults to: 0 (does not wait).
+     */
+    public static final PropertyDefinition SERVICE_DNS_MIN_MEMBERS = property("service-dns-min-members", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>service-dns-min-members-timeout</code></p>
+     * Defines the maximum time in seconds to wait for the <code>service-dns-min-members</code> during the startup.
+     * Defaults to: 30 seconds.
+     */
+    public static final PropertyDefinition SERVICE_DNS_MIN_MEMBERS_TIMEOUT = property("service-dns-min-members-timeout", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>hybrid-discovery</code></p>
+     * Enables the hybrid mode, in which the members are looked up with both the <code>service-dns</code> and the
+     * Kubernetes API, and the first lookup which finds any member wins. Defaults to: false.
+     */
+    public static final PropertyDefinition HYBRID_DISCOVERY = property("hybrid-discovery", BOOLEAN);
+
+    /**
+     * <p>Configuration key: <code>hybrid-discovery-delay</code></p>
+     * Defines the time in milliseconds after which the Kubernetes API lookup is started in the hybrid mode, if the DNS
+     * lookup has not found any member yet; 0 starts both lookups at the same time. Defaults to: 0 ms.
+     */
+    public static final PropertyDefinition HYBRID_DISCOVERY_DELAY = property("hybrid-discovery-delay", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>kubernetes-api-qps</code></p>
+     * Maximum number of REST calls per second sent to Kubernetes API by this process; <code>0</code> (default) means no limit.
+     * The limit is shared by all Hazelcast members in the JVM.
+     */
+    public static final PropertyDefinition KUBERNETES_API_QPS = property("kubernetes-api-qps", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>kubernetes-api-burst</code></p>
+     * Number of REST calls to Kubernetes API which can be sent at once before <code>kubernetes-api-qps</code> applies.
+     * Defaults to: <code>10</code>.
+     */
+    public static final PropertyDefinition KUBERNETES_API_BURST = property("kubernetes-api-burst", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>statefulset-name</code></p>
+     * Name of the StatefulSet running Hazelcast; if set, the members are discovered by resolving the DNS names of its pods,
+     * <code>&lt;statefulset&gt;-&lt;ordinal&gt;.&lt;service-name&gt;.&lt;namespace&gt;.svc.&lt;cluster-domain&gt;</code>,
+     * instead of listing pods or endpoints. In this mode <code>service-name</code> is the headless service governing the
+     * StatefulSet; if not set, it is read from the <code>spec.serviceName</code> of the StatefulSet.
+     */
+    public static final PropertyDefinition STATEFULSET_NAME = property("statefulset-name", STRING);
+
+    /**
+     * <p>Configuration key: <code>statefulset-replicas</code></p>
+     * Number of replicas of the StatefulSet; if <code>0</code> (default), it is read from the <code>spec.replicas</code>
+     * of the StatefulSet, again every minute and whenever all the pods are found.
+     */
+    public static final PropertyDefinition STATEFULSET_REPLICAS = property("statefulset-replicas", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>cluster-domain</code></p>
+     * DNS domain of the Kubernetes cluster used to build the DNS names of the StatefulSet pods;
+     * <code>cluster.local</code> by default.
+     */
+    public static final PropertyDefinition CLUSTER_DOMAIN = property("cluster-domain", STRING);
+
+    /**
+     * <p>Configuration key: <code>expected-members</code></p>
+     * Number of members that the startup waits for in the Kubernetes API mode, so that members starting at the same time
+     * form one cluster instead of several small ones; <code>0</code> (default) means no waiting.
+     */
+    public static final PropertyDefinition EXPECTED_MEMBERS = property("expected-members", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>expected-members-workload</code></p>
+     * Workload whose <code>spec.replicas</code> is the number of members that the startup waits for, in the form of
+     * <code>statefulset/&lt;name&gt;</code> or <code>deployment/&lt;name&gt;</code>; used instead of
+     * <code>expected-members</code>.
+     */
+    public static final PropertyDefinition EXPECTED_MEMBERS_WORKLOAD = property("expected-members-workload", STRING);
+
+    /**
+     * <p>Configuration key: <code>expected-members-timeout</code></p>
+     * Maximum time in seconds that the startup waits for the expected members; <code>30</code> by default.
+     */
+    public static final PropertyDefinition EXPECTED_MEMBERS_TIMEOUT = property("expected-members-timeout", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>seed-lease-name</code></p>
+     * Name of the <code>coordination.k8s.io/v1</code> Lease which the starting members contend for; the member holding it
+     * is the seed which all the other starting members join, so that they form one cluster. Not set (disabled) by default.
+     */
+    public static final PropertyDefinition SEED_LEASE_NAME = property("seed-lease-name", STRING);
+
+    /**
+     * <p>Configuration key: <code>seed-lease-duration</code></p>
+     * Duration in seconds of the seed Lease; if the seed member stops renewing it, the Lease expires after this time. At least
+     * <code>3</code>, <code>15</code> by default.
+     */
+    public static final PropertyDefinition SEED_LEASE_DURATION = property("seed-lease-duration", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>seed-lease-hold-time</code></p>
+     * Maximum time in seconds the seed member holds the Lease; it releases it earlier once its own discovery returns another
+     * member, unless the not ready members are discovered as well. <code>0</code> by default: no maximum, or <code>60</code>
+     * if the not ready members are discovered.
+     */
+    public static final PropertyDefinition SEED_LEASE_HOLD_TIME = property("seed-lease-hold-time", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>member-registry</code></p>
+     * Name of the ConfigMap in which the members register their addresses; enables the discovery with a single GET of
+     * the ConfigMap instead of listing the PODs or endpoints. Not set (disabled) by default.
+     */
+    public static final PropertyDefinition MEMBER_REGISTRY = property("member-registry", STRING);
+
+    /**
+     * <p>Configuration key: <code>heartbeat-period</code></p>
+     * Interval in seconds at which every member renews its heartbeat Lease; the discovery skips the members whose
+     * heartbeat Lease has expired. <code>0</code> (disabled) by default.
+     */
+    public static final PropertyDefinition HEARTBEAT_PERIOD = property("heartbeat-period", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>heartbeat-timeout</code></p>
+     * Time in seconds after which the heartbeat Lease of a member which stopped renewing it expires; it must be greater
+     * than <code>heartbeat-period</code>. 15 by default.
+     */
+    public static final PropertyDefinition HEARTBEAT_TIMEOUT = property("heartbeat-timeout", INTEGER);
+
+    /**
+     * <p>Configuration key: <code>heartbeat-lease-prefix</code></p>
+     * Prefix of the names of the heartbeat Leases, which are <code>PREFIX-POD_NAME</code>; the members of one cluster
+     * must use the same prefix. <code>hazelcast-heartbeat</code> by default.
+     */
+    public static final PropertyDefinition HEARTBEAT_LEASE_PREFIX = property("heartbeat-lease-prefix", STRING);
+
+    /**
+     * <p>Configuration key: <code>draining-pods</code></p>
+     * Defines how the Kubernetes API discovery handles the PODs which are terminating (with a <code>deletionTimestamp</code>
+     * or the EndpointSlice <code>terminating</code> condition) or run on unschedulable (cordoned) nodes: <code>INCLUDE</code>
+     * them like the other PODs, <code>DEPRIORITIZE</code> them after the other PODs, or <code>EXCLUDE</code> them. Defaults to:
+     * <code>INCLUDE</code>.
+     */
+    public static final PropertyDefinition DRAINING_PODS = property("draining-pods", STRING);
+
+    /**
+     * <p>Configuration key: <code>service-port-name</code></p>
+     * Name of the Hazelcast port in the Kubernetes API mode, looked up among the service ports of the endpoints and the
+     * container ports of the PODs, or name of the container exposing only the Hazelcast port; used when there are several
+     * ports. The Hazelcast port can also be set with the POD annotation <code>hazelcast.com/port</code>. Defaults to:
+     * <code>hazelcast</code>.
+     */
+    public static final PropertyDefinition SERVICE_PORT_NAME = property("service-port-name", STRING);
+
     // Prevent instantiation
     private KubernetesProperties() {
     }
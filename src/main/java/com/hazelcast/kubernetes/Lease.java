@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.internal.json.Json;
+import com.hazelcast.internal.json.JsonArray;
+import com.hazelcast.internal.json.JsonObject;
+import com.hazelcast.internal.json.JsonValue;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable snapshot of a {@code coordination.k8s.io/v1} Lease, used to elect the seed member.
+ * <p>
+ * The address of the holder ({@code ip:port}) is stored in an annotation next to its identity, so that the other members
+ * can join the holder before it is even published in the service endpoints. Every change is written with the
+ * {@code resourceVersion} of the snapshot it is based on, so Kubernetes API rejects it if another member changed the Lease
+ * in the meantime.
+ *
+ * @see <a href="https://kubernetes.io/docs/reference/kubernetes-api/cluster-resources/lease-v1/">Lease API</a>
+ */
+final class Lease {
+    static final String HOLDER_ADDRESS_ANNOTATION = "hazelcast.com/holder-address";
+
+    private static final DateTimeFormatter MICRO_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'")
+            .withZone(ZoneOffset.UTC);
+
+    /**
+     * Metadata as read from Kubernetes API, so that the replaced Lease keeps its labels and owner references.
+     */
+    private final JsonObject metadata;
+    private final String holderIdentity;
+    private final String holderAddress;
+    private final int leaseDurationSeconds;
+    private final long renewTimeMs;
+    private final int leaseTransitions;
+
+    private Lease(JsonObject metadata, String holderIdentity, String holderAddress, int leaseDurationSeconds, long renewTimeMs,
+                  int leaseTransitions) {
+        this.metadata = metadata;
+        this.holderIdentity = holderIdentity;
+        this.holderAddress = holderAddress;
+        this.leaseDurationSeconds = leaseDurationSeconds;
+        this.renewTimeMs = renewTimeMs;
+        this.leaseTransitions = leaseTransitions;
+    }
+
+    static Lease fromJson(JsonObject leaseJson) {
+        JsonObject metadata = leaseJson.get("metadata").asObject();
+        JsonValue annotations = metadata.get("annotations");
+        JsonValue spec = leaseJson.get("spec");
+        JsonObject specJson = spec == null || spec.isNull() ? new JsonObject() : spec.asObject();
+        JsonValue renewTime = specJson.get("renewTime");
+        return new Lease(metadata,
+                toString(specJson.get("holderIdentity")),
+                annotations == null || annotations.isNull() ? null
+                        : toString(annotations.asObject().get(HOLDER_ADDRESS_ANNOTATION)),
+                specJson.getInt("leaseDurationSeconds", 0),
+                renewTime == null || renewTime.isNull() ? 0L : Instant.parse(renewTime.asString()).toEpochMilli(),
+                specJson.getInt("leaseTransitions", 0));
+    }
+
+    /**
+     * Returns a new Lease held by {@code identity}, to be created.
+     */
+    static Lease create(String name, String identity, String address, int leaseDurationSeconds, long nowMs) {
+        return new Lease(new JsonObject().add("name", name), identity, address, leaseDurationSeconds, nowMs, 0);
+    }
+
+    String toJson() {
+        JsonObject metadataJson = copy(metadata);
+        JsonValue annotations = metadataJson.get("annotations");
+        JsonObject annotationsJson = annotations == null || annotations.isNull() ? new JsonObject() : annotations.asObject();
+        if (holderAddress != null) {
+            annotationsJson.set(HOLDER_ADDRESS_ANNOTATION, holderAddress);
+        } else {
+            annotationsJson.remove(HOLDER_ADDRESS_ANNOTATION);
+        }
+        if (annotationsJson.isEmpty()) {
+            metadataJson.remove("annotations");
+        } else {
+            metadataJson.set("annotations", annotationsJson);
+        }
+        JsonObject spec = new JsonObject()
+                .add("leaseDurationSeconds", leaseDurationSeconds)
+                .add("leaseTransitions", leaseTransitions);
+        if (holderIdentity != null) {
+            spec.add("holderIdentity", holderIdentity).add("renewTime", MICRO_TIME.format(Instant.ofEpochMilli(renewTimeMs)));
+        }
+        return new JsonObject()
+                .add("apiVersion", "coordination.k8s.io/v1")
+                .add("kind", "Lease")
+                .add("metadata", metadataJson)
+                .add("spec", spec)
+                .toString();
+    }
+
+    /**
+     * Returns whether the Lease is held by anybody at {@code nowMs}; a holder which does not renew it loses it after the
+     * lease duration. The {@code renewTime} is written with the clock of the holder, so the Leases of the other members are
+     * checked with a {@link LeaseObserver} instead.
+     */
+    boolean isHeld(long nowMs) {
+        return hasHolder() && nowMs < renewTimeMs + TimeUnit.SECONDS.toMillis(leaseDurationSeconds);
+    }
+
+    boolean hasHolder() {
+        return holderIdentity != null && !holderIdentity.isEmpty();
+    }
+
+    /**
+     * Returns whether the Lease was expired on purpose by its holder, see {@link #expire()}.
+     */
+    boolean isExpired() {
+        return renewTimeMs == 0L;
+    }
+
+    boolean isHeldBy(String identity) {
+        return identity.equals(holderIdentity);
+    }
+
+    /**
+     * Returns this Lease taken over (or renewed) by {@code identity}.
+     */
+    Lease acquire(String identity, String address, int durationSeconds, long nowMs) {
+        int transitions = isHeldBy(identity) ? leaseTransitions : leaseTransitions + 1;
+        return new Lease(metadata, identity, address, durationSeconds, nowMs, transitions);
+    }
+
+    /**
+     * Returns this Lease without any holder, so that it can be acquired right away.
+     */
+    Lease release() {
+        return new Lease(metadata, null, null, leaseDurationSeconds, 0L, leaseTransitions);
+    }
+
+    /**
+     * Returns this Lease expired right away, but still naming its last holder.
+     */
+    Lease expire() {
+        return new Lease(metadata, holderIdentity, holderAddress, leaseDurationSeconds, 0L, leaseTransitions);
+    }
+
+    /**
+     * Returns this Lease with the label {@code key} set to {@code value}.
+     */
+    Lease withLabel(String key, String value) {
+        JsonObject metadataJson = copy(metadata);
+        JsonValue labels = metadataJson.get("labels");
+        JsonObject labelsJson = labels == null || labels.isNull() ? new JsonObject() : labels.asObject();
+        metadataJson.set("labels", labelsJson.set(key, value));
+        return new Lease(metadataJson, holderIdentity, holderAddress, leaseDurationSeconds, renewTimeMs, leaseTransitions);
+    }
+
+    /**
+     * Returns this Lease owned by the POD {@code podName}, so that Kubernetes garbage collects it together with the POD.
+     */
+    Lease withOwnerPod(String podName, String podUid) {
+        JsonObject metadataJson = copy(metadata);
+        metadataJson.set("ownerReferences", new JsonArray().add(new JsonObject()
+                .add("apiVersion", "v1")
+                .add("kind", "Pod")
+                .add("name", podName)
+                .add("uid", podUid)));
+        return new Lease(metadataJson, holderIdentity, holderAddress, leaseDurationSeconds, renewTimeMs, leaseTransitions);
+    }
+
+    String getName() {
+        return metadata.getString("name", null);
+    }
+
+    String getHolderIdentity() {
+        return holderIdentity;
+    }
+
+    String getHolderAddress() {
+        return holderAddress;
+    }
+
+    int getLeaseDurationSeconds() {
+        return leaseDurationSeconds;
+    }
+
+    long getRenewTimeMs() {
+        return renewTimeMs;
+    }
+
+    String getResourceVersion() {
+        return metadata.getString("resourceVersion", null);
+    }
+
+    private static JsonObject copy(JsonObject jsonObject) {
+        return Json.parse(jsonObject.toString()).asObject();
+    }
+
+    private static String toString(JsonValue jsonValue) {
+        return jsonValue == null || jsonValue.isNull() ? null : jsonValue.asString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Lease{name=%s, holderIdentity=%s, holderAddress=%s, resourceVersion=%s}", getName(),
+                holderIdentity, holderAddress, getResourceVersion());
+    }
+}
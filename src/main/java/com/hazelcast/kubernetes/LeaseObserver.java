@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells whether the Leases of the other members are held, using only the local monotonic clock.
+ * <p>
+ * The {@code renewTime} of a Lease is written with the wall clock of its holder, which may be skewed from the clock of
+ * this member. So, like the leader election of client-go, a Lease is held until its duration elapses from the moment this
+ * member last saw it change (its {@code resourceVersion} or {@code renewTime}); a Lease seen for the first time is held
+ * for its whole duration. A Lease without any holder, or expired by its holder on purpose, is never held.
+ */
+final class LeaseObserver {
+    private final ConcurrentMap<String, Observation> observations = new ConcurrentHashMap<String, Observation>();
+
+    boolean isHeld(Lease lease) {
+        if (!lease.hasHolder() || lease.isExpired()) {
+            observations.remove(lease.getName());
+            return false;
+        }
+        long nowNanos = System.nanoTime();
+        String version = String.format("%s/%d", lease.getResourceVersion(), lease.getRenewTimeMs());
+        Observation observation = observations.get(lease.getName());
+        if (observation == null || !observation.version.equals(version)) {
+            observations.put(lease.getName(), new Observation(version, nowNanos));
+            return true;
+        }
+        return nowNanos - observation.observedNanos < TimeUnit.SECONDS.toNanos(lease.getLeaseDurationSeconds());
+    }
+
+    private static final class Observation {
+        private final String version;
+        private final long observedNanos;
+
+        private Observation(String version, long observedNanos) {
+            this.version = version;
+            this.observedNanos = observedNanos;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.internal.json.Json;
+import com.hazelcast.internal.json.JsonArray;
+import com.hazelcast.internal.json.JsonObject;
+import com.hazelcast.internal.json.JsonValue;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the ConfigMap in which the members register themselves.
+ * <p>
+ * Every member stores its entry under its POD name, so that the discovery reads all the members with a single small GET
+ * instead of listing the PODs or endpoints of a large namespace. The POD of every registered member is also an owner of
+ * the ConfigMap: Kubernetes removes the owner references of the deleted PODs, which marks the entries of the members that
+ * could not deregister themselves as stale, and garbage collects the ConfigMap once all the members are gone.
+ * <p>
+ * Like a {@link Lease}, every change is written with the {@code resourceVersion} of the snapshot it is based on, so
+ * Kubernetes API rejects it if another member changed the ConfigMap in the meantime.
+ *
+ * @see <a href="https://kubernetes.io/docs/concepts/overview/working-with-objects/owners-dependents/">Owners and
+ * Dependents</a>
+ */
+final class MemberRegistry {
+    private final String name;
+    private final Map<String, Member> members;
+    private final JsonArray ownerReferences;
+    private final String resourceVersion;
+
+    private MemberRegistry(String name, Map<String, Member> members, JsonArray ownerReferences, String resourceVersion) {
+        this.name = name;
+        this.members = Collections.unmodifiableMap(members);
+        this.ownerReferences = ownerReferences;
+        this.resourceVersion = resourceVersion;
+    }
+
+    static MemberRegistry fromJson(JsonObject configMapJson) {
+        JsonObject metadata = configMapJson.get("metadata").asObject();
+        Map<String, Member> members = new LinkedHashMap<String, Member>();
+        JsonValue data = configMapJson.get("data");
+        if (data != null && !data.isNull()) {
+            for (JsonObject.Member entry : data.asObject()) {
+                members.put(entry.getName(), Member.fromJson(Json.parse(entry.getValue().asString()).asObject()));
+            }
+        }
+        JsonValue ownerReferences = metadata.get("ownerReferences");
+        return new MemberRegistry(metadata.getString("name", null), members,
+                ownerReferences == null || ownerReferences.isNull() ? new JsonArray() : ownerReferences.asArray(),
+                metadata.getString("resourceVersion", null));
+    }
+
+    /**
+     * Returns a new registry without any member, to be created.
+     */
+    static MemberRegistry create(String name) {
+        return new MemberRegistry(name, new LinkedHashMap<String, Member>(), new JsonArray(), null);
+    }
+
+    String toJson() {
+        JsonObject metadata = new JsonObject().add("name", name);
+        if (resourceVersion != null) {
+            metadata.add("resourceVersion", resourceVersion);
+        }
+        if (!ownerReferences.isEmpty()) {
+            metadata.add("ownerReferences", ownerReferences);
+        }
+        JsonObject data = new JsonObject();
+        for (Map.Entry<String, Member> member : members.entrySet()) {
+            data.add(member.getKey(), member.getValue().toJson().toString());
+        }
+        return new JsonObject()
+                .add("apiVersion", "v1")
+                .add("kind", "ConfigMap")
+                .add("metadata", metadata)
+                .add("data", data)
+                .toString();
+    }
+
+    /**
+     * Returns this registry with {@code member} registered under {@code podName}, replacing the entry and the owner reference
+     * of a previous POD with the same name. The POD becomes an owner of the registry, unless its UID is unknown.
+     */
+    MemberRegistry withMember(String podName, Member member) {
+        Map<String, Member> newMembers = new LinkedHashMap<String, Member>(members);
+        newMembers.put(podName, member);
+        JsonArray newOwnerReferences = withoutOwner(podName);
+        if (member.getPodUid() != null) {
+            newOwnerReferences.add(new JsonObject()
+                    .add("apiVersion", "v1")
+                    .add("kind", "Pod")
+                    .add("name", podName)
+                    .add("uid", member.getPodUid()));
+        }
+        return new MemberRegistry(name, newMembers, newOwnerReferences, resourceVersion);
+    }
+
+    /**
+     * Returns this registry without the entry and the owner reference of {@code podName}.
+     */
+    MemberRegistry withoutMember(String podName) {
+        Map<String, Member> newMembers = new LinkedHashMap<String, Member>(members);
+        newMembers.remove(podName);
+        return new MemberRegistry(name, newMembers, withoutOwner(podName), resourceVersion);
+    }
+
+    private JsonArray withoutOwner(String podName) {
+        JsonArray result = new JsonArray();
+        for (JsonValue ownerReference : ownerReferences) {
+            JsonObject owner = ownerReference.asObject();
+            if (!("Pod".equals(owner.getString("kind", null)) && podName.equals(owner.getString("name", null)))) {
+                result.add(owner);
+            }
+        }
+        return result;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return registered members by their POD names
+     */
+    Map<String, Member> getMembers() {
+        return members;
+    }
+
+    /**
+     * Returns whether the entry of {@code podName} belongs to a running POD, i.e. the POD is still an owner of the registry.
+     * The entries registered without the POD UID cannot be checked, so they are always considered live.
+     */
+    boolean isLive(String podName) {
+        Member member = members.get(podName);
+        if (member == null) {
+            return false;
+        }
+        if (member.getPodUid() == null) {
+            return true;
+        }
+        for (JsonValue ownerReference : ownerReferences) {
+            if (member.getPodUid().equals(ownerReference.asObject().getString("uid", null))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    String getResourceVersion() {
+        return resourceVersion;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MemberRegistry{name=%s, members=%s, resourceVersion=%s}", name, members.keySet(),
+                resourceVersion);
+    }
+
+    /**
+     * Registry entry of a single member.
+     */
+    static final class Member {
+        private final String ip;
+        private final int port;
+        private final boolean ready;
+        private final String zone;
+        private final String podUid;
+
+        Member(String ip, int port, boolean ready, String zone, String podUid) {
+            this.ip = ip;
+            this.port = port;
+            this.ready = ready;
+            this.zone = zone;
+            this.podUid = podUid;
+        }
+
+        static Member fromJson(JsonObject memberJson) {
+            return new Member(memberJson.getString("ip", null), memberJson.getInt("port", 0),
+                    memberJson.getBoolean("ready", true), toString(memberJson.get("zone")), toString(memberJson.get("uid")));
+        }
+
+        Member withReady(boolean isReady) {
+            return new Member(ip, port, isReady, zone, podUid);
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject()
+                    .add("ip", ip)
+                    .add("port", port)
+                    .add("ready", ready);
+            if (zone != null) {
+                json.add("zone", zone);
+            }
+            if (podUid != null) {
+                json.add("uid", podUid);
+            }
+            return json;
+        }
+
+        String getIp() {
+            return ip;
+        }
+
+        int getPort() {
+            return port;
+        }
+
+        boolean isReady() {
+            return ready;
+        }
+
+        String getZone() {
+            return zone;
+        }
+
+        String getPodUid() {
+            return podUid;
+        }
+
+        private static String toString(JsonValue jsonValue) {
+            return jsonValue == null || jsonValue.isNull() ? null : jsonValue.asString();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.core.HazelcastException;
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.kubernetes.MemberRegistry.Member;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Discovers the members registered in a {@link MemberRegistry} ConfigMap, with a single GET per discovery.
+ * <p>
+ * At the start, the member registers its own address, readiness and zone in the ConfigMap (creating it if needed) in the
+ * background, and it deregisters itself when destroyed. A member registered as not ready checks the readiness of its POD
+ * periodically and marks its entry as ready once all the containers of the POD are ready. Concurrent registrations are
+ * serialized by Kubernetes API with the {@code resourceVersion} of the ConfigMap: a registration rejected with a conflict
+ * reads the ConfigMap again and retries after a short random backoff. A registration which still fails (e.g. when many
+ * members start at once) is rescheduled in the background, with an exponential backoff, until it succeeds.
+ */
+final class MemberRegistryEndpointResolver
+        extends EndpointResolver {
+    private static final int MAX_WRITE_ATTEMPTS = 10;
+    private static final long CONFLICT_BACKOFF_MS = 20L;
+    private static final long MAX_CONFLICT_BACKOFF_MS = 1000L;
+    private static final long READINESS_CHECK_INTERVAL_MS = 5000L;
+
+    private final KubernetesClient client;
+    private final String registryName;
+    private final String podName;
+    private final String podIp;
+    private final int port;
+    private final boolean resolveNotReadyAddresses;
+
+    private volatile Future<?> registration;
+    private volatile Future<?> readinessCheck;
+    private volatile boolean destroyed;
+
+    /**
+     * @param podName name of the POD of this member; {@code null} if this member cannot register itself
+     */
+    MemberRegistryEndpointResolver(ILogger logger, KubernetesClient client, String registryName, String podName, String podIp,
+                                   int port, boolean resolveNotReadyAddresses) {
+        super(logger);
+        this.client = client;
+        this.registryName = registryName;
+        this.podName = podName;
+        this.podIp = podIp;
+        this.port = port;
+        this.resolveNotReadyAddresses = resolveNotReadyAddresses;
+    }
+
+    @Override
+    List<DiscoveryNode> resolve() {
+        MemberRegistry registry = client.memberRegistry(registryName);
+        List<DiscoveryNode> nodes = new ArrayList<DiscoveryNode>();
+        if (registry == null) {
+            logger.fine(String.format("Member registry '%s' does not exist yet", registryName));
+            return nodes;
+        }
+        for (Map.Entry<String, Member> entry : registry.getMembers().entrySet()) {
+            Member member = entry.getValue();
+            if (!registry.isLive(entry.getKey())) {
+                logger.finest(String.format("Skipping the stale registry entry of POD %s", entry.getKey()));
+                continue;
+            }
+            if (!member.isReady() && !resolveNotReadyAddresses) {
+                continue;
+            }
+            InetAddress address = mapAddress(member.getIp());
+            if (address != null) {
+                nodes.add(new SimpleDiscoveryNode(new Address(address, member.getPort())));
+            }
+        }
+        return nodes;
+    }
+
+    @Override
+    void start() {
+        if (podName == null) {
+            return;
+        }
+        CompletableFuture<Void> pendingRegistration = RetryUtils.retryAsync(new Callable<Void>() {
+            @Override
+            public Void call() {
+                register();
+                return null;
+            }
+        }, Integer.MAX_VALUE, KubernetesClient.NON_RETRYABLE_KEYWORDS,
+                String.format("register POD %s in the member registry '%s'", podName, registryName));
+        pendingRegistration.whenComplete(new BiConsumer<Void, Throwable>() {
+            @Override
+            public void accept(Void result, Throwable throwable) {
+                if (throwable != null && !(throwable instanceof CancellationException)) {
+                    logger.warning(String.format("Cannot register POD %s in the member registry '%s'", podName, registryName),
+                            throwable);
+                }
+            }
+        });
+        registration = pendingRegistration;
+    }
+
+    @Override
+    void destroy() {
+        destroyed = true;
+        Future<?> pendingReadinessCheck = readinessCheck;
+        if (pendingReadinessCheck != null) {
+            pendingReadinessCheck.cancel(false);
+        }
+        Future<?> pendingRegistration = registration;
+        if (pendingRegistration == null) {
+            return;
+        }
+        pendingRegistration.cancel(false);
+        try {
+            update(false, new UnaryOperator<MemberRegistry>() {
+                @Override
+                public MemberRegistry apply(MemberRegistry registry) {
+                    return registry.getMembers().containsKey(podName) ? registry.withoutMember(podName) : null;
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.fine(String.format("Cannot deregister POD %s from the member registry '%s'", podName, registryName), e);
+        }
+    }
+
+    /**
+     * Registers this member once.
+     *
+     * @throws HazelcastException if the registry is changed concurrently by too many members or cannot be written
+     */
+    void register() {
+        boolean ready = podReady();
+        final Member member = new Member(podIp, port, ready, zone(), podUid());
+        if (!update(true, new UnaryOperator<MemberRegistry>() {
+            @Override
+            public MemberRegistry apply(MemberRegistry registry) {
+                return registry.withMember(podName, member);
+            }
+        })) {
+            throw new HazelcastException(String.format("Member registry '%s' is changed concurrently by too many members",
+                    registryName));
+        }
+        logger.info(String.format("Registered POD %s in the member registry '%s' as %s", podName, registryName,
+                ready ? "ready" : "not ready"));
+        if (!ready) {
+            scheduleReadinessCheck();
+        }
+    }
+
+    private void scheduleReadinessCheck() {
+        if (destroyed) {
+            return;
+        }
+        readinessCheck = DiscoveryExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (!markReadyIfPodReady()) {
+                    scheduleReadinessCheck();
+                }
+            }
+        }, READINESS_CHECK_INTERVAL_MS);
+    }
+
+    /**
+     * Marks the registry entry of this member as ready if its POD is ready.
+     *
+     * @return {@code true} if the entry is marked as ready or there is nothing to mark anymore
+     */
+    boolean markReadyIfPodReady() {
+        if (destroyed) {
+            return true;
+        }
+        try {
+            if (!client.podReady(podName)) {
+                return false;
+            }
+            boolean updated = update(false, new UnaryOperator<MemberRegistry>() {
+                @Override
+                public MemberRegistry apply(MemberRegistry registry) {
+                    Member member = registry.getMembers().get(podName);
+                    return member == null || member.isReady() ? null : registry.withMember(podName, member.withReady(true));
+                }
+            });
+            if (updated) {
+                logger.info(String.format("Marked POD %s as ready in the member registry '%s'", podName, registryName));
+            }
+            return updated;
+        } catch (RuntimeException e) {
+            logger.fine(String.format("Cannot mark POD %s as ready in the member registry '%s'", podName, registryName), e);
+            return false;
+        }
+    }
+
+    /**
+     * Applies {@code change} to the current registry and writes the result, retrying if the registry is changed concurrently.
+     *
+     * @param change returns the changed registry, or {@code null} if nothing should be written
+     * @return {@code false} if the registry was changed concurrently at every attempt
+     */
+    private boolean update(boolean createIfAbsent, UnaryOperator<MemberRegistry> change) {
+        for (int attempt = 0; attempt < MAX_WRITE_ATTEMPTS; attempt++) {
+            MemberRegistry current = client.memberRegistry(registryName);
+            if (current == null && !createIfAbsent) {
+                return true;
+            }
+            MemberRegistry changed = change.apply(current == null ? MemberRegistry.create(registryName) : current);
+            if (changed == null) {
+                return true;
+            }
+            MemberRegistry written = current == null ? client.createMemberRegistry(changed)
+                    : client.updateMemberRegistry(changed);
+            if (written != null) {
+                return true;
+            }
+            logger.fine(String.format("Member registry '%s' was changed concurrently, retrying", registryName));
+            if (attempt + 1 < MAX_WRITE_ATTEMPTS) {
+                sleep(conflictBackoffMs(attempt));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Random backoff ("full jitter") after the given failed attempt, so that the writers which lost the compare-and-swap do
+     * not all retry at the same moment again.
+     */
+    private static long conflictBackoffMs(int attempt) {
+        long maxBackoffMs = Math.min(MAX_CONFLICT_BACKOFF_MS, CONFLICT_BACKOFF_MS << attempt);
+        return ThreadLocalRandom.current().nextLong(maxBackoffMs + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HazelcastException(e);
+        }
+    }
+
+    private boolean podReady() {
+        try {
+            return client.podReady(podName);
+        } catch (RuntimeException e) {
+            // without the POD status, the member cannot tell when it becomes ready, so it is discoverable right away
+            logger.warning(String.format("Cannot fetch the readiness of POD %s, registering it as ready", podName), e);
+            return true;
+        }
+    }
+
+    private String podUid() {
+        try {
+            return client.podUid(podName);
+        } catch (RuntimeException e) {
+            // without the owner reference, the entry is not garbage collected if this member cannot deregister itself
+            logger.warning(String.format("Cannot fetch the UID of POD %s, its registry entry is not owned by the POD", podName),
+                    e);
+            return null;
+        }
+    }
+
+    private String zone() {
+        try {
+            return client.zone(podName);
+        } catch (RuntimeException e) {
+            logger.finest(e);
+            return null;
+        }
+    }
+}
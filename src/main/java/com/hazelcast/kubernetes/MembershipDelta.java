@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Difference between two consecutive discovery results.
+ * <p>
+ * Members are identified by their private address. A member is changed if its public address or its properties are
+ * different than in the previous result.
+ */
+public final class MembershipDelta {
+    private final List<DiscoveryNode> members;
+    private final List<DiscoveryNode> added;
+    private final List<DiscoveryNode> removed;
+    private final List<DiscoveryNode> changed;
+
+    /**
+     * @param members all current members, must not be modified afterwards
+     */
+    MembershipDelta(List<DiscoveryNode> members, List<DiscoveryNode> added, List<DiscoveryNode> removed,
+                    List<DiscoveryNode> changed) {
+        this.members = members;
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.changed = Collections.unmodifiableList(changed);
+    }
+
+    /**
+     * @return all current members; unchanged members are the same instances as in the previous result
+     */
+    public List<DiscoveryNode> getMembers() {
+        return members;
+    }
+
+    /**
+     * @return members which were not present in the previous result
+     */
+    public List<DiscoveryNode> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return members of the previous result which are not present anymore
+     */
+    public List<DiscoveryNode> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return members whose public address or properties changed
+     */
+    public List<DiscoveryNode> getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return true if no member was added, removed, or changed
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * Compares two results. Unchanged members are taken from the previous result and, if nothing changed at all, the
+     * previous list itself is used as the current members.
+     */
+    static MembershipDelta between(List<DiscoveryNode> previousMembers, List<DiscoveryNode> nodes) {
+        Map<Address, DiscoveryNode> previous = new HashMap<Address, DiscoveryNode>();
+        for (DiscoveryNode node : previousMembers) {
+            previous.put(node.getPrivateAddress(), node);
+        }
+        List<DiscoveryNode> members = new ArrayList<DiscoveryNode>(nodes.size());
+        List<DiscoveryNode> added = new ArrayList<DiscoveryNode>();
+        List<DiscoveryNode> changed = new ArrayList<DiscoveryNode>();
+        Set<Address> addresses = new HashSet<Address>();
+        for (DiscoveryNode node : nodes) {
+            // skip duplicates, a member listed twice would otherwise be reported as added in every result
+            if (!addresses.add(node.getPrivateAddress())) {
+                continue;
+            }
+            DiscoveryNode previousNode = previous.remove(node.getPrivateAddress());
+            if (previousNode == null) {
+                added.add(node);
+                members.add(node);
+            } else if (isSame(previousNode, node)) {
+                members.add(previousNode);
+            } else {
+                changed.add(node);
+                members.add(node);
+            }
+        }
+        List<DiscoveryNode> removed = new ArrayList<DiscoveryNode>(previous.values());
+        // members are compared by identity, so an equal list means that neither the members nor their order changed
+        if (members.equals(previousMembers)) {
+            return new MembershipDelta(previousMembers, added, removed, changed);
+        }
+        return new MembershipDelta(Collections.unmodifiableList(members), added, removed, changed);
+    }
+
+    private static boolean isSame(DiscoveryNode previous, DiscoveryNode current) {
+        return equal(previous.getPublicAddress(), current.getPublicAddress())
+                && equal(previous.getProperties(), current.getProperties());
+    }
+
+    private static boolean equal(Object o1, Object o2) {
+        return o1 == null ? o2 == null : o1.equals(o2);
+    }
+
+    @Override
+    public String toString() {
+        return "MembershipDelta{added=" + added + ", removed=" + removed + ", changed=" + changed + "}";
+    }
+}
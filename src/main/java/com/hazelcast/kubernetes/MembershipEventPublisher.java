@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Notifies {@link KubernetesMembershipListener}s about the observed membership changes.
+ * <p>
+ * Changes are coalesced: an event is emitted when no further change was observed for the quiet period, but not later than
+ * the maximum delay after the first change of the window, so a continuous churn cannot postpone the event forever. The
+ * event contains the difference between the members of the last event and the latest observed members. That way, a burst
+ * of changes (e.g. during a rolling update) results in a single event.
+ */
+final class MembershipEventPublisher {
+    private final ILogger logger;
+    private final Collection<KubernetesMembershipListener> listeners;
+    private final long quietPeriodMs;
+    private final long maxDelayMs;
+
+    private final AtomicLong changesReceived = new AtomicLong();
+    private final AtomicLong eventsEmitted = new AtomicLong();
+    private final Object emitMutex = new Object();
+    private List<DiscoveryNode> latestMembers = Collections.emptyList();
+    private List<DiscoveryNode> emittedMembers = Collections.emptyList();
+    private Future<?> scheduledEmit;
+    private boolean windowOpen;
+    private long windowStartNanos;
+    private boolean destroyed;
+
+    MembershipEventPublisher(ILogger logger, Collection<KubernetesMembershipListener> listeners, long quietPeriodMs,
+                             long maxDelayMs) {
+        this.logger = logger;
+        this.listeners = listeners;
+        this.quietPeriodMs = quietPeriodMs;
+        this.maxDelayMs = Math.max(quietPeriodMs, maxDelayMs);
+    }
+
+    /**
+     * Records the latest observed members and (re)starts the quiet period.
+     */
+    synchronized void observe(List<DiscoveryNode> members) {
+        latestMembers = members;
+        if (destroyed || listeners.isEmpty()) {
+            return;
+        }
+        changesReceived.incrementAndGet();
+        if (scheduledEmit != null) {
+            scheduledEmit.cancel(false);
+        }
+        if (!windowOpen) {
+            windowOpen = true;
+            windowStartNanos = System.nanoTime();
+        }
+        long windowMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - windowStartNanos);
+        long delayMs = Math.max(0L, Math.min(quietPeriodMs, maxDelayMs - windowMs));
+        scheduledEmit = DiscoveryExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                emit();
+            }
+        }, delayMs);
+    }
+
+    /**
+     * @return number of membership changes observed
+     */
+    long getChangesReceived() {
+        return changesReceived.get();
+    }
+
+    /**
+     * @return number of events emitted to the listeners
+     */
+    long getEventsEmitted() {
+        return eventsEmitted.get();
+    }
+
+    synchronized void destroy() {
+        destroyed = true;
+        if (scheduledEmit != null) {
+            scheduledEmit.cancel(false);
+        }
+    }
+
+    private void emit() {
+        // emits are serialized, so that listeners receive the changes in order
+        synchronized (emitMutex) {
+            MembershipDelta delta;
+            synchronized (this) {
+                if (destroyed) {
+                    return;
+                }
+                delta = MembershipDelta.between(emittedMembers, latestMembers);
+                emittedMembers = delta.getMembers();
+                windowOpen = false;
+            }
+            if (!delta.isEmpty()) {
+                eventsEmitted.incrementAndGet();
+                if (logger.isFineEnabled()) {
+                    logger.fine(String.format("Emitting membership event, %d changes received, %d events emitted",
+                            changesReceived.get(), eventsEmitted.get()));
+                }
+                notifyListeners(delta);
+            }
+        }
+    }
+
+    private void notifyListeners(MembershipDelta delta) {
+        for (KubernetesMembershipListener listener : listeners) {
+            try {
+                listener.membershipChanged(delta);
+            } catch (Exception e) {
+                logger.warning("Membership listener " + listener + " failed", e);
+            }
+        }
+    }
+}
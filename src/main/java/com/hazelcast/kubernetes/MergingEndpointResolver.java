@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Resolves the endpoints with several {@link EndpointResolver}s concurrently and merges their results.
+ * <p>
+ * All the lookups share one timeout, so the discovery of a topology spread over several services takes as long as the
+ * slowest lookup and not as long as all of them together. The delegates are expected to enforce the timeout themselves;
+ * their results are awaited for a short grace period longer, after which a lookup is skipped. Members found by more than
+ * one resolver are returned once, in the order of the first resolver which found them.
+ */
+final class MergingEndpointResolver
+        extends EndpointResolver {
+    private static final long GRACE_PERIOD_MS = 1000L;
+
+    private final List<EndpointResolver> delegates;
+    private final long timeoutMs;
+
+    MergingEndpointResolver(ILogger logger, List<EndpointResolver> delegates, long timeoutMs) {
+        super(logger);
+        this.delegates = delegates;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    List<DiscoveryNode> resolve() {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs + GRACE_PERIOD_MS);
+        List<CompletableFuture<List<DiscoveryNode>>> lookups = new ArrayList<CompletableFuture<List<DiscoveryNode>>>();
+        for (final EndpointResolver delegate : delegates) {
+            lookups.add(CompletableFuture.supplyAsync(new Supplier<List<DiscoveryNode>>() {
+                @Override
+                public List<DiscoveryNode> get() {
+                    return delegate.resolve();
+                }
+            }, DiscoveryExecutor.lookups()));
+        }
+
+        Map<Address, DiscoveryNode> nodes = new LinkedHashMap<Address, DiscoveryNode>();
+        for (CompletableFuture<List<DiscoveryNode>> lookup : lookups) {
+            for (DiscoveryNode node : await(lookup, deadlineNanos)) {
+                if (!nodes.containsKey(node.getPrivateAddress())) {
+                    nodes.put(node.getPrivateAddress(), node);
+                }
+            }
+        }
+        return new ArrayList<DiscoveryNode>(nodes.values());
+    }
+
+    @Override
+    void start() {
+        for (EndpointResolver delegate : delegates) {
+            delegate.start();
+        }
+    }
+
+    @Override
+    void invalidate() {
+        for (EndpointResolver delegate : delegates) {
+            delegate.invalidate();
+        }
+    }
+
+    @Override
+    void destroy() {
+        for (EndpointResolver delegate : delegates) {
+            delegate.destroy();
+        }
+    }
+
+    private List<DiscoveryNode> await(CompletableFuture<List<DiscoveryNode>> lookup, long deadlineNanos) {
+        try {
+            return lookup.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            lookup.cancel(false);
+            logger.warning("Endpoint lookup timed out, skipping its members");
+        } catch (ExecutionException e) {
+            logger.warning("Endpoint lookup failed, skipping its members", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorates an {@link EndpointResolver} so that every changed non-empty lookup result is written to the
+ * {@link DiscoverySnapshotFile}.
+ * <p>
+ * The delegate is expected to be a {@link DiffingEndpointResolver}, which returns the previous list itself if the members did
+ * not change, so an unchanged result is recognized by identity and written again only before it would exceed the maximum
+ * age of the snapshot.
+ */
+final class PersistingEndpointResolver
+        extends EndpointResolver {
+    private final EndpointResolver delegate;
+    private final DiscoverySnapshotFile snapshotFile;
+
+    private volatile List<DiscoveryNode> lastStored;
+    private volatile long lastStoredNanos;
+
+    PersistingEndpointResolver(ILogger logger, EndpointResolver delegate, DiscoverySnapshotFile snapshotFile) {
+        super(logger);
+        this.delegate = delegate;
+        this.snapshotFile = snapshotFile;
+    }
+
+    @Override
+    List<DiscoveryNode> resolve() {
+        List<DiscoveryNode> nodes = delegate.resolve();
+        // an empty result usually means that the lookup failed, so keep the last known members in that case
+        if (!nodes.isEmpty() && (nodes != lastStored || isLastStoredAging())) {
+            snapshotFile.store(nodes);
+            lastStored = nodes;
+            lastStoredNanos = System.nanoTime();
+        }
+        return nodes;
+    }
+
+    private boolean isLastStoredAging() {
+        return System.nanoTime() - lastStoredNanos > TimeUnit.MILLISECONDS.toNanos(snapshotFile.getMaxAgeMs() / 2);
+    }
+
+    @Override
+    void start() {
+        delegate.start();
+    }
+
+    @Override
+    void destroy() {
+        delegate.destroy();
+    }
+}
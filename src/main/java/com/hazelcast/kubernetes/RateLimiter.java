@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.core.HazelcastException;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Token bucket rate limiter for the REST calls to Kubernetes API.
+ * <p>
+ * The bucket holds up to {@code burst} tokens and is refilled with {@code qps} tokens per second. Each call takes one token,
+ * and if there is none left, it waits in the FIFO order until the token is refilled. This way a mass restart of Hazelcast
+ * members does not flood Kubernetes API with requests, which could make API Priority and Fairness reject also the requests
+ * of the other controllers in the namespace.
+ * <p>
+ * The limiter also collects the queueing metrics: the number of calls, the number of throttled calls, the total and the
+ * maximum wait time, and the number of calls currently waiting.
+ */
+final class RateLimiter {
+    private static final ILogger LOGGER = Logger.getLogger(RateLimiter.class);
+
+    private static final RateLimiter UNLIMITED = new RateLimiter(0, 0);
+
+    /**
+     * Rate limiters shared by all Hazelcast members in the process, so that the limit applies to the process as a whole.
+     */
+    private static final ConcurrentMap<String, RateLimiter> SHARED = new ConcurrentHashMap<String, RateLimiter>();
+
+    private final int qps;
+    private final int burst;
+    private final AtomicInteger queueLength = new AtomicInteger();
+
+    private double tokens;
+    private long lastRefillNanos;
+    private long callCount;
+    private long throttledCount;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    RateLimiter(int qps, int burst) {
+        this.qps = qps;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    static RateLimiter unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Returns the rate limiter shared by the process for the given settings, or an unlimited one if {@code qps} is 0.
+     */
+    static RateLimiter shared(final int qps, final int burst) {
+        if (qps <= 0) {
+            return UNLIMITED;
+        }
+        return SHARED.computeIfAbsent(String.format("%d/%d", qps, burst), new Function<String, RateLimiter>() {
+            @Override
+            public RateLimiter apply(String key) {
+                return new RateLimiter(qps, burst);
+            }
+        });
+    }
+
+    /**
+     * Takes a token, waiting until it is available.
+     */
+    void acquire() {
+        if (qps <= 0) {
+            return;
+        }
+        long waitNanos = reserve(System.nanoTime());
+        if (waitNanos <= 0) {
+            return;
+        }
+        int queued = queueLength.incrementAndGet();
+        LOGGER.fine(String.format("Kubernetes API call throttled for %d ms, %d calls queued",
+                TimeUnit.NANOSECONDS.toMillis(waitNanos), queued));
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HazelcastException(e);
+        } finally {
+            queueLength.decrementAndGet();
+        }
+    }
+
+    /**
+     * Takes a token, letting the count go below zero if there is none, and returns how long the caller needs to wait for it.
+     */
+    synchronized long reserve(long nowNanos) {
+        tokens = Math.min(burst, tokens + (nowNanos - lastRefillNanos) * qps / (double) TimeUnit.SECONDS.toNanos(1));
+        lastRefillNanos = nowNanos;
+        tokens--;
+        callCount++;
+        if (tokens >= 0) {
+            return 0;
+        }
+        long waitNanos = (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / qps);
+        throttledCount++;
+        totalWaitNanos += waitNanos;
+        maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+        return waitNanos;
+    }
+
+    synchronized long getCallCount() {
+        return callCount;
+    }
+
+    synchronized long getThrottledCount() {
+        return throttledCount;
+    }
+
+    synchronized long getTotalWaitMs() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos);
+    }
+
+    synchronized long getMaxWaitMs() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+    }
+
+    int getQueueLength() {
+        return queueLength.get();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("RateLimiter{qps=%d, burst=%d, calls=%d, throttled=%d, totalWaitMs=%d, maxWaitMs=%d, queued=%d}",
+                qps, burst, callCount, throttledCount, getTotalWaitMs(), getMaxWaitMs(), getQueueLength());
+    }
+}
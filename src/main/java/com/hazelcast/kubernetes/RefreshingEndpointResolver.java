@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.core.HazelcastException;
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Decorates an {@link EndpointResolver} with a background refresher.
+ * <p>
+ * After {@link #start()}, the endpoints are resolved periodically on the shared {@link DiscoveryExecutor} and the result is
+ * published atomically, so {@link #resolve()} returns the last snapshot immediately instead of blocking the Hazelcast
+ * thread on the Kubernetes API or DNS. The delegate is called synchronously only if there is no snapshot yet or if the
+ * snapshot is older than the maximum staleness. A failed refresh is retried asynchronously (only for the delegates which do
+ * not retry on their own) and the last good snapshot is served in the meantime. As in {@link PersistingEndpointResolver}, an
+ * empty result is a failed lookup, since the DNS and StatefulSet resolvers report lookup errors as no members.
+ */
+final class RefreshingEndpointResolver
+        extends EndpointResolver {
+    private final EndpointResolver delegate;
+    private final long refreshIntervalMs;
+    private final long maxStalenessMs;
+    private final int retries;
+    private final String description;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>();
+    private volatile Future<?> scheduledRefresh;
+    private volatile Future<?> pendingRefresh;
+    private volatile boolean destroyed;
+
+    /**
+     * @param description what the delegate does, logged with each retry, e.g. "discover Hazelcast members using DNS"
+     */
+    RefreshingEndpointResolver(ILogger logger, EndpointResolver delegate, long refreshIntervalMs, long maxStalenessMs,
+                               int retries, String description) {
+        super(logger);
+        this.delegate = delegate;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.maxStalenessMs = maxStalenessMs;
+        this.retries = retries;
+        this.description = description;
+    }
+
+    @Override
+    void start() {
+        delegate.start();
+        // the endpoints may have already been resolved while prefetching
+        scheduleRefresh(snapshot.get() == null ? 0L : refreshIntervalMs);
+    }
+
+    @Override
+    List<DiscoveryNode> resolve() {
+        Snapshot current = snapshot.get();
+        if (current != null && !current.isOlderThan(maxStalenessMs)) {
+            return current.nodes;
+        }
+        if (current != null) {
+            logger.fine("Discovered members are stale, refreshing them synchronously");
+        }
+        List<DiscoveryNode> nodes = delegate.resolve();
+        if (nodes.isEmpty()) {
+            return current != null ? current.nodes : nodes;
+        }
+        publish(nodes);
+        return nodes;
+    }
+
+    @Override
+    void destroy() {
+        destroyed = true;
+        cancel(scheduledRefresh);
+        cancel(pendingRefresh);
+        delegate.destroy();
+    }
+
+    private void scheduleRefresh(long delayMs) {
+        if (destroyed) {
+            return;
+        }
+        scheduledRefresh = DiscoveryExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                refreshInBackground();
+            }
+        }, delayMs);
+    }
+
+    private void refreshInBackground() {
+        if (destroyed) {
+            return;
+        }
+        CompletableFuture<List<DiscoveryNode>> refresh = RetryUtils.retryAsync(new Callable<List<DiscoveryNode>>() {
+            @Override
+            public List<DiscoveryNode> call() {
+                List<DiscoveryNode> nodes = delegate.resolve();
+                if (nodes.isEmpty()) {
+                    throw new HazelcastException("No members discovered");
+                }
+                return nodes;
+            }
+        }, retries, Collections.<String>emptyList(), description);
+        pendingRefresh = refresh;
+        refresh.whenComplete(new BiConsumer<List<DiscoveryNode>, Throwable>() {
+            @Override
+            public void accept(List<DiscoveryNode> nodes, Throwable throwable) {
+                if (throwable == null) {
+                    publish(nodes);
+                } else if (!destroyed) {
+                    logger.warning("Cannot refresh discovered members, serving the last discovered members", throwable);
+                }
+                scheduleRefresh(refreshIntervalMs);
+            }
+        });
+    }
+
+    private void publish(List<DiscoveryNode> nodes) {
+        Snapshot current = snapshot.get();
+        // keep the published list if the members did not change, so that the result can be compared by identity
+        List<DiscoveryNode> published = current != null && current.nodes.equals(nodes)
+                ? current.nodes : Collections.unmodifiableList(new ArrayList<DiscoveryNode>(nodes));
+        snapshot.set(new Snapshot(published));
+    }
+
+    private static void cancel(Future<?> future) {
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    private static final class Snapshot {
+        private final List<DiscoveryNode> nodes;
+        private final long timestampNanos;
+
+        private Snapshot(List<DiscoveryNode> nodes) {
+            this.nodes = nodes;
+            this.timestampNanos = System.nanoTime();
+        }
+
+        private boolean isOlderThan(long maxAgeMs) {
+            return System.nanoTime() - timestampNanos > TimeUnit.MILLISECONDS.toNanos(maxAgeMs);
+        }
+    }
+}
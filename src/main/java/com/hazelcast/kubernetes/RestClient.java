@@ -39,6 +39,9 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 /**
  * Utility class for making REST calls.
@@ -47,6 +50,13 @@ final class RestClient {
     private static final ILogger LOGGER = Logger.getLogger(RestClient.class);
 
     private static final int HTTP_OK = 200;
+    private static final int HTTP_MULTIPLE_CHOICES = 300;
+
+    /**
+     * SSL Socket Factories cached by the CA Certificate, so that the TLS context is not built for every single REST call.
+     */
+    private static final ConcurrentMap<String, SSLSocketFactory> SSL_SOCKET_FACTORIES =
+            new ConcurrentHashMap<String, SSLSocketFactory>();
 
     private final String url;
     private final List<Header> headers = new ArrayList<Header>();
@@ -84,6 +94,10 @@ final class RestClient {
         return call("POST");
     }
 
+    String put() {
+        return call("PUT");
+    }
+
     private String call(String method) {
         HttpURLConnection connection = null;
         DataOutputStream outputStream = null;
@@ -91,7 +105,7 @@ final class RestClient {
             URL urlToConnect = new URL(url);
             connection = (HttpURLConnection) urlToConnect.openConnection();
             if (connection instanceof HttpsURLConnection) {
-                ((HttpsURLConnection) connection).setSSLSocketFactory(buildSslSocketFactory());
+                ((HttpsURLConnection) connection).setSSLSocketFactory(sslSocketFactory(caCertificate));
             }
             connection.setRequestMethod(method);
             for (Header header : headers) {
@@ -129,7 +143,8 @@ final class RestClient {
 
     private void checkHttpOk(String method, HttpURLConnection connection)
             throws IOException {
-        if (connection.getResponseCode() != HTTP_OK) {
+        // e.g. creating a resource responds with 201 Created
+        if (connection.getResponseCode() < HTTP_OK || connection.getResponseCode() >= HTTP_MULTIPLE_CHOICES) {
             String errorMessage;
             try {
                 errorMessage = read(connection.getErrorStream());
@@ -170,16 +185,31 @@ final class RestClient {
         }
     }
 
+    /**
+     * Returns SSL Socket Factory with the public CA Certificate from Kubernetes Master, building it only on the first call.
+     */
+    static SSLSocketFactory sslSocketFactory(String caCertificate) {
+        if (caCertificate == null) {
+            return buildSslSocketFactory(null);
+        }
+        return SSL_SOCKET_FACTORIES.computeIfAbsent(caCertificate, new Function<String, SSLSocketFactory>() {
+            @Override
+            public SSLSocketFactory apply(String certificate) {
+                return buildSslSocketFactory(certificate);
+            }
+        });
+    }
+
     /**
      * Builds SSL Socket Factory with the public CA Certificate from Kubernetes Master.
      */
-    private SSLSocketFactory buildSslSocketFactory() {
+    private static SSLSocketFactory buildSslSocketFactory(String caCertificate) {
         try {
             KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
             keyStore.load(null, null);
 
             int i = 0;
-            for (Certificate certificate : generateCertificates()) {
+            for (Certificate certificate : generateCertificates(caCertificate)) {
                 String alias = String.format("ca-%d", i++);
                 keyStore.setCertificateEntry(alias, certificate);
             }
@@ -199,7 +229,7 @@ final class RestClient {
     /**
      * Generates CA Certificate from the default CA Cert file or from the externally provided "ca-certificate" property.
      */
-    private Collection<? extends Certificate> generateCertificates()
+    private static Collection<? extends Certificate> generateCertificates(String caCertificate)
             throws IOException, CertificateException {
         InputStream caInput = null;
         try {
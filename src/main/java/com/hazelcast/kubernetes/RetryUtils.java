@@ -22,6 +22,7 @@ import com.hazelcast.logging.Logger;
 
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Static utility class to retry operations related to connecting to Kubernetes master.
@@ -34,6 +35,7 @@ final class RetryUtils {
     private static final ILogger LOGGER = Logger.getLogger(RetryUtils.class);
 
     private static final long MS_IN_SECOND = 1000L;
+    private static final String KUBERNETES_API_DESCRIPTION = "discover Hazelcast members using Kubernetes API";
 
     private RetryUtils() {
     }
@@ -55,15 +57,64 @@ final class RetryUtils {
                 if (retryCount > retries || containsAnyOf(e, nonRetryableKeywords)) {
                     throw unchecked(e);
                 }
-                long waitIntervalMs = backoffIntervalForRetry(retryCount);
-                LOGGER.warning(
-                        String.format("Couldn't discover Hazelcast members using Kubernetes API, [%s] retrying in %s seconds...",
-                                retryCount, waitIntervalMs / MS_IN_SECOND));
-                sleep(waitIntervalMs);
+                sleep(logAndGetWaitInterval(retryCount, KUBERNETES_API_DESCRIPTION));
             }
         }
     }
 
+    /**
+     * Non-blocking variant of {@link #retry(Callable, int, List)}.
+     * <p>
+     * The attempts are executed on the shared {@link DiscoveryExecutor} and failed attempts are rescheduled with the same
+     * exponential backoff instead of parking the calling thread. The returned future completes with the first successful
+     * result or exceptionally with the last failure. Cancelling the future stops any further attempts.
+     *
+     * @param description what the {@code callable} does, logged with each retry, e.g. "discover Hazelcast members using DNS"
+     */
+    static <T> CompletableFuture<T> retryAsync(Callable<T> callable, int retries, List<String> nonRetryableKeywords,
+                                               String description) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        scheduleAttempt(callable, retries, nonRetryableKeywords, description, future, 0, 0L);
+        return future;
+    }
+
+    private static <T> void scheduleAttempt(final Callable<T> callable, final int retries,
+                                            final List<String> nonRetryableKeywords, final String description,
+                                            final CompletableFuture<T> future, final int retryCount, long delayMs) {
+        Runnable attempt = new Runnable() {
+            @Override
+            public void run() {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(callable.call());
+                } catch (Exception e) {
+                    int nextRetryCount = retryCount + 1;
+                    if (nextRetryCount > retries || containsAnyOf(e, nonRetryableKeywords)) {
+                        future.completeExceptionally(unchecked(e));
+                    } else {
+                        long waitIntervalMs = logAndGetWaitInterval(nextRetryCount, description);
+                        scheduleAttempt(callable, retries, nonRetryableKeywords, description, future, nextRetryCount,
+                                waitIntervalMs);
+                    }
+                }
+            }
+        };
+        if (delayMs > 0) {
+            DiscoveryExecutor.schedule(attempt, delayMs);
+        } else {
+            DiscoveryExecutor.workers().execute(attempt);
+        }
+    }
+
+    private static long logAndGetWaitInterval(int retryCount, String description) {
+        long waitIntervalMs = backoffIntervalForRetry(retryCount);
+        LOGGER.warning(String.format("Couldn't %s, [%s] retrying in %s seconds...", description, retryCount,
+                waitIntervalMs / MS_IN_SECOND));
+        return waitIntervalMs;
+    }
+
     private static RuntimeException unchecked(Exception e) {
         if (e instanceof RuntimeException) {
             return (RuntimeException) e;
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Decorates an {@link EndpointResolver} so that an empty lookup is retried with an exponential backoff and, optionally, so
+ * that the startup waits until a minimum number of members is discovered.
+ * <p>
+ * While a headless service is still being published, its DNS lookups fail or return only a part of the members. A member
+ * starting with such a result forms a cluster on its own, which later has to be merged with the others. Retrying, and
+ * waiting for the expected members, avoids the split at the cost of a slower startup. The same
+ * applies to many members started at once and discovered with Kubernetes API. The minimum is only awaited until it
+ * is reached once or until the startup timeout, counted from the first discovery, elapses.
+ * <p>
+ * The retries block the calling (discovery or join) thread, so they apply only until the first discovery which returns
+ * any member. Afterwards, every discovery is a single lookup, and a failed one is recovered by the background refresh
+ * instead of parking the thread, e.g. the periodic split-brain merge check during a DNS outage.
+ */
+final class RetryingEndpointResolver
+        extends EndpointResolver {
+    private final EndpointResolver delegate;
+    private final int retries;
+    private final IntSupplier minMembersSupplier;
+    private final long minMembersTimeoutMs;
+    private final long initialBackoffMs;
+    private final CountDownLatch destroyed = new CountDownLatch(1);
+
+    private volatile long startupDeadlineNanos;
+    private volatile boolean awaitingMinMembers;
+    private volatile int minMembers = -1;
+    private volatile boolean discovered;
+
+    RetryingEndpointResolver(ILogger logger, EndpointResolver delegate, int retries, final int minMembers,
+                             long minMembersTimeoutMs, long initialBackoffMs) {
+        this(logger, delegate, retries, new IntSupplier() {
+            @Override
+            public int getAsInt() {
+                return minMembers;
+            }
+        }, minMembersTimeoutMs, initialBackoffMs);
+    }
+
+    /**
+     * @param minMembersSupplier provides the minimum number of members when it is first needed, for example from the
+     *                           replica count of a workload; it is called at most once
+     */
+    RetryingEndpointResolver(ILogger logger, EndpointResolver delegate, int retries, IntSupplier minMembersSupplier,
+                             long minMembersTimeoutMs, long initialBackoffMs) {
+        super(logger);
+        this.delegate = delegate;
+        this.retries = retries;
+        this.minMembersSupplier = minMembersSupplier;
+        this.minMembersTimeoutMs = minMembersTimeoutMs;
+        this.initialBackoffMs = initialBackoffMs;
+        this.awaitingMinMembers = true;
+    }
+
+    @Override
+    List<DiscoveryNode> resolve() {
+        if (discovered) {
+            return delegate.resolve();
+        }
+        if (minMembers < 0) {
+            initMinMembers();
+        }
+        List<DiscoveryNode> nodes = delegate.resolve();
+        long backoffMs = initialBackoffMs;
+        for (int attempt = 1; shouldRetry(nodes, attempt); attempt++) {
+            long waitMs = awaitingMinMembers
+                    ? Math.min(backoffMs, TimeUnit.NANOSECONDS.toMillis(startupDeadlineNanos - System.nanoTime()))
+                    : backoffMs;
+            int expectedMembers = awaitingMinMembers ? minMembers : 1;
+            logger.info(String.format("Discovered %d members, expected at least %d, [%d] retrying in %d ms...", nodes.size(),
+                    expectedMembers, attempt, waitMs));
+            if (!sleep(waitMs)) {
+                return nodes;
+            }
+            // the cached answers are what the previous attempt found, the retry must not be served from them again
+            delegate.invalidate();
+            nodes = delegate.resolve();
+            backoffMs = Math.min((long) (backoffMs * RetryUtils.BACKOFF_MULTIPLIER), RetryUtils.MAX_BACKOFF_MS);
+        }
+        if (awaitingMinMembers) {
+            awaitingMinMembers = false;
+            if (nodes.size() < minMembers) {
+                logger.warning(String.format("Discovered only %d members, expected at least %d, continuing the startup",
+                        nodes.size(), minMembers));
+            }
+        }
+        if (!nodes.isEmpty()) {
+            discovered = true;
+        }
+        return nodes;
+    }
+
+    @Override
+    void start() {
+        delegate.start();
+    }
+
+    @Override
+    void invalidate() {
+        delegate.invalidate();
+    }
+
+    @Override
+    void destroy() {
+        destroyed.countDown();
+        delegate.destroy();
+    }
+
+    private synchronized void initMinMembers() {
+        if (minMembers >= 0) {
+            return;
+        }
+        int value;
+        try {
+            value = minMembersSupplier.getAsInt();
+        } catch (RuntimeException e) {
+            logger.warning("Cannot read the expected number of members, continuing without waiting for them", e);
+            value = 0;
+        }
+        startupDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(minMembersTimeoutMs);
+        awaitingMinMembers = value > 0;
+        minMembers = value;
+    }
+
+    private boolean shouldRetry(List<DiscoveryNode> nodes, int attempt) {
+        if (awaitingMinMembers && nodes.size() < minMembers && System.nanoTime() - startupDeadlineNanos < 0) {
+            return true;
+        }
+        return nodes.isEmpty() && attempt <= retries;
+    }
+
+    /**
+     * @return {@code false} if the resolver was destroyed or the thread interrupted while sleeping
+     */
+    private boolean sleep(long millis) {
+        try {
+            return !destroyed.await(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
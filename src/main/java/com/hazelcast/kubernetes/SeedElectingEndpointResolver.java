@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorates an {@link EndpointResolver} so that the members starting at the same time join one elected seed member.
+ * <p>
+ * Even when all the members discover each other, simultaneous startups race to become the master and may form several
+ * clusters, which are merged later. Instead, at its first discovery, each member tries to acquire a
+ * {@code coordination.k8s.io/v1} Lease with a compare-and-swap on its {@code resourceVersion}. The winner is the seed: it
+ * discovers the members as usual and renews the Lease until its own discovery returns another member, until the maximum
+ * hold time elapses, or until it is destroyed; then it releases it. Another discovered member means that the other members
+ * have joined the seed and became ready (or that there already is a cluster) only if the discovery returns the ready
+ * members only; otherwise (e.g. with {@code resolve-not-ready-addresses}) the other members are discovered as soon as they
+ * are scheduled, before they joined the seed, so the Lease is held for the hold time instead.
+ * <p>
+ * The other members discover only the seed (its address and port are stored in the Lease) while the Lease is held, and all
+ * the members as usual once it is released or expired. A member which starts after the election acquires the released
+ * Lease and, discovering the existing cluster, releases it right away.
+ * <p>
+ * The Lease of another member expires by the local clock (see {@link LeaseObserver}): a member following a seed which
+ * stopped renewing the Lease, e.g. because it crashed, takes the Lease over once its duration elapses.
+ */
+final class SeedElectingEndpointResolver
+        extends EndpointResolver {
+    private final EndpointResolver delegate;
+    private final KubernetesClient client;
+    private final String leaseName;
+    private final String identity;
+    private final String address;
+    private final int port;
+    private final String holderAddress;
+    private final int leaseDurationSeconds;
+    private final long releaseAtMs;
+    private final boolean releaseOnOtherMembers;
+    private final LeaseObserver leaseObserver = new LeaseObserver();
+
+    private boolean attempted;
+    private Lease heldLease;
+    private volatile boolean electionDone;
+    private volatile boolean destroyed;
+    private volatile Future<?> renewal;
+
+    SeedElectingEndpointResolver(ILogger logger, EndpointResolver delegate, KubernetesClient client, String leaseName,
+                                 String identity, String address, int port, int leaseDurationSeconds, long holdTimeMs,
+                                 boolean releaseOnOtherMembers) {
+        super(logger);
+        this.delegate = delegate;
+        this.client = client;
+        this.leaseName = leaseName;
+        this.identity = identity;
+        this.address = address;
+        this.port = port;
+        this.holderAddress = formatHolderAddress(address, port);
+        this.leaseDurationSeconds = leaseDurationSeconds;
+        this.releaseAtMs = holdTimeMs > 0 ? System.currentTimeMillis() + holdTimeMs : Long.MAX_VALUE;
+        this.releaseOnOtherMembers = releaseOnOtherMembers;
+    }
+
+    @Override
+    List<DiscoveryNode> resolve() {
+        if (electionDone) {
+            return delegate.resolve();
+        }
+        Lease lease;
+        try {
+            lease = elect();
+        } catch (RuntimeException e) {
+            logger.warning(String.format("Cannot read the seed Lease '%s', discovering all the members", leaseName), e);
+            finishElection();
+            return delegate.resolve();
+        }
+        if (lease == null || !isHeld(lease) || lease.getHolderAddress() == null) {
+            logger.fine(String.format("Seed Lease '%s' is not held, discovering all the members", leaseName));
+            finishElection();
+            return delegate.resolve();
+        }
+        if (lease.isHeldBy(identity)) {
+            return resolveAsSeed();
+        }
+        Address seedAddress = parseHolderAddress(lease.getHolderAddress());
+        if (seedAddress == null) {
+            logger.warning(String.format("Invalid seed address '%s' in the Lease '%s', discovering all the members",
+                    lease.getHolderAddress(), leaseName));
+            finishElection();
+            return delegate.resolve();
+        }
+        logger.fine(String.format("Discovered the seed member %s (%s)", lease.getHolderIdentity(), seedAddress));
+        return Collections.<DiscoveryNode>singletonList(new SimpleDiscoveryNode(seedAddress));
+    }
+
+    private List<DiscoveryNode> resolveAsSeed() {
+        List<DiscoveryNode> nodes = delegate.resolve();
+        if (releaseOnOtherMembers && containsOtherMember(nodes)) {
+            logger.fine("The seed member discovered other members");
+            release();
+        }
+        return nodes;
+    }
+
+    @Override
+    void start() {
+        delegate.start();
+    }
+
+    @Override
+    void destroy() {
+        destroyed = true;
+        Future<?> scheduledRenewal = renewal;
+        if (scheduledRenewal != null) {
+            scheduledRenewal.cancel(false);
+        }
+        release();
+        delegate.destroy();
+    }
+
+    /**
+     * Ends the election, the members are discovered as usual from now on; a Lease still held by this member is released, so
+     * that it is not renewed anymore.
+     */
+    private void finishElection() {
+        electionDone = true;
+        release();
+    }
+
+    synchronized boolean isSeed() {
+        return heldLease != null;
+    }
+
+    private boolean containsOtherMember(List<DiscoveryNode> nodes) {
+        InetAddress ownAddress = mapAddress(address);
+        for (DiscoveryNode node : nodes) {
+            if (ownAddress == null || !ownAddress.equals(mapAddress(node.getPrivateAddress().getHost()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Formats the address as {@code ip:port}, with the IPv6 address in brackets.
+     */
+    static String formatHolderAddress(String ip, int port) {
+        return ip.indexOf(':') >= 0 ? String.format("[%s]:%d", ip, port) : String.format("%s:%d", ip, port);
+    }
+
+    /**
+     * Parses the address formatted by {@link #formatHolderAddress(String, int)}; an address without port is on the port of this
+     * member.
+     *
+     * @return the address or {@code null} if it is invalid
+     */
+    private Address parseHolderAddress(String holderAddress) {
+        String host = holderAddress;
+        String holderPort = null;
+        int portSeparator = holderAddress.lastIndexOf(':');
+        if (holderAddress.startsWith("[")) {
+            int hostEnd = holderAddress.indexOf(']');
+            if (hostEnd < 0) {
+                return null;
+            }
+            host = holderAddress.substring(1, hostEnd);
+            holderPort = portSeparator > hostEnd ? holderAddress.substring(portSeparator + 1) : null;
+        } else if (portSeparator >= 0 && portSeparator == holderAddress.indexOf(':')) {
+            host = holderAddress.substring(0, portSeparator);
+            holderPort = holderAddress.substring(portSeparator + 1);
+        }
+        InetAddress hostAddress = mapAddress(host);
+        if (hostAddress == null) {
+            return null;
+        }
+        try {
+            return new Address(hostAddress, holderPort == null ? port : Integer.parseInt(holderPort));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Own Lease is checked with the local clock, which renews it; the Lease of another member with the {@link LeaseObserver}.
+     */
+    private boolean isHeld(Lease lease) {
+        return lease.isHeldBy(identity) ? lease.isHeld(System.currentTimeMillis()) : leaseObserver.isHeld(lease);
+    }
+
+    /**
+     * Tries to acquire the Lease at the first call, or later if its holder stopped renewing it; returns the current Lease.
+     */
+    private synchronized Lease elect() {
+        if (heldLease != null) {
+            return heldLease;
+        }
+        if (attempted) {
+            Lease current = client.lease(leaseName);
+            if (current == null || !current.hasHolder() || current.isExpired() || leaseObserver.isHeld(current)) {
+                return current;
+            }
+            logger.info(String.format("Seed member %s stopped renewing the Lease '%s', taking it over",
+                    current.getHolderIdentity(), leaseName));
+        }
+        attempted = true;
+        Lease lease = tryAcquire(System.currentTimeMillis());
+        if (lease != null && lease.isHeldBy(identity)) {
+            logger.info(String.format("This member is the seed member, holding the Lease '%s'", leaseName));
+            heldLease = lease;
+            scheduleRenewal();
+        }
+        return lease;
+    }
+
+    private Lease tryAcquire(long nowMs) {
+        Lease current = client.lease(leaseName);
+        if (current == null) {
+            Lease created = client.createLease(Lease.create(leaseName, identity, holderAddress, leaseDurationSeconds, nowMs));
+            return created != null ? created : client.lease(leaseName);
+        }
+        // a restarted member with the same identity may be at a different address, so it takes the Lease over as well
+        if (!leaseObserver.isHeld(current) || current.isHeldBy(identity)) {
+            Lease updated = client.updateLease(current.acquire(identity, holderAddress, leaseDurationSeconds, nowMs));
+            return updated != null ? updated : client.lease(leaseName);
+        }
+        return current;
+    }
+
+    private void scheduleRenewal() {
+        if (destroyed) {
+            return;
+        }
+        long renewIntervalMs = Math.max(1L, TimeUnit.SECONDS.toMillis(leaseDurationSeconds) / 3);
+        renewal = DiscoveryExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (renew()) {
+                    scheduleRenewal();
+                }
+            }
+        }, renewIntervalMs);
+    }
+
+    /**
+     * @return {@code true} if the Lease is still held and should be renewed again
+     */
+    private synchronized boolean renew() {
+        if (heldLease == null || destroyed) {
+            return false;
+        }
+        long nowMs = System.currentTimeMillis();
+        if (nowMs >= releaseAtMs) {
+            release();
+            return false;
+        }
+        try {
+            Lease renewed = client.updateLease(heldLease.acquire(identity, holderAddress, leaseDurationSeconds, nowMs));
+            if (renewed == null) {
+                logger.warning(String.format("Seed Lease '%s' was taken over by another member", leaseName));
+                heldLease = null;
+                electionDone = true;
+                return false;
+            }
+            heldLease = renewed;
+        } catch (RuntimeException e) {
+            // the Lease stays valid until its duration elapses, so the renewal is simply tried again
+            logger.fine(String.format("Cannot renew the seed Lease '%s'", leaseName), e);
+        }
+        return true;
+    }
+
+    private synchronized void release() {
+        if (heldLease == null) {
+            return;
+        }
+        try {
+            client.updateLease(heldLease.release());
+            logger.info(String.format("Released the seed Lease '%s'", leaseName));
+        } catch (RuntimeException e) {
+            logger.fine(String.format("Cannot release the seed Lease '%s', it expires in %d seconds", leaseName,
+                    leaseDurationSeconds), e);
+        }
+        heldLease = null;
+        electionDone = true;
+    }
+}
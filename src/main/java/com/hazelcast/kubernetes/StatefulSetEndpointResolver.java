@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.config.NetworkConfig;
+import com.hazelcast.kubernetes.KubernetesClient.StatefulSet;
+import com.hazelcast.kubernetes.KubernetesConfig.DnsLookup;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Resolves the members of a StatefulSet from the predictable DNS names of its pods,
+ * {@code <statefulset>-<ordinal>.<service>.<namespace>.svc.<cluster-domain>}, without listing pods or endpoints.
+ * <p>
+ * The replica count and the governing headless service are taken from the configuration or, if not configured, read
+ * from the StatefulSet specification. A replica count read from the specification is read again every minute and
+ * whenever all the predicted pods are found, which is when the StatefulSet may have been scaled up; a replica count of
+ * {@code 0} is never kept, so the pods are discovered as soon as the StatefulSet is scaled from zero. A member started
+ * after a scale-up reads the new replica count itself anyway. The address queries of all the pods are in
+ * flight at the same time, so the lookup takes a single round trip regardless of the replica count; pods which do not exist
+ * (yet) or are not ready are simply not found.
+ */
+final class StatefulSetEndpointResolver
+        extends HazelcastKubernetesDiscoveryStrategy.EndpointResolver {
+
+    private static final long REPLICAS_REFRESH_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final KubernetesClient client;
+    private final String statefulSetName;
+    private final String serviceName;
+    private final int replicas;
+    private final String domain;
+    private final int port;
+    private final DnsClient dnsClient;
+    private final long serviceDnsTimeoutMs;
+    private final int[] types;
+
+    private volatile List<String> podDnsNames;
+    private volatile long podDnsNamesExpiryNanos;
+
+    StatefulSetEndpointResolver(ILogger logger, KubernetesClient client, String statefulSetName, String serviceName,
+                                int replicas, String domain, int port, DnsClient dnsClient, int serviceDnsTimeout,
+                                DnsLookup lookup) {
+        super(logger);
+        this.client = client;
+        this.statefulSetName = statefulSetName;
+        this.serviceName = serviceName;
+        this.replicas = replicas;
+        this.domain = domain;
+        this.port = port;
+        this.dnsClient = dnsClient;
+        this.serviceDnsTimeoutMs = TimeUnit.SECONDS.toMillis(serviceDnsTimeout);
+        this.types = DnsAddressEndpointResolver.types(lookup);
+    }
+
+    @Override
+    List<DiscoveryNode> resolve() {
+        List<String> names = podDnsNames();
+        if (names.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            return lookup(names);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning(String.format("DNS lookup for StatefulSet '%s' was interrupted", statefulSetName));
+            return Collections.emptyList();
+        }
+    }
+
+    @Override
+    void invalidate() {
+        dnsClient.invalidateCache();
+    }
+
+    @Override
+    void destroy() {
+        dnsClient.close();
+    }
+
+    /**
+     * Returns the DNS names of all the pods of the StatefulSet; the names are predicted again when the replica count
+     * read from the StatefulSet specification is due for a refresh.
+     */
+    List<String> podDnsNames() {
+        List<String> names = podDnsNames;
+        if (names != null && (replicas > 0 || System.nanoTime() - podDnsNamesExpiryNanos < 0)) {
+            return names;
+        }
+        int statefulSetReplicas = replicas;
+        String statefulSetService = serviceName;
+        if (statefulSetReplicas == 0 || statefulSetService == null) {
+            try {
+                StatefulSet statefulSet = client.statefulSet(statefulSetName);
+                if (statefulSetReplicas == 0) {
+                    statefulSetReplicas = statefulSet.getReplicas();
+                }
+                if (statefulSetService == null) {
+                    statefulSetService = statefulSet.getServiceName();
+                }
+            } catch (RuntimeException e) {
+                logger.warning(String.format("Cannot read the StatefulSet '%s', please check that it exists and that the "
+                        + "'get statefulsets' permission is granted", statefulSetName), e);
+                return names != null ? names : Collections.<String>emptyList();
+            }
+        }
+        if (statefulSetReplicas == 0) {
+            // scaled to zero (or not scaled up yet), read the StatefulSet again on the next discovery
+            podDnsNames = null;
+            return Collections.emptyList();
+        }
+        names = predictPodDnsNames(statefulSetReplicas, statefulSetService, names);
+        podDnsNamesExpiryNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REPLICAS_REFRESH_INTERVAL_MS);
+        podDnsNames = names;
+        return names;
+    }
+
+    private List<String> predictPodDnsNames(int statefulSetReplicas, String statefulSetService, List<String> previous) {
+        if (previous == null || previous.size() != statefulSetReplicas) {
+            logger.info(String.format("Discovering %d pods of the StatefulSet '%s' via the headless service '%s'",
+                    statefulSetReplicas, statefulSetName, statefulSetService));
+        }
+        List<String> names = new ArrayList<String>(statefulSetReplicas);
+        for (int ordinal = 0; ordinal < statefulSetReplicas; ordinal++) {
+            names.add(String.format("%s-%d.%s.%s", statefulSetName, ordinal, statefulSetService, domain));
+        }
+        return names;
+    }
+
+    private List<DiscoveryNode> lookup(List<String> names)
+            throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(serviceDnsTimeoutMs);
+        List<CompletableFuture<DnsMessage>> queries = new ArrayList<CompletableFuture<DnsMessage>>();
+        try {
+            for (String name : names) {
+                for (int type : types) {
+                    // the names are fully qualified, so they are queried without the search domains
+                    queries.add(dnsClient.query(name, type));
+                }
+            }
+        } catch (IOException e) {
+            logger.warning(String.format("DNS lookup for StatefulSet '%s' failed", statefulSetName), e);
+            return Collections.emptyList();
+        }
+
+        boolean[] found = new boolean[names.size()];
+        Set<InetAddress> addresses = await(queries, deadlineNanos, found);
+        int foundPods = 0;
+        for (boolean podFound : found) {
+            foundPods += podFound ? 1 : 0;
+        }
+        logger.fine(String.format("Found %d of %d pods of the StatefulSet '%s'", foundPods, names.size(),
+                statefulSetName));
+        if (foundPods == names.size()) {
+            // the StatefulSet may have been scaled up, read its replica count again on the next discovery
+            podDnsNamesExpiryNanos = System.nanoTime();
+        }
+        int hazelcastPort = port > 0 ? port : NetworkConfig.DEFAULT_PORT;
+        List<DiscoveryNode> result = new ArrayList<DiscoveryNode>(addresses.size());
+        for (InetAddress address : addresses) {
+            result.add(new SimpleDiscoveryNode(new Address(address, hazelcastPort)));
+        }
+        return result;
+    }
+
+    private Set<InetAddress> await(List<CompletableFuture<DnsMessage>> queries, long deadlineNanos, boolean[] found)
+            throws InterruptedException {
+        Set<InetAddress> addresses = new LinkedHashSet<InetAddress>();
+        int unanswered = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            try {
+                for (DnsMessage.Record record : DnsClient.await(queries.get(i), deadlineNanos).getAnswers()) {
+                    if (record.getAddress() != null) {
+                        addresses.add(record.getAddress());
+                        // the queries of each name are consecutive, one per record type
+                        found[i / types.length] = true;
+                    }
+                }
+            } catch (TimeoutException e) {
+                unanswered++;
+            } catch (IOException e) {
+                unanswered++;
+                logger.finest(e);
+            }
+        }
+        if (unanswered > 0) {
+            logger.warning(String.format("DNS lookup for StatefulSet '%s': %d of %d queries not answered",
+                    statefulSetName, unanswered, queries.size()));
+        }
+        return addresses;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+public class ApiServerSelectorTest {
+    private static final String API_SERVER_1 = "https://10.0.0.1";
+    private static final String API_SERVER_2 = "https://10.0.0.2";
+    private static final String API_SERVER_3 = "https://10.0.0.3";
+
+    @Test
+    public void configuredOrderWithoutSamples() {
+        // given
+        ApiServerSelector selector = new ApiServerSelector(asList(API_SERVER_1, API_SERVER_2, API_SERVER_3));
+
+        // when
+        // then
+        assertEquals(asList(API_SERVER_1, API_SERVER_2, API_SERVER_3), selector.candidates());
+    }
+
+    @Test
+    public void lowestLatencyFirst() {
+        // given
+        ApiServerSelector selector = new ApiServerSelector(asList(API_SERVER_1, API_SERVER_2, API_SERVER_3));
+
+        // when
+        selector.recordSuccess(API_SERVER_1, 500);
+        selector.recordSuccess(API_SERVER_2, 20);
+        selector.recordSuccess(API_SERVER_3, 100);
+
+        // then
+        assertEquals(asList(API_SERVER_2, API_SERVER_3, API_SERVER_1), selector.candidates());
+    }
+
+    @Test
+    public void latencyIsAveraged() {
+        // given
+        ApiServerSelector selector = new ApiServerSelector(asList(API_SERVER_1, API_SERVER_2));
+        selector.recordSuccess(API_SERVER_1, 10);
+        selector.recordSuccess(API_SERVER_2, 50);
+
+        // when
+        selector.recordSuccess(API_SERVER_1, 100);
+
+        // then
+        assertEquals(asList(API_SERVER_1, API_SERVER_2), selector.candidates());
+    }
+
+    @Test
+    public void failedApiServerLast() {
+        // given
+        ApiServerSelector selector = new ApiServerSelector(asList(API_SERVER_1, API_SERVER_2));
+        selector.recordSuccess(API_SERVER_1, 10);
+        selector.recordSuccess(API_SERVER_2, 500);
+
+        // when
+        selector.recordFailure(API_SERVER_1);
+
+        // then
+        assertEquals(asList(API_SERVER_2, API_SERVER_1), selector.candidates());
+    }
+
+    @Test
+    public void recoveredApiServerBackInRotation() {
+        // given
+        ApiServerSelector selector = new ApiServerSelector(asList(API_SERVER_1, API_SERVER_2));
+        selector.recordSuccess(API_SERVER_2, 500);
+        selector.recordFailure(API_SERVER_1);
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            selector.recordSuccess(API_SERVER_1, 10);
+        }
+
+        // then
+        assertEquals(asList(API_SERVER_1, API_SERVER_2), selector.candidates());
+    }
+
+    @Test
+    public void slowApiServerBackInRotationWhenLatencyDecays() {
+        // given
+        long startMs = System.currentTimeMillis();
+        long laterMs = startMs + 10 * ApiServerSelector.LATENCY_HALF_LIFE_MS;
+        ApiServerSelector selector = new ApiServerSelector(asList(API_SERVER_1, API_SERVER_2));
+        selector.recordSuccess(API_SERVER_1, 1000, startMs);
+        selector.recordSuccess(API_SERVER_2, 10, startMs);
+
+        // when
+        List<String> candidates = selector.candidates(startMs);
+        selector.recordSuccess(API_SERVER_2, 10, laterMs);
+        List<String> laterCandidates = selector.candidates(laterMs);
+
+        // then
+        assertEquals(asList(API_SERVER_2, API_SERVER_1), candidates);
+        assertEquals(asList(API_SERVER_1, API_SERVER_2), laterCandidates);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noApiServers() {
+        new ApiServerSelector(Collections.<String>emptyList());
+    }
+}
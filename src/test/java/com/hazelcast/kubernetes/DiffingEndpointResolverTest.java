@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.kubernetes.KubernetesClient.Endpoint;
+import com.hazelcast.kubernetes.KubernetesClient.EndpointAddress;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class DiffingEndpointResolverTest {
+    static final String SERVICE_NAME = "hazelcast";
+    static final int CLUSTER_SIZE = 1000;
+
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+
+    private EndpointResolver delegate = mock(EndpointResolver.class);
+    private MembershipEventPublisher publisher = new MembershipEventPublisher(LOGGER,
+            Collections.<KubernetesMembershipListener>emptyList(), 0L, 0L);
+
+    @Test
+    public void firstLookupAddsAllMembers()
+            throws Exception {
+        // given
+        given(delegate.resolve()).willReturn(asList(node("192.168.0.1"), node("192.168.0.2")));
+        DiffingEndpointResolver resolver = new DiffingEndpointResolver(LOGGER, delegate, publisher);
+
+        // when
+        MembershipDelta delta = resolver.resolveDelta();
+
+        // then
+        assertEquals(2, delta.getMembers().size());
+        assertEquals(2, delta.getAdded().size());
+        assertTrue(delta.getRemoved().isEmpty());
+        assertTrue(delta.getChanged().isEmpty());
+    }
+
+    @Test
+    public void unchangedLookupReusesPreviousResult()
+            throws Exception {
+        // given
+        given(delegate.resolve()).willReturn(asList(node("192.168.0.1"), node("192.168.0.2")),
+                asList(node("192.168.0.1"), node("192.168.0.2")));
+        DiffingEndpointResolver resolver = new DiffingEndpointResolver(LOGGER, delegate, publisher);
+        List<DiscoveryNode> previous = resolver.resolve();
+
+        // when
+        MembershipDelta delta = resolver.resolveDelta();
+
+        // then
+        assertTrue(delta.isEmpty());
+        assertSame(previous, delta.getMembers());
+    }
+
+    @Test
+    public void lookupReportsAddedRemovedAndChangedMembers()
+            throws Exception {
+        // given
+        DiscoveryNode unchanged = node("192.168.0.1");
+        DiscoveryNode changed = new SimpleDiscoveryNode(new Address("192.168.0.2", 5701), new Address("35.0.0.2", 30000),
+                Collections.<String, String>emptyMap());
+        DiscoveryNode added = node("192.168.0.3");
+        given(delegate.resolve()).willReturn(asList(unchanged, node("192.168.0.2"), node("192.168.0.4")),
+                asList(node("192.168.0.1"), changed, added));
+        DiffingEndpointResolver resolver = new DiffingEndpointResolver(LOGGER, delegate, publisher);
+        resolver.resolve();
+
+        // when
+        MembershipDelta delta = resolver.resolveDelta();
+
+        // then
+        assertEquals(3, delta.getMembers().size());
+        assertSame(unchanged, delta.getMembers().get(0));
+        assertEquals(asList(added), delta.getAdded());
+        assertEquals(asList(changed), delta.getChanged());
+        assertEquals(1, delta.getRemoved().size());
+        assertEquals(new Address("192.168.0.4", 5701), delta.getRemoved().get(0).getPrivateAddress());
+    }
+
+    /**
+     * Every lookup against the Kubernetes API parses new endpoints; the nodes of the unchanged ones must not be converted
+     * again. See {@link DiscoveryBenchmark} for the allocations at 1k members.
+     */
+    @Test
+    public void unchangedLookupReusesNodesAt1kMembers() {
+        // given
+        KubernetesClient client = mock(KubernetesClient.class);
+        given(client.endpointsByName(SERVICE_NAME)).willReturn(endpoints(0), endpoints(0), endpoints(1));
+        DiffingEndpointResolver resolver = new DiffingEndpointResolver(LOGGER,
+                new KubernetesApiEndpointResolver(LOGGER, SERVICE_NAME, 0, null, null, null, null, null, client), publisher);
+        List<DiscoveryNode> previous = resolver.resolve();
+
+        // when
+        MembershipDelta unchangedDelta = resolver.resolveDelta();
+        MembershipDelta churnDelta = resolver.resolveDelta();
+
+        // then
+        assertTrue(unchangedDelta.isEmpty());
+        assertSame(previous, unchangedDelta.getMembers());
+        assertEquals(CLUSTER_SIZE, churnDelta.getMembers().size());
+        assertEquals(1, churnDelta.getAdded().size());
+        assertEquals(1, churnDelta.getRemoved().size());
+        for (int i = 0; i < CLUSTER_SIZE - 1; i++) {
+            assertSame(previous.get(i + 1), churnDelta.getMembers().get(i));
+        }
+    }
+
+    private static DiscoveryNode node(String host)
+            throws Exception {
+        return new SimpleDiscoveryNode(new Address(host, 5701));
+    }
+
+    /**
+     * Creates new endpoint instances, as parsed from a Kubernetes API response, starting from the given member index.
+     */
+    static List<Endpoint> endpoints(int firstMember) {
+        List<Endpoint> result = new ArrayList<Endpoint>();
+        for (int i = firstMember; i < firstMember + CLUSTER_SIZE; i++) {
+            String ip = String.format("10.0.%d.%d", i / 256, i % 256);
+            result.add(new Endpoint(new EndpointAddress(ip, 5701), true));
+        }
+        return result;
+    }
+}
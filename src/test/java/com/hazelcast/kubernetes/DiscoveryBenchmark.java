@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.hazelcast.kubernetes.DiffingEndpointResolverTest.CLUSTER_SIZE;
+import static com.hazelcast.kubernetes.DiffingEndpointResolverTest.SERVICE_NAME;
+import static com.hazelcast.kubernetes.DiffingEndpointResolverTest.endpoints;
+import static com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategyTest.API_LATENCY_MS;
+import static com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategyTest.properties;
+import static com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategyTest.stubKubernetesApi;
+import static com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategyTest.toList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Measures the discovery latencies and allocations, which depend on the machine, so the tests assert only the behavior
+ * behind them. Not part of the test suite; run it from the IDE or with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=com.hazelcast.kubernetes.DiscoveryBenchmark -Dexec.classpathScope=test
+ * </pre>
+ */
+public final class DiscoveryBenchmark {
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+    private static final int ROUNDS = 5;
+
+    private DiscoveryBenchmark() {
+    }
+
+    public static void main(String[] args)
+            throws Exception {
+        WireMockServer server = new WireMockServer(wireMockConfig().dynamicPort());
+        server.start();
+        try {
+            WireMock.configureFor("localhost", server.port());
+            stubKubernetesApi();
+            startup(properties(server.port()));
+            warmRestart(properties(server.port()));
+            unchangedLookupAllocations();
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Startup of a single member against a slow fake Kubernetes API. Discovering the members and the zone takes 4
+     * sequential REST calls (endpoints, endpoints list, pod, node), so without prefetching the startup would take at least
+     * 4 * API latency.
+     */
+    private static void startup(Map<String, Comparable> properties) {
+        for (int round = 0; round < ROUNDS; round++) {
+            long startTimeMs = System.currentTimeMillis();
+            HazelcastKubernetesDiscoveryStrategy strategy = new HazelcastKubernetesDiscoveryStrategy(LOGGER, properties);
+            strategy.start();
+            strategy.discoverLocalMetadata();
+            toList(strategy.discoverNodes());
+            long startupTimeMs = System.currentTimeMillis() - startTimeMs;
+            strategy.destroy();
+            System.out.println(String.format("Startup took %d ms with API latency %d ms", startupTimeMs, API_LATENCY_MS));
+        }
+    }
+
+    /**
+     * Discovery of a member restarted with the members stored by its previous run, which does not wait for the API.
+     */
+    private static void warmRestart(Map<String, Comparable> properties)
+            throws IOException {
+        File snapshotFile = File.createTempFile("members", ".json");
+        try {
+            properties.put(KubernetesProperties.DISCOVERY_SNAPSHOT_FILE.key(), snapshotFile.getPath());
+            for (int round = 0; round < ROUNDS; round++) {
+                long startTimeMs = System.currentTimeMillis();
+                HazelcastKubernetesDiscoveryStrategy strategy = new HazelcastKubernetesDiscoveryStrategy(LOGGER, properties);
+                strategy.start();
+                toList(strategy.discoverNodes());
+                long discoveryTimeMs = System.currentTimeMillis() - startTimeMs;
+                strategy.destroy();
+                System.out.println(String.format("%s discovery took %d ms with API latency %d ms",
+                        round == 0 ? "Cold" : "Warm", discoveryTimeMs, API_LATENCY_MS));
+            }
+        } finally {
+            snapshotFile.delete();
+        }
+    }
+
+    /**
+     * Allocations of a lookup of a cluster with 1k members against the Kubernetes API, where every lookup parses new
+     * endpoints. Converting unchanged endpoints again would allocate new addresses and nodes for all the members.
+     */
+    private static void unchangedLookupAllocations() {
+        MembershipEventPublisher publisher = new MembershipEventPublisher(LOGGER,
+                Collections.<KubernetesMembershipListener>emptyList(), 0L, 0L);
+        for (int round = 0; round < ROUNDS; round++) {
+            KubernetesClient client = mock(KubernetesClient.class);
+            given(client.endpointsByName(SERVICE_NAME)).willReturn(endpoints(0), endpoints(0));
+            DiffingEndpointResolver resolver = new DiffingEndpointResolver(LOGGER,
+                    new KubernetesApiEndpointResolver(LOGGER, SERVICE_NAME, 0, null, null, null, null, null, client),
+                    publisher);
+            long startBytes = allocatedBytes();
+            resolver.resolve();
+            long coldBytes = allocatedBytes() - startBytes;
+            startBytes = allocatedBytes();
+            resolver.resolveDelta();
+            long unchangedBytes = allocatedBytes() - startBytes;
+            System.out.println(String.format("Lookup of %d members allocated %d bytes cold, %d bytes unchanged",
+                    CLUSTER_SIZE, coldBytes, unchangedBytes));
+        }
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class DiscoveryExecutorTest {
+    private static final int TASKS = 32;
+
+    @Test
+    public void nestedLookupsDoNotStarveWorkers()
+            throws Exception {
+        // given
+        final CountDownLatch allWorkersBusy = new CountDownLatch(1);
+        List<Future<String>> tasks = new ArrayList<Future<String>>();
+
+        // when
+        for (int i = 0; i < TASKS; i++) {
+            tasks.add(DiscoveryExecutor.workers().submit(new Callable<String>() {
+                @Override
+                public String call()
+                        throws Exception {
+                    // every worker waits for a lookup which is released only once the workers are saturated
+                    return DiscoveryExecutor.lookups().submit(new Callable<String>() {
+                        @Override
+                        public String call()
+                                throws Exception {
+                            allWorkersBusy.await();
+                            return "lookup";
+                        }
+                    }).get();
+                }
+            }));
+        }
+        allWorkersBusy.countDown();
+
+        // then
+        for (Future<String> task : tasks) {
+            assertEquals("lookup", task.get(1, TimeUnit.MINUTES));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.singletonMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DiscoverySnapshotFileTest {
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+    private static final long MAX_AGE_MS = 60000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "members.json");
+    }
+
+    @Test
+    public void storeAndLoad()
+            throws Exception {
+        // given
+        Map<String, String> properties = singletonMap("hazelcast.partition.group.zone", "us-east-1a");
+        List<DiscoveryNode> nodes = new ArrayList<DiscoveryNode>();
+        nodes.add(new SimpleDiscoveryNode(new Address("192.168.0.1", 5701), properties));
+        nodes.add(new SimpleDiscoveryNode(new Address("192.168.0.2", 5701), new Address("35.10.0.2", 31000), properties));
+        DiscoverySnapshotFile snapshotFile = new DiscoverySnapshotFile(LOGGER, file.getPath(), MAX_AGE_MS);
+
+        // when
+        snapshotFile.store(nodes);
+        List<DiscoveryNode> result = snapshotFile.load();
+
+        // then
+        assertEquals(2, result.size());
+        assertEquals(new Address("192.168.0.1", 5701), result.get(0).getPrivateAddress());
+        assertEquals(new Address("192.168.0.1", 5701), result.get(0).getPublicAddress());
+        assertEquals("us-east-1a", result.get(0).getProperties().get("hazelcast.partition.group.zone"));
+        assertEquals(new Address("192.168.0.2", 5701), result.get(1).getPrivateAddress());
+        assertEquals(new Address("35.10.0.2", 31000), result.get(1).getPublicAddress());
+    }
+
+    @Test
+    public void storeOverwritesPreviousSnapshot()
+            throws Exception {
+        // given
+        DiscoverySnapshotFile snapshotFile = new DiscoverySnapshotFile(LOGGER, file.getPath(), MAX_AGE_MS);
+        snapshotFile.store(nodes("192.168.0.1"));
+
+        // when
+        snapshotFile.store(nodes("192.168.0.2"));
+        List<DiscoveryNode> result = snapshotFile.load();
+
+        // then
+        assertEquals(1, result.size());
+        assertEquals(new Address("192.168.0.2", 5701), result.get(0).getPrivateAddress());
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void loadMissingFile() {
+        // given
+        DiscoverySnapshotFile snapshotFile = new DiscoverySnapshotFile(LOGGER, file.getPath(), MAX_AGE_MS);
+
+        // when
+        List<DiscoveryNode> result = snapshotFile.load();
+
+        // then
+        assertNull(result);
+    }
+
+    @Test
+    public void loadTooOldSnapshot()
+            throws Exception {
+        // given
+        long timestamp = System.currentTimeMillis() - 2 * MAX_AGE_MS;
+        write("{\"timestamp\":" + timestamp + ",\"nodes\":[{\"privateAddress\":{\"host\":\"192.168.0.1\",\"port\":5701},"
+                + "\"properties\":{}}]}");
+        DiscoverySnapshotFile snapshotFile = new DiscoverySnapshotFile(LOGGER, file.getPath(), MAX_AGE_MS);
+
+        // when
+        List<DiscoveryNode> result = snapshotFile.load();
+
+        // then
+        assertNull(result);
+    }
+
+    @Test
+    public void loadCorruptedSnapshot()
+            throws Exception {
+        // given
+        write("{\"timestamp\":");
+        DiscoverySnapshotFile snapshotFile = new DiscoverySnapshotFile(LOGGER, file.getPath(), MAX_AGE_MS);
+
+        // when
+        List<DiscoveryNode> result = snapshotFile.load();
+
+        // then
+        assertNull(result);
+    }
+
+    private static List<DiscoveryNode> nodes(String host)
+            throws Exception {
+        List<DiscoveryNode> result = new ArrayList<DiscoveryNode>();
+        result.add(new SimpleDiscoveryNode(new Address(host, 5701)));
+        return result;
+    }
+
+    private void write(String content)
+            throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
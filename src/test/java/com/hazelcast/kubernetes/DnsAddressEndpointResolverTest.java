@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.kubernetes.KubernetesConfig.DnsLookup;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.hazelcast.kubernetes.DnsEndpointResolverTest.dnsClient;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DnsAddressEndpointResolverTest {
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+
+    private static final String SERVICE_DNS = "my-release-hazelcast.default.svc.cluster.local";
+    private static final int UNSET_PORT = 0;
+    private static final int DEFAULT_PORT = 5701;
+    private static final int CUSTOM_PORT = 5702;
+    private static final String IP_SERVER_1 = "192.168.0.5";
+    private static final String IP_SERVER_2 = "192.168.0.6";
+    private static final String IPV6_SERVER = "fd00::1";
+    private static final long DNS_LATENCY_MS = 300L;
+    private static final int SERVICE_DNS_TIMEOUT_SECONDS = 5;
+
+    private StubDnsServer dnsServer;
+    private DnsAddressEndpointResolver dnsEndpointResolver;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        dnsServer = new StubDnsServer(DNS_LATENCY_MS)
+                .addA(SERVICE_DNS, IP_SERVER_1)
+                .addA(SERVICE_DNS, IP_SERVER_2)
+                .addA(SERVICE_DNS, IPV6_SERVER);
+    }
+
+    @After
+    public void tearDown() {
+        if (dnsEndpointResolver != null) {
+            dnsEndpointResolver.destroy();
+        }
+        if (dnsServer != null) {
+            dnsServer.close();
+        }
+    }
+
+    @Test
+    public void resolveA()
+            throws Exception {
+        // given
+        dnsEndpointResolver = new DnsAddressEndpointResolver(LOGGER, SERVICE_DNS, UNSET_PORT, dnsClient(dnsServer),
+                SERVICE_DNS_TIMEOUT_SECONDS, DnsLookup.A);
+
+        // when
+        List<DiscoveryNode> result = dnsEndpointResolver.resolve();
+
+        // then
+        assertEquals(2, result.size());
+        assertEquals(new Address(IP_SERVER_1, DEFAULT_PORT), result.get(0).getPrivateAddress());
+        assertEquals(new Address(IP_SERVER_2, DEFAULT_PORT), result.get(1).getPrivateAddress());
+        assertEquals(1, dnsServer.getQueries());
+    }
+
+    @Test
+    public void resolveAaaaWithCustomPort() {
+        // given
+        dnsEndpointResolver = new DnsAddressEndpointResolver(LOGGER, SERVICE_DNS, CUSTOM_PORT, dnsClient(dnsServer),
+                SERVICE_DNS_TIMEOUT_SECONDS, DnsLookup.AAAA);
+
+        // when
+        List<DiscoveryNode> result = dnsEndpointResolver.resolve();
+
+        // then
+        assertEquals(1, result.size());
+        assertEquals("fd00:0:0:0:0:0:0:1", result.get(0).getPrivateAddress().getHost());
+        assertEquals(CUSTOM_PORT, result.get(0).getPrivateAddress().getPort());
+    }
+
+    /**
+     * Both address families are queried at the same time, so the lookup takes a single round trip.
+     */
+    @Test
+    public void resolveDualStackInOneRoundTrip() {
+        // given
+        dnsEndpointResolver = new DnsAddressEndpointResolver(LOGGER, SERVICE_DNS, UNSET_PORT, dnsClient(dnsServer),
+                SERVICE_DNS_TIMEOUT_SECONDS, DnsLookup.DUAL_STACK);
+
+        // when
+        long startTimeMs = System.currentTimeMillis();
+        List<DiscoveryNode> result = dnsEndpointResolver.resolve();
+        long lookupTimeMs = System.currentTimeMillis() - startTimeMs;
+
+        // then
+        assertEquals(3, result.size());
+        assertEquals(2, dnsServer.getQueries());
+        assertTrue(String.format("Lookup took %d ms", lookupTimeMs), lookupTimeMs < 2 * DNS_LATENCY_MS);
+    }
+
+    @Test
+    public void resolveNotFound() {
+        // given
+        dnsEndpointResolver = new DnsAddressEndpointResolver(LOGGER, "unknown.default.svc.cluster.local", UNSET_PORT,
+                dnsClient(dnsServer), SERVICE_DNS_TIMEOUT_SECONDS, DnsLookup.DUAL_STACK);
+
+        // when
+        List<DiscoveryNode> result = dnsEndpointResolver.resolve();
+
+        // then
+        assertEquals(0, result.size());
+    }
+}
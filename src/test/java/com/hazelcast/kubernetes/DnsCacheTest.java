@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class DnsCacheTest {
+    private static final String NAME = "hazelcast.local";
+    private static final int RCODE_SERVER_FAILURE = 2;
+    private static final int RCODE_REFUSED = 5;
+    private static final int NO_SOA = -1;
+    private static final int SOA_TTL = 300;
+
+    @Test
+    public void cachesResponseForRecordTtl()
+            throws Exception {
+        // given
+        DnsCache cache = new DnsCache(0, 30, 5);
+        DnsMessage response = response(1, false, true);
+
+        // when
+        cache.put(NAME, DnsMessage.TYPE_A, response);
+        DnsMessage cached = cache.get("HAZELCAST.local", DnsMessage.TYPE_A);
+        DnsMessage otherType = cache.get(NAME, DnsMessage.TYPE_SRV);
+        Thread.sleep(1100L);
+        DnsMessage expired = cache.get(NAME, DnsMessage.TYPE_A);
+
+        // then
+        assertSame(response, cached);
+        assertNull(otherType);
+        assertNull(expired);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void clampsTtlToMaximum()
+            throws Exception {
+        // given
+        DnsCache cache = new DnsCache(0, 1, 1);
+        cache.put(NAME, DnsMessage.TYPE_A, response(3600, false, true));
+
+        // when
+        Thread.sleep(1100L);
+        DnsMessage cached = cache.get(NAME, DnsMessage.TYPE_A);
+
+        // then
+        assertNull(cached);
+    }
+
+    @Test
+    public void clampsTtlToMinimum() {
+        // given
+        DnsCache cache = new DnsCache(60, 120, 5);
+        DnsMessage response = response(0, false, true);
+
+        // when
+        cache.put(NAME, DnsMessage.TYPE_A, response);
+        DnsMessage cached = cache.get(NAME, DnsMessage.TYPE_A);
+
+        // then
+        assertSame(response, cached);
+    }
+
+    @Test
+    public void cachesEmptyResponseForNegativeTtl()
+            throws Exception {
+        // given
+        DnsCache cache = new DnsCache(0, 30, 1);
+        DnsMessage response = response(0, false, false);
+
+        // when
+        cache.put(NAME, DnsMessage.TYPE_A, response);
+        DnsMessage cached = cache.get(NAME, DnsMessage.TYPE_A);
+        Thread.sleep(1100L);
+        DnsMessage expired = cache.get(NAME, DnsMessage.TYPE_A);
+
+        // then
+        assertSame(response, cached);
+        assertNull(expired);
+    }
+
+    @Test
+    public void cachesNegativeResponseForSoaMinimum()
+            throws Exception {
+        // given
+        DnsCache cache = new DnsCache(0, 30, 30);
+        DnsMessage response = response(DnsMessage.RCODE_NAME_ERROR, 0, false, false, 1);
+
+        // when
+        cache.put(NAME, DnsMessage.TYPE_A, response);
+        DnsMessage cached = cache.get(NAME, DnsMessage.TYPE_A);
+        Thread.sleep(1100L);
+        DnsMessage expired = cache.get(NAME, DnsMessage.TYPE_A);
+
+        // then
+        assertEquals(1, response.getNegativeTtl());
+        assertSame(response, cached);
+        assertNull(expired);
+    }
+
+    @Test
+    public void doesNotCacheErrors() {
+        // given
+        DnsCache cache = new DnsCache(0, 30, 5);
+
+        // when
+        cache.put(NAME, DnsMessage.TYPE_A, response(RCODE_SERVER_FAILURE, 0, false, false, NO_SOA));
+        cache.put(NAME, DnsMessage.TYPE_AAAA, response(RCODE_REFUSED, 0, false, false, SOA_TTL));
+
+        // then
+        assertNull(cache.get(NAME, DnsMessage.TYPE_A));
+        assertNull(cache.get(NAME, DnsMessage.TYPE_AAAA));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void clear() {
+        // given
+        DnsCache cache = new DnsCache(0, 30, 5);
+        cache.put(NAME, DnsMessage.TYPE_A, response(30, false, true));
+
+        // when
+        cache.clear();
+
+        // then
+        assertNull(cache.get(NAME, DnsMessage.TYPE_A));
+    }
+
+    @Test
+    public void doesNotCacheTruncatedResponse() {
+        // given
+        DnsCache cache = new DnsCache(0, 30, 5);
+
+        // when
+        cache.put(NAME, DnsMessage.TYPE_A, response(30, true, true));
+
+        // then
+        assertNull(cache.get(NAME, DnsMessage.TYPE_A));
+    }
+
+    @Test
+    public void disabled() {
+        // given
+        DnsCache cache = DnsCache.disabled();
+
+        // when
+        cache.put(NAME, DnsMessage.TYPE_A, response(30, false, true));
+
+        // then
+        assertNull(cache.get(NAME, DnsMessage.TYPE_A));
+        assertEquals(0, cache.size());
+    }
+
+    private static DnsMessage response(int ttl, boolean truncated, boolean withAnswer) {
+        return response(DnsMessage.RCODE_NO_ERROR, ttl, truncated, withAnswer, NO_SOA);
+    }
+
+    private static DnsMessage response(int rcode, int ttl, boolean truncated, boolean withAnswer, int soaMinimum) {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        // header: id, flags (QR, RD, RA, the rcode and optionally TC), 1 question, 0 or 1 answer, 0 or 1 authority
+        write(message, 0x12, 0x34, 0x81 | (truncated ? 0x02 : 0), 0x80 | rcode, 0, 1, 0, withAnswer ? 1 : 0,
+                0, soaMinimum >= 0 ? 1 : 0, 0, 0);
+        // question at offset 12: hazelcast.local A IN
+        message.write(9);
+        message.write("hazelcast".getBytes(), 0, 9);
+        message.write(5);
+        message.write("local".getBytes(), 0, 5);
+        write(message, 0, 0, 1, 0, 1);
+        if (withAnswer) {
+            // answer: pointer to the question name, A IN, TTL, 10.0.0.1
+            write(message, 0xC0, 12, 0, 1, 0, 1, ttl >>> 24, ttl >>> 16 & 0xFF, ttl >>> 8 & 0xFF, ttl & 0xFF, 0, 4,
+                    10, 0, 0, 1);
+        }
+        if (soaMinimum >= 0) {
+            // authority: pointer to "local", SOA IN, TTL, pointers to "local" as the nameserver and the mailbox,
+            // zero serial, refresh, retry and expire, then the minimum
+            write(message, 0xC0, 22, 0, 6, 0, 1, 0, 0, SOA_TTL >>> 8, SOA_TTL & 0xFF, 0, 24, 0xC0, 22, 0xC0, 22);
+            write(message, new int[16]);
+            write(message, soaMinimum >>> 24, soaMinimum >>> 16 & 0xFF, soaMinimum >>> 8 & 0xFF, soaMinimum & 0xFF);
+        }
+        return DnsMessage.decode(ByteBuffer.wrap(message.toByteArray()));
+    }
+
+    private static void write(ByteArrayOutputStream message, int... bytes) {
+        for (int b : bytes) {
+            message.write(b);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DnsClientTest {
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+    private static final long TIMEOUT_MS = 5000L;
+    private static final long DNS_LATENCY_MS = 200L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void candidatesWithLessDotsThanNdots() {
+        // given
+        DnsClient dnsClient = new DnsClient(LOGGER, Collections.<InetSocketAddress>emptyList(),
+                asList("default.svc.cluster.local", "svc.cluster.local"), 5);
+
+        // when
+        List<String> candidates = dnsClient.candidates("hazelcast.default");
+
+        // then
+        assertEquals(asList("hazelcast.default.default.svc.cluster.local", "hazelcast.default.svc.cluster.local",
+                "hazelcast.default"), candidates);
+    }
+
+    @Test
+    public void candidatesWithAtLeastNdots() {
+        // given
+        DnsClient dnsClient = new DnsClient(LOGGER, Collections.<InetSocketAddress>emptyList(),
+                asList("default.svc.cluster.local"), 1);
+
+        // when
+        List<String> candidates = dnsClient.candidates("hazelcast.default");
+
+        // then
+        assertEquals(asList("hazelcast.default", "hazelcast.default.default.svc.cluster.local"), candidates);
+    }
+
+    @Test
+    public void candidatesOfAbsoluteName() {
+        // given
+        DnsClient dnsClient = new DnsClient(LOGGER, Collections.<InetSocketAddress>emptyList(),
+                asList("default.svc.cluster.local"), 5);
+
+        // when
+        List<String> candidates = dnsClient.candidates("hazelcast.default.svc.cluster.local.");
+
+        // then
+        assertEquals(asList("hazelcast.default.svc.cluster.local"), candidates);
+    }
+
+    @Test
+    public void lookupWithSearchDomain()
+            throws Exception {
+        // given
+        StubDnsServer dnsServer = new StubDnsServer(0L).addA("hazelcast.default.svc.cluster.local", "10.0.0.1");
+        File resolvConf = folder.newFile("resolv.conf");
+        write(resolvConf, "# generated\n"
+                + "nameserver 127.0.0.1\n"
+                + "search default.svc.cluster.local svc.cluster.local cluster.local\n"
+                + "options ndots:5 timeout:2\n");
+        DnsClient fromFile = DnsClient.fromResolvConf(LOGGER, resolvConf.toPath(), DnsCache.disabled());
+        DnsClient dnsClient = new DnsClient(LOGGER, asList(address(dnsServer)),
+                asList("default.svc.cluster.local", "svc.cluster.local", "cluster.local"), 5);
+
+        // when
+        DnsMessage response = dnsClient.lookup("hazelcast", DnsMessage.TYPE_A, TIMEOUT_MS);
+        dnsClient.close();
+        dnsServer.close();
+
+        // then
+        assertEquals(fromFile.candidates("hazelcast"), dnsClient.candidates("hazelcast"));
+        assertEquals(1, response.getAnswers().size());
+        assertEquals("10.0.0.1", response.getAnswers().get(0).getAddress().getHostAddress());
+    }
+
+    @Test
+    public void lookupNotFound()
+            throws Exception {
+        // given
+        StubDnsServer dnsServer = new StubDnsServer(0L);
+        DnsClient dnsClient = new DnsClient(LOGGER, asList(address(dnsServer)), asList("cluster.local"), 1);
+
+        // when
+        DnsMessage response = dnsClient.lookup("unknown.default", DnsMessage.TYPE_A, TIMEOUT_MS);
+        dnsClient.close();
+        dnsServer.close();
+
+        // then
+        assertEquals(DnsMessage.RCODE_NAME_ERROR, response.getRcode());
+        assertEquals(2, dnsServer.getQueries());
+    }
+
+    @Test
+    public void repeatedLookupServedFromCache()
+            throws Exception {
+        // given
+        StubDnsServer dnsServer = new StubDnsServer(0L).addA("hazelcast.cluster.local", "10.0.0.1");
+        DnsClient dnsClient = new DnsClient(LOGGER, asList(address(dnsServer)),
+                asList("default.svc.cluster.local", "cluster.local"), 5, new DnsCache(0, 30, 5));
+
+        // when
+        dnsClient.lookup("hazelcast", DnsMessage.TYPE_A, TIMEOUT_MS);
+        int queriesAfterFirstLookup = dnsServer.getQueries();
+        DnsMessage response = dnsClient.lookup("hazelcast", DnsMessage.TYPE_A, TIMEOUT_MS);
+        dnsClient.close();
+        dnsServer.close();
+
+        // then
+        assertEquals(2, queriesAfterFirstLookup);
+        assertEquals(2, dnsServer.getQueries());
+        assertEquals("10.0.0.1", response.getAnswers().get(0).getAddress().getHostAddress());
+    }
+
+    @Test
+    public void largerUdpResponseWithEdns()
+            throws Exception {
+        // given
+        int targets = 20;
+        StubDnsServer dnsServer = new StubDnsServer(0L);
+        for (int i = 0; i < targets; i++) {
+            dnsServer.addSrv("hazelcast.cluster.local", 10, 25, 5701, String.format("member-%d.cluster.local", i));
+        }
+        DnsClient dnsClient = new DnsClient(LOGGER, asList(address(dnsServer)), Collections.<String>emptyList(), 1);
+
+        // when
+        DnsMessage response = dnsClient.lookup("hazelcast.cluster.local", DnsMessage.TYPE_SRV, TIMEOUT_MS);
+        dnsClient.close();
+        dnsServer.close();
+
+        // then
+        assertEquals(targets, response.getAnswers().size());
+        assertEquals(0, dnsServer.getTcpQueries());
+    }
+
+    @Test
+    public void firstAnswerWins()
+            throws Exception {
+        // given
+        StubDnsServer slowDnsServer = new StubDnsServer(TIMEOUT_MS).addA("hazelcast.cluster.local", "10.0.0.1");
+        StubDnsServer dnsServer = new StubDnsServer(0L).addA("hazelcast.cluster.local", "10.0.0.2");
+        DnsClient dnsClient = new DnsClient(LOGGER, asList(address(slowDnsServer), address(dnsServer)),
+                Collections.<String>emptyList(), 1);
+
+        // when
+        long startTimeMs = System.currentTimeMillis();
+        DnsMessage response = dnsClient.lookup("hazelcast.cluster.local", DnsMessage.TYPE_A, TIMEOUT_MS);
+        long lookupTimeMs = System.currentTimeMillis() - startTimeMs;
+        dnsClient.close();
+        slowDnsServer.close();
+        dnsServer.close();
+
+        // then
+        assertEquals("10.0.0.2", response.getAnswers().get(0).getAddress().getHostAddress());
+        assertTrue(String.format("Lookup took %d ms", lookupTimeMs), lookupTimeMs < TIMEOUT_MS / 2);
+    }
+
+    @Test
+    public void queriesArePipelined()
+            throws Exception {
+        // given
+        int names = 100;
+        StubDnsServer dnsServer = new StubDnsServer(DNS_LATENCY_MS);
+        for (int i = 0; i < names; i++) {
+            dnsServer.addA(String.format("member-%d.cluster.local", i), "10.0.0." + (i + 1));
+        }
+        DnsClient dnsClient = new DnsClient(LOGGER, asList(address(dnsServer)), Collections.<String>emptyList(), 1);
+
+        // when
+        long startTimeMs = System.currentTimeMillis();
+        List<CompletableFuture<DnsMessage>> queries = new ArrayList<CompletableFuture<DnsMessage>>();
+        for (int i = 0; i < names; i++) {
+            queries.add(dnsClient.query(String.format("member-%d.cluster.local", i), DnsMessage.TYPE_A));
+        }
+        for (int i = 0; i < names; i++) {
+            DnsMessage response = queries.get(i).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            assertEquals("10.0.0." + (i + 1), response.getAnswers().get(0).getAddress().getHostAddress());
+        }
+        long lookupTimeMs = System.currentTimeMillis() - startTimeMs;
+        dnsClient.close();
+        dnsServer.close();
+
+        // then
+        assertTrue(String.format("Lookups took %d ms", lookupTimeMs), lookupTimeMs < 5 * DNS_LATENCY_MS);
+    }
+
+    private static InetSocketAddress address(StubDnsServer dnsServer) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), dnsServer.getPort());
+    }
+
+    private static void write(File file, String content)
+            throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
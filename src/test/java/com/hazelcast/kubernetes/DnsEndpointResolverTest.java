@@ -1,12 +1,12 @@
 /*
  * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
- *
+ *  
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- *
+ *  
  * http://www.apache.org/licenses/LICENSE-2.0
- *
+ *  
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -14,35 +14,28 @@
  * limitations under the License.
  */
 
+
 package com.hazelcast.kubernetes;
 
+import com.hazelcast.cluster.Address;
 import com.hazelcast.logging.ILogger;
 import com.hazelcast.logging.NoLogFactory;
 import com.hazelcast.spi.discovery.DiscoveryNode;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.Mock;
-import org.powermock.api.mockito.PowerMockito;
-import org.powermock.core.classloader.annotations.PrepareForTest;
-import org.powermock.modules.junit4.PowerMockRunner;
-
-import javax.naming.NameNotFoundException;
-import javax.naming.NamingEnumeration;
-import javax.naming.directory.Attribute;
-import javax.naming.directory.Attributes;
-import javax.naming.directory.DirContext;
+
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.junit.Assert.assertTrue;
 
-@RunWith(PowerMockRunner.class)
-@PrepareForTest(DnsEndpointResolver.class)
 public class DnsEndpointResolverTest {
     private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
 
@@ -52,40 +45,39 @@ public class DnsEndpointResolverTest {
     private static final int CUSTOM_PORT = 5702;
     private static final String DNS_SERVER_1 = String.format("12345.%s", SERVICE_DNS);
     private static final String DNS_SERVER_2 = String.format("6789.%s", SERVICE_DNS);
-    private static final String DNS_ENTRY_SERVER_1 = String.format("10 25 0 %s", DNS_SERVER_1);
-    private static final String DNS_ENTRY_SERVER_2 = String.format("10 25 0 %s", DNS_SERVER_2);
     private static final String IP_SERVER_1 = "192.168.0.5";
     private static final String IP_SERVER_2 = "192.168.0.6";
+    private static final long DNS_LATENCY_MS = 100L;
+    private static final int SERVICE_DNS_TIMEOUT_SECONDS = 5;
 
-    @Mock
-    private NamingEnumeration servers;
-    @Mock
-    private DirContext dirContext;
+    private StubDnsServer dnsServer;
+    private DnsEndpointResolver dnsEndpointResolver;
 
     @Before
     public void setUp()
             throws Exception {
-        PowerMockito.mockStatic(InetAddress.class);
-
-        Attributes attributes = mock(Attributes.class);
-        when(dirContext.getAttributes(SERVICE_DNS, new String[]{"SRV"})).thenReturn(attributes);
-        Attribute attribute = mock(Attribute.class);
-        when(attributes.get("srv")).thenReturn(attribute);
-        when(attribute.getAll()).thenReturn(servers);
-        when(servers.next()).thenReturn(DNS_ENTRY_SERVER_1, DNS_ENTRY_SERVER_2);
-        when(servers.hasMore()).thenReturn(true, true, false);
-        InetAddress address1 = mock(InetAddress.class);
-        PowerMockito.when(InetAddress.getByName(DNS_SERVER_1)).thenReturn(address1);
-        InetAddress address2 = mock(InetAddress.class);
-        PowerMockito.when(InetAddress.getByName(DNS_SERVER_2)).thenReturn(address2);
-        when(address1.getHostAddress()).thenReturn(IP_SERVER_1);
-        when(address2.getHostAddress()).thenReturn(IP_SERVER_2);
+        dnsServer = new StubDnsServer(0L)
+                .addSrv(SERVICE_DNS, 10, 25, 0, DNS_SERVER_1)
+                .addSrv(SERVICE_DNS, 10, 25, 0, DNS_SERVER_2)
+                .addA(DNS_SERVER_1, IP_SERVER_1)
+                .addA(DNS_SERVER_2, IP_SERVER_2);
+    }
+
+    @After
+    public void tearDown() {
+        if (dnsEndpointResolver != null) {
+            dnsEndpointResolver.destroy();
+        }
+        if (dnsServer != null) {
+            dnsServer.close();
+        }
     }
 
     @Test
     public void resolve() {
         // given
-        DnsEndpointResolver dnsEndpointResolver = new DnsEndpointResolver(LOGGER, SERVICE_DNS, UNSET_PORT, dirContext);
+        dnsEndpointResolver = new DnsEndpointResolver(LOGGER, SERVICE_DNS, UNSET_PORT, dnsClient(dnsServer),
+                SERVICE_DNS_TIMEOUT_SECONDS);
 
         // when
         List<DiscoveryNode> result = dnsEndpointResolver.resolve();
@@ -101,7 +93,8 @@ public class DnsEndpointResolverTest {
     @Test
     public void resolveCustomPort() {
         // given
-        DnsEndpointResolver dnsEndpointResolver = new DnsEndpointResolver(LOGGER, SERVICE_DNS, CUSTOM_PORT, dirContext);
+        dnsEndpointResolver = new DnsEndpointResolver(LOGGER, SERVICE_DNS, CUSTOM_PORT, dnsClient(dnsServer),
+                SERVICE_DNS_TIMEOUT_SECONDS);
 
         // when
         List<DiscoveryNode> result = dnsEndpointResolver.resolve();
@@ -115,11 +108,103 @@ public class DnsEndpointResolverTest {
     }
 
     @Test
-    public void resolveException()
+    public void resolveOneSrvPortPerTargetInPriorityAndWeightOrder()
+            throws Exception {
+        // given
+        String serviceDns = "_hazelcast._tcp.ports.default.svc.cluster.local";
+        dnsServer.addSrv(serviceDns, 20, 100, 5703, DNS_SERVER_1)
+                .addSrv(serviceDns, 10, 10, 5702, DNS_SERVER_2)
+                .addSrv(serviceDns, 10, 90, 5701, DNS_SERVER_1)
+                .addSrv(serviceDns, 10, 50, 5701, DNS_SERVER_1);
+        dnsEndpointResolver = new DnsEndpointResolver(LOGGER, serviceDns, UNSET_PORT, dnsClient(dnsServer),
+                SERVICE_DNS_TIMEOUT_SECONDS);
+
+        // when
+        List<DiscoveryNode> result = dnsEndpointResolver.resolve();
+
+        // then
+        assertEquals(2, result.size());
+        assertEquals(new Address(IP_SERVER_1, 5701), result.get(0).getPrivateAddress());
+        assertEquals(new Address(IP_SERVER_2, 5702), result.get(1).getPrivateAddress());
+    }
+
+    @Test
+    public void resolveDefaultPortOfMultiPortService()
+            throws Exception {
+        // given
+        String serviceDns = "multi-port.default.svc.cluster.local";
+        dnsServer.addSrv(serviceDns, 0, 50, 8080, DNS_SERVER_1)
+                .addSrv(serviceDns, 0, 50, 5701, DNS_SERVER_1)
+                .addSrv(serviceDns, 0, 50, 8080, DNS_SERVER_2)
+                .addSrv(serviceDns, 0, 50, 5701, DNS_SERVER_2);
+        dnsEndpointResolver = new DnsEndpointResolver(LOGGER, serviceDns, UNSET_PORT, dnsClient(dnsServer),
+                SERVICE_DNS_TIMEOUT_SECONDS);
+
+        // when
+        List<DiscoveryNode> result = dnsEndpointResolver.resolve();
+
+        // then
+        assertEquals(2, result.size());
+        assertEquals(setOf(new Address(IP_SERVER_1, 5701), new Address(IP_SERVER_2, 5701)),
+                setOf(result.get(0).getPrivateAddress(), result.get(1).getPrivateAddress()));
+    }
+
+    @Test
+    public void resolveCustomPortOverridesSrvPort()
+            throws Exception {
+        // given
+        String serviceDns = "_hazelcast._tcp.ports.default.svc.cluster.local";
+        dnsServer.addSrv(serviceDns, 10, 50, 5703, DNS_SERVER_1)
+                .addSrv(serviceDns, 10, 50, 5704, DNS_SERVER_1);
+        dnsEndpointResolver = new DnsEndpointResolver(LOGGER, serviceDns, CUSTOM_PORT, dnsClient(dnsServer),
+                SERVICE_DNS_TIMEOUT_SECONDS);
+
+        // when
+        List<DiscoveryNode> result = dnsEndpointResolver.resolve();
+
+        // then
+        assertEquals(1, result.size());
+        assertEquals(new Address(IP_SERVER_1, CUSTOM_PORT), result.get(0).getPrivateAddress());
+    }
+
+    @Test
+    public void resolveWithAdditionalRecords() {
+        // given
+        dnsServer.withAdditionals();
+        dnsEndpointResolver = new DnsEndpointResolver(LOGGER, SERVICE_DNS, UNSET_PORT, dnsClient(dnsServer),
+                SERVICE_DNS_TIMEOUT_SECONDS);
+
+        // when
+        List<DiscoveryNode> result = dnsEndpointResolver.resolve();
+
+        // then
+        assertEquals(2, result.size());
+        assertEquals(1, dnsServer.getQueries());
+    }
+
+    @Test
+    public void resolveIpv6()
             throws Exception {
         // given
-        when(dirContext.getAttributes(SERVICE_DNS, new String[]{"SRV"})).thenThrow(new NameNotFoundException());
-        DnsEndpointResolver dnsEndpointResolver = new DnsEndpointResolver(LOGGER, SERVICE_DNS, UNSET_PORT, dirContext);
+        String ipv6Server = String.format("ipv6.%s", SERVICE_DNS);
+        dnsServer.addSrv(SERVICE_DNS, 10, 25, 0, ipv6Server);
+        dnsServer.addA(ipv6Server, "fd00::1");
+        dnsEndpointResolver = new DnsEndpointResolver(LOGGER, SERVICE_DNS, UNSET_PORT, dnsClient(dnsServer),
+                SERVICE_DNS_TIMEOUT_SECONDS);
+
+        // when
+        List<DiscoveryNode> result = dnsEndpointResolver.resolve();
+
+        // then
+        assertEquals(3, result.size());
+        assertEquals("fd00:0:0:0:0:0:0:1", result.get(2).getPrivateAddress().getHost());
+    }
+
+    @Test
+    public void resolveException() {
+        // given
+        dnsEndpointResolver = new DnsEndpointResolver(LOGGER, "unknown.default.svc.cluster.local", UNSET_PORT,
+                dnsClient(dnsServer), SERVICE_DNS_TIMEOUT_SECONDS);
 
         // when
         List<DiscoveryNode> result = dnsEndpointResolver.resolve();
@@ -132,14 +217,94 @@ public class DnsEndpointResolverTest {
     public void resolveNotFound()
             throws Exception {
         // given
-        when(servers.hasMore()).thenReturn(false);
-        DnsEndpointResolver dnsEndpointResolver = new DnsEndpointResolver(LOGGER, SERVICE_DNS, UNSET_PORT, dirContext);
+        String serviceDns = "empty.default.svc.cluster.local";
+        dnsServer.addA(serviceDns, "192.168.0.100");
+        dnsEndpointResolver = new DnsEndpointResolver(LOGGER, serviceDns, UNSET_PORT, dnsClient(dnsServer),
+                SERVICE_DNS_TIMEOUT_SECONDS);
+
+        // when
+        List<DiscoveryNode> result = dnsEndpointResolver.resolve();
+
+        // then
+        assertEquals(0, result.size());
+    }
+
+    @Test
+    public void resolveTimeout()
+            throws Exception {
+        // given
+        StubDnsServer slowDnsServer = new StubDnsServer(5000L);
+        dnsEndpointResolver = new DnsEndpointResolver(LOGGER, SERVICE_DNS, UNSET_PORT, dnsClient(slowDnsServer), 1);
 
         // when
+        long startTimeMs = System.currentTimeMillis();
         List<DiscoveryNode> result = dnsEndpointResolver.resolve();
+        long lookupTimeMs = System.currentTimeMillis() - startTimeMs;
+        slowDnsServer.close();
 
         // then
         assertEquals(0, result.size());
+        assertTrue(String.format("Lookup took %d ms", lookupTimeMs), lookupTimeMs < 2000L);
+    }
+
+    /**
+     * Benchmarks a lookup of 50 members against a slow DNS server. Resolving the SRV targets one after another would take
+     * 51 round trips.
+     */
+    @Test
+    public void resolveTargetsConcurrently()
+            throws Exception {
+        // given
+        int members = 50;
+        StubDnsServer slowDnsServer = new StubDnsServer(DNS_LATENCY_MS);
+        for (int i = 0; i < members; i++) {
+            String target = String.format("member-%d.%s", i, SERVICE_DNS);
+            slowDnsServer.addSrv(SERVICE_DNS, 10, 25, 0, target).addA(target, "10.0.0." + (i + 1));
+        }
+        dnsEndpointResolver = new DnsEndpointResolver(LOGGER, SERVICE_DNS, UNSET_PORT, dnsClient(slowDnsServer),
+                SERVICE_DNS_TIMEOUT_SECONDS);
+
+        // when
+        long startTimeMs = System.currentTimeMillis();
+        List<DiscoveryNode> result = dnsEndpointResolver.resolve();
+        long lookupTimeMs = System.currentTimeMillis() - startTimeMs;
+        slowDnsServer.close();
+
+        // then
+        assertEquals(members, result.size());
+        assertTrue(String.format("Lookup took %d ms", lookupTimeMs), lookupTimeMs < 10 * DNS_LATENCY_MS);
+    }
+
+    /**
+     * The SRV records of 500 members do not fit into a UDP response, so the truncated response must be retried over TCP
+     * instead of discovering only a part of the cluster.
+     */
+    @Test
+    public void resolveLargeServiceOverTcp()
+            throws Exception {
+        // given
+        int members = 500;
+        StubDnsServer largeDnsServer = new StubDnsServer(0L);
+        for (int i = 0; i < members; i++) {
+            String target = String.format("member-%d.%s", i, SERVICE_DNS);
+            largeDnsServer.addSrv(SERVICE_DNS, 10, 25, 0, target)
+                    .addA(target, String.format("10.0.%d.%d", i / 250, i % 250 + 1));
+        }
+        dnsEndpointResolver = new DnsEndpointResolver(LOGGER, SERVICE_DNS, UNSET_PORT, dnsClient(largeDnsServer),
+                SERVICE_DNS_TIMEOUT_SECONDS);
+
+        // when
+        List<DiscoveryNode> result = dnsEndpointResolver.resolve();
+        largeDnsServer.close();
+
+        // then
+        assertEquals(members, result.size());
+        assertEquals(1, largeDnsServer.getTcpQueries());
+    }
+
+    static DnsClient dnsClient(StubDnsServer dnsServer) {
+        return new DnsClient(LOGGER, asList(new InetSocketAddress(InetAddress.getLoopbackAddress(), dnsServer.getPort())),
+                Collections.<String>emptyList(), 1);
     }
 
     private static Set<?> setOf(Object... objects) {
@@ -149,4 +314,4 @@ public class DnsEndpointResolverTest {
         }
         return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DnsMessageTest {
+
+    @Test
+    public void encodeQuery() {
+        // when
+        ByteBuffer query = DnsMessage.encodeQuery(0x1234, "hazelcast.default.", DnsMessage.TYPE_SRV);
+
+        // then
+        byte[] expected = {0x12, 0x34, 0x01, 0x00, 0, 1, 0, 0, 0, 0, 0, 1,
+                9, 'h', 'a', 'z', 'e', 'l', 'c', 'a', 's', 't', 7, 'd', 'e', 'f', 'a', 'u', 'l', 't', 0,
+                0, 33, 0, 1,
+                // OPT: root, type 41, payload size 1232, no extended flags, no options
+                0, 0, 41, 0x04, (byte) 0xD0, 0, 0, 0, 0, 0, 0};
+        assertEquals(ByteBuffer.wrap(expected), query);
+    }
+
+    @Test
+    public void decodeCompressedSrvResponse() {
+        // given
+        byte[] response = {0x12, 0x34, (byte) 0x81, (byte) 0x80, 0, 1, 0, 1, 0, 0, 0, 1,
+                // question at offset 12: hazelcast.local SRV IN
+                9, 'h', 'a', 'z', 'e', 'l', 'c', 'a', 's', 't', 5, 'l', 'o', 'c', 'a', 'l', 0, 0, 33, 0, 1,
+                // answer: pointer to the question name, SRV IN, TTL 30
+                (byte) 0xC0, 12, 0, 33, 0, 1, 0, 0, 0, 30, 0, 11,
+                // priority 10, weight 20, port 5701, target: "m1" + pointer to "hazelcast.local"
+                0, 10, 0, 20, 0x16, 0x45, 2, 'm', '1', (byte) 0xC0, 12,
+                // additional: "m1" + pointer to "hazelcast.local", A IN, TTL 60, 10.0.0.1
+                2, 'm', '1', (byte) 0xC0, 12, 0, 1, 0, 1, 0, 0, 0, 60, 0, 4, 10, 0, 0, 1};
+
+        // when
+        DnsMessage message = DnsMessage.decode(ByteBuffer.wrap(response));
+
+        // then
+        assertEquals(0x1234, message.getId());
+        assertTrue(message.isResponse());
+        assertFalse(message.isTruncated());
+        assertEquals(DnsMessage.RCODE_NO_ERROR, message.getRcode());
+        assertEquals("hazelcast.local", message.getQuestionName());
+        assertEquals(DnsMessage.TYPE_SRV, message.getQuestionType());
+        DnsMessage.Record srv = message.getAnswers().get(0);
+        assertEquals("hazelcast.local", srv.getName());
+        assertEquals(30, srv.getTtl());
+        assertEquals(10, srv.getPriority());
+        assertEquals(20, srv.getWeight());
+        assertEquals(5701, srv.getPort());
+        assertEquals("m1.hazelcast.local", srv.getTarget());
+        DnsMessage.Record a = message.getAdditionals().get(0);
+        assertEquals("m1.hazelcast.local", a.getName());
+        assertEquals(60, a.getTtl());
+        assertEquals("10.0.0.1", a.getAddress().getHostAddress());
+    }
+
+    @Test
+    public void decodeTruncatedResponse() {
+        // given
+        byte[] response = {0x12, 0x34, (byte) 0x83, (byte) 0x80, 0, 1, 0, 2, 0, 0, 0, 0,
+                1, 'a', 0, 0, 1, 0, 1,
+                // the first answer is complete, the second one is cut
+                (byte) 0xC0, 12, 0, 1, 0, 1, 0, 0, 0, 30, 0, 4, 10, 0, 0, 1,
+                (byte) 0xC0, 12, 0, 1};
+
+        // when
+        DnsMessage message = DnsMessage.decode(ByteBuffer.wrap(response));
+
+        // then
+        assertTrue(message.isTruncated());
+        assertTrue(message.getAnswers().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodePointerLoop() {
+        // given
+        byte[] response = {0x12, 0x34, (byte) 0x81, (byte) 0x80, 0, 1, 0, 0, 0, 0, 0, 0,
+                (byte) 0xC0, 12, 0, 1, 0, 1};
+
+        // when
+        DnsMessage.decode(ByteBuffer.wrap(response));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodeTruncatedMessage() {
+        // given
+        byte[] response = {0x12, 0x34, (byte) 0x81, (byte) 0x80, 0, 1, 0, 1, 0, 0, 0, 0,
+                1, 'a', 0, 0, 1, 0, 1, 1, 'a', 0, 0, 1, 0, 1, 0, 0};
+
+        // when
+        DnsMessage.decode(ByteBuffer.wrap(response));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.internal.json.Json;
+import com.hazelcast.internal.json.JsonArray;
+import com.hazelcast.internal.json.JsonObject;
+import com.hazelcast.internal.json.JsonValue;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Minimal in-memory Kubernetes API server for the tests of the writes.
+ * <p>
+ * Objects are stored by their path, and a GET of a path without any object lists the objects under it. Like the real API
+ * server, it sets the {@code resourceVersion} on every write, rejects the creation of an existing object and the replacement
+ * based on an outdated {@code resourceVersion} with 409 Conflict.
+ */
+final class FakeKubernetesApiServer
+        implements Closeable {
+    private final HttpServer server;
+    private final Map<String, JsonObject> objects = new ConcurrentHashMap<String, JsonObject>();
+    private long resourceVersion;
+
+    FakeKubernetesApiServer()
+            throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange)
+                    throws IOException {
+                try {
+                    FakeKubernetesApiServer.this.handle(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+    }
+
+    String getUrl() {
+        return String.format("http://localhost:%d", server.getAddress().getPort());
+    }
+
+    JsonObject get(String path) {
+        return objects.get(path);
+    }
+
+    synchronized void put(String path, JsonObject object) {
+        object.get("metadata").asObject().set("resourceVersion", String.valueOf(++resourceVersion));
+        objects.put(path, object);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private synchronized void handle(HttpExchange exchange)
+            throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        if ("GET".equals(method)) {
+            JsonObject object = objects.containsKey(path) ? objects.get(path) : list(path, exchange.getRequestURI().getQuery());
+            respond(exchange, object == null ? 404 : 200, object == null ? status("NotFound") : object);
+        } else if ("POST".equals(method)) {
+            JsonObject object = read(exchange);
+            String objectPath = path + "/" + object.get("metadata").asObject().getString("name", null);
+            if (objects.containsKey(objectPath)) {
+                respond(exchange, 409, status("AlreadyExists"));
+            } else {
+                put(objectPath, object);
+                respond(exchange, 201, object);
+            }
+        } else if ("PUT".equals(method)) {
+            JsonObject object = read(exchange);
+            JsonObject current = objects.get(path);
+            if (current == null) {
+                respond(exchange, 404, status("NotFound"));
+            } else if (!resourceVersion(current).equals(resourceVersion(object))) {
+                respond(exchange, 409, status("Conflict"));
+            } else {
+                put(path, object);
+                respond(exchange, 200, object);
+            }
+        } else if ("DELETE".equals(method)) {
+            JsonObject object = objects.remove(path);
+            respond(exchange, object == null ? 404 : 200, object == null ? status("NotFound") : status("Success"));
+        } else {
+            respond(exchange, 405, status("MethodNotAllowed"));
+        }
+    }
+
+    /**
+     * Lists the objects directly under {@code path}, filtered by a single {@code labelSelector=key=value}.
+     */
+    private JsonObject list(String path, String query) {
+        String[] label = query != null && query.startsWith("labelSelector=")
+                ? query.substring("labelSelector=".length()).split("=", 2) : null;
+        JsonArray items = new JsonArray();
+        for (Map.Entry<String, JsonObject> object : objects.entrySet()) {
+            String name = object.getKey().substring(object.getKey().lastIndexOf('/') + 1);
+            if (object.getKey().equals(path + "/" + name) && hasLabel(object.getValue(), label)) {
+                items.add(object.getValue());
+            }
+        }
+        // without any query, an empty list cannot be told apart from a missing object
+        return items.isEmpty() && query == null ? null : new JsonObject().add("items", items);
+    }
+
+    private static boolean hasLabel(JsonObject object, String[] label) {
+        if (label == null) {
+            return true;
+        }
+        JsonValue labels = object.get("metadata").asObject().get("labels");
+        return labels != null && label[1].equals(labels.asObject().getString(label[0], null));
+    }
+
+    private static String resourceVersion(JsonObject object) {
+        return object.get("metadata").asObject().getString("resourceVersion", "");
+    }
+
+    private static JsonObject status(String reason) {
+        return new JsonObject().add("kind", "Status").add("reason", reason);
+    }
+
+    private static JsonObject read(HttpExchange exchange) {
+        InputStream body = exchange.getRequestBody();
+        Scanner scanner = new Scanner(body, "UTF-8").useDelimiter("\\Z");
+        return Json.parse(scanner.next()).asObject();
+    }
+
+    private static void respond(HttpExchange exchange, int status, JsonObject body)
+            throws IOException {
+        byte[] response = body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, response.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(response);
+        out.close();
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.github.tomakehurst.wiremock.client.MappingBuilder;
+import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.partitiongroup.PartitionGroupMetaData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.findAll;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.resetAllRequests;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HazelcastKubernetesDiscoveryStrategyTest {
+    static final int API_LATENCY_MS = 500;
+
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+    private static final String NAMESPACE = "sample-namespace";
+    private static final String SERVICE_NAME = "hazelcast";
+
+    @Rule
+    public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * The zone lookup (pod, then node) must not wait for the endpoints lookup: the pod is requested while the endpoints
+     * request is still in flight. See {@link DiscoveryBenchmark} for the startup time against a slow API.
+     */
+    @Test
+    public void startupPrefetchesEndpointsAndZoneInParallel() {
+        // given
+        stubKubernetesApi();
+
+        // when
+        HazelcastKubernetesDiscoveryStrategy strategy = new HazelcastKubernetesDiscoveryStrategy(LOGGER, properties());
+        strategy.start();
+        Map<String, String> metadata = strategy.discoverLocalMetadata();
+        List<DiscoveryNode> nodes = toList(strategy.discoverNodes());
+        strategy.destroy();
+
+        // then
+        assertEquals("us-central1-a", metadata.get(PartitionGroupMetaData.PARTITION_GROUP_ZONE));
+        assertEquals(1, nodes.size());
+        assertEquals("192.168.0.25", nodes.get(0).getPrivateAddress().getHost());
+        long endpointsRequestedMs = firstRequestMs(String.format("/api/v1/namespaces/%s/endpoints/%s", NAMESPACE,
+                SERVICE_NAME));
+        long podRequestedMs = firstRequestMs(String.format("/api/v1/namespaces/%s/pods/.*", NAMESPACE));
+        assertTrue("The pod was requested only after the endpoints response",
+                podRequestedMs < endpointsRequestedMs + API_LATENCY_MS);
+    }
+
+    /**
+     * The warm restart returns the stored members before any of its Kubernetes API requests is answered. See
+     * {@link DiscoveryBenchmark} for the discovery time.
+     */
+    @Test
+    public void warmRestartUsesStoredMembers()
+            throws Exception {
+        // given
+        stubKubernetesApi();
+        Map<String, Comparable> properties = properties();
+        properties.put(KubernetesProperties.DISCOVERY_SNAPSHOT_FILE.key(),
+                new File(folder.getRoot(), "members.json").getPath());
+        HazelcastKubernetesDiscoveryStrategy previousStrategy = new HazelcastKubernetesDiscoveryStrategy(LOGGER, properties);
+        previousStrategy.start();
+        toList(previousStrategy.discoverNodes());
+        previousStrategy.destroy();
+        resetAllRequests();
+
+        // when
+        HazelcastKubernetesDiscoveryStrategy strategy = new HazelcastKubernetesDiscoveryStrategy(LOGGER, properties);
+        strategy.start();
+        List<DiscoveryNode> nodes = toList(strategy.discoverNodes());
+        long discoveredMs = System.currentTimeMillis();
+        strategy.destroy();
+
+        // then
+        assertEquals(1, nodes.size());
+        assertEquals("192.168.0.25", nodes.get(0).getPrivateAddress().getHost());
+        for (LoggedRequest request : findAll(getRequestedFor(urlPathMatching("/api/.*")))) {
+            assertTrue(String.format("The discovery waited for %s", request.getUrl()),
+                    discoveredMs < request.getLoggedDate().getTime() + API_LATENCY_MS);
+        }
+    }
+
+    @Test
+    public void metricsRegisteredWhileStarted()
+            throws Exception {
+        // given
+        stubKubernetesApi();
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName pattern = new ObjectName("com.hazelcast.kubernetes:type=KubernetesDiscovery,*");
+        HazelcastKubernetesDiscoveryStrategy strategy = new HazelcastKubernetesDiscoveryStrategy(LOGGER, properties());
+
+        // when
+        strategy.start();
+        Set<ObjectName> started = mBeanServer.queryNames(pattern, null);
+        Object eventsEmitted = mBeanServer.getAttribute(started.iterator().next(), "MembershipEventsEmitted");
+        Object apiQueueLength = mBeanServer.getAttribute(started.iterator().next(), "ApiQueueLength");
+        strategy.destroy();
+        Set<ObjectName> destroyed = mBeanServer.queryNames(pattern, null);
+
+        // then
+        assertEquals(1, started.size());
+        assertEquals(0L, eventsEmitted);
+        assertEquals(0, apiQueueLength);
+        assertTrue(destroyed.isEmpty());
+    }
+
+    static void stubKubernetesApi() {
+        //language=JSON
+        stub(get(urlEqualTo(String.format("/api/v1/namespaces/%s/endpoints/%s", NAMESPACE, SERVICE_NAME))), "{\n"
+                + "  \"subsets\": [\n"
+                + "    {\n"
+                + "      \"addresses\": [\n"
+                + "        {\n"
+                + "          \"ip\": \"192.168.0.25\",\n"
+                + "          \"hazelcast-service-port\": 5701\n"
+                + "        }\n"
+                + "      ]\n"
+                + "    }\n"
+                + "  ]\n"
+                + "}");
+        stub(get(urlEqualTo(String.format("/api/v1/namespaces/%s/endpoints", NAMESPACE))), "{\"items\": []}");
+        stub(get(urlPathMatching(String.format("/api/v1/namespaces/%s/pods/.*", NAMESPACE))),
+                "{\"spec\": {\"nodeName\": \"node-name\"}}");
+        stub(get(urlEqualTo("/api/v1/nodes/node-name")),
+                "{\"metadata\": {\"labels\": {\"failure-domain.kubernetes.io/zone\": \"us-central1-a\"}}}");
+    }
+
+    private Map<String, Comparable> properties() {
+        return properties(wireMockRule.port());
+    }
+
+    static Map<String, Comparable> properties(int port) {
+        Map<String, Comparable> properties = new HashMap<String, Comparable>();
+        properties.put(KubernetesProperties.KUBERNETES_MASTER_URL.key(), String.format("http://localhost:%d", port));
+        properties.put(KubernetesProperties.KUBERNETES_API_TOKEN.key(), "sample-token");
+        properties.put(KubernetesProperties.KUBERNETES_CA_CERTIFICATE.key(), "sample-ca-certificate");
+        properties.put(KubernetesProperties.NAMESPACE.key(), NAMESPACE);
+        properties.put(KubernetesProperties.SERVICE_NAME.key(), SERVICE_NAME);
+        return properties;
+    }
+
+    private static void stub(MappingBuilder mappingBuilder, String response) {
+        stubFor(mappingBuilder.willReturn(aResponse().withStatus(200).withFixedDelay(API_LATENCY_MS).withBody(response)));
+    }
+
+    private static long firstRequestMs(String urlRegex) {
+        long result = Long.MAX_VALUE;
+        for (LoggedRequest request : findAll(getRequestedFor(urlPathMatching(urlRegex)))) {
+            result = Math.min(result, request.getLoggedDate().getTime());
+        }
+        assertTrue("No request for " + urlRegex, result < Long.MAX_VALUE);
+        return result;
+    }
+
+    static List<DiscoveryNode> toList(Iterable<DiscoveryNode> nodes) {
+        List<DiscoveryNode> result = new ArrayList<DiscoveryNode>();
+        for (DiscoveryNode node : nodes) {
+            result.add(node);
+        }
+        return result;
+    }
+}
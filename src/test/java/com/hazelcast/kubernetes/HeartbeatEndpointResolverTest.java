@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.internal.json.Json;
+import com.hazelcast.internal.json.JsonObject;
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HeartbeatEndpointResolverTest {
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+    private static final String NAMESPACE = "sample-namespace";
+    private static final String LEASE_PREFIX = "hazelcast-heartbeat";
+    private static final int PORT = 5701;
+    private static final int LEASE_DURATION_SECONDS = 15;
+    private static final long PERIOD_MS = 5000L;
+    private static final long EXPIRED_RENEW_TIME_MS = System.currentTimeMillis() - 2 * LEASE_DURATION_SECONDS * 1000L;
+    private static final int SHORT_LEASE_DURATION_SECONDS = 1;
+    // renew time written by a node whose clock is an hour behind
+    private static final long SKEWED_RENEW_TIME_MS = System.currentTimeMillis() - 3600 * 1000L;
+
+    private FakeKubernetesApiServer apiServer;
+    private KubernetesClient client;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        apiServer = new FakeKubernetesApiServer();
+        client = new KubernetesClient(NAMESPACE, Collections.singletonList(apiServer.getUrl()), "sample-token", null, 0,
+                RateLimiter.unlimited(), false, false, "hazelcast");
+        for (int i = 0; i < 3; i++) {
+            apiServer.put(podPath(i), Json.parse(String.format("{\"metadata\": {\"name\": \"%s\", \"uid\": \"%s\"}}",
+                    podName(i), podUid(i))).asObject());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        apiServer.close();
+    }
+
+    @Test
+    public void beatCreatesLeaseOwnedByPod() {
+        // given
+        HeartbeatEndpointResolver resolver = resolver(0);
+
+        // when
+        resolver.beat();
+
+        // then
+        Lease lease = client.lease(leaseName(0));
+        assertTrue(lease.isHeld(System.currentTimeMillis()));
+        assertEquals(ip(0), lease.getHolderAddress());
+        JsonObject metadata = apiServer.get(leasePath(0)).get("metadata").asObject();
+        assertEquals(LEASE_PREFIX, metadata.get("labels").asObject().getString(HeartbeatEndpointResolver.HEARTBEAT_LABEL, null));
+        assertEquals(podUid(0), metadata.get("ownerReferences").asArray().get(0).asObject().getString("uid", null));
+    }
+
+    @Test
+    public void beatRenewsLease()
+            throws Exception {
+        // given
+        HeartbeatEndpointResolver resolver = resolver(0);
+        resolver.beat();
+        String resourceVersion = client.lease(leaseName(0)).getResourceVersion();
+
+        // when
+        resolver.beat();
+
+        // then
+        assertFalse(resourceVersion.equals(client.lease(leaseName(0)).getResourceVersion()));
+        assertEquals(podUid(0), apiServer.get(leasePath(0)).get("metadata").asObject().get("ownerReferences").asArray()
+                .get(0).asObject().getString("uid", null));
+    }
+
+    @Test
+    public void resolveSkipsMembersWithExpiredLease()
+            throws Exception {
+        // given
+        HeartbeatEndpointResolver resolver = resolver(0);
+        resolver.beat();
+        putLease(1, LEASE_PREFIX, System.currentTimeMillis(), SHORT_LEASE_DURATION_SECONDS);
+        assertEquals(asList(ip(0), ip(1), ip(2)), hosts(resolver.resolve()));
+
+        // when
+        Thread.sleep(SHORT_LEASE_DURATION_SECONDS * 1000L + 200L);
+        List<DiscoveryNode> nodes = resolver.resolve();
+
+        // then
+        // the member 2 has no Lease yet, so it is kept
+        assertEquals(asList(ip(0), ip(2)), hosts(nodes));
+    }
+
+    @Test
+    public void resolveKeepsRenewedLeaseWithSkewedRenewTime()
+            throws Exception {
+        // given
+        HeartbeatEndpointResolver resolver = resolver(0);
+        putLease(1, LEASE_PREFIX, SKEWED_RENEW_TIME_MS, SHORT_LEASE_DURATION_SECONDS);
+        assertEquals(asList(ip(0), ip(1), ip(2)), hosts(resolver.resolve()));
+        Thread.sleep(SHORT_LEASE_DURATION_SECONDS * 1000L / 2);
+        putLease(1, LEASE_PREFIX, SKEWED_RENEW_TIME_MS + SHORT_LEASE_DURATION_SECONDS * 1000L / 2,
+                SHORT_LEASE_DURATION_SECONDS);
+        assertEquals(asList(ip(0), ip(1), ip(2)), hosts(resolver.resolve()));
+
+        // when
+        Thread.sleep(SHORT_LEASE_DURATION_SECONDS * 1000L / 2 + 100L);
+        List<DiscoveryNode> nodes = resolver.resolve();
+
+        // then
+        assertEquals(asList(ip(0), ip(1), ip(2)), hosts(nodes));
+    }
+
+    @Test
+    public void resolveKeepsAddressReusedByLiveMember() {
+        // given
+        putExpiredLease(1, LEASE_PREFIX);
+        apiServer.put(leasePath(5), Json.parse(Lease.create(leaseName(5), podName(5), ip(1), LEASE_DURATION_SECONDS,
+                System.currentTimeMillis()).withLabel(HeartbeatEndpointResolver.HEARTBEAT_LABEL, LEASE_PREFIX).toJson())
+                .asObject());
+
+        // when
+        List<DiscoveryNode> nodes = resolver(0).resolve();
+
+        // then
+        assertEquals(asList(ip(0), ip(1), ip(2)), hosts(nodes));
+    }
+
+    @Test
+    public void resolveIgnoresLeasesWithOtherPrefix() {
+        // given
+        putExpiredLease(1, "other-cluster");
+
+        // when
+        List<DiscoveryNode> nodes = resolver(0).resolve();
+
+        // then
+        assertEquals(asList(ip(0), ip(1), ip(2)), hosts(nodes));
+    }
+
+    @Test
+    public void destroyExpiresLease() {
+        // given
+        HeartbeatEndpointResolver resolver = resolver(1);
+        resolver.beat();
+        assertEquals(asList(ip(0), ip(1), ip(2)), hosts(resolver(0).resolve()));
+
+        // when
+        resolver.destroy();
+
+        // then
+        assertFalse(client.lease(leaseName(1)).isHeld(System.currentTimeMillis()));
+        assertEquals(asList(ip(0), ip(2)), hosts(resolver(0).resolve()));
+    }
+
+    @Test
+    public void beatTakesOverLeaseOfPreviousPod() {
+        // given
+        apiServer.put(leasePath(0), Json.parse(Lease.create(leaseName(0), podName(0), "192.168.0.100", LEASE_DURATION_SECONDS,
+                EXPIRED_RENEW_TIME_MS).withOwnerPod(podName(0), "previous-uid").toJson()).asObject());
+
+        // when
+        resolver(0).beat();
+
+        // then
+        Lease lease = client.lease(leaseName(0));
+        assertTrue(lease.isHeld(System.currentTimeMillis()));
+        assertEquals(ip(0), lease.getHolderAddress());
+        assertEquals(podUid(0), apiServer.get(leasePath(0)).get("metadata").asObject().get("ownerReferences").asArray()
+                .get(0).asObject().getString("uid", null));
+    }
+
+    @Test
+    public void startSendsHeartbeats()
+            throws Exception {
+        // given
+        HeartbeatEndpointResolver resolver = resolver(0);
+
+        // when
+        resolver.start();
+
+        // then
+        long deadlineMs = System.currentTimeMillis() + 5000L;
+        while (client.lease(leaseName(0)) == null) {
+            assertTrue("Heartbeat Lease not created", System.currentTimeMillis() < deadlineMs);
+            Thread.sleep(50L);
+        }
+        resolver.destroy();
+    }
+
+    private void putExpiredLease(int index, String leasePrefix) {
+        putLease(index, leasePrefix, EXPIRED_RENEW_TIME_MS, LEASE_DURATION_SECONDS);
+    }
+
+    private void putLease(int index, String leasePrefix, long renewTimeMs, int leaseDurationSeconds) {
+        apiServer.put(leasePath(index), Json.parse(Lease.create(leaseName(index), podName(index), ip(index),
+                leaseDurationSeconds, renewTimeMs).withLabel(HeartbeatEndpointResolver.HEARTBEAT_LABEL, leasePrefix)
+                .toJson()).asObject());
+    }
+
+    private HeartbeatEndpointResolver resolver(int index) {
+        return new HeartbeatEndpointResolver(LOGGER, new StaticEndpointResolver(), client, LEASE_PREFIX, podName(index),
+                ip(index), PERIOD_MS, LEASE_DURATION_SECONDS);
+    }
+
+    private static List<String> hosts(List<DiscoveryNode> nodes) {
+        List<String> hosts = new ArrayList<String>();
+        for (DiscoveryNode node : nodes) {
+            hosts.add(node.getPrivateAddress().getHost());
+        }
+        return hosts;
+    }
+
+    private static String podPath(int index) {
+        return String.format("/api/v1/namespaces/%s/pods/%s", NAMESPACE, podName(index));
+    }
+
+    private static String leasePath(int index) {
+        return String.format("/apis/coordination.k8s.io/v1/namespaces/%s/leases/%s", NAMESPACE, leaseName(index));
+    }
+
+    private static String leaseName(int index) {
+        return String.format("%s-%s", LEASE_PREFIX, podName(index));
+    }
+
+    private static String podName(int index) {
+        return String.format("hazelcast-%d", index);
+    }
+
+    private static String podUid(int index) {
+        return String.format("00000000-0000-0000-0000-00000000000%d", index);
+    }
+
+    private static String ip(int index) {
+        return String.format("192.168.0.%d", index + 1);
+    }
+
+    private static final class StaticEndpointResolver
+            extends EndpointResolver {
+        private StaticEndpointResolver() {
+            super(LOGGER);
+        }
+
+        @Override
+        List<DiscoveryNode> resolve() {
+            List<DiscoveryNode> nodes = new ArrayList<DiscoveryNode>();
+            for (int i = 0; i < 3; i++) {
+                try {
+                    nodes.add(new SimpleDiscoveryNode(new Address(ip(i), PORT)));
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            }
+            return nodes;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+public class HedgedEndpointResolverTest {
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+    private static final long SLOW_LOOKUP_MS = 2000L;
+    private static final long HEDGE_DELAY_MS = 100L;
+    private static final long LONG_HEDGE_DELAY_MS = 60000L;
+    private static final long TIMEOUT_MS = 120000L;
+
+    private EndpointResolver primary = mock(EndpointResolver.class);
+    private EndpointResolver secondary = mock(EndpointResolver.class);
+
+    private List<DiscoveryNode> primaryNodes;
+    private List<DiscoveryNode> secondaryNodes;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        primaryNodes = singletonList((DiscoveryNode) new SimpleDiscoveryNode(new Address("192.168.0.1", 5701)));
+        secondaryNodes = singletonList((DiscoveryNode) new SimpleDiscoveryNode(new Address("192.168.0.2", 5701)));
+    }
+
+    @Test
+    public void fastPrimaryWinsWithoutStartingSecondary() {
+        // given
+        given(primary.resolve()).willReturn(primaryNodes);
+        HedgedEndpointResolver resolver = new HedgedEndpointResolver(LOGGER, primary, secondary, LONG_HEDGE_DELAY_MS, TIMEOUT_MS);
+
+        // when
+        List<DiscoveryNode> result = resolver.resolve();
+
+        // then
+        assertEquals(primaryNodes, result);
+        verify(secondary, never()).resolve();
+    }
+
+    @Test
+    public void slowPrimaryIsHedgedWithSecondary() {
+        // given
+        given(primary.resolve()).willAnswer(slowly(primaryNodes));
+        given(secondary.resolve()).willReturn(secondaryNodes);
+        HedgedEndpointResolver resolver = new HedgedEndpointResolver(LOGGER, primary, secondary, HEDGE_DELAY_MS, TIMEOUT_MS);
+
+        // when
+        long startTimeMs = System.currentTimeMillis();
+        List<DiscoveryNode> result = resolver.resolve();
+        long lookupTimeMs = System.currentTimeMillis() - startTimeMs;
+
+        // then
+        assertEquals(secondaryNodes, result);
+        assertTrue(String.format("Lookup took %d ms", lookupTimeMs), lookupTimeMs < SLOW_LOOKUP_MS / 2);
+    }
+
+    @Test
+    public void raceBothWithoutDelay() {
+        // given
+        given(primary.resolve()).willAnswer(slowly(primaryNodes));
+        given(secondary.resolve()).willReturn(secondaryNodes);
+        HedgedEndpointResolver resolver = new HedgedEndpointResolver(LOGGER, primary, secondary, 0L, TIMEOUT_MS);
+
+        // when
+        List<DiscoveryNode> result = resolver.resolve();
+
+        // then
+        assertEquals(secondaryNodes, result);
+        verify(primary, timeout(SLOW_LOOKUP_MS)).resolve();
+    }
+
+    @Test
+    public void emptyPrimaryStartsSecondaryImmediately() {
+        // given
+        given(primary.resolve()).willReturn(Collections.<DiscoveryNode>emptyList());
+        given(secondary.resolve()).willReturn(secondaryNodes);
+        HedgedEndpointResolver resolver = new HedgedEndpointResolver(LOGGER, primary, secondary, LONG_HEDGE_DELAY_MS, TIMEOUT_MS);
+
+        // when
+        List<DiscoveryNode> result = resolver.resolve();
+
+        // then
+        assertEquals(secondaryNodes, result);
+    }
+
+    @Test
+    public void failedPrimaryStartsSecondaryImmediately() {
+        // given
+        given(primary.resolve()).willThrow(new IllegalStateException("expected"));
+        given(secondary.resolve()).willReturn(secondaryNodes);
+        HedgedEndpointResolver resolver = new HedgedEndpointResolver(LOGGER, primary, secondary, LONG_HEDGE_DELAY_MS, TIMEOUT_MS);
+
+        // when
+        List<DiscoveryNode> result = resolver.resolve();
+
+        // then
+        assertEquals(secondaryNodes, result);
+    }
+
+    @Test
+    public void bothEmpty() {
+        // given
+        given(primary.resolve()).willReturn(Collections.<DiscoveryNode>emptyList());
+        given(secondary.resolve()).willReturn(Collections.<DiscoveryNode>emptyList());
+        HedgedEndpointResolver resolver = new HedgedEndpointResolver(LOGGER, primary, secondary, HEDGE_DELAY_MS, TIMEOUT_MS);
+
+        // when
+        List<DiscoveryNode> result = resolver.resolve();
+
+        // then
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void bothSlowTimeOut() {
+        // given
+        given(primary.resolve()).willAnswer(slowly(primaryNodes));
+        given(secondary.resolve()).willAnswer(slowly(secondaryNodes));
+        HedgedEndpointResolver resolver = new HedgedEndpointResolver(LOGGER, primary, secondary, HEDGE_DELAY_MS,
+                SLOW_LOOKUP_MS / 4);
+
+        // when
+        long startTimeMs = System.currentTimeMillis();
+        List<DiscoveryNode> result = resolver.resolve();
+        long lookupTimeMs = System.currentTimeMillis() - startTimeMs;
+
+        // then
+        assertTrue(result.isEmpty());
+        assertTrue(String.format("Lookup took %d ms", lookupTimeMs), lookupTimeMs < SLOW_LOOKUP_MS / 2);
+    }
+
+    private static Answer<List<DiscoveryNode>> slowly(final List<DiscoveryNode> nodes) {
+        return new Answer<List<DiscoveryNode>>() {
+            @Override
+            public List<DiscoveryNode> answer(InvocationOnMock invocation)
+                    throws Throwable {
+                Thread.sleep(SLOW_LOOKUP_MS);
+                return nodes;
+            }
+        };
+    }
+}
@@ -17,6 +17,7 @@
 package com.hazelcast.kubernetes;
 
 import com.hazelcast.kubernetes.KubernetesClient.Endpoint;
+import com.hazelcast.kubernetes.KubernetesConfig.DrainingPods;
 import com.hazelcast.logging.ILogger;
 import com.hazelcast.logging.NoLogFactory;
 import com.hazelcast.spi.discovery.DiscoveryNode;
@@ -28,11 +29,14 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.mockito.BDDMockito.given;
 
 @RunWith(PowerMockRunner.class)
@@ -162,6 +166,63 @@ public class KubernetesApiEndpointResolverTest {
         assertEquals(0, nodes.size());
     }
 
+    @Test
+    public void resolveReusesNodesOfUnchangedEndpoints() {
+        // given
+        given(client.endpointsByName(SERVICE_NAME)).willReturn(createEndpoints(2), createEndpoints(2), createEndpoints(3));
+
+        KubernetesApiEndpointResolver sut = new KubernetesApiEndpointResolver(LOGGER, SERVICE_NAME, 0, null, null, null, null, null,
+                client);
+
+        // when
+        List<DiscoveryNode> nodes1 = sut.resolve();
+        List<DiscoveryNode> nodes2 = sut.resolve();
+        List<DiscoveryNode> nodes3 = sut.resolve();
+
+        // then
+        assertSame(nodes1.get(0), nodes2.get(0));
+        assertNotSame(nodes2.get(0), nodes3.get(0));
+        assertEquals(3, nodes3.get(0).getPrivateAddress().getPort());
+    }
+
+    @Test
+    public void resolveIncludesDrainingPods() {
+        assertEquals(asList("1.1.1.2", "1.1.1.3", "1.1.1.4"), resolveWithDrainingPods(DrainingPods.INCLUDE));
+    }
+
+    @Test
+    public void resolveDeprioritizesDrainingPods() {
+        assertEquals(asList("1.1.1.2", "1.1.1.4", "1.1.1.3"), resolveWithDrainingPods(DrainingPods.DEPRIORITIZE));
+    }
+
+    @Test
+    public void resolveExcludesDrainingPods() {
+        assertEquals(asList("1.1.1.2", "1.1.1.4"), resolveWithDrainingPods(DrainingPods.EXCLUDE));
+    }
+
+    private List<String> resolveWithDrainingPods(DrainingPods drainingPods) {
+        // given
+        given(client.endpoints()).willReturn(asList(createEndpoint("1.1.1.2", false), createEndpoint("1.1.1.3", true),
+                createEndpoint("1.1.1.4", false)));
+        KubernetesApiEndpointResolver sut = new KubernetesApiEndpointResolver(LOGGER, null, 0, null, null, null, null, null,
+                drainingPods, client);
+
+        // when
+        List<DiscoveryNode> nodes = sut.resolve();
+
+        // then
+        List<String> ips = new ArrayList<String>();
+        for (DiscoveryNode node : nodes) {
+            ips.add(node.getPrivateAddress().getHost());
+        }
+        return ips;
+    }
+
+    private static Endpoint createEndpoint(String ip, boolean isDraining) {
+        return new Endpoint(new KubernetesClient.EndpointAddress(ip, 5701), null, true, isDraining,
+                Collections.<String, String>emptyMap());
+    }
+
     private static List<Endpoint> createEndpoints(int customPort) {
         return asList(createEntrypointAddress(customPort, true));
     }
@@ -16,14 +16,18 @@
 
 package com.hazelcast.kubernetes;
 
+import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.MappingBuilder;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import com.hazelcast.kubernetes.KubernetesClient.Endpoint;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -31,12 +35,15 @@ import java.util.Map;
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
@@ -50,11 +57,13 @@ public class KubernetesClientTest {
     private static final String CA_CERTIFICATE = "sample-ca-certificate";
     private static final String NAMESPACE = "sample-namespace";
     private static final int RETRIES = 3;
+    private static final int API_LATENCY_MS = 200;
 
     @Rule
     public WireMockRule wireMockRule = new WireMockRule(wireMockConfig().dynamicPort());
 
     private KubernetesClient kubernetesClient;
+    private WireMockServer otherApiServer;
 
     @Before
     public void setUp() {
@@ -63,6 +72,13 @@ public class KubernetesClientTest {
                                            .willReturn(aResponse().withStatus(401).withBody("\"reason\":\"Forbidden\"")));
     }
 
+    @After
+    public void tearDown() {
+        if (otherApiServer != null) {
+            otherApiServer.stop();
+        }
+    }
+
     @Test
     public void endpointsByNamespace() {
         // given
@@ -230,6 +246,161 @@ public class KubernetesClientTest {
         assertThat(format(result), containsInAnyOrder(ready("192.168.0.25", 5701), ready("172.17.0.5", 5702)));
     }
 
+    @Test
+    public void endpointsByNamespaceWithSidecarContainers() {
+        // given
+        //language=JSON
+        String podsListResponse = "{\n"
+                + "  \"items\": [\n"
+                + "    {\n"
+                + "      \"metadata\": {\n"
+                + "        \"annotations\": {\n"
+                + "          \"hazelcast.com/port\": \"5703\"\n"
+                + "        }\n"
+                + "      },\n"
+                + "      \"spec\": {\n"
+                + "        \"containers\": [\n"
+                + "          {\n"
+                + "            \"ports\": [\n"
+                + "              {\n"
+                + "                \"containerPort\": 5701\n"
+                + "              }\n"
+                + "            ]\n"
+                + "          }\n"
+                + "        ]\n"
+                + "      },\n"
+                + "      \"status\": {\n"
+                + "        \"podIP\": \"192.168.0.25\"\n"
+                + "      }\n"
+                + "    },\n"
+                + "    {\n"
+                + "      \"spec\": {\n"
+                + "        \"containers\": [\n"
+                + "          {\n"
+                + "            \"name\": \"istio-proxy\",\n"
+                + "            \"ports\": [\n"
+                + "              {\n"
+                + "                \"containerPort\": 15090\n"
+                + "              }\n"
+                + "            ]\n"
+                + "          },\n"
+                + "          {\n"
+                + "            \"name\": \"member\",\n"
+                + "            \"ports\": [\n"
+                + "              {\n"
+                + "                \"name\": \"metrics\",\n"
+                + "                \"containerPort\": 8080\n"
+                + "              },\n"
+                + "              {\n"
+                + "                \"name\": \"hazelcast\",\n"
+                + "                \"containerPort\": 5702\n"
+                + "              }\n"
+                + "            ]\n"
+                + "          }\n"
+                + "        ]\n"
+                + "      },\n"
+                + "      \"status\": {\n"
+                + "        \"podIP\": \"172.17.0.5\"\n"
+                + "      }\n"
+                + "    },\n"
+                + "    {\n"
+                + "      \"spec\": {\n"
+                + "        \"containers\": [\n"
+                + "          {\n"
+                + "            \"name\": \"log-shipper\",\n"
+                + "            \"ports\": [\n"
+                + "              {\n"
+                + "                \"containerPort\": 24224\n"
+                + "              }\n"
+                + "            ]\n"
+                + "          },\n"
+                + "          {\n"
+                + "            \"name\": \"hazelcast\",\n"
+                + "            \"ports\": [\n"
+                + "              {\n"
+                + "                \"containerPort\": 5704\n"
+                + "              }\n"
+                + "            ]\n"
+                + "          }\n"
+                + "        ]\n"
+                + "      },\n"
+                + "      \"status\": {\n"
+                + "        \"podIP\": \"172.17.0.6\"\n"
+                + "      }\n"
+                + "    },\n"
+                + "    {\n"
+                + "      \"spec\": {\n"
+                + "        \"containers\": [\n"
+                + "          {\n"
+                + "            \"name\": \"log-shipper\",\n"
+                + "            \"ports\": [\n"
+                + "              {\n"
+                + "                \"containerPort\": 24224\n"
+                + "              }\n"
+                + "            ]\n"
+                + "          },\n"
+                + "          {\n"
+                + "            \"name\": \"member\",\n"
+                + "            \"ports\": [\n"
+                + "              {\n"
+                + "                \"containerPort\": 5701\n"
+                + "              }\n"
+                + "            ]\n"
+                + "          }\n"
+                + "        ]\n"
+                + "      },\n"
+                + "      \"status\": {\n"
+                + "        \"podIP\": \"172.17.0.7\"\n"
+                + "      }\n"
+                + "    }\n"
+                + "  ]\n"
+                + "}";
+        stub(String.format("/api/v1/namespaces/%s/pods", NAMESPACE), podsListResponse);
+
+        // when
+        List<Endpoint> result = kubernetesClient.endpoints();
+
+        // then
+        assertThat(format(result), containsInAnyOrder(ready("192.168.0.25", 5703), ready("172.17.0.5", 5702),
+                ready("172.17.0.6", 5704), ready("172.17.0.7", null)));
+    }
+
+    @Test
+    public void endpointsByNamespaceAndServiceNameWithNamedPort() {
+        // given
+        //language=JSON
+        String endpointResponse = "{\n"
+                + "  \"kind\": \"Endpoints\",\n"
+                + "  \"subsets\": [\n"
+                + "    {\n"
+                + "      \"addresses\": [\n"
+                + "        {\n"
+                + "          \"ip\": \"192.168.0.25\"\n"
+                + "        }\n"
+                + "      ],\n"
+                + "      \"ports\": [\n"
+                + "        {\n"
+                + "          \"name\": \"metrics\",\n"
+                + "          \"port\": 8080\n"
+                + "        },\n"
+                + "        {\n"
+                + "          \"name\": \"hazelcast\",\n"
+                + "          \"port\": 5702\n"
+                + "        }\n"
+                + "      ]\n"
+                + "    }\n"
+                + "  ]\n"
+                + "}";
+        String serviceName = "service-name";
+        stub(String.format("/api/v1/namespaces/%s/endpoints/%s", NAMESPACE, serviceName), endpointResponse);
+
+        // when
+        List<Endpoint> result = kubernetesClient.endpointsByName(serviceName);
+
+        // then
+        assertThat(format(result), containsInAnyOrder(ready("192.168.0.25", 5702)));
+    }
+
     @Test
     public void endpointsByNamespaceAndPodLabel() {
         // given
@@ -683,6 +854,93 @@ public class KubernetesClientTest {
         assertEquals(emptyList(), result);
     }
 
+    @Test
+    public void statefulSet() {
+        // given
+        //language=JSON
+        String statefulSetResponse = "{\n"
+                + "  \"kind\": \"StatefulSet\",\n"
+                + "  \"spec\": {\n"
+                + "    \"replicas\": 3,\n"
+                + "    \"serviceName\": \"hazelcast-headless\"\n"
+                + "  }\n"
+                + "}";
+        stub(String.format("/apis/apps/v1/namespaces/%s/statefulsets/hazelcast", NAMESPACE), statefulSetResponse);
+
+        // when
+        KubernetesClient.StatefulSet result = kubernetesClient.statefulSet("hazelcast");
+
+        // then
+        assertEquals(3, result.getReplicas());
+        assertEquals("hazelcast-headless", result.getServiceName());
+    }
+
+    @Test
+    public void replicas() {
+        // given
+        stub(String.format("/apis/apps/v1/namespaces/%s/deployments/hazelcast", NAMESPACE), "{\"spec\": {\"replicas\": 50}}");
+
+        // when
+        int result = kubernetesClient.replicas("deployment", "hazelcast");
+
+        // then
+        assertEquals(50, result);
+    }
+
+    @Test
+    public void failoverToNextApiServerWhenUnreachable()
+            throws IOException {
+        // given
+        String podName = "pod-name";
+        stubZone(podName, "us-central1-a");
+        KubernetesClient client = newKubernetesClient(asList(unreachableUrl(), kubernetesMasterUrl()), false);
+
+        // when
+        long startTimeMs = System.currentTimeMillis();
+        String zone = client.zone(podName);
+        long durationMs = System.currentTimeMillis() - startTimeMs;
+
+        // then
+        assertEquals("us-central1-a", zone);
+        assertTrue(String.format("Failover took %d ms", durationMs), durationMs < RetryUtils.INITIAL_BACKOFF_MS);
+    }
+
+    @Test
+    public void failoverToNextApiServerOnServerError() {
+        // given
+        String podName = "pod-name";
+        startOtherApiServer().stubFor(get(urlMatching("/api/.*")).willReturn(aResponse().withStatus(503)));
+        stubZone(podName, "us-central1-a");
+        KubernetesClient client = newKubernetesClient(asList(otherApiServerUrl(), kubernetesMasterUrl()), false);
+
+        // when
+        String zone = client.zone(podName);
+
+        // then
+        assertEquals("us-central1-a", zone);
+        otherApiServer.verify(1, getRequestedFor(urlMatching("/api/.*")));
+    }
+
+    @Test
+    public void slowApiServerAvoided() {
+        // given
+        String podName = "pod-name";
+        startOtherApiServer().stubFor(get(urlMatching("/api/.*"))
+                .willReturn(aResponse().withStatus(200).withFixedDelay(API_LATENCY_MS)
+                        .withBody("{\"spec\": {\"nodeName\": \"node-name\"}}")));
+        stubZone(podName, "us-central1-a");
+        KubernetesClient client = newKubernetesClient(asList(otherApiServerUrl(), kubernetesMasterUrl()), false);
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            client.zone(podName);
+        }
+
+        // then
+        otherApiServer.verify(1, getRequestedFor(urlMatching("/api/.*")));
+        wireMockRule.verify(9, getRequestedFor(urlMatching("/api/.*")));
+    }
+
     @Test(expected = RestClientException.class)
     public void unknownException() {
         // given
@@ -693,9 +951,155 @@ public class KubernetesClientTest {
         kubernetesClient.endpoints();
     }
 
+    @Test
+    public void endpointsByNamespaceWithDrainingPods() {
+        // given
+        kubernetesClient = new KubernetesClient(NAMESPACE, singletonList(kubernetesMasterUrl()), TOKEN, CA_CERTIFICATE, RETRIES,
+                RateLimiter.unlimited(), false, true, "hazelcast");
+        //language=JSON
+        String podsListResponse = "{\n"
+                + "  \"items\": [\n"
+                + "    {\n"
+                + "      \"metadata\": {\"name\": \"hazelcast-0\"},\n"
+                + "      \"spec\": {\"nodeName\": \"node-1\", \"containers\": []},\n"
+                + "      \"status\": {\"podIP\": \"192.168.0.25\"}\n"
+                + "    },\n"
+                + "    {\n"
+                + "      \"metadata\": {\"name\": \"hazelcast-1\", \"deletionTimestamp\": \"2020-06-01T10:00:00Z\"},\n"
+                + "      \"spec\": {\"nodeName\": \"node-1\", \"containers\": []},\n"
+                + "      \"status\": {\"podIP\": \"192.168.0.26\"}\n"
+                + "    },\n"
+                + "    {\n"
+                + "      \"metadata\": {\"name\": \"hazelcast-2\"},\n"
+                + "      \"spec\": {\"nodeName\": \"node-2\", \"containers\": []},\n"
+                + "      \"status\": {\"podIP\": \"192.168.0.27\"}\n"
+                + "    }\n"
+                + "  ]\n"
+                + "}";
+        stub(String.format("/api/v1/namespaces/%s/pods", NAMESPACE), podsListResponse);
+        stub("/api/v1/nodes", singletonMap("fieldSelector", "spec.unschedulable=true"),
+                "{\"items\": [{\"metadata\": {\"name\": \"node-2\"}, \"spec\": {\"unschedulable\": true}}]}");
+
+        // when
+        List<Endpoint> result = kubernetesClient.endpoints();
+
+        // then
+        assertEquals(3, result.size());
+        assertThat(drainingIps(result), containsInAnyOrder("192.168.0.26", "192.168.0.27"));
+    }
+
+    @Test
+    public void endpointsByNamespaceAndServiceNameWithTerminatingEndpoints() {
+        // given
+        kubernetesClient = new KubernetesClient(NAMESPACE, singletonList(kubernetesMasterUrl()), TOKEN, CA_CERTIFICATE, RETRIES,
+                RateLimiter.unlimited(), false, true, "hazelcast");
+        String serviceName = "service-name";
+        //language=JSON
+        String endpointResponse = "{\n"
+                + "  \"subsets\": [\n"
+                + "    {\n"
+                + "      \"addresses\": [{\"ip\": \"192.168.0.25\", \"nodeName\": \"node-1\"}],\n"
+                + "      \"notReadyAddresses\": [{\"ip\": \"192.168.0.26\", \"nodeName\": \"node-1\"}],\n"
+                + "      \"ports\": [{\"port\": 5701}]\n"
+                + "    }\n"
+                + "  ]\n"
+                + "}";
+        //language=JSON
+        String endpointSlicesResponse = "{\n"
+                + "  \"items\": [\n"
+                + "    {\n"
+                + "      \"endpoints\": [\n"
+                + "        {\"addresses\": [\"192.168.0.25\"], \"conditions\": {\"ready\": true, \"terminating\": false}},\n"
+                + "        {\"addresses\": [\"192.168.0.26\"], \"conditions\": {\"ready\": false, \"terminating\": true}}\n"
+                + "      ]\n"
+                + "    }\n"
+                + "  ]\n"
+                + "}";
+        stub(String.format("/api/v1/namespaces/%s/endpoints/%s", NAMESPACE, serviceName), endpointResponse);
+        stub(String.format("/apis/discovery.k8s.io/v1/namespaces/%s/endpointslices", NAMESPACE),
+                singletonMap("labelSelector", String.format("kubernetes.io/service-name=%s", serviceName)), endpointSlicesResponse);
+        stub("/api/v1/nodes", singletonMap("fieldSelector", "spec.unschedulable=true"), "{\"items\": []}");
+
+        // when
+        List<Endpoint> result = kubernetesClient.endpointsByName(serviceName);
+
+        // then
+        assertThat(format(result), containsInAnyOrder(ready("192.168.0.25", 5701), notReady("192.168.0.26", 5701)));
+        assertEquals(singletonList("192.168.0.26"), drainingIps(result));
+    }
+
+    @Test
+    public void endpointsWithoutPermissionToDetectDrainingPods() {
+        // given
+        kubernetesClient = new KubernetesClient(NAMESPACE, singletonList(kubernetesMasterUrl()), TOKEN, CA_CERTIFICATE, RETRIES,
+                RateLimiter.unlimited(), false, true, "hazelcast");
+        String serviceName = "service-name";
+        stub(String.format("/api/v1/namespaces/%s/endpoints/%s", NAMESPACE, serviceName),
+                "{\"subsets\": [{\"addresses\": [{\"ip\": \"192.168.0.25\", \"nodeName\": \"node-1\"}]}]}");
+        stub(String.format("/apis/discovery.k8s.io/v1/namespaces/%s/endpointslices", NAMESPACE),
+                singletonMap("labelSelector", String.format("kubernetes.io/service-name=%s", serviceName)), 403,
+                "{\"reason\":\"Forbidden\"}");
+
+        // when
+        List<Endpoint> result = kubernetesClient.endpointsByName(serviceName);
+
+        // then
+        assertThat(format(result), containsInAnyOrder(ready("192.168.0.25", null)));
+        assertTrue(drainingIps(result).isEmpty());
+    }
+
+    @Test
+    public void endpointSlicesNotRequestedAgainWhenApiIsMissing() {
+        // given
+        kubernetesClient = new KubernetesClient(NAMESPACE, singletonList(kubernetesMasterUrl()), TOKEN, CA_CERTIFICATE, RETRIES,
+                RateLimiter.unlimited(), false, true, "hazelcast");
+        String serviceName = "service-name";
+        stub(String.format("/api/v1/namespaces/%s/endpoints/%s", NAMESPACE, serviceName),
+                "{\"subsets\": [{\"addresses\": [{\"ip\": \"192.168.0.25\", \"nodeName\": \"node-1\"}]}]}");
+        stub(String.format("/apis/discovery.k8s.io/v1/namespaces/%s/endpointslices", NAMESPACE),
+                singletonMap("labelSelector", String.format("kubernetes.io/service-name=%s", serviceName)), 404,
+                "{\"reason\":\"NotFound\"}");
+        stub("/api/v1/nodes", singletonMap("fieldSelector", "spec.unschedulable=true"), 500, "{\"reason\":\"InternalError\"}");
+
+        // when
+        kubernetesClient.endpointsByName(serviceName);
+        List<Endpoint> result = kubernetesClient.endpointsByName(serviceName);
+
+        // then
+        assertThat(format(result), containsInAnyOrder(ready("192.168.0.25", null)));
+        wireMockRule.verify(1, getRequestedFor(urlPathMatching("/apis/discovery.k8s.io/v1/.*")));
+        wireMockRule.verify(2, getRequestedFor(urlPathMatching("/api/v1/nodes")));
+    }
+
     private KubernetesClient newKubernetesClient(boolean useNodeNameAsExternalAddress) {
-        String kubernetesMasterUrl = String.format("http://%s:%d", KUBERNETES_MASTER_IP, wireMockRule.port());
-        return new KubernetesClient(NAMESPACE, kubernetesMasterUrl, TOKEN, CA_CERTIFICATE, RETRIES, useNodeNameAsExternalAddress);
+        return newKubernetesClient(singletonList(kubernetesMasterUrl()), useNodeNameAsExternalAddress);
+    }
+
+    private static KubernetesClient newKubernetesClient(List<String> kubernetesMasterUrls, boolean useNodeNameAsExternalAddress) {
+        return new KubernetesClient(NAMESPACE, kubernetesMasterUrls, TOKEN, CA_CERTIFICATE, RETRIES, RateLimiter.unlimited(),
+                useNodeNameAsExternalAddress, false, "hazelcast");
+    }
+
+    private String kubernetesMasterUrl() {
+        return String.format("http://%s:%d", KUBERNETES_MASTER_IP, wireMockRule.port());
+    }
+
+    private WireMockServer startOtherApiServer() {
+        otherApiServer = new WireMockServer(wireMockConfig().dynamicPort());
+        otherApiServer.start();
+        return otherApiServer;
+    }
+
+    private String otherApiServerUrl() {
+        return String.format("http://%s:%d", KUBERNETES_MASTER_IP, otherApiServer.port());
+    }
+
+    private static String unreachableUrl()
+            throws IOException {
+        ServerSocket serverSocket = new ServerSocket(0);
+        int port = serverSocket.getLocalPort();
+        serverSocket.close();
+        return String.format("http://%s:%d", KUBERNETES_MASTER_IP, port);
     }
 
     private static List<String> format(List<Endpoint> addresses) {
@@ -709,6 +1113,16 @@ public class KubernetesClientTest {
         return result;
     }
 
+    private static List<String> drainingIps(List<Endpoint> addresses) {
+        List<String> result = new ArrayList<String>();
+        for (Endpoint address : addresses) {
+            if (address.isDraining()) {
+                result.add(address.getPrivateAddress().getIp());
+            }
+        }
+        return result;
+    }
+
     private static List<String> formatPublic(List<Endpoint> addresses) {
         List<String> result = new ArrayList<String>();
         for (Endpoint address : addresses) {
@@ -720,6 +1134,12 @@ public class KubernetesClientTest {
         return result;
     }
 
+    private static void stubZone(String podName, String zone) {
+        stub(String.format("/api/v1/namespaces/%s/pods/%s", NAMESPACE, podName), "{\"spec\": {\"nodeName\": \"node-name\"}}");
+        stub("/api/v1/nodes/node-name",
+                String.format("{\"metadata\": {\"labels\": {\"failure-domain.kubernetes.io/zone\": \"%s\"}}}", zone));
+    }
+
     private static void stub(String url, String response) {
         stub(url, 200, response);
     }
@@ -731,13 +1151,17 @@ public class KubernetesClientTest {
     }
 
     private static void stub(String url, Map<String, String> queryParams, String response) {
+        stub(url, queryParams, 200, response);
+    }
+
+    private static void stub(String url, Map<String, String> queryParams, int status, String response) {
         MappingBuilder mappingBuilder = get(urlPathMatching(url));
         for (String key : queryParams.keySet()) {
             mappingBuilder = mappingBuilder.withQueryParam(key, equalTo(queryParams.get(key)));
         }
         stubFor(mappingBuilder
                 .withHeader("Authorization", equalTo(String.format("Bearer %s", TOKEN)))
-                .willReturn(aResponse().withStatus(200).withBody(response)));
+                .willReturn(aResponse().withStatus(status).withBody(response)));
     }
 
     private static String ready(String ip, Integer port) {
@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import org.junit.runner.RunWith;
@@ -35,16 +36,31 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import static com.hazelcast.kubernetes.KubernetesConfig.DiscoveryMode;
+import static com.hazelcast.kubernetes.KubernetesConfig.DrainingPods;
+import static com.hazelcast.kubernetes.KubernetesProperties.DISCOVERY_MAX_STALENESS;
+import static com.hazelcast.kubernetes.KubernetesProperties.DISCOVERY_REFRESH_INTERVAL;
+import static com.hazelcast.kubernetes.KubernetesProperties.DRAINING_PODS;
+import static com.hazelcast.kubernetes.KubernetesProperties.EXPECTED_MEMBERS_WORKLOAD;
+import static com.hazelcast.kubernetes.KubernetesProperties.HEARTBEAT_PERIOD;
+import static com.hazelcast.kubernetes.KubernetesProperties.HEARTBEAT_TIMEOUT;
+import static com.hazelcast.kubernetes.KubernetesProperties.HYBRID_DISCOVERY;
+import static com.hazelcast.kubernetes.KubernetesProperties.KUBERNETES_API_QPS;
 import static com.hazelcast.kubernetes.KubernetesProperties.KUBERNETES_API_RETIRES;
 import static com.hazelcast.kubernetes.KubernetesProperties.KUBERNETES_API_TOKEN;
 import static com.hazelcast.kubernetes.KubernetesProperties.KUBERNETES_CA_CERTIFICATE;
+import static com.hazelcast.kubernetes.KubernetesProperties.MEMBER_REGISTRY;
 import static com.hazelcast.kubernetes.KubernetesProperties.NAMESPACE;
+import static com.hazelcast.kubernetes.KubernetesProperties.SEED_LEASE_DURATION;
+import static com.hazelcast.kubernetes.KubernetesProperties.SEED_LEASE_NAME;
 import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_DNS;
+import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_DNS_LOOKUP;
 import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_DNS_TIMEOUT;
 import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_LABEL_NAME;
 import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_LABEL_VALUE;
 import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_NAME;
 import static com.hazelcast.kubernetes.KubernetesProperties.SERVICE_PORT;
+import static com.hazelcast.kubernetes.KubernetesProperties.STATEFULSET_NAME;
+import static com.hazelcast.kubernetes.KubernetesProperties.STATEFULSET_REPLICAS;
 import static org.junit.Assert.assertEquals;
 import static org.powermock.api.mockito.PowerMockito.doReturn;
 
@@ -232,6 +248,74 @@ public class KubernetesConfigTest {
         // throws exception
     }
 
+    @Test(expected = InvalidConfigurationException.class)
+    public void invalidKubernetesApiQps() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(KUBERNETES_API_QPS.key(), -1);
+
+        // when
+        new KubernetesConfig(properties);
+
+        // then
+        // throws exception
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void invalidSeedLeaseDuration() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(SEED_LEASE_NAME.key(), "hazelcast-seed");
+        properties.put(SEED_LEASE_DURATION.key(), 0);
+
+        // when
+        new KubernetesConfig(properties);
+
+        // then
+        // throws exception
+    }
+
+    @Test
+    public void discoveryRefresh() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(DISCOVERY_REFRESH_INTERVAL.key(), 10);
+
+        // when
+        KubernetesConfig config = new KubernetesConfig(properties);
+
+        // then
+        assertEquals(10, config.getDiscoveryRefreshInterval());
+        assertEquals(20, config.getDiscoveryMaxStaleness());
+    }
+
+    @Test
+    public void discoveryRefreshCustomMaxStaleness() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(DISCOVERY_REFRESH_INTERVAL.key(), 10);
+        properties.put(DISCOVERY_MAX_STALENESS.key(), 60);
+
+        // when
+        KubernetesConfig config = new KubernetesConfig(properties);
+
+        // then
+        assertEquals(60, config.getDiscoveryMaxStaleness());
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void invalidDiscoveryRefreshInterval() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(DISCOVERY_REFRESH_INTERVAL.key(), -1);
+
+        // when
+        new KubernetesConfig(properties);
+
+        // then
+        // throws exception
+    }
+
     @Test(expected = InvalidConfigurationException.class)
     public void invalidServicePort() {
         // given
@@ -245,6 +329,204 @@ public class KubernetesConfigTest {
         // throws exception
     }
 
+    @Test
+    public void statefulSetMode() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(STATEFULSET_NAME.key(), "hazelcast");
+        properties.put(SERVICE_NAME.key(), "hazelcast-headless");
+        properties.put(STATEFULSET_REPLICAS.key(), 3);
+
+        // when
+        KubernetesConfig config = new KubernetesConfig(properties);
+
+        // then
+        assertEquals(DiscoveryMode.STATEFULSET, config.getMode());
+        assertEquals("hazelcast", config.getStatefulSetName());
+        assertEquals(3, config.getStatefulSetReplicas());
+        assertEquals("cluster.local", config.getClusterDomain());
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void statefulSetModeWithServiceDns() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(STATEFULSET_NAME.key(), "hazelcast");
+        properties.put(SERVICE_DNS.key(), "hazelcast.default.svc.cluster.local");
+
+        // when
+        new KubernetesConfig(properties);
+
+        // then
+        // throws exception
+    }
+
+    @Test
+    public void memberRegistryMode() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(MEMBER_REGISTRY.key(), "hazelcast-members");
+
+        // when
+        KubernetesConfig config = new KubernetesConfig(properties);
+
+        // then
+        assertEquals(DiscoveryMode.MEMBER_REGISTRY, config.getMode());
+        assertEquals("hazelcast-members", config.getMemberRegistry());
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void memberRegistryModeWithServiceName() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(MEMBER_REGISTRY.key(), "hazelcast-members");
+        properties.put(SERVICE_NAME.key(), "hazelcast");
+
+        // when
+        new KubernetesConfig(properties);
+
+        // then
+        // throws exception
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void heartbeatTimeoutNotGreaterThanPeriod() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(HEARTBEAT_PERIOD.key(), 10);
+        properties.put(HEARTBEAT_TIMEOUT.key(), 10);
+
+        // when
+        new KubernetesConfig(properties);
+
+        // then
+        // throws exception
+    }
+
+    @Test
+    public void drainingPods() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(DRAINING_PODS.key(), "exclude");
+
+        // when
+        KubernetesConfig config = new KubernetesConfig(properties);
+
+        // then
+        assertEquals(DrainingPods.EXCLUDE, config.getDrainingPods());
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void invalidDrainingPods() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(DRAINING_PODS.key(), "skip");
+
+        // when
+        new KubernetesConfig(properties);
+
+        // then
+        // throws exception
+    }
+
+    @Test
+    public void expectedMembersWorkload() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(EXPECTED_MEMBERS_WORKLOAD.key(), "statefulset/hazelcast");
+
+        // when
+        KubernetesConfig config = new KubernetesConfig(properties);
+
+        // then
+        assertEquals("statefulset/hazelcast", config.getExpectedMembersWorkload());
+        assertEquals(30, config.getExpectedMembersTimeout());
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void invalidExpectedMembersWorkload() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(EXPECTED_MEMBERS_WORKLOAD.key(), "replicaset/hazelcast");
+
+        // when
+        new KubernetesConfig(properties);
+
+        // then
+        // throws exception
+    }
+
+    @Test
+    public void hybridMode() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(SERVICE_DNS.key(), "hazelcast.default.svc.cluster.local");
+        properties.put(SERVICE_NAME.key(), "hazelcast");
+        properties.put(HYBRID_DISCOVERY.key(), true);
+
+        // when
+        KubernetesConfig config = new KubernetesConfig(properties);
+
+        // then
+        assertEquals(DiscoveryMode.HYBRID, config.getMode());
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void hybridModeWithoutServiceDns() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(HYBRID_DISCOVERY.key(), true);
+
+        // when
+        new KubernetesConfig(properties);
+
+        // then
+        // throws exception
+    }
+
+    @Test
+    public void multipleServiceDnsNames() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(SERVICE_DNS.key(), "hazelcast-a.default.svc.cluster.local, hazelcast-b.default.svc.cluster.local,");
+
+        // when
+        KubernetesConfig config = new KubernetesConfig(properties);
+
+        // then
+        assertEquals(DiscoveryMode.DNS_LOOKUP, config.getMode());
+        assertEquals(Arrays.asList("hazelcast-a.default.svc.cluster.local", "hazelcast-b.default.svc.cluster.local"),
+                config.getServiceDnsNames());
+    }
+
+    @Test
+    public void serviceDnsLookup() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(SERVICE_DNS.key(), "hazelcast.default.svc.cluster.local");
+        properties.put(SERVICE_DNS_LOOKUP.key(), "dual_stack");
+
+        // when
+        KubernetesConfig config = new KubernetesConfig(properties);
+
+        // then
+        assertEquals(KubernetesConfig.DnsLookup.DUAL_STACK, config.getServiceDnsLookup());
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void invalidServiceDnsLookup() {
+        // given
+        Map<String, Comparable> properties = createProperties();
+        properties.put(SERVICE_DNS.key(), "hazelcast.default.svc.cluster.local");
+        properties.put(SERVICE_DNS_LOOKUP.key(), "MX");
+
+        // when
+        new KubernetesConfig(properties);
+
+        // then
+        // throws exception
+    }
+
     private static Map<String, Comparable> createProperties() {
         Map<String, Comparable> properties = new HashMap<String, Comparable>();
         // Predefined test properties
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.internal.json.Json;
+import com.hazelcast.internal.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LeaseObserverTest {
+    private static final String LEASE_NAME = "hazelcast-seed";
+    private static final int LEASE_DURATION_SECONDS = 1;
+    // renew time written by a node whose clock is an hour behind
+    private static final long SKEWED_RENEW_TIME_MS = System.currentTimeMillis() - 3600 * 1000L;
+
+    private final LeaseObserver leaseObserver = new LeaseObserver();
+
+    @Test
+    public void leaseSeenFirstTimeIsHeld() {
+        // given
+        Lease lease = lease("1", SKEWED_RENEW_TIME_MS);
+
+        // when
+        boolean held = leaseObserver.isHeld(lease);
+
+        // then
+        assertTrue(held);
+    }
+
+    @Test
+    public void unchangedLeaseExpiresAfterItsDuration()
+            throws Exception {
+        // given
+        Lease lease = lease("1", SKEWED_RENEW_TIME_MS);
+        leaseObserver.isHeld(lease);
+
+        // when
+        Thread.sleep(LEASE_DURATION_SECONDS * 1000L + 100L);
+
+        // then
+        assertFalse(leaseObserver.isHeld(lease));
+        assertTrue(leaseObserver.isHeld(lease("2", SKEWED_RENEW_TIME_MS + 1000L)));
+    }
+
+    @Test
+    public void releasedOrExpiredLeaseIsNotHeld() {
+        // given
+        Lease lease = lease("1", System.currentTimeMillis());
+
+        // when
+        boolean releasedHeld = leaseObserver.isHeld(lease.release());
+        boolean expiredHeld = leaseObserver.isHeld(lease.expire());
+
+        // then
+        assertFalse(releasedHeld);
+        assertFalse(expiredHeld);
+    }
+
+    private static Lease lease(String resourceVersion, long renewTimeMs) {
+        JsonObject leaseJson = Json.parse(Lease.create(LEASE_NAME, "hazelcast-0", "192.168.0.1:5701", LEASE_DURATION_SECONDS,
+                renewTimeMs).toJson()).asObject();
+        leaseJson.get("metadata").asObject().set("resourceVersion", resourceVersion);
+        return Lease.fromJson(leaseJson);
+    }
+}
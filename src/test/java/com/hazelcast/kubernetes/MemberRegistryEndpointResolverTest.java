@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.internal.json.Json;
+import com.hazelcast.internal.json.JsonArray;
+import com.hazelcast.internal.json.JsonObject;
+import com.hazelcast.internal.json.JsonValue;
+import com.hazelcast.kubernetes.MemberRegistry.Member;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MemberRegistryEndpointResolverTest {
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+    private static final String NAMESPACE = "sample-namespace";
+    private static final String REGISTRY_NAME = "hazelcast-members";
+    private static final String REGISTRY_PATH = String.format("/api/v1/namespaces/%s/configmaps/%s", NAMESPACE, REGISTRY_NAME);
+    private static final int PORT = 5701;
+    private static final String ZONE = "us-central1-a";
+    // more than the write attempts of a single registration
+    private static final int MEMBERS = 16;
+    private static final long TIMEOUT_MS = 30000L;
+
+    private FakeKubernetesApiServer apiServer;
+    private KubernetesClient client;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        apiServer = new FakeKubernetesApiServer();
+        client = new KubernetesClient(NAMESPACE, Collections.singletonList(apiServer.getUrl()), "sample-token", null, 0,
+                RateLimiter.unlimited(), false, false, "hazelcast");
+        apiServer.put("/api/v1/nodes/node-a", Json.parse(String.format(
+                "{\"metadata\": {\"name\": \"node-a\", \"labels\": {\"failure-domain.kubernetes.io/zone\": \"%s\"}}}", ZONE))
+                .asObject());
+        for (int i = 0; i < MEMBERS; i++) {
+            putPod(i, true);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        apiServer.close();
+    }
+
+    @Test
+    public void resolveRegisteredMembers() {
+        // given
+        resolver(0).register();
+        resolver(1).register();
+
+        // when
+        List<DiscoveryNode> nodes = resolver(2).resolve();
+
+        // then
+        assertEquals(asList(ip(0), ip(1)), hosts(nodes));
+        JsonObject registry = apiServer.get(REGISTRY_PATH);
+        assertEquals(asList(podUid(0), podUid(1)), ownerUids(registry));
+        JsonObject member = Json.parse(registry.get("data").asObject().getString(podName(0), null)).asObject();
+        assertEquals(ZONE, member.getString("zone", null));
+        assertEquals(PORT, member.getInt("port", 0));
+        assertTrue(member.getBoolean("ready", false));
+    }
+
+    @Test
+    public void resolveWithoutRegistry() {
+        // given
+        MemberRegistryEndpointResolver resolver = resolver(0);
+
+        // when
+        List<DiscoveryNode> nodes = resolver.resolve();
+
+        // then
+        assertTrue(nodes.isEmpty());
+    }
+
+    @Test
+    public void concurrentRegistrations()
+            throws Exception {
+        // given
+        List<MemberRegistryEndpointResolver> resolvers = new ArrayList<MemberRegistryEndpointResolver>();
+        for (int i = 0; i < MEMBERS; i++) {
+            resolvers.add(resolver(i));
+        }
+
+        // when
+        for (MemberRegistryEndpointResolver resolver : resolvers) {
+            resolver.start();
+        }
+        for (int i = 0; i < MEMBERS; i++) {
+            waitUntilRegistered(podName(i));
+        }
+
+        // then
+        assertEquals(MEMBERS, client.memberRegistry(REGISTRY_NAME).getMembers().size());
+        assertEquals(MEMBERS, hosts(resolver(0).resolve()).size());
+    }
+
+    @Test
+    public void startRegistersAndDestroyDeregisters()
+            throws Exception {
+        // given
+        MemberRegistryEndpointResolver first = resolver(0);
+        MemberRegistryEndpointResolver second = resolver(1);
+        second.register();
+        first.start();
+        waitUntilRegistered(podName(0));
+
+        // when
+        first.destroy();
+
+        // then
+        MemberRegistry registry = client.memberRegistry(REGISTRY_NAME);
+        assertFalse(registry.getMembers().containsKey(podName(0)));
+        assertEquals(asList(podUid(1)), ownerUids(apiServer.get(REGISTRY_PATH)));
+        assertEquals(asList(ip(1)), hosts(second.resolve()));
+    }
+
+    @Test
+    public void skipStaleAndNotReadyMembers() {
+        // given
+        MemberRegistry registry = MemberRegistry.create(REGISTRY_NAME)
+                .withMember(podName(0), new Member(ip(0), PORT, true, ZONE, podUid(0)))
+                .withMember(podName(1), new Member(ip(1), PORT, false, ZONE, podUid(1)))
+                .withMember(podName(2), new Member(ip(2), PORT, true, ZONE, podUid(2)));
+        JsonObject registryJson = Json.parse(registry.toJson()).asObject();
+        // Kubernetes removes the owner reference of a deleted POD
+        JsonArray owners = registryJson.get("metadata").asObject().get("ownerReferences").asArray();
+        owners.remove(2);
+        apiServer.put(REGISTRY_PATH, registryJson);
+
+        // when
+        List<DiscoveryNode> readyNodes = resolver(3).resolve();
+        List<DiscoveryNode> allNodes = new MemberRegistryEndpointResolver(LOGGER, client, REGISTRY_NAME, null, null, PORT, true)
+                .resolve();
+
+        // then
+        assertEquals(asList(ip(0)), hosts(readyNodes));
+        assertEquals(asList(ip(0), ip(1)), hosts(allNodes));
+    }
+
+    @Test
+    public void registerNotReadyPodAndMarkItReady() {
+        // given
+        putPod(0, false);
+        MemberRegistryEndpointResolver resolver = resolver(0);
+        resolver.register();
+        assertFalse(client.memberRegistry(REGISTRY_NAME).getMembers().get(podName(0)).isReady());
+        assertTrue(resolver.resolve().isEmpty());
+        assertFalse(resolver.markReadyIfPodReady());
+
+        // when
+        putPod(0, true);
+        boolean marked = resolver.markReadyIfPodReady();
+
+        // then
+        assertTrue(marked);
+        assertTrue(client.memberRegistry(REGISTRY_NAME).getMembers().get(podName(0)).isReady());
+        assertEquals(asList(ip(0)), hosts(resolver.resolve()));
+        resolver.destroy();
+    }
+
+    @Test
+    public void registerWithoutPodUid() {
+        // given
+        MemberRegistryEndpointResolver resolver = new MemberRegistryEndpointResolver(LOGGER, client, REGISTRY_NAME, "unknown-pod",
+                ip(9), PORT, false);
+
+        // when
+        resolver.register();
+
+        // then
+        assertNull(apiServer.get(REGISTRY_PATH).get("metadata").asObject().get("ownerReferences"));
+        assertEquals(asList(ip(9)), hosts(resolver.resolve()));
+    }
+
+    private MemberRegistryEndpointResolver resolver(int index) {
+        return new MemberRegistryEndpointResolver(LOGGER, client, REGISTRY_NAME, podName(index), ip(index), PORT, false);
+    }
+
+    private void putPod(int index, boolean ready) {
+        apiServer.put(String.format("/api/v1/namespaces/%s/pods/%s", NAMESPACE, podName(index)), Json.parse(String.format(
+                "{\"metadata\": {\"name\": \"%s\", \"uid\": \"%s\"}, \"spec\": {\"nodeName\": \"node-a\"},"
+                        + " \"status\": {\"containerStatuses\": [{\"ready\": %s}]}}",
+                podName(index), podUid(index), ready)).asObject());
+    }
+
+    private void waitUntilRegistered(String podName)
+            throws InterruptedException {
+        long deadlineMs = System.currentTimeMillis() + TIMEOUT_MS;
+        while (client.memberRegistry(REGISTRY_NAME) == null
+                || !client.memberRegistry(REGISTRY_NAME).getMembers().containsKey(podName)) {
+            assertTrue("Member not registered", System.currentTimeMillis() < deadlineMs);
+            Thread.sleep(50L);
+        }
+    }
+
+    private static List<String> ownerUids(JsonObject registryJson) {
+        List<String> uids = new ArrayList<String>();
+        for (JsonValue owner : registryJson.get("metadata").asObject().get("ownerReferences").asArray()) {
+            assertEquals("Pod", owner.asObject().getString("kind", null));
+            uids.add(owner.asObject().getString("uid", null));
+        }
+        return uids;
+    }
+
+    private static List<String> hosts(List<DiscoveryNode> nodes) {
+        List<String> hosts = new ArrayList<String>();
+        for (DiscoveryNode node : nodes) {
+            assertEquals(PORT, node.getPrivateAddress().getPort());
+            hosts.add(node.getPrivateAddress().getHost());
+        }
+        return hosts;
+    }
+
+    private static String podName(int index) {
+        return String.format("hazelcast-%d", index);
+    }
+
+    private static String podUid(int index) {
+        return String.format("00000000-0000-0000-0000-%012d", index);
+    }
+
+    private static String ip(int index) {
+        return String.format("192.168.0.%d", index + 1);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MembershipEventPublisherTest {
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+    private static final long QUIET_PERIOD_MS = 200L;
+    private static final long MAX_DELAY_MS = 2000L;
+    private static final long TIMEOUT_SECONDS = 5L;
+
+    private final BlockingQueue<MembershipDelta> events = new LinkedBlockingQueue<MembershipDelta>();
+    private final KubernetesMembershipListener listener = new KubernetesMembershipListener() {
+        @Override
+        public void membershipChanged(MembershipDelta delta) {
+            events.add(delta);
+        }
+    };
+
+    private MembershipEventPublisher publisher;
+
+    @After
+    public void tearDown() {
+        if (publisher != null) {
+            publisher.destroy();
+        }
+    }
+
+    @Test
+    public void burstOfChangesIsEmittedOnce()
+            throws Exception {
+        // given
+        publisher = new MembershipEventPublisher(LOGGER, singletonList(listener), QUIET_PERIOD_MS, MAX_DELAY_MS);
+        DiscoveryNode node1 = node("192.168.0.1");
+        DiscoveryNode node2 = node("192.168.0.2");
+        DiscoveryNode node3 = node("192.168.0.3");
+
+        // when
+        publisher.observe(asList(node1));
+        publisher.observe(asList(node1, node2));
+        publisher.observe(asList(node2, node3));
+
+        // then
+        MembershipDelta delta = events.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(asList(node2, node3), delta.getAdded());
+        assertEquals(0, delta.getRemoved().size());
+        assertNull(events.poll(2 * QUIET_PERIOD_MS, TimeUnit.MILLISECONDS));
+        assertEquals(3, publisher.getChangesReceived());
+        assertEquals(1, publisher.getEventsEmitted());
+    }
+
+    @Test
+    public void continuousChangesAreEmittedAfterMaxDelay()
+            throws Exception {
+        // given
+        long maxDelayMs = 3 * QUIET_PERIOD_MS;
+        publisher = new MembershipEventPublisher(LOGGER, singletonList(listener), QUIET_PERIOD_MS, maxDelayMs);
+        long startNanos = System.nanoTime();
+
+        // when
+        MembershipDelta delta = null;
+        for (int i = 1; delta == null && i < 100; i++) {
+            publisher.observe(asList(node("192.168.0." + i)));
+            delta = events.poll(QUIET_PERIOD_MS / 2, TimeUnit.MILLISECONDS);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        // then
+        assertNotNull(delta);
+        assertEquals(1, delta.getMembers().size());
+        assertTrue(String.format("Event emitted after %d ms", elapsedMs), elapsedMs < maxDelayMs + QUIET_PERIOD_MS);
+    }
+
+    @Test
+    public void deltaIsRelativeToLastEvent()
+            throws Exception {
+        // given
+        publisher = new MembershipEventPublisher(LOGGER, singletonList(listener), QUIET_PERIOD_MS, MAX_DELAY_MS);
+        DiscoveryNode node1 = node("192.168.0.1");
+        DiscoveryNode node2 = node("192.168.0.2");
+        publisher.observe(asList(node1));
+        events.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        // when
+        publisher.observe(asList(node2));
+
+        // then
+        MembershipDelta delta = events.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertEquals(asList(node2), delta.getAdded());
+        assertEquals(asList(node1), delta.getRemoved());
+        assertEquals(asList(node2), delta.getMembers());
+    }
+
+    @Test
+    public void failingListenerDoesNotStopOtherListeners()
+            throws Exception {
+        // given
+        KubernetesMembershipListener failingListener = new KubernetesMembershipListener() {
+            @Override
+            public void membershipChanged(MembershipDelta delta) {
+                throw new IllegalStateException("failure");
+            }
+        };
+        publisher = new MembershipEventPublisher(LOGGER, asList(failingListener, listener), QUIET_PERIOD_MS, MAX_DELAY_MS);
+
+        // when
+        publisher.observe(asList(node("192.168.0.1")));
+
+        // then
+        assertEquals(1, events.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS).getAdded().size());
+    }
+
+    @Test
+    public void noEventAfterDestroy()
+            throws Exception {
+        // given
+        publisher = new MembershipEventPublisher(LOGGER, singletonList(listener), QUIET_PERIOD_MS, MAX_DELAY_MS);
+        publisher.observe(asList(node("192.168.0.1")));
+
+        // when
+        publisher.destroy();
+
+        // then
+        assertNull(events.poll(2 * QUIET_PERIOD_MS, TimeUnit.MILLISECONDS));
+    }
+
+    private static DiscoveryNode node(String host)
+            throws Exception {
+        return new SimpleDiscoveryNode(new Address(host, 5701));
+    }
+}
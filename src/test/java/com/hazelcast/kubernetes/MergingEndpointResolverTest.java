@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class MergingEndpointResolverTest {
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+    private static final long LOOKUP_LATENCY_MS = 300L;
+    private static final long TIMEOUT_MS = 5000L;
+
+    private EndpointResolver delegate1 = mock(EndpointResolver.class);
+    private EndpointResolver delegate2 = mock(EndpointResolver.class);
+
+    private DiscoveryNode node1;
+    private DiscoveryNode node2;
+    private DiscoveryNode node2Duplicate;
+    private DiscoveryNode node3;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        node1 = new SimpleDiscoveryNode(new Address("192.168.0.1", 5701));
+        node2 = new SimpleDiscoveryNode(new Address("192.168.0.2", 5701));
+        node2Duplicate = new SimpleDiscoveryNode(new Address("192.168.0.2", 5701));
+        node3 = new SimpleDiscoveryNode(new Address("192.168.0.3", 5701));
+    }
+
+    @Test
+    public void resolveConcurrentlyAndMerge() {
+        // given
+        given(delegate1.resolve()).willAnswer(slowly(asList(node1, node2)));
+        given(delegate2.resolve()).willAnswer(slowly(asList(node2Duplicate, node3)));
+        MergingEndpointResolver resolver = new MergingEndpointResolver(LOGGER, asList(delegate1, delegate2), TIMEOUT_MS);
+
+        // when
+        long startTimeMs = System.currentTimeMillis();
+        List<DiscoveryNode> result = resolver.resolve();
+        long lookupTimeMs = System.currentTimeMillis() - startTimeMs;
+
+        // then
+        assertEquals(asList(node1, node2, node3), result);
+        assertTrue(String.format("Lookup took %d ms", lookupTimeMs), lookupTimeMs < 2 * LOOKUP_LATENCY_MS);
+    }
+
+    @Test
+    public void skipFailedLookup() {
+        // given
+        given(delegate1.resolve()).willThrow(new IllegalStateException("expected"));
+        given(delegate2.resolve()).willReturn(asList(node3));
+        MergingEndpointResolver resolver = new MergingEndpointResolver(LOGGER, asList(delegate1, delegate2), TIMEOUT_MS);
+
+        // when
+        List<DiscoveryNode> result = resolver.resolve();
+
+        // then
+        assertEquals(asList(node3), result);
+    }
+
+    @Test
+    public void destroyAllDelegates() {
+        // given
+        MergingEndpointResolver resolver = new MergingEndpointResolver(LOGGER, asList(delegate1, delegate2), TIMEOUT_MS);
+
+        // when
+        resolver.destroy();
+
+        // then
+        verify(delegate1).destroy();
+        verify(delegate2).destroy();
+    }
+
+    private static Answer<List<DiscoveryNode>> slowly(final List<DiscoveryNode> nodes) {
+        return new Answer<List<DiscoveryNode>>() {
+            @Override
+            public List<DiscoveryNode> answer(InvocationOnMock invocation)
+                    throws Throwable {
+                Thread.sleep(LOOKUP_LATENCY_MS);
+                return nodes;
+            }
+        };
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class PersistingEndpointResolverTest {
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private EndpointResolver delegate = mock(EndpointResolver.class);
+
+    @Test
+    public void unchangedMembersAreNotStoredAgain()
+            throws Exception {
+        // given
+        List<DiscoveryNode> nodes = singletonList(node("192.168.0.1"));
+        given(delegate.resolve()).willReturn(nodes);
+        File file = new File(folder.getRoot(), "members.json");
+        PersistingEndpointResolver resolver = new PersistingEndpointResolver(LOGGER, delegate,
+                new DiscoverySnapshotFile(LOGGER, file.getPath(), TimeUnit.MINUTES.toMillis(5)));
+        resolver.resolve();
+        assertTrue(file.delete());
+
+        // when
+        resolver.resolve();
+
+        // then
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void changedMembersAreStored()
+            throws Exception {
+        // given
+        given(delegate.resolve()).willReturn(singletonList(node("192.168.0.1")), singletonList(node("192.168.0.2")));
+        File file = new File(folder.getRoot(), "members.json");
+        PersistingEndpointResolver resolver = new PersistingEndpointResolver(LOGGER, delegate,
+                new DiscoverySnapshotFile(LOGGER, file.getPath(), TimeUnit.MINUTES.toMillis(5)));
+        resolver.resolve();
+        assertTrue(file.delete());
+
+        // when
+        resolver.resolve();
+
+        // then
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void emptyResultIsNotStored() {
+        // given
+        given(delegate.resolve()).willReturn(Collections.<DiscoveryNode>emptyList());
+        File file = new File(folder.getRoot(), "members.json");
+        PersistingEndpointResolver resolver = new PersistingEndpointResolver(LOGGER, delegate,
+                new DiscoverySnapshotFile(LOGGER, file.getPath(), TimeUnit.MINUTES.toMillis(5)));
+
+        // when
+        resolver.resolve();
+
+        // then
+        assertFalse(file.exists());
+    }
+
+    private static DiscoveryNode node(String ip)
+            throws Exception {
+        return new SimpleDiscoveryNode(new Address(ip, 5701));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTest {
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void burstNotThrottled() {
+        // given
+        RateLimiter rateLimiter = new RateLimiter(2, 3);
+        long nowNanos = System.nanoTime();
+
+        // when
+        long wait1 = rateLimiter.reserve(nowNanos);
+        long wait2 = rateLimiter.reserve(nowNanos);
+        long wait3 = rateLimiter.reserve(nowNanos);
+
+        // then
+        assertEquals(0, wait1 + wait2 + wait3);
+        assertEquals(3, rateLimiter.getCallCount());
+        assertEquals(0, rateLimiter.getThrottledCount());
+    }
+
+    @Test
+    public void callsAboveBurstQueued() {
+        // given
+        RateLimiter rateLimiter = new RateLimiter(2, 1);
+        long nowNanos = System.nanoTime();
+        rateLimiter.reserve(nowNanos);
+
+        // when
+        long wait1 = rateLimiter.reserve(nowNanos);
+        long wait2 = rateLimiter.reserve(nowNanos);
+
+        // then
+        assertEquals(SECOND_NANOS / 2, wait1);
+        assertEquals(SECOND_NANOS, wait2);
+        assertEquals(2, rateLimiter.getThrottledCount());
+        assertEquals(1500, rateLimiter.getTotalWaitMs());
+        assertEquals(1000, rateLimiter.getMaxWaitMs());
+    }
+
+    @Test
+    public void tokensRefilled() {
+        // given
+        RateLimiter rateLimiter = new RateLimiter(2, 1);
+        long nowNanos = System.nanoTime();
+        rateLimiter.reserve(nowNanos);
+
+        // when
+        long wait = rateLimiter.reserve(nowNanos + SECOND_NANOS / 2);
+
+        // then
+        assertEquals(0, wait);
+    }
+
+    @Test
+    public void acquireWaitsForToken() {
+        // given
+        RateLimiter rateLimiter = new RateLimiter(10, 1);
+        rateLimiter.acquire();
+
+        // when
+        long startNanos = System.nanoTime();
+        rateLimiter.acquire();
+        long waitMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        // then
+        assertTrue(String.format("Waited %d ms", waitMs), waitMs >= 50);
+        assertEquals(1, rateLimiter.getThrottledCount());
+        assertEquals(0, rateLimiter.getQueueLength());
+    }
+
+    @Test
+    public void sharedPerSettings() {
+        // given
+        // when
+        RateLimiter rateLimiter1 = RateLimiter.shared(5, 10);
+        RateLimiter rateLimiter2 = RateLimiter.shared(5, 10);
+        RateLimiter rateLimiter3 = RateLimiter.shared(50, 100);
+
+        // then
+        assertSame(rateLimiter1, rateLimiter2);
+        assertNotSame(rateLimiter1, rateLimiter3);
+    }
+
+    @Test
+    public void unlimitedWhenQpsZero() {
+        // given
+        RateLimiter rateLimiter = RateLimiter.shared(0, 10);
+
+        // when
+        for (int i = 0; i < 1000; i++) {
+            rateLimiter.acquire();
+        }
+
+        // then
+        assertSame(RateLimiter.unlimited(), rateLimiter);
+        assertEquals(0, rateLimiter.getThrottledCount());
+    }
+}
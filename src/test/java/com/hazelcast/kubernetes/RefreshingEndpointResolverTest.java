@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class RefreshingEndpointResolverTest {
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+    private static final long LONG_INTERVAL_MS = 60000L;
+    private static final long SHORT_INTERVAL_MS = 50L;
+    private static final String DESCRIPTION = "discover Hazelcast members";
+    private static final int RETRIES = 0;
+
+    private EndpointResolver delegate = mock(EndpointResolver.class);
+    private RefreshingEndpointResolver resolver;
+
+    private List<DiscoveryNode> nodes1;
+    private List<DiscoveryNode> nodes2;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        nodes1 = singletonList((DiscoveryNode) new SimpleDiscoveryNode(new Address("192.168.0.1", 5701)));
+        nodes2 = singletonList((DiscoveryNode) new SimpleDiscoveryNode(new Address("192.168.0.2", 5701)));
+    }
+
+    @After
+    public void tearDown() {
+        if (resolver != null) {
+            resolver.destroy();
+        }
+    }
+
+    @Test
+    public void resolveSynchronouslyWhenNoSnapshot() {
+        // given
+        given(delegate.resolve()).willReturn(nodes1);
+        resolver = new RefreshingEndpointResolver(LOGGER, delegate, LONG_INTERVAL_MS, LONG_INTERVAL_MS, RETRIES, DESCRIPTION);
+
+        // when
+        List<DiscoveryNode> result = resolver.resolve();
+
+        // then
+        assertEquals(nodes1, result);
+        verify(delegate).resolve();
+    }
+
+    @Test
+    public void resolveReturnsSnapshotWithoutCallingDelegate() {
+        // given
+        given(delegate.resolve()).willReturn(nodes1);
+        resolver = new RefreshingEndpointResolver(LOGGER, delegate, LONG_INTERVAL_MS, LONG_INTERVAL_MS, RETRIES, DESCRIPTION);
+        resolver.start();
+        verify(delegate, timeout(LONG_INTERVAL_MS)).resolve();
+
+        // when
+        List<DiscoveryNode> result1 = resolver.resolve();
+        List<DiscoveryNode> result2 = resolver.resolve();
+
+        // then
+        assertEquals(nodes1, result1);
+        assertEquals(nodes1, result2);
+        verify(delegate, times(1)).resolve();
+    }
+
+    @Test
+    public void resolveSynchronouslyWhenSnapshotStale()
+            throws Exception {
+        // given
+        given(delegate.resolve()).willReturn(nodes1, nodes2);
+        resolver = new RefreshingEndpointResolver(LOGGER, delegate, LONG_INTERVAL_MS, 0L, RETRIES, DESCRIPTION);
+        resolver.resolve();
+        Thread.sleep(SHORT_INTERVAL_MS);
+
+        // when
+        List<DiscoveryNode> result = resolver.resolve();
+
+        // then
+        assertEquals(nodes2, result);
+        verify(delegate, times(2)).resolve();
+    }
+
+    @Test
+    public void backgroundRefreshPublishesNewSnapshot()
+            throws Exception {
+        // given
+        given(delegate.resolve()).willReturn(nodes1, nodes2);
+        resolver = new RefreshingEndpointResolver(LOGGER, delegate, SHORT_INTERVAL_MS, LONG_INTERVAL_MS, RETRIES, DESCRIPTION);
+
+        // when
+        resolver.start();
+
+        // then
+        assertResolvesEventually(nodes2);
+    }
+
+    @Test
+    public void failedRefreshKeepsLastSnapshot() {
+        // given
+        given(delegate.resolve()).willReturn(nodes1).willThrow(new RuntimeException("API server unavailable"));
+        resolver = new RefreshingEndpointResolver(LOGGER, delegate, SHORT_INTERVAL_MS, LONG_INTERVAL_MS, RETRIES, DESCRIPTION);
+
+        // when
+        resolver.start();
+        verify(delegate, timeout(LONG_INTERVAL_MS).times(3)).resolve();
+
+        // then
+        assertEquals(nodes1, resolver.resolve());
+    }
+
+    @Test
+    public void emptyRefreshKeepsLastSnapshot() {
+        // given
+        given(delegate.resolve()).willReturn(nodes1).willReturn(Collections.<DiscoveryNode>emptyList());
+        resolver = new RefreshingEndpointResolver(LOGGER, delegate, SHORT_INTERVAL_MS, LONG_INTERVAL_MS, RETRIES, DESCRIPTION);
+
+        // when
+        resolver.start();
+        verify(delegate, timeout(LONG_INTERVAL_MS).times(3)).resolve();
+
+        // then
+        assertEquals(nodes1, resolver.resolve());
+    }
+
+    @Test
+    public void emptyResultDoesNotReplaceStaleSnapshot()
+            throws Exception {
+        // given
+        given(delegate.resolve()).willReturn(nodes1).willReturn(Collections.<DiscoveryNode>emptyList());
+        resolver = new RefreshingEndpointResolver(LOGGER, delegate, LONG_INTERVAL_MS, 0L, RETRIES, DESCRIPTION);
+        resolver.resolve();
+        Thread.sleep(SHORT_INTERVAL_MS);
+
+        // when
+        List<DiscoveryNode> result = resolver.resolve();
+
+        // then
+        assertEquals(nodes1, result);
+        verify(delegate, times(2)).resolve();
+    }
+
+    private void assertResolvesEventually(List<DiscoveryNode> expected)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + LONG_INTERVAL_MS;
+        while (!expected.equals(resolver.resolve()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(SHORT_INTERVAL_MS);
+        }
+        assertEquals(expected, resolver.resolve());
+    }
+
+    @Test
+    public void destroyStopsRefresher()
+            throws Exception {
+        // given
+        given(delegate.resolve()).willReturn(nodes1);
+        resolver = new RefreshingEndpointResolver(LOGGER, delegate, SHORT_INTERVAL_MS, LONG_INTERVAL_MS, RETRIES, DESCRIPTION);
+        resolver.start();
+        verify(delegate, timeout(LONG_INTERVAL_MS).times(2)).resolve();
+
+        // when
+        resolver.destroy();
+        Thread.sleep(SHORT_INTERVAL_MS);
+        int callsAfterDestroy = mockingDetails(delegate).getInvocations().size();
+        Thread.sleep(5 * SHORT_INTERVAL_MS);
+
+        // then
+        assertEquals(callsAfterDestroy, mockingDetails(delegate).getInvocations().size());
+        verify(delegate).destroy();
+    }
+}
@@ -21,13 +21,18 @@ import org.junit.Test;
 
 import java.util.Collections;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static com.hazelcast.kubernetes.RetryUtils.BACKOFF_MULTIPLIER;
 import static com.hazelcast.kubernetes.RetryUtils.INITIAL_BACKOFF_MS;
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -36,6 +41,7 @@ public class RetryUtilsTest {
     private static final Integer RETRIES = 1;
     private static final String RESULT = "result string";
     private static final String NON_RETRYABLE_KEYWORD = "\"reason\":\"Forbidden\"";
+    private static final String DESCRIPTION = "call the callable";
 
     private Callable<String> callable = mock(Callable.class);
 
@@ -135,6 +141,96 @@ public class RetryUtilsTest {
         // throws exception
     }
 
+    @Test
+    public void retryAsyncNoRetries()
+            throws Exception {
+        // given
+        given(callable.call()).willReturn(RESULT);
+
+        // when
+        String result = RetryUtils.retryAsync(callable, RETRIES, Collections.<String>emptyList(), DESCRIPTION)
+                .get(1, TimeUnit.MINUTES);
+
+        // then
+        assertEquals(RESULT, result);
+        verify(callable).call();
+    }
+
+    @Test
+    public void retryAsyncDoesNotBlockCaller()
+            throws Exception {
+        // given
+        given(callable.call()).willThrow(new RuntimeException()).willReturn(RESULT);
+
+        // when
+        long startTimeMs = System.currentTimeMillis();
+        CompletableFuture<String> future = RetryUtils.retryAsync(callable, RETRIES, Collections.<String>emptyList(),
+                DESCRIPTION);
+        long returnTimeMs = System.currentTimeMillis();
+        String result = future.get(1, TimeUnit.MINUTES);
+
+        // then
+        assertTrue(returnTimeMs - startTimeMs < INITIAL_BACKOFF_MS);
+        assertEquals(RESULT, result);
+        verify(callable, times(2)).call();
+    }
+
+    @Test
+    public void retryAsyncRetriesFailed()
+            throws Exception {
+        // given
+        given(callable.call()).willThrow(new RuntimeException()).willThrow(new RuntimeException()).willReturn(RESULT);
+
+        // when
+        CompletableFuture<String> future = RetryUtils.retryAsync(callable, RETRIES, Collections.<String>emptyList(),
+                DESCRIPTION);
+
+        // then
+        try {
+            future.get(1, TimeUnit.MINUTES);
+            fail("Expected the future to complete exceptionally");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RuntimeException);
+        }
+        verify(callable, times(2)).call();
+    }
+
+    @Test
+    public void retryAsyncNonRetryableKeyword()
+            throws Exception {
+        // given
+        given(callable.call()).willThrow(new NonRetryableException()).willReturn(RESULT);
+
+        // when
+        CompletableFuture<String> future = RetryUtils.retryAsync(callable, RETRIES, asList(NON_RETRYABLE_KEYWORD), DESCRIPTION);
+
+        // then
+        try {
+            future.get(1, TimeUnit.MINUTES);
+            fail("Expected the future to complete exceptionally");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof NonRetryableException);
+        }
+        verify(callable).call();
+    }
+
+    @Test
+    public void retryAsyncCancelled()
+            throws Exception {
+        // given
+        given(callable.call()).willThrow(new RuntimeException()).willReturn(RESULT);
+
+        // when
+        CompletableFuture<String> future = RetryUtils.retryAsync(callable, RETRIES, Collections.<String>emptyList(),
+                DESCRIPTION);
+        future.cancel(false);
+        Thread.sleep(2 * INITIAL_BACKOFF_MS);
+
+        // then
+        assertTrue(future.isCancelled());
+        verify(callable, atMost(1)).call();
+    }
+
     private static class NonRetryableException
             extends RuntimeException {
         private NonRetryableException() {
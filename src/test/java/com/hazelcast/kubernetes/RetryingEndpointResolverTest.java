@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class RetryingEndpointResolverTest {
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+    private static final long BACKOFF_MS = 10L;
+    private static final long LONG_TIMEOUT_MS = 60000L;
+
+    private EndpointResolver delegate = mock(EndpointResolver.class);
+
+    private List<DiscoveryNode> noNodes = Collections.emptyList();
+    private List<DiscoveryNode> oneNode;
+    private List<DiscoveryNode> twoNodes;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        DiscoveryNode node1 = new SimpleDiscoveryNode(new Address("192.168.0.1", 5701));
+        DiscoveryNode node2 = new SimpleDiscoveryNode(new Address("192.168.0.2", 5701));
+        oneNode = singletonList(node1);
+        twoNodes = Arrays.asList(node1, node2);
+    }
+
+    @Test
+    public void retryEmptyResult() {
+        // given
+        given(delegate.resolve()).willReturn(noNodes, noNodes, oneNode);
+        RetryingEndpointResolver resolver = new RetryingEndpointResolver(LOGGER, delegate, 3, 0, 0L, BACKOFF_MS);
+
+        // when
+        List<DiscoveryNode> result = resolver.resolve();
+
+        // then
+        assertEquals(oneNode, result);
+        verify(delegate, times(3)).resolve();
+        verify(delegate, times(2)).invalidate();
+    }
+
+    @Test
+    public void giveUpAfterRetries() {
+        // given
+        given(delegate.resolve()).willReturn(noNodes);
+        RetryingEndpointResolver resolver = new RetryingEndpointResolver(LOGGER, delegate, 2, 0, 0L, BACKOFF_MS);
+
+        // when
+        List<DiscoveryNode> result = resolver.resolve();
+
+        // then
+        assertEquals(noNodes, result);
+        verify(delegate, times(3)).resolve();
+    }
+
+    @Test
+    public void noRetriesAfterFirstDiscovery() {
+        // given
+        given(delegate.resolve()).willReturn(oneNode, noNodes);
+        RetryingEndpointResolver resolver = new RetryingEndpointResolver(LOGGER, delegate, 3, 0, 0L, BACKOFF_MS);
+        resolver.resolve();
+
+        // when
+        List<DiscoveryNode> result = resolver.resolve();
+
+        // then
+        assertEquals(noNodes, result);
+        verify(delegate, times(2)).resolve();
+    }
+
+    @Test
+    public void minMembersTimeoutStartsAtFirstDiscovery()
+            throws Exception {
+        // given
+        long timeoutMs = 200L;
+        given(delegate.resolve()).willReturn(oneNode, twoNodes);
+        RetryingEndpointResolver resolver = new RetryingEndpointResolver(LOGGER, delegate, 0, 2, timeoutMs, BACKOFF_MS);
+        Thread.sleep(2 * timeoutMs);
+
+        // when
+        List<DiscoveryNode> result = resolver.resolve();
+
+        // then
+        assertEquals(twoNodes, result);
+    }
+
+    @Test
+    public void waitForMinMembersOnlyOnce() {
+        // given
+        given(delegate.resolve()).willReturn(oneNode, oneNode, twoNodes, oneNode);
+        RetryingEndpointResolver resolver = new RetryingEndpointResolver(LOGGER, delegate, 0, 2, LONG_TIMEOUT_MS, BACKOFF_MS);
+
+        // when
+        List<DiscoveryNode> startupResult = resolver.resolve();
+        List<DiscoveryNode> laterResult = resolver.resolve();
+
+        // then
+        assertEquals(twoNodes, startupResult);
+        assertEquals(oneNode, laterResult);
+        verify(delegate, times(4)).resolve();
+    }
+
+    @Test
+    public void waitForMinMembersFromSupplier() {
+        // given
+        IntSupplier expectedMembers = mock(IntSupplier.class);
+        given(expectedMembers.getAsInt()).willReturn(2);
+        given(delegate.resolve()).willReturn(oneNode, twoNodes, oneNode);
+        RetryingEndpointResolver resolver = new RetryingEndpointResolver(LOGGER, delegate, 0, expectedMembers,
+                LONG_TIMEOUT_MS, BACKOFF_MS);
+
+        // when
+        List<DiscoveryNode> startupResult = resolver.resolve();
+        List<DiscoveryNode> laterResult = resolver.resolve();
+
+        // then
+        assertEquals(twoNodes, startupResult);
+        assertEquals(oneNode, laterResult);
+        verify(expectedMembers, times(1)).getAsInt();
+    }
+
+    @Test
+    public void noWaitingWhenSupplierFails() {
+        // given
+        IntSupplier expectedMembers = mock(IntSupplier.class);
+        given(expectedMembers.getAsInt()).willThrow(new RestClientException("Failure in executing REST call", 403));
+        given(delegate.resolve()).willReturn(oneNode);
+        RetryingEndpointResolver resolver = new RetryingEndpointResolver(LOGGER, delegate, 0, expectedMembers,
+                LONG_TIMEOUT_MS, BACKOFF_MS);
+
+        // when
+        List<DiscoveryNode> result = resolver.resolve();
+
+        // then
+        assertEquals(oneNode, result);
+        verify(delegate, times(1)).resolve();
+    }
+
+    @Test
+    public void stopWaitingForMinMembersAfterTimeout() {
+        // given
+        long timeoutMs = 200L;
+        given(delegate.resolve()).willReturn(oneNode);
+        RetryingEndpointResolver resolver = new RetryingEndpointResolver(LOGGER, delegate, 0, 2, timeoutMs, BACKOFF_MS);
+
+        // when
+        long startTimeMs = System.currentTimeMillis();
+        List<DiscoveryNode> result = resolver.resolve();
+        long waitTimeMs = System.currentTimeMillis() - startTimeMs;
+
+        // then
+        assertEquals(oneNode, result);
+        assertTrue(String.format("Waited %d ms", waitTimeMs), waitTimeMs >= timeoutMs / 2 && waitTimeMs < 5 * timeoutMs);
+    }
+
+    @Test
+    public void stopWaitingWhenDestroyed()
+            throws Exception {
+        // given
+        given(delegate.resolve()).willReturn(oneNode);
+        final RetryingEndpointResolver resolver = new RetryingEndpointResolver(LOGGER, delegate, 0, 2, LONG_TIMEOUT_MS,
+                LONG_TIMEOUT_MS);
+        Thread destroyer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                resolver.destroy();
+            }
+        });
+        destroyer.start();
+
+        // when
+        long startTimeMs = System.currentTimeMillis();
+        List<DiscoveryNode> result = resolver.resolve();
+        long waitTimeMs = System.currentTimeMillis() - startTimeMs;
+        destroyer.join();
+
+        // then
+        assertEquals(oneNode, result);
+        assertTrue(String.format("Waited %d ms", waitTimeMs), waitTimeMs < LONG_TIMEOUT_MS / 2);
+        verify(delegate).destroy();
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.internal.json.Json;
+import com.hazelcast.kubernetes.HazelcastKubernetesDiscoveryStrategy.EndpointResolver;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import com.hazelcast.spi.discovery.SimpleDiscoveryNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SeedElectingEndpointResolverTest {
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+    private static final String NAMESPACE = "sample-namespace";
+    private static final String LEASE_NAME = "hazelcast-seed";
+    private static final String LEASE_PATH = String.format("/apis/coordination.k8s.io/v1/namespaces/%s/leases/%s",
+            NAMESPACE, LEASE_NAME);
+    private static final int PORT = 5701;
+    private static final int OTHER_PORT = 5702;
+    private static final int LEASE_DURATION_SECONDS = 15;
+    private static final long HOLD_TIME_MS = 60000L;
+    private static final long SHORT_HOLD_TIME_MS = 500L;
+    private static final long TIMEOUT_MS = 5000L;
+    private static final int SHORT_LEASE_DURATION_SECONDS = 1;
+    private static final long SKEWED_RENEW_TIME_MS = System.currentTimeMillis() - 3600 * 1000L;
+    private static final int CONTENDERS = 8;
+
+    private FakeKubernetesApiServer apiServer;
+    private KubernetesClient client;
+    private final List<SeedElectingEndpointResolver> resolvers = new ArrayList<SeedElectingEndpointResolver>();
+    private final List<DiscoveryNode> discovered = new CopyOnWriteArrayList<DiscoveryNode>();
+
+    @Before
+    public void setUp()
+            throws Exception {
+        apiServer = new FakeKubernetesApiServer();
+        client = new KubernetesClient(NAMESPACE, Collections.singletonList(apiServer.getUrl()), "sample-token", null, 0,
+                RateLimiter.unlimited(), false, false, "hazelcast");
+    }
+
+    @After
+    public void tearDown() {
+        for (SeedElectingEndpointResolver resolver : resolvers) {
+            resolver.destroy();
+        }
+        apiServer.close();
+    }
+
+    @Test
+    public void firstMemberBecomesSeed() {
+        // given
+        discover(0);
+        SeedElectingEndpointResolver first = resolver(0, HOLD_TIME_MS);
+        SeedElectingEndpointResolver second = resolver(1, HOLD_TIME_MS);
+
+        // when
+        List<DiscoveryNode> firstNodes = first.resolve();
+        List<DiscoveryNode> secondNodes = second.resolve();
+
+        // then
+        assertTrue(first.isSeed());
+        assertFalse(second.isSeed());
+        assertEquals(asList(ip(0)), hosts(firstNodes));
+        assertEquals(asList(ip(0)), hosts(secondNodes));
+        assertEquals("hazelcast-0", holderIdentity());
+    }
+
+    @Test
+    public void concurrentMembersElectOneSeed()
+            throws Exception {
+        // given
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        List<Callable<List<DiscoveryNode>>> tasks = new ArrayList<Callable<List<DiscoveryNode>>>();
+        for (int i = 0; i < CONTENDERS; i++) {
+            final SeedElectingEndpointResolver resolver = resolver(i, HOLD_TIME_MS);
+            tasks.add(new Callable<List<DiscoveryNode>>() {
+                @Override
+                public List<DiscoveryNode> call()
+                        throws Exception {
+                    startLatch.await();
+                    return resolver.resolve();
+                }
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(CONTENDERS);
+
+        // when
+        List<Future<List<DiscoveryNode>>> futures = new ArrayList<Future<List<DiscoveryNode>>>();
+        for (Callable<List<DiscoveryNode>> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        startLatch.countDown();
+        List<List<DiscoveryNode>> results = new ArrayList<List<DiscoveryNode>>();
+        for (Future<List<DiscoveryNode>> future : futures) {
+            results.add(future.get());
+        }
+        executor.shutdown();
+
+        // then
+        int seed = -1;
+        for (int i = 0; i < CONTENDERS; i++) {
+            if (resolvers.get(i).isSeed()) {
+                assertEquals("Only one seed member expected", -1, seed);
+                seed = i;
+            }
+        }
+        assertTrue("No seed member elected", seed >= 0);
+        assertEquals(String.format("hazelcast-%d", seed), holderIdentity());
+        for (int i = 0; i < CONTENDERS; i++) {
+            assertEquals(i == seed ? Collections.<String>emptyList() : asList(ip(seed)), hosts(results.get(i)));
+        }
+    }
+
+    @Test
+    public void seedReleasesLeaseOnceOtherMembersDiscovered() {
+        // given
+        discover(0);
+        SeedElectingEndpointResolver first = resolver(0, HOLD_TIME_MS);
+        SeedElectingEndpointResolver second = resolver(1, HOLD_TIME_MS);
+        first.resolve();
+        assertEquals(asList(ip(0)), hosts(second.resolve()));
+
+        // when
+        discover(0, 1);
+        List<DiscoveryNode> firstNodes = first.resolve();
+        List<DiscoveryNode> secondNodes = second.resolve();
+
+        // then
+        assertFalse(first.isSeed());
+        assertNull(holderIdentity());
+        assertEquals(asList(ip(0), ip(1)), hosts(firstNodes));
+        assertEquals(asList(ip(0), ip(1)), hosts(secondNodes));
+    }
+
+    @Test
+    public void seedDiscoveringNotReadyMembersHoldsLeaseForHoldTime()
+            throws Exception {
+        // given
+        // the not ready members are discovered as soon as they are scheduled, before they joined the seed
+        discover(0, 1);
+        SeedElectingEndpointResolver first = resolver(0, SHORT_HOLD_TIME_MS, SHORT_LEASE_DURATION_SECONDS, false);
+        SeedElectingEndpointResolver second = resolver(1, SHORT_HOLD_TIME_MS, SHORT_LEASE_DURATION_SECONDS, false);
+        first.resolve();
+        assertEquals(asList(ip(0), ip(1)), hosts(first.resolve()));
+        assertTrue(first.isSeed());
+        assertEquals(asList(ip(0)), hosts(second.resolve()));
+
+        // when
+        waitUntilReleased();
+        List<DiscoveryNode> secondNodes = second.resolve();
+
+        // then
+        assertFalse(first.isSeed());
+        assertEquals(asList(ip(0), ip(1)), hosts(secondNodes));
+    }
+
+    @Test
+    public void seedHoldsLeaseWhileDiscoveringOnlyItself() {
+        // given
+        discover(0);
+        SeedElectingEndpointResolver first = resolver(0, HOLD_TIME_MS);
+        first.resolve();
+
+        // when
+        List<DiscoveryNode> firstNodes = first.resolve();
+
+        // then
+        assertTrue(first.isSeed());
+        assertEquals("hazelcast-0", holderIdentity());
+        assertEquals(asList(ip(0)), hosts(firstNodes));
+    }
+
+    @Test
+    public void seedReleasesLeaseAfterMaxHoldTime()
+            throws Exception {
+        // given
+        discover(0);
+        SeedElectingEndpointResolver first = resolver(0, SHORT_HOLD_TIME_MS, 1);
+        SeedElectingEndpointResolver second = resolver(1, SHORT_HOLD_TIME_MS, 1);
+        first.resolve();
+        assertEquals(asList(ip(0)), hosts(second.resolve()));
+
+        // when
+        waitUntilReleased();
+        discover(0, 1);
+        List<DiscoveryNode> secondNodes = second.resolve();
+
+        // then
+        assertFalse(first.isSeed());
+        assertEquals(asList(ip(0), ip(1)), hosts(secondNodes));
+    }
+
+    @Test
+    public void seedReleasesLeaseOnDestroy() {
+        // given
+        discover(0);
+        SeedElectingEndpointResolver first = resolver(0, HOLD_TIME_MS);
+        SeedElectingEndpointResolver second = resolver(1, HOLD_TIME_MS);
+        first.resolve();
+        assertEquals(asList(ip(0)), hosts(second.resolve()));
+
+        // when
+        first.destroy();
+        discover(0, 1);
+        List<DiscoveryNode> secondNodes = second.resolve();
+
+        // then
+        assertNull(holderIdentity());
+        assertEquals(asList(ip(0), ip(1)), hosts(secondNodes));
+    }
+
+    @Test
+    public void expiredLeaseIsTakenOver()
+            throws Exception {
+        // given
+        // the renew time is written with the clock of the seed, which is an hour behind
+        apiServer.put(LEASE_PATH, Json.parse(Lease.create(LEASE_NAME, "hazelcast-9", ip(9), SHORT_LEASE_DURATION_SECONDS,
+                SKEWED_RENEW_TIME_MS).toJson()).asObject());
+        discover(0);
+        SeedElectingEndpointResolver resolver = resolver(0, HOLD_TIME_MS);
+        assertEquals(asList(ip(9)), hosts(resolver.resolve()));
+
+        // when
+        Thread.sleep(SHORT_LEASE_DURATION_SECONDS * 1000L + 200L);
+        List<DiscoveryNode> nodes = resolver.resolve();
+
+        // then
+        assertTrue(resolver.isSeed());
+        assertEquals(asList(ip(0)), hosts(nodes));
+        assertEquals("hazelcast-0", holderIdentity());
+    }
+
+    @Test
+    public void leaseExpiredByItsHolderIsTakenOver() {
+        // given
+        apiServer.put(LEASE_PATH, Json.parse(Lease.create(LEASE_NAME, "hazelcast-9", ip(9), LEASE_DURATION_SECONDS,
+                System.currentTimeMillis()).expire().toJson()).asObject());
+        discover(0);
+        SeedElectingEndpointResolver resolver = resolver(0, HOLD_TIME_MS);
+
+        // when
+        List<DiscoveryNode> nodes = resolver.resolve();
+
+        // then
+        assertTrue(resolver.isSeed());
+        assertEquals(asList(ip(0)), hosts(nodes));
+    }
+
+    @Test
+    public void seedDiscoveredOnItsOwnPort() {
+        // given
+        SeedElectingEndpointResolver first = new SeedElectingEndpointResolver(LOGGER, new StaticEndpointResolver(discovered),
+                client, LEASE_NAME, "hazelcast-0", ip(0), OTHER_PORT, LEASE_DURATION_SECONDS, HOLD_TIME_MS, true);
+        resolvers.add(first);
+        SeedElectingEndpointResolver second = resolver(1, HOLD_TIME_MS);
+        first.resolve();
+
+        // when
+        List<DiscoveryNode> secondNodes = second.resolve();
+
+        // then
+        assertEquals(1, secondNodes.size());
+        assertEquals(ip(0), secondNodes.get(0).getPrivateAddress().getHost());
+        assertEquals(OTHER_PORT, secondNodes.get(0).getPrivateAddress().getPort());
+    }
+
+    @Test
+    public void seedAddressWithoutPortDiscoveredOnOwnPort() {
+        // given
+        apiServer.put(LEASE_PATH, Json.parse(Lease.create(LEASE_NAME, "hazelcast-9", ip(9), LEASE_DURATION_SECONDS,
+                System.currentTimeMillis()).toJson()).asObject());
+        SeedElectingEndpointResolver resolver = resolver(0, HOLD_TIME_MS);
+
+        // when
+        List<DiscoveryNode> nodes = resolver.resolve();
+
+        // then
+        assertFalse(resolver.isSeed());
+        assertEquals(asList(ip(9)), hosts(nodes));
+    }
+
+    @Test
+    public void formatHolderAddress() {
+        assertEquals("192.168.0.1:5701", SeedElectingEndpointResolver.formatHolderAddress("192.168.0.1", PORT));
+        assertEquals("[fe80::1]:5701", SeedElectingEndpointResolver.formatHolderAddress("fe80::1", PORT));
+    }
+
+    @Test
+    public void outdatedLeaseUpdateIsRejected() {
+        // given
+        Lease created = client.createLease(Lease.create(LEASE_NAME, "hazelcast-0", ip(0), LEASE_DURATION_SECONDS,
+                System.currentTimeMillis()));
+        client.updateLease(created.acquire("hazelcast-0", ip(0), LEASE_DURATION_SECONDS, System.currentTimeMillis()));
+
+        // when
+        Lease updated = client.updateLease(created.acquire("hazelcast-1", ip(1), LEASE_DURATION_SECONDS,
+                System.currentTimeMillis()));
+
+        // then
+        assertNull(updated);
+        assertEquals("hazelcast-0", holderIdentity());
+    }
+
+    private SeedElectingEndpointResolver resolver(int index, long holdTimeMs) {
+        return resolver(index, holdTimeMs, LEASE_DURATION_SECONDS);
+    }
+
+    private SeedElectingEndpointResolver resolver(int index, long holdTimeMs, int leaseDurationSeconds) {
+        return resolver(index, holdTimeMs, leaseDurationSeconds, true);
+    }
+
+    private SeedElectingEndpointResolver resolver(int index, long holdTimeMs, int leaseDurationSeconds,
+                                                  boolean releaseOnOtherMembers) {
+        SeedElectingEndpointResolver resolver = new SeedElectingEndpointResolver(LOGGER, new StaticEndpointResolver(discovered),
+                client, LEASE_NAME, String.format("hazelcast-%d", index), ip(index), PORT, leaseDurationSeconds, holdTimeMs,
+                releaseOnOtherMembers);
+        resolvers.add(resolver);
+        return resolver;
+    }
+
+    private void discover(int... indexes) {
+        discovered.clear();
+        for (int index : indexes) {
+            discovered.add(node(ip(index)));
+        }
+    }
+
+    private String holderIdentity() {
+        return client.lease(LEASE_NAME).getHolderIdentity();
+    }
+
+    private void waitUntilReleased()
+            throws InterruptedException {
+        long deadlineMs = System.currentTimeMillis() + TIMEOUT_MS;
+        while (holderIdentity() != null) {
+            assertTrue("Seed Lease not released", System.currentTimeMillis() < deadlineMs);
+            Thread.sleep(50L);
+        }
+    }
+
+    private static String ip(int index) {
+        return String.format("192.168.0.%d", index + 1);
+    }
+
+    private static List<String> hosts(List<DiscoveryNode> nodes) {
+        List<String> hosts = new ArrayList<String>();
+        for (DiscoveryNode node : nodes) {
+            assertEquals(PORT, node.getPrivateAddress().getPort());
+            hosts.add(node.getPrivateAddress().getHost());
+        }
+        return hosts;
+    }
+
+    private static DiscoveryNode node(String ip) {
+        try {
+            return new SimpleDiscoveryNode(new Address(ip, PORT));
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static final class StaticEndpointResolver
+            extends EndpointResolver {
+        private final List<DiscoveryNode> discovered;
+
+        private StaticEndpointResolver(List<DiscoveryNode> discovered) {
+            super(LOGGER);
+            this.discovered = discovered;
+        }
+
+        @Override
+        List<DiscoveryNode> resolve() {
+            return new ArrayList<DiscoveryNode>(discovered);
+        }
+    }
+}
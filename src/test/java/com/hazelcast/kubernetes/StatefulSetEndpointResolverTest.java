@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import com.hazelcast.cluster.Address;
+import com.hazelcast.kubernetes.KubernetesClient.StatefulSet;
+import com.hazelcast.kubernetes.KubernetesConfig.DnsLookup;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.NoLogFactory;
+import com.hazelcast.spi.discovery.DiscoveryNode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static com.hazelcast.kubernetes.DnsEndpointResolverTest.dnsClient;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class StatefulSetEndpointResolverTest {
+    private static final ILogger LOGGER = new NoLogFactory().getLogger("no");
+
+    private static final String STATEFULSET_NAME = "hazelcast";
+    private static final String SERVICE_NAME = "hazelcast-headless";
+    private static final String DOMAIN = "default.svc.cluster.local";
+    private static final int UNSET_REPLICAS = 0;
+    private static final int UNSET_PORT = 0;
+    private static final int CUSTOM_PORT = 5702;
+    private static final String IP_POD_0 = "192.168.0.5";
+    private static final String IP_POD_1 = "192.168.0.6";
+    private static final String IP_POD_2 = "192.168.0.7";
+    private static final long DNS_LATENCY_MS = 300L;
+    private static final int SERVICE_DNS_TIMEOUT_SECONDS = 5;
+
+    private final KubernetesClient client = mock(KubernetesClient.class);
+
+    private StubDnsServer dnsServer;
+    private StatefulSetEndpointResolver endpointResolver;
+
+    @Before
+    public void setUp()
+            throws Exception {
+        dnsServer = new StubDnsServer(DNS_LATENCY_MS)
+                .addA(podDnsName(0), IP_POD_0)
+                .addA(podDnsName(1), IP_POD_1)
+                .addA(podDnsName(2), IP_POD_2);
+    }
+
+    @After
+    public void tearDown() {
+        if (endpointResolver != null) {
+            endpointResolver.destroy();
+        }
+        if (dnsServer != null) {
+            dnsServer.close();
+        }
+    }
+
+    @Test
+    public void resolveWithSpecFromKubernetesApi()
+            throws Exception {
+        // given
+        given(client.statefulSet(STATEFULSET_NAME)).willReturn(new StatefulSet(2, SERVICE_NAME));
+        endpointResolver = createEndpointResolver(null, UNSET_REPLICAS, UNSET_PORT);
+
+        // when
+        List<DiscoveryNode> result1 = endpointResolver.resolve();
+        List<DiscoveryNode> result2 = endpointResolver.resolve();
+
+        // then
+        assertEquals(2, result1.size());
+        assertEquals(new Address(IP_POD_0, 5701), result1.get(0).getPrivateAddress());
+        assertEquals(new Address(IP_POD_1, 5701), result1.get(1).getPrivateAddress());
+        assertEquals(2, result2.size());
+    }
+
+    @Test
+    public void replicasNotReadAgainWhilePodsMissing() {
+        // given
+        given(client.statefulSet(STATEFULSET_NAME)).willReturn(new StatefulSet(5, SERVICE_NAME));
+        endpointResolver = createEndpointResolver(null, UNSET_REPLICAS, UNSET_PORT);
+
+        // when
+        endpointResolver.resolve();
+        List<DiscoveryNode> result = endpointResolver.resolve();
+
+        // then
+        assertEquals(3, result.size());
+        verify(client, times(1)).statefulSet(STATEFULSET_NAME);
+    }
+
+    @Test
+    public void replicasReadAgainWhenAllPodsFound() {
+        // given
+        given(client.statefulSet(STATEFULSET_NAME))
+                .willReturn(new StatefulSet(2, SERVICE_NAME))
+                .willReturn(new StatefulSet(3, SERVICE_NAME));
+        endpointResolver = createEndpointResolver(null, UNSET_REPLICAS, UNSET_PORT);
+
+        // when
+        List<DiscoveryNode> result1 = endpointResolver.resolve();
+        List<DiscoveryNode> result2 = endpointResolver.resolve();
+
+        // then
+        assertEquals(2, result1.size());
+        assertEquals(3, result2.size());
+    }
+
+    @Test
+    public void zeroReplicasNotKept() {
+        // given
+        given(client.statefulSet(STATEFULSET_NAME))
+                .willReturn(new StatefulSet(0, SERVICE_NAME))
+                .willReturn(new StatefulSet(2, SERVICE_NAME));
+        endpointResolver = createEndpointResolver(null, UNSET_REPLICAS, UNSET_PORT);
+
+        // when
+        List<DiscoveryNode> result1 = endpointResolver.resolve();
+        List<DiscoveryNode> result2 = endpointResolver.resolve();
+
+        // then
+        assertEquals(0, result1.size());
+        assertEquals(2, result2.size());
+    }
+
+    @Test
+    public void resolveWithConfiguredSpecWithoutKubernetesApi()
+            throws Exception {
+        // given
+        endpointResolver = createEndpointResolver(SERVICE_NAME, 3, CUSTOM_PORT);
+
+        // when
+        List<DiscoveryNode> result = endpointResolver.resolve();
+
+        // then
+        assertEquals(3, result.size());
+        assertEquals(new Address(IP_POD_2, CUSTOM_PORT), result.get(2).getPrivateAddress());
+        verify(client, never()).statefulSet(STATEFULSET_NAME);
+    }
+
+    @Test
+    public void podDnsNames() {
+        // given
+        endpointResolver = createEndpointResolver(SERVICE_NAME, 2, UNSET_PORT);
+
+        // when
+        List<String> result = endpointResolver.podDnsNames();
+
+        // then
+        assertEquals(asList(podDnsName(0), podDnsName(1)), result);
+    }
+
+    @Test
+    public void missingPodsSkipped() {
+        // given
+        endpointResolver = createEndpointResolver(SERVICE_NAME, 5, UNSET_PORT);
+
+        // when
+        List<DiscoveryNode> result = endpointResolver.resolve();
+
+        // then
+        assertEquals(3, result.size());
+    }
+
+    @Test
+    public void podsResolvedInParallel() {
+        // given
+        endpointResolver = createEndpointResolver(SERVICE_NAME, 3, UNSET_PORT);
+
+        // when
+        long startTimeMs = System.currentTimeMillis();
+        List<DiscoveryNode> result = endpointResolver.resolve();
+        long lookupTimeMs = System.currentTimeMillis() - startTimeMs;
+
+        // then
+        assertEquals(3, result.size());
+        assertEquals(3, dnsServer.getQueries());
+        assertTrue(String.format("Lookup took %d ms", lookupTimeMs), lookupTimeMs < 2 * DNS_LATENCY_MS);
+    }
+
+    @Test
+    public void statefulSetReadAgainAfterFailure() {
+        // given
+        given(client.statefulSet(STATEFULSET_NAME))
+                .willThrow(new RestClientException("Failure in executing REST call", 403))
+                .willReturn(new StatefulSet(1, SERVICE_NAME));
+        endpointResolver = createEndpointResolver(null, UNSET_REPLICAS, UNSET_PORT);
+
+        // when
+        List<DiscoveryNode> result1 = endpointResolver.resolve();
+        List<DiscoveryNode> result2 = endpointResolver.resolve();
+
+        // then
+        assertEquals(0, result1.size());
+        assertEquals(1, result2.size());
+    }
+
+    private StatefulSetEndpointResolver createEndpointResolver(String serviceName, int replicas, int port) {
+        return new StatefulSetEndpointResolver(LOGGER, client, STATEFULSET_NAME, serviceName, replicas, DOMAIN, port,
+                dnsClient(dnsServer), SERVICE_DNS_TIMEOUT_SECONDS, DnsLookup.A);
+    }
+
+    private static String podDnsName(int ordinal) {
+        return String.format("%s-%d.%s.%s", STATEFULSET_NAME, ordinal, SERVICE_NAME, DOMAIN);
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2008-2020, Hazelcast, Inc. All Rights Reserved.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.hazelcast.kubernetes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.BindException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal authoritative DNS server for tests, answering SRV, A and AAAA queries over UDP and TCP on localhost.
+ * <p>
+ * Every answer is delayed by the configured latency. Queries are answered concurrently, so the latency simulates a slow
+ * DNS server and not a serial one. UDP responses larger than 512 bytes, or than the payload size advertised with EDNS0,
+ * are truncated to the records which fit and flagged with the TC bit.
+ */
+final class StubDnsServer
+        implements Closeable {
+    static final int TYPE_A = 1;
+    static final int TYPE_AAAA = 28;
+    static final int TYPE_SRV = 33;
+
+    private static final int CLASS_IN = 1;
+    private static final int HEADER_LENGTH = 12;
+    private static final int TYPE_OPT = 41;
+    private static final int MAX_PACKET_LENGTH = 65535;
+    private static final int MAX_UDP_LENGTH = 512;
+    private static final int FLAGS_RESPONSE = 0x8180;
+    private static final int FLAG_TRUNCATED = 0x0200;
+    private static final int POINTER_TO_QUESTION = 0xC000 | HEADER_LENGTH;
+    private static final int RCODE_NAME_ERROR = 3;
+    private static final int MAX_BIND_ATTEMPTS = 20;
+
+    private final long latencyMs;
+    private final DatagramSocket socket;
+    private final ServerSocket serverSocket;
+    private final ScheduledExecutorService responder = Executors.newScheduledThreadPool(4);
+    private final Map<String, List<Record>> records = new ConcurrentHashMap<String, List<Record>>();
+    private final AtomicInteger queries = new AtomicInteger();
+    private final AtomicInteger tcpQueries = new AtomicInteger();
+    private final Thread receiver;
+    private final Thread acceptor;
+    private volatile int ttlSeconds = 30;
+    private volatile boolean additionals;
+
+    StubDnsServer(long latencyMs)
+            throws IOException {
+        this.latencyMs = latencyMs;
+        // the UDP and the TCP server share the port, as a DNS client expects; the port chosen for UDP may be taken on TCP,
+        // so retry with another one until both bind
+        DatagramSocket udpSocket = null;
+        ServerSocket tcpSocket = null;
+        for (int attempt = 1; tcpSocket == null; attempt++) {
+            udpSocket = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            try {
+                tcpSocket = new ServerSocket(udpSocket.getLocalPort(), 0, InetAddress.getLoopbackAddress());
+            } catch (BindException e) {
+                udpSocket.close();
+                if (attempt == MAX_BIND_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+        this.socket = udpSocket;
+        this.serverSocket = tcpSocket;
+        this.receiver = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receive();
+            }
+        }, "stub-dns-server");
+        receiver.setDaemon(true);
+        receiver.start();
+        this.acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "stub-dns-server-tcp");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * @return number of queries received so far, over UDP and TCP
+     */
+    int getQueries() {
+        return queries.get();
+    }
+
+    /**
+     * @return number of queries received so far over TCP
+     */
+    int getTcpQueries() {
+        return tcpQueries.get();
+    }
+
+    StubDnsServer withTtl(int ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+        return this;
+    }
+
+    /**
+     * Includes the addresses of the SRV targets in the additional section of SRV responses.
+     */
+    StubDnsServer withAdditionals() {
+        this.additionals = true;
+        return this;
+    }
+
+    /**
+     * Adds an A or an AAAA record, depending on the address.
+     */
+    StubDnsServer addA(String name, String ip)
+            throws Exception {
+        byte[] address = InetAddress.getByName(ip).getAddress();
+        add(name, new Record(name, address.length == 4 ? TYPE_A : TYPE_AAAA, address));
+        return this;
+    }
+
+    StubDnsServer addSrv(String name, int priority, int weight, int port, String target) {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        writeShort(data, priority);
+        writeShort(data, weight);
+        writeShort(data, port);
+        writeName(data, target);
+        add(name, new Record(target, TYPE_SRV, data.toByteArray()));
+        return this;
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+        responder.shutdownNow();
+    }
+
+    private void add(String name, Record record) {
+        String key = normalize(name);
+        List<Record> nameRecords = records.get(key);
+        if (nameRecords == null) {
+            nameRecords = new CopyOnWriteArrayList<Record>();
+            records.put(key, nameRecords);
+        }
+        nameRecords.add(record);
+    }
+
+    private void receive() {
+        while (!socket.isClosed()) {
+            try {
+                byte[] buffer = new byte[MAX_PACKET_LENGTH];
+                final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+                queries.incrementAndGet();
+                responder.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        respond(packet);
+                    }
+                }, latencyMs, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                // the socket was closed
+            }
+        }
+    }
+
+    private void respond(DatagramPacket packet) {
+        try {
+            byte[] response = answer(ByteBuffer.wrap(packet.getData(), 0, packet.getLength()), false);
+            socket.send(new DatagramPacket(response, response.length, packet.getSocketAddress()));
+        } catch (Exception e) {
+            // the socket was closed
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket connection = serverSocket.accept();
+                queries.incrementAndGet();
+                tcpQueries.incrementAndGet();
+                responder.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        respond(connection);
+                    }
+                }, latencyMs, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                // the socket was closed
+            }
+        }
+    }
+
+    private void respond(Socket connection) {
+        try {
+            DataInputStream in = new DataInputStream(connection.getInputStream());
+            byte[] query = new byte[in.readUnsignedShort()];
+            in.readFully(query);
+            byte[] response = answer(ByteBuffer.wrap(query), true);
+            DataOutputStream out = new DataOutputStream(connection.getOutputStream());
+            out.writeShort(response.length);
+            out.write(response);
+            out.flush();
+        } catch (Exception e) {
+            // the connection was closed
+        } finally {
+            try {
+                connection.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+
+    private byte[] answer(ByteBuffer query, boolean overTcp) {
+        int id = query.getShort() & 0xFFFF;
+        query.position(HEADER_LENGTH - 2);
+        int queryAdditionalCount = query.getShort() & 0xFFFF;
+        String name = readName(query);
+        int type = query.getShort() & 0xFFFF;
+        query.getShort();
+        byte[] question = new byte[query.position() - HEADER_LENGTH];
+        System.arraycopy(query.array(), HEADER_LENGTH, question, 0, question.length);
+        int maxLength = overTcp ? MAX_PACKET_LENGTH : maxUdpLength(query, queryAdditionalCount);
+
+        List<Record> nameRecords = records.get(normalize(name));
+        List<Record> answers = select(nameRecords, type);
+        List<Record> additionalRecords = new ArrayList<Record>();
+        if (additionals && type == TYPE_SRV) {
+            for (Record answer : answers) {
+                additionalRecords.addAll(select(records.get(normalize(answer.name)), TYPE_A));
+            }
+        }
+
+        // write the records which fit, the answers first
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        int length = HEADER_LENGTH + question.length;
+        int answerCount = 0;
+        int additionalCount = 0;
+        boolean truncated = false;
+        for (Record record : answers) {
+            byte[] encoded = encodeRecord(null, record);
+            truncated = length + encoded.length > maxLength;
+            if (truncated) {
+                break;
+            }
+            records.write(encoded, 0, encoded.length);
+            length += encoded.length;
+            answerCount++;
+        }
+        for (int i = 0; i < additionalRecords.size() && !truncated; i++) {
+            byte[] encoded = encodeRecord(additionalRecords.get(i).name, additionalRecords.get(i));
+            truncated = length + encoded.length > maxLength;
+            if (!truncated) {
+                records.write(encoded, 0, encoded.length);
+                length += encoded.length;
+                additionalCount++;
+            }
+        }
+
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        writeShort(response, id);
+        int flags = nameRecords == null ? FLAGS_RESPONSE | RCODE_NAME_ERROR : FLAGS_RESPONSE;
+        writeShort(response, truncated ? flags | FLAG_TRUNCATED : flags);
+        writeShort(response, 1);
+        writeShort(response, answerCount);
+        writeShort(response, 0);
+        writeShort(response, additionalCount);
+        response.write(question, 0, question.length);
+        byte[] recordBytes = records.toByteArray();
+        response.write(recordBytes, 0, recordBytes.length);
+        return response.toByteArray();
+    }
+
+    /**
+     * @return the UDP payload size advertised in the OPT record of the query, or 512 bytes without EDNS0
+     */
+    private static int maxUdpLength(ByteBuffer query, int queryAdditionalCount) {
+        if (queryAdditionalCount > 0 && query.get() == 0 && (query.getShort() & 0xFFFF) == TYPE_OPT) {
+            return Math.max(MAX_UDP_LENGTH, query.getShort() & 0xFFFF);
+        }
+        return MAX_UDP_LENGTH;
+    }
+
+    private static List<Record> select(List<Record> nameRecords, int type) {
+        List<Record> result = new ArrayList<Record>();
+        if (nameRecords != null) {
+            for (Record record : nameRecords) {
+                if (record.type == type) {
+                    result.add(record);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param name owner name, or {@code null} for the question name, which is then compressed to a pointer
+     */
+    private byte[] encodeRecord(String name, Record record) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (name == null) {
+            writeShort(out, POINTER_TO_QUESTION);
+        } else {
+            writeName(out, name);
+        }
+        writeShort(out, record.type);
+        writeShort(out, CLASS_IN);
+        writeInt(out, ttlSeconds);
+        writeShort(out, record.data.length);
+        out.write(record.data, 0, record.data.length);
+        return out.toByteArray();
+    }
+
+    private static String readName(ByteBuffer buffer) {
+        StringBuilder name = new StringBuilder();
+        int length = buffer.get() & 0xFF;
+        while (length > 0) {
+            if (name.length() > 0) {
+                name.append('.');
+            }
+            for (int i = 0; i < length; i++) {
+                name.append((char) buffer.get());
+            }
+            length = buffer.get() & 0xFF;
+        }
+        return name.toString();
+    }
+
+    private static void writeName(ByteArrayOutputStream out, String name) {
+        for (String label : normalize(name).split("\\.")) {
+            if (!label.isEmpty()) {
+                out.write(label.length());
+                for (int i = 0; i < label.length(); i++) {
+                    out.write(label.charAt(i));
+                }
+            }
+        }
+        out.write(0);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 8 & 0xFF);
+        out.write(value & 0xFF);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        writeShort(out, value >>> 16);
+        writeShort(out, value & 0xFFFF);
+    }
+
+    private static String normalize(String name) {
+        String result = name.toLowerCase(Locale.ROOT);
+        return result.endsWith(".") ? result.substring(0, result.length() - 1) : result;
+    }
+
+    private static final class Record {
+        /**
+         * Owner name of an address record, target of an SRV record.
+         */
+        private final String name;
+        private final int type;
+        private final byte[] data;
+
+        private Record(String name, int type, byte[] data) {
+            this.name = name;
+            this.type = type;
+            this.data = data;
+        }
+    }
+}